@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Loads the recorded statuses under src/benchmark/resources/fixtures. Statuses are parsed with twitter4j so the
+ * benchmarks exercise the same object model that the streaming client hands to the task.
+ */
+class Fixtures {
+  static final String SMALL = "small";
+  static final String MEDIA = "media";
+  static final String ENTITIES = "entities";
+
+  static String json(String name) {
+    URL url = Resources.getResource(String.format("fixtures/status-%s.json", name));
+    try {
+      return Resources.toString(url, Charsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read fixture " + url, e);
+    }
+  }
+
+  static Status status(String name) {
+    try {
+      return TwitterObjectFactory.createStatus(json(name));
+    } catch (TwitterException e) {
+      throw new IllegalStateException("Could not parse fixture " + name, e);
+    }
+  }
+}
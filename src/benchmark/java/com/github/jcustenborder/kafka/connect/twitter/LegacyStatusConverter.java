@@ -0,0 +1,344 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import twitter4j.GeoLocation;
+import twitter4j.HashtagEntity;
+import twitter4j.MediaEntity;
+import twitter4j.Place;
+import twitter4j.Status;
+import twitter4j.SymbolEntity;
+import twitter4j.URLEntity;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The hand-written converter that GeneratedConverters replaced. It looks each field up by name and allocates a new list
+ * for every entity array. Kept as the baseline for StatusConverterBenchmark.
+ */
+class LegacyStatusConverter {
+  static Map<Integer, Struct> convertSizes(Map<Integer, MediaEntity.Size> items) {
+    Map<Integer, Struct> results = new LinkedHashMap<>();
+
+    if (items == null) {
+      return results;
+    }
+
+    for (Map.Entry<Integer, MediaEntity.Size> kvp : items.entrySet()) {
+      results.put(kvp.getKey(), convertMediaEntitySize(kvp.getValue()));
+    }
+
+    return results;
+  }
+
+  static void convert(User user, Struct struct) {
+    struct
+        .put("Id", user.getId())
+        .put("Name", user.getName())
+        .put("ScreenName", user.getScreenName())
+        .put("Location", user.getLocation())
+        .put("Description", user.getDescription())
+        .put("ContributorsEnabled", user.isContributorsEnabled())
+        .put("ProfileImageURL", user.getProfileImageURL())
+        .put("BiggerProfileImageURL", user.getBiggerProfileImageURL())
+        .put("MiniProfileImageURL", user.getMiniProfileImageURL())
+        .put("OriginalProfileImageURL", user.getOriginalProfileImageURL())
+        .put("ProfileImageURLHttps", user.getProfileImageURLHttps())
+        .put("BiggerProfileImageURLHttps", user.getBiggerProfileImageURLHttps())
+        .put("MiniProfileImageURLHttps", user.getMiniProfileImageURLHttps())
+        .put("OriginalProfileImageURLHttps", user.getOriginalProfileImageURLHttps())
+        .put("DefaultProfileImage", user.isDefaultProfileImage())
+        .put("URL", user.getURL())
+        .put("Protected", user.isProtected())
+        .put("FollowersCount", user.getFollowersCount())
+        .put("ProfileBackgroundColor", user.getProfileBackgroundColor())
+        .put("ProfileTextColor", user.getProfileTextColor())
+        .put("ProfileLinkColor", user.getProfileLinkColor())
+        .put("ProfileSidebarFillColor", user.getProfileSidebarFillColor())
+        .put("ProfileSidebarBorderColor", user.getProfileSidebarBorderColor())
+        .put("ProfileUseBackgroundImage", user.isProfileUseBackgroundImage())
+        .put("DefaultProfile", user.isDefaultProfile())
+        .put("ShowAllInlineMedia", user.isShowAllInlineMedia())
+        .put("FriendsCount", user.getFriendsCount())
+        .put("CreatedAt", user.getCreatedAt())
+        .put("FavouritesCount", user.getFavouritesCount())
+        .put("UtcOffset", user.getUtcOffset())
+        .put("TimeZone", user.getTimeZone())
+        .put("ProfileBackgroundImageURL", user.getProfileBackgroundImageURL())
+        .put("ProfileBackgroundImageUrlHttps", user.getProfileBackgroundImageUrlHttps())
+        .put("ProfileBannerURL", user.getProfileBannerURL())
+        .put("ProfileBannerRetinaURL", user.getProfileBannerRetinaURL())
+        .put("ProfileBannerIPadURL", user.getProfileBannerIPadURL())
+        .put("ProfileBannerIPadRetinaURL", user.getProfileBannerIPadRetinaURL())
+        .put("ProfileBannerMobileURL", user.getProfileBannerMobileURL())
+        .put("ProfileBannerMobileRetinaURL", user.getProfileBannerMobileRetinaURL())
+        .put("ProfileBackgroundTiled", user.isProfileBackgroundTiled())
+        .put("Lang", user.getLang())
+        .put("StatusesCount", user.getStatusesCount())
+        .put("GeoEnabled", user.isGeoEnabled())
+        .put("Verified", user.isVerified())
+        .put("Translator", user.isTranslator())
+        .put("ListedCount", user.getListedCount())
+        .put("FollowRequestSent", user.isFollowRequestSent());
+
+    List<String> withheldInCountries = new ArrayList<>();
+    if (null != user.getWithheldInCountries()) {
+      for (String s : user.getWithheldInCountries()) {
+        withheldInCountries.add(s);
+      }
+    }
+    struct.put("WithheldInCountries", withheldInCountries);
+
+  }
+
+  static void convert(Place place, Struct struct) {
+    if (null == place) {
+      return;
+    }
+    struct.put("Name", place.getName())
+        .put("StreetAddress", place.getStreetAddress())
+        .put("CountryCode", place.getCountryCode())
+        .put("Id", place.getId())
+        .put("Country", place.getCountry())
+        .put("PlaceType", place.getPlaceType())
+        .put("URL", place.getURL())
+        .put("FullName", place.getFullName());
+  }
+
+  static void convert(GeoLocation geoLocation, Struct struct) {
+    if (null == geoLocation) {
+      return;
+    }
+    struct.put("Latitude", geoLocation.getLatitude())
+        .put("Longitude", geoLocation.getLongitude());
+  }
+
+  static Struct convertMediaEntityVariant(MediaEntity.Variant variant) {
+    return new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT)
+        .put("Url", variant.getUrl())
+        .put("Bitrate", variant.getBitrate())
+        .put("ContentType", variant.getContentType());
+  }
+
+  static List<Struct> convert(MediaEntity.Variant[] items) {
+    List<Struct> result = new ArrayList<>();
+    if (null == items) {
+      return result;
+    }
+    for (MediaEntity.Variant item : items) {
+      Struct struct = convertMediaEntityVariant(item);
+      result.add(struct);
+    }
+    return result;
+  }
+
+  static Struct convertMediaEntitySize(MediaEntity.Size size) {
+    return new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY_SIZE)
+        .put("Resize", size.getResize())
+        .put("Width", size.getWidth())
+        .put("Height", size.getHeight());
+  }
+
+  static Struct convertHashtagEntity(HashtagEntity hashtagEntity) {
+    return new Struct(StatusConverter.SCHEMA_HASHTAG_ENTITY)
+        .put("Text", hashtagEntity.getText())
+        .put("Start", hashtagEntity.getStart())
+        .put("End", hashtagEntity.getEnd());
+  }
+
+  static List<Struct> convert(HashtagEntity[] items) {
+    List<Struct> result = new ArrayList<>();
+    if (null == items) {
+      return result;
+    }
+    for (HashtagEntity item : items) {
+      Struct struct = convertHashtagEntity(item);
+      result.add(struct);
+    }
+    return result;
+  }
+
+  static Struct convertMediaEntity(MediaEntity mediaEntity) {
+    return new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY)
+        .put("Id", mediaEntity.getId())
+        .put("Type", mediaEntity.getType())
+        .put("MediaURL", mediaEntity.getMediaURL())
+        .put("Sizes", convertSizes(mediaEntity.getSizes()))
+        .put("MediaURLHttps", mediaEntity.getMediaURLHttps())
+        .put("VideoAspectRatioWidth", mediaEntity.getVideoAspectRatioWidth())
+        .put("VideoAspectRatioHeight", mediaEntity.getVideoAspectRatioHeight())
+        .put("VideoDurationMillis", mediaEntity.getVideoDurationMillis())
+        .put("VideoVariants", convert(mediaEntity.getVideoVariants()))
+        .put("ExtAltText", mediaEntity.getExtAltText())
+        .put("URL", mediaEntity.getURL())
+        .put("Text", mediaEntity.getText())
+        .put("ExpandedURL", mediaEntity.getExpandedURL())
+        .put("Start", mediaEntity.getStart())
+        .put("End", mediaEntity.getEnd())
+        .put("DisplayURL", mediaEntity.getDisplayURL());
+  }
+
+  static List<Struct> convert(MediaEntity[] items) {
+    List<Struct> result = new ArrayList<>();
+    if (null == items) {
+      return result;
+    }
+    for (MediaEntity item : items) {
+      Struct struct = convertMediaEntity(item);
+      result.add(struct);
+    }
+    return result;
+  }
+
+  static Struct convertSymbolEntity(SymbolEntity symbolEntity) {
+    return new Struct(StatusConverter.SCHEMA_SYMBOL_ENTITY)
+        .put("Start", symbolEntity.getStart())
+        .put("End", symbolEntity.getEnd())
+        .put("Text", symbolEntity.getText());
+  }
+
+  static List<Struct> convert(SymbolEntity[] items) {
+    List<Struct> result = new ArrayList<>();
+    if (null == items) {
+      return result;
+    }
+    for (SymbolEntity item : items) {
+      Struct struct = convertSymbolEntity(item);
+      result.add(struct);
+    }
+    return result;
+  }
+
+  static Struct convertURLEntity(URLEntity uRLEntity) {
+    return new Struct(StatusConverter.SCHEMA_URL_ENTITY)
+        .put("URL", uRLEntity.getURL())
+        .put("Text", uRLEntity.getText())
+        .put("ExpandedURL", uRLEntity.getExpandedURL())
+        .put("Start", uRLEntity.getStart())
+        .put("End", uRLEntity.getEnd())
+        .put("DisplayURL", uRLEntity.getDisplayURL());
+  }
+
+  static List<Struct> convert(URLEntity[] items) {
+    List<Struct> result = new ArrayList<>();
+    if (null == items) {
+      return result;
+    }
+    for (URLEntity item : items) {
+      Struct struct = convertURLEntity(item);
+      result.add(struct);
+    }
+    return result;
+  }
+
+  static Struct convertUserMentionEntity(UserMentionEntity userMentionEntity) {
+    return new Struct(StatusConverter.SCHEMA_USER_MENTION_ENTITY)
+        .put("Name", userMentionEntity.getName())
+        .put("Id", userMentionEntity.getId())
+        .put("Text", userMentionEntity.getText())
+        .put("ScreenName", userMentionEntity.getScreenName())
+        .put("Start", userMentionEntity.getStart())
+        .put("End", userMentionEntity.getEnd());
+  }
+
+  static List<Struct> convert(UserMentionEntity[] items) {
+    List<Struct> result = new ArrayList<>();
+    if (null == items) {
+      return result;
+    }
+    for (UserMentionEntity item : items) {
+      Struct struct = convertUserMentionEntity(item);
+      result.add(struct);
+    }
+    return result;
+  }
+
+    static void convert(Status status, Struct struct) {
+    struct
+        .put("CreatedAt", status.getCreatedAt())
+        .put("Id", status.getId())
+        .put("Text", status.getText())
+        .put("Source", status.getSource())
+        .put("Truncated", status.isTruncated())
+        .put("InReplyToStatusId", status.getInReplyToStatusId())
+        .put("InReplyToUserId", status.getInReplyToUserId())
+        .put("InReplyToScreenName", status.getInReplyToScreenName())
+        .put("Favorited", status.isFavorited())
+        .put("Retweeted", status.isRetweeted())
+        .put("FavoriteCount", status.getFavoriteCount())
+        .put("Retweet", status.isRetweet())
+        .put("RetweetCount", status.getRetweetCount())
+        .put("RetweetedByMe", status.isRetweetedByMe())
+        .put("CurrentUserRetweetId", status.getCurrentUserRetweetId())
+        .put("PossiblySensitive", status.isPossiblySensitive())
+        .put("Lang", status.getLang());
+
+    Struct userStruct;
+    if (null != status.getUser()) {
+      userStruct = new Struct(StatusConverter.USER_SCHEMA);
+      convert(status.getUser(), userStruct);
+    } else {
+      userStruct = null;
+    }
+    struct.put("User", userStruct);
+
+    Struct placeStruct;
+    if (null != status.getPlace()) {
+      placeStruct = new Struct(StatusConverter.PLACE_SCHEMA);
+      convert(status.getPlace(), placeStruct);
+    } else {
+      placeStruct = null;
+    }
+    struct.put("Place", placeStruct);
+
+    Struct geoLocationStruct;
+    if (null != status.getGeoLocation()) {
+      geoLocationStruct = new Struct(StatusConverter.GEO_LOCATION_SCHEMA);
+      convert(status.getGeoLocation(), geoLocationStruct);
+    } else {
+      geoLocationStruct = null;
+    }
+    struct.put("GeoLocation", geoLocationStruct);
+    List<Long> contributers = new ArrayList<>();
+
+    if (null != status.getContributors()) {
+      for (Long l : status.getContributors()) {
+        contributers.add(l);
+      }
+    }
+    struct.put("Contributors", contributers);
+
+    List<String> withheldInCountries = new ArrayList<>();
+    if (null != status.getWithheldInCountries()) {
+      for (String s : status.getWithheldInCountries()) {
+        withheldInCountries.add(s);
+      }
+    }
+    struct.put("WithheldInCountries", withheldInCountries);
+
+    struct.put("HashtagEntities", convert(status.getHashtagEntities()));
+    struct.put("UserMentionEntities", convert(status.getUserMentionEntities()));
+    struct.put("MediaEntities", convert(status.getMediaEntities()));
+    struct.put("SymbolEntities", convert(status.getSymbolEntities()));
+    struct.put("URLEntities", convert(status.getURLEntities()));
+  }
+}
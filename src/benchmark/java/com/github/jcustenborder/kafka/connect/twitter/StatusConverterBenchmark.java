@@ -0,0 +1,224 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusConverterBenchmark {
+  @Param({Fixtures.SMALL, Fixtures.MEDIA, Fixtures.ENTITIES})
+  public String fixture;
+
+  Status status;
+  String json;
+  byte[] bytes;
+  StatusReader reader;
+  RawStatusConverter rawConverter;
+  StatusProjection projection;
+  StatusProjection interned;
+  StatusProjection cached;
+  TwitterAvroConverter avroConverter;
+  Struct statusStruct;
+  Struct flatStruct;
+
+  @Setup
+  public void setup() {
+    this.json = Fixtures.json(this.fixture);
+    this.status = Fixtures.status(this.fixture);
+    this.bytes = this.json.getBytes(StandardCharsets.UTF_8);
+    this.reader = new StatusReader();
+    this.rawConverter = new RawStatusConverter(TwitterSourceConnectorConfig.OutputFormat.JSON_STRING, "twitter");
+    this.projection = new StatusProjection(
+        Arrays.asList("CreatedAt", "Id", "Text", "Lang", "User", "HashtagEntities", "UserMentionEntities", "URLEntities"),
+        Arrays.asList("Id", "Name", "ScreenName", "Location", "FollowersCount", "Verified", "Lang")
+    );
+    this.interned = new StatusProjection(
+        Collections.emptyList(), Collections.emptyList(), null, new StringInterner(StatusProjection.INTERNER_MAX_ENTRIES)
+    );
+    this.cached = new StatusProjection(
+        Collections.emptyList(),
+        Collections.emptyList(),
+        new ConversionCache(10000),
+        new StringInterner(StatusProjection.INTERNER_MAX_ENTRIES)
+    );
+    this.avroConverter = new TwitterAvroConverter();
+    this.avroConverter.configure(
+        Collections.singletonMap(TwitterAvroConverterConfig.FALLBACK_CONVERTER_CONF, ""), false
+    );
+    this.statusStruct = convertStatus();
+    this.flatStruct = convertFlatStatus();
+  }
+
+  /**
+   * Baseline for the struct output format. This includes parsing the payload with twitter4j, which the raw output
+   * formats skip entirely.
+   */
+  @Benchmark
+  public Struct parseAndConvertStatus() throws TwitterException {
+    Status status = TwitterObjectFactory.createStatus(this.json);
+    Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+    StatusConverter.convert(status, struct);
+    return struct;
+  }
+
+  /**
+   * Same output as {@link #parseAndConvertStatus()}, read straight from the bytes of the message the way the built-in
+   * stream client does. Run with {@code -prof gc} to compare the allocation of the two.
+   */
+  @Benchmark
+  public Struct readStatus() {
+    return this.reader.read(this.bytes, 0, this.bytes.length);
+  }
+
+  @Benchmark
+  public SourceRecord convertRaw() {
+    this.rawConverter.parse(this.json);
+    return this.rawConverter.status(this.json, StatusPartitions.UNMATCHED, StatusPartitions.NO_OFFSET);
+  }
+
+  @Benchmark
+  public Struct convertStatus() {
+    Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+    StatusConverter.convert(this.status, struct);
+    return struct;
+  }
+
+  @Benchmark
+  public Struct convertFlatStatus() {
+    Struct struct = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+    FlatStatusConverter.convert(this.status, struct);
+    return struct;
+  }
+
+  /**
+   * Encoding only, the struct is converted once in setup. The only allocation should be the returned array.
+   */
+  @Benchmark
+  public byte[] avroStatus() {
+    return this.avroConverter.fromConnectData("twitter", StatusConverter.STATUS_SCHEMA, this.statusStruct);
+  }
+
+  @Benchmark
+  public byte[] avroFlatStatus() {
+    return this.avroConverter.fromConnectData("twitter", StatusConverter.FLAT_STATUS_SCHEMA, this.flatStruct);
+  }
+
+  /**
+   * Baseline for the generated converter. Fields are put by name and every entity array gets a new list.
+   */
+  @Benchmark
+  public Struct convertStatusLegacy() {
+    Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+    LegacyStatusConverter.convert(this.status, struct);
+    return struct;
+  }
+
+  @Benchmark
+  public Struct convertStatusProjected() {
+    Struct struct = new Struct(this.projection.statusSchema);
+    this.projection.convert(this.status, struct);
+    return struct;
+  }
+
+  @Benchmark
+  public Struct convertStatusInterned() {
+    Struct struct = new Struct(this.interned.statusSchema);
+    this.interned.convert(this.status, struct);
+    return struct;
+  }
+
+  /**
+   * Every iteration converts the same author and place, so this measures the cost of a cache hit.
+   */
+  @Benchmark
+  public Struct convertStatusCached() {
+    Struct struct = new Struct(this.cached.statusSchema);
+    this.cached.convert(this.status, struct);
+    return struct;
+  }
+
+  @Benchmark
+  public Struct convertKey() {
+    Struct struct = new Struct(StatusConverter.STATUS_SCHEMA_KEY);
+    StatusConverter.convertKey(this.status, struct);
+    return struct;
+  }
+
+  @Benchmark
+  public Struct convertUser() {
+    Struct struct = new Struct(StatusConverter.USER_SCHEMA);
+    StatusConverter.convert(this.status.getUser(), struct);
+    return struct;
+  }
+
+  @Benchmark
+  public Struct convertPlace() {
+    Struct struct = new Struct(StatusConverter.PLACE_SCHEMA);
+    StatusConverter.convert(this.status.getPlace(), struct);
+    return struct;
+  }
+
+  @Benchmark
+  public List<Struct> convertHashtagEntities() {
+    return StatusConverter.convert(this.status.getHashtagEntities());
+  }
+
+  @Benchmark
+  public List<Struct> convertUserMentionEntities() {
+    return StatusConverter.convert(this.status.getUserMentionEntities());
+  }
+
+  @Benchmark
+  public List<Struct> convertMediaEntities() {
+    return StatusConverter.convert(this.status.getMediaEntities());
+  }
+
+  @Benchmark
+  public List<Struct> convertURLEntities() {
+    return StatusConverter.convert(this.status.getURLEntities());
+  }
+
+  @Benchmark
+  public List<Struct> convertSymbolEntities() {
+    return StatusConverter.convert(this.status.getSymbolEntities());
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import twitter4j.Status;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the handoff from the twitter4j listener thread into the task queue and back out through poll(). The
+ * twitter stream itself is never started.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TwitterSourceTaskBenchmark {
+  @Param({Fixtures.SMALL, Fixtures.MEDIA, Fixtures.ENTITIES})
+  public String fixture;
+
+  Status status;
+  TwitterSourceTask task;
+
+  static Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<>();
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_SECRET_KEY_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_CONSUMER_KEY_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_SECRET_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.KAFKA_STATUS_TOPIC_CONF, "twitter");
+    settings.put(TwitterSourceConnectorConfig.PROCESS_DELETES_CONF, "false");
+    settings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "kafka");
+    return settings;
+  }
+
+  @Setup
+  public void setup() {
+    this.status = Fixtures.status(this.fixture);
+    this.task = new TwitterSourceTask();
+    this.task.config = new TwitterSourceConnectorConfig(settings());
+    this.task.messageQueue = RecordQueue.of(this.task.config);
+    this.task.projection = StatusProjection.of(this.task.config);
+    this.task.partitions = StatusPartitions.of(this.task.config);
+    this.task.router = TopicRouter.of(this.task.config, this.task.partitions);
+    this.task.deletes = DeleteRecords.of(this.task.config, this.task.router);
+    this.task.metrics = TaskMetrics.of(this.task.config, this.task.messageQueue);
+  }
+
+  @Benchmark
+  public List<SourceRecord> onStatusPoll() throws InterruptedException {
+    this.task.onStatus(this.status);
+    return this.task.poll();
+  }
+}
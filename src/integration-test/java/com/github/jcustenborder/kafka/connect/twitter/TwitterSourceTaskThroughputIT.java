@@ -0,0 +1,100 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Replays the recorded corpus through the streaming stub and measures how many records per second make it out of
+ * poll(). Use -Dthroughput.rate=0 (the default) to find the ceiling or a positive multiplier of the recorded rate to
+ * check behavior at a given load. -Dthroughput.loops controls how many times the corpus is replayed and
+ * -Dthroughput.conversion.threads how many threads convert statuses. -Dthroughput.stream.client=BUILTIN reads the
+ * stream with the built-in client instead of twitter4j.
+ */
+public class TwitterSourceTaskThroughputIT {
+  private static final Logger log = LoggerFactory.getLogger(TwitterSourceTaskThroughputIT.class);
+
+  static long processCpuNanos() {
+    OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+    if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+    }
+    return -1L;
+  }
+
+  @Test
+  public void throughput() throws IOException, InterruptedException {
+    final double rate = Double.parseDouble(System.getProperty("throughput.rate", "0"));
+    final long loops = Long.getLong("throughput.loops", 5000L);
+    final int conversionThreads = Integer.getInteger("throughput.conversion.threads", 0);
+    final String streamClient = System.getProperty(
+        "throughput.stream.client", TwitterSourceConnectorConfig.StreamClient.TWITTER4J.name()
+    );
+    final List<String> corpus = StreamingStubServer.corpus(TwitterSourceTaskTest.CORPUS);
+    final long expected = corpus.size() * loops;
+
+    try (StreamingStubServer server = new StreamingStubServer(corpus, rate, loops)) {
+      Map<String, String> settings = server.configure(TwitterSourceTaskTest.settings());
+      settings.put(TwitterSourceConnectorConfig.QUEUE_BATCH_SIZE_CONF, "1000");
+      settings.put(TwitterSourceConnectorConfig.CONVERSION_THREADS_CONF, Integer.toString(conversionThreads));
+      settings.put(TwitterSourceConnectorConfig.STREAM_CLIENT_CONF, streamClient);
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(settings);
+      try {
+        long received = 0;
+        long firstNanos = 0L;
+        long cpuStart = 0L;
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(10);
+        while (received < expected && System.nanoTime() < deadline) {
+          List<SourceRecord> records = task.poll();
+          if (0 == received && !records.isEmpty()) {
+            firstNanos = System.nanoTime();
+            cpuStart = processCpuNanos();
+          }
+          received += records.size();
+        }
+        final long elapsedNanos = System.nanoTime() - firstNanos;
+        final long cpuNanos = processCpuNanos() - cpuStart;
+        final double seconds = elapsedNanos / 1e9D;
+        log.info(
+            "rate = {} conversion.threads = {} stream.client = {} received {} record(s) in {} second(s). {} records/sec, {} records/cpu-sec",
+            rate,
+            conversionThreads,
+            streamClient,
+            received,
+            String.format("%.2f", seconds),
+            String.format("%.0f", received / seconds),
+            cpuStart < 0 ? "n/a" : String.format("%.0f", received / (cpuNanos / 1e9D))
+        );
+        assertEquals(expected, received);
+      } finally {
+        task.stop();
+      }
+    }
+  }
+}
@@ -0,0 +1,699 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Avro binary encoding of a Connect schema. The schema is compiled once into a tree of nodes that know their field
+ * order and types, so encoding a value never looks at the schema again. The Avro schema a value is written with is
+ * the one Connect schemas conventionally map to: a record per struct with the same full name, {@code ["null", T]}
+ * for optional fields, int for INT8 to INT32, long for timestamps and an array of key and value records for maps
+ * whose keys are not strings. {@link #canonicalForm} is its Parsing Canonical Form and {@link #fingerprint} the
+ * CRC-64-AVRO fingerprint of that, which is what single object encoding prefixes each message with.
+ */
+class AvroCodec {
+  static final byte[] MAGIC = new byte[]{(byte) 0xC3, (byte) 0x01};
+  static final int HEADER_LENGTH = MAGIC.length + 8;
+
+  private static final long EMPTY = 0xc15d213aa4d7a795L;
+  private static final long[] FINGERPRINT_TABLE = new long[256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      long fingerprint = i;
+      for (int j = 0; j < 8; j++) {
+        fingerprint = (fingerprint >>> 1) ^ (EMPTY & -(fingerprint & 1L));
+      }
+      FINGERPRINT_TABLE[i] = fingerprint;
+    }
+  }
+
+  final Schema schema;
+  final String canonicalForm;
+  final long fingerprint;
+  private final Node root;
+
+  private AvroCodec(Schema schema, String canonicalForm, Node root) {
+    this.schema = schema;
+    this.canonicalForm = canonicalForm;
+    this.fingerprint = fingerprint(canonicalForm.getBytes(StandardCharsets.UTF_8));
+    this.root = root;
+  }
+
+  /**
+   * @param schema schema to compile.
+   * @return codec for the schema.
+   * @throws DataException if the schema has a type or logical type that is not supported.
+   */
+  static AvroCodec of(Schema schema) {
+    StringBuilder canonicalForm = new StringBuilder(4096);
+    Node root = compile(schema, canonicalForm, new HashMap<>(), new HashMap<>(), null);
+    return new AvroCodec(schema, canonicalForm.toString(), root);
+  }
+
+  static long fingerprint(byte[] bytes) {
+    long result = EMPTY;
+    for (byte b : bytes) {
+      result = (result >>> 8) ^ FINGERPRINT_TABLE[(int) (result ^ b) & 0xff];
+    }
+    return result;
+  }
+
+  /**
+   * Writes the single object encoding header followed by the value.
+   */
+  void write(Object value, Output output) {
+    output.write(MAGIC);
+    output.writeFixedLong(this.fingerprint);
+    this.root.write(value, output);
+  }
+
+  /**
+   * Reads a value written by {@link #write(Object, Output)}, after the header.
+   */
+  Object read(Input input) {
+    return this.root.read(input);
+  }
+
+  /**
+   * @return the fingerprint from the single object encoding header of the message, or null if it does not have one.
+   */
+  static Long headerFingerprint(byte[] message, int length) {
+    if (length < HEADER_LENGTH || MAGIC[0] != message[0] || MAGIC[1] != message[1]) {
+      return null;
+    }
+    long result = 0L;
+    for (int i = HEADER_LENGTH - 1; i >= MAGIC.length; i--) {
+      result = (result << 8) | (message[i] & 0xffL);
+    }
+    return result;
+  }
+
+  private static Node compile(Schema schema, StringBuilder canonicalForm, Map<String, Schema> named,
+                              Map<String, Node> structs, String mapEntryName) {
+    if (schema.isOptional()) {
+      canonicalForm.append("[\"null\",");
+      Node value = compileValue(schema, canonicalForm, named, structs, mapEntryName);
+      canonicalForm.append(']');
+      return new OptionalNode(value);
+    }
+    return compileValue(schema, canonicalForm, named, structs, mapEntryName);
+  }
+
+  private static Node compileValue(Schema schema, StringBuilder canonicalForm, Map<String, Schema> named,
+                                   Map<String, Node> structs, String mapEntryName) {
+    if (null != schema.name() && Schema.Type.STRUCT != schema.type()) {
+      if (Timestamp.LOGICAL_NAME.equals(schema.name())) {
+        canonicalForm.append("\"long\"");
+        return TIMESTAMP;
+      }
+      throw new DataException(String.format("Logical type %s is not supported.", schema.name()));
+    }
+    switch (schema.type()) {
+      case BOOLEAN:
+        canonicalForm.append("\"boolean\"");
+        return BOOLEAN;
+      case INT8:
+        canonicalForm.append("\"int\"");
+        return INT8;
+      case INT16:
+        canonicalForm.append("\"int\"");
+        return INT16;
+      case INT32:
+        canonicalForm.append("\"int\"");
+        return INT32;
+      case INT64:
+        canonicalForm.append("\"long\"");
+        return INT64;
+      case FLOAT32:
+        canonicalForm.append("\"float\"");
+        return FLOAT32;
+      case FLOAT64:
+        canonicalForm.append("\"double\"");
+        return FLOAT64;
+      case STRING:
+        canonicalForm.append("\"string\"");
+        return STRING;
+      case BYTES:
+        canonicalForm.append("\"bytes\"");
+        return BYTES;
+      case ARRAY:
+        canonicalForm.append("{\"type\":\"array\",\"items\":");
+        Node items = compile(schema.valueSchema(), canonicalForm, named, structs, mapEntryName);
+        canonicalForm.append('}');
+        return new ArrayNode(items);
+      case MAP:
+        if (Schema.Type.STRING == schema.keySchema().type() && !schema.keySchema().isOptional()) {
+          canonicalForm.append("{\"type\":\"map\",\"values\":");
+          Node values = compile(schema.valueSchema(), canonicalForm, named, structs, mapEntryName);
+          canonicalForm.append('}');
+          return new MapNode(STRING, values);
+        }
+        if (null == mapEntryName) {
+          throw new DataException("Maps with keys that are not strings have to be in a struct.");
+        }
+        canonicalForm.append("{\"type\":\"array\",\"items\":");
+        if (named.containsKey(mapEntryName)) {
+          throw new DataException(String.format("Record name %s is used twice.", mapEntryName));
+        }
+        named.put(mapEntryName, schema);
+        canonicalForm.append("{\"name\":\"").append(mapEntryName).append("\",\"type\":\"record\",\"fields\":[")
+            .append("{\"name\":\"key\",\"type\":");
+        Node keys = compile(schema.keySchema(), canonicalForm, named, structs, mapEntryName + "Key");
+        canonicalForm.append("},{\"name\":\"value\",\"type\":");
+        Node entryValues = compile(schema.valueSchema(), canonicalForm, named, structs, mapEntryName + "Value");
+        canonicalForm.append("}]}}");
+        return new MapNode(keys, entryValues);
+      case STRUCT:
+        final String name = schema.name();
+        if (null == name || !validName(name)) {
+          throw new DataException(String.format("Struct name '%s' is not a valid Avro name.", name));
+        }
+        final Schema defined = named.get(name);
+        if (null != defined) {
+          if (!defined.equals(schema)) {
+            throw new DataException(String.format("Record name %s is used for two different structs.", name));
+          }
+          final Node node = structs.get(name);
+          if (null == node) {
+            throw new DataException(String.format("Struct %s is referenced from inside its own definition.", name));
+          }
+          canonicalForm.append('"').append(name).append('"');
+          return node;
+        }
+        named.put(name, schema);
+        canonicalForm.append("{\"name\":\"").append(name).append("\",\"type\":\"record\",\"fields\":[");
+        final List<Field> fields = schema.fields();
+        final Node[] children = new Node[fields.size()];
+        for (int i = 0; i < children.length; i++) {
+          final Field field = fields.get(i);
+          if (!validName(field.name()) || field.name().indexOf('.') >= 0) {
+            throw new DataException(String.format("Field name '%s' is not a valid Avro name.", field.name()));
+          }
+          canonicalForm.append(i > 0 ? ",{\"name\":\"" : "{\"name\":\"").append(field.name()).append("\",\"type\":");
+          children[i] = compile(field.schema(), canonicalForm, named, structs, name + "." + field.name() + "Entry");
+          canonicalForm.append('}');
+        }
+        canonicalForm.append("]}");
+        final StructNode result = new StructNode(schema, children);
+        structs.put(name, result);
+        return result;
+      default:
+        throw new DataException(String.format("Type %s is not supported.", schema.type()));
+    }
+  }
+
+  static boolean validName(String name) {
+    if (name.isEmpty()) {
+      return false;
+    }
+    boolean start = true;
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if ('.' == c) {
+        if (start) {
+          return false;
+        }
+        start = true;
+        continue;
+      }
+      final boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || '_' == c;
+      if (!letter && (start || c < '0' || c > '9')) {
+        return false;
+      }
+      start = false;
+    }
+    return !start;
+  }
+
+  abstract static class Node {
+    abstract void write(Object value, Output output);
+
+    abstract Object read(Input input);
+  }
+
+  static final class OptionalNode extends Node {
+    final Node value;
+
+    OptionalNode(Node value) {
+      this.value = value;
+    }
+
+    @Override
+    void write(Object value, Output output) {
+      if (null == value) {
+        output.writeLong(0L);
+      } else {
+        output.writeLong(1L);
+        this.value.write(value, output);
+      }
+    }
+
+    @Override
+    Object read(Input input) {
+      final long index = input.readLong();
+      if (0L == index) {
+        return null;
+      } else if (1L == index) {
+        return this.value.read(input);
+      }
+      throw new DataException(String.format("Union index %s is out of range.", index));
+    }
+  }
+
+  static final Node BOOLEAN = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeByte((Boolean) required(value) ? 1 : 0);
+    }
+
+    @Override
+    Object read(Input input) {
+      return 0 != input.readByte();
+    }
+  };
+
+  static final Node INT8 = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeLong((Byte) required(value));
+    }
+
+    @Override
+    Object read(Input input) {
+      return (byte) input.readLong();
+    }
+  };
+
+  static final Node INT16 = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeLong((Short) required(value));
+    }
+
+    @Override
+    Object read(Input input) {
+      return (short) input.readLong();
+    }
+  };
+
+  static final Node INT32 = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeLong((Integer) required(value));
+    }
+
+    @Override
+    Object read(Input input) {
+      return (int) input.readLong();
+    }
+  };
+
+  static final Node INT64 = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeLong((Long) required(value));
+    }
+
+    @Override
+    Object read(Input input) {
+      return input.readLong();
+    }
+  };
+
+  static final Node TIMESTAMP = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeLong(((Date) required(value)).getTime());
+    }
+
+    @Override
+    Object read(Input input) {
+      return new Date(input.readLong());
+    }
+  };
+
+  static final Node FLOAT32 = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeFixedInt(Float.floatToRawIntBits((Float) required(value)));
+    }
+
+    @Override
+    Object read(Input input) {
+      return Float.intBitsToFloat(input.readFixedInt());
+    }
+  };
+
+  static final Node FLOAT64 = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeFixedLong(Double.doubleToRawLongBits((Double) required(value)));
+    }
+
+    @Override
+    Object read(Input input) {
+      return Double.longBitsToDouble(input.readFixedLong());
+    }
+  };
+
+  static final Node STRING = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      output.writeString((String) required(value));
+    }
+
+    @Override
+    Object read(Input input) {
+      return input.readString();
+    }
+  };
+
+  static final Node BYTES = new Node() {
+    @Override
+    void write(Object value, Output output) {
+      required(value);
+      if (value instanceof ByteBuffer) {
+        final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        value = bytes;
+      }
+      final byte[] bytes = (byte[]) value;
+      output.writeLong(bytes.length);
+      output.write(bytes);
+    }
+
+    @Override
+    Object read(Input input) {
+      return input.readBytes();
+    }
+  };
+
+  static final class ArrayNode extends Node {
+    final Node items;
+
+    ArrayNode(Node items) {
+      this.items = items;
+    }
+
+    @Override
+    void write(Object value, Output output) {
+      final List<?> list = (List<?>) required(value);
+      if (!list.isEmpty()) {
+        output.writeLong(list.size());
+        for (Object item : list) {
+          this.items.write(item, output);
+        }
+      }
+      output.writeLong(0L);
+    }
+
+    @Override
+    Object read(Input input) {
+      List<Object> result = null;
+      for (long count = input.readBlockCount(); count != 0; count = input.readBlockCount()) {
+        if (null == result) {
+          result = new ArrayList<>((int) count);
+        }
+        for (long i = 0; i < count; i++) {
+          result.add(this.items.read(input));
+        }
+      }
+      return null == result ? Collections.emptyList() : result;
+    }
+  }
+
+  /**
+   * A map with string keys is an Avro map. Any other map is an array of key and value records, which is the same
+   * encoding with a key that is not a string.
+   */
+  static final class MapNode extends Node {
+    final Node keys;
+    final Node values;
+
+    MapNode(Node keys, Node values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    @Override
+    void write(Object value, Output output) {
+      final Map<?, ?> map = (Map<?, ?>) required(value);
+      if (!map.isEmpty()) {
+        output.writeLong(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          this.keys.write(entry.getKey(), output);
+          this.values.write(entry.getValue(), output);
+        }
+      }
+      output.writeLong(0L);
+    }
+
+    @Override
+    Object read(Input input) {
+      Map<Object, Object> result = new LinkedHashMap<>();
+      for (long count = input.readBlockCount(); count != 0; count = input.readBlockCount()) {
+        for (long i = 0; i < count; i++) {
+          final Object key = this.keys.read(input);
+          result.put(key, this.values.read(input));
+        }
+      }
+      return result;
+    }
+  }
+
+  static final class StructNode extends Node {
+    final Schema schema;
+    final Field[] fields;
+    final Node[] children;
+
+    StructNode(Schema schema, Node[] children) {
+      this.schema = schema;
+      this.fields = schema.fields().toArray(new Field[0]);
+      this.children = children;
+    }
+
+    @Override
+    void write(Object value, Output output) {
+      final Struct struct = (Struct) required(value);
+      for (int i = 0; i < this.fields.length; i++) {
+        this.children[i].write(struct.get(this.fields[i]), output);
+      }
+    }
+
+    @Override
+    Object read(Input input) {
+      final Struct result = new Struct(this.schema);
+      for (int i = 0; i < this.fields.length; i++) {
+        result.put(this.fields[i], this.children[i].read(input));
+      }
+      return result;
+    }
+  }
+
+  static Object required(Object value) {
+    if (null == value) {
+      throw new DataException("A required field is null.");
+    }
+    return value;
+  }
+
+  /**
+   * Growable buffer that is reused between messages.
+   */
+  static final class Output {
+    byte[] buffer;
+    int position;
+
+    Output(int initialSize) {
+      this.buffer = new byte[initialSize];
+    }
+
+    void reset() {
+      this.position = 0;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(this.buffer, this.position);
+    }
+
+    private void ensure(int length) {
+      if (this.position + length > this.buffer.length) {
+        this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.position + length));
+      }
+    }
+
+    void writeByte(int b) {
+      ensure(1);
+      this.buffer[this.position++] = (byte) b;
+    }
+
+    void write(byte[] bytes) {
+      ensure(bytes.length);
+      System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+      this.position += bytes.length;
+    }
+
+    /**
+     * Zig zag variable length encoding, used for int and long alike.
+     */
+    void writeLong(long value) {
+      ensure(10);
+      long n = (value << 1) ^ (value >> 63);
+      while ((n & ~0x7FL) != 0) {
+        this.buffer[this.position++] = (byte) ((n & 0x7F) | 0x80);
+        n >>>= 7;
+      }
+      this.buffer[this.position++] = (byte) n;
+    }
+
+    void writeFixedInt(int value) {
+      ensure(4);
+      for (int i = 0; i < 4; i++) {
+        this.buffer[this.position++] = (byte) (value >>> (8 * i));
+      }
+    }
+
+    void writeFixedLong(long value) {
+      ensure(8);
+      for (int i = 0; i < 8; i++) {
+        this.buffer[this.position++] = (byte) (value >>> (8 * i));
+      }
+    }
+
+    /**
+     * Ascii strings are copied char by char, anything else goes through the UTF-8 encoder.
+     */
+    void writeString(String value) {
+      final int length = value.length();
+      for (int i = 0; i < length; i++) {
+        if (value.charAt(i) >= 0x80) {
+          final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+          writeLong(bytes.length);
+          write(bytes);
+          return;
+        }
+      }
+      writeLong(length);
+      ensure(length);
+      for (int i = 0; i < length; i++) {
+        this.buffer[this.position++] = (byte) value.charAt(i);
+      }
+    }
+  }
+
+  static final class Input {
+    final byte[] buffer;
+    final int limit;
+    int position;
+
+    Input(byte[] buffer, int offset, int limit) {
+      this.buffer = buffer;
+      this.position = offset;
+      this.limit = limit;
+    }
+
+    private void require(int length) {
+      if (length < 0 || this.position + length > this.limit) {
+        throw new DataException("Message is truncated.");
+      }
+    }
+
+    int readByte() {
+      require(1);
+      return this.buffer[this.position++];
+    }
+
+    long readLong() {
+      long n = 0;
+      int shift = 0;
+      int b;
+      do {
+        if (shift > 63) {
+          throw new DataException("Variable length number is too long.");
+        }
+        b = readByte();
+        n |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * @return the number of items in the next block of an array or map. A negative count is followed by the size of
+     * the block in bytes, which is not needed here.
+     */
+    long readBlockCount() {
+      long count = readLong();
+      if (count < 0) {
+        readLong();
+        count = -count;
+      }
+      return count;
+    }
+
+    int readFixedInt() {
+      require(4);
+      int result = 0;
+      for (int i = 0; i < 4; i++) {
+        result |= (this.buffer[this.position++] & 0xff) << (8 * i);
+      }
+      return result;
+    }
+
+    long readFixedLong() {
+      require(8);
+      long result = 0;
+      for (int i = 0; i < 8; i++) {
+        result |= (this.buffer[this.position++] & 0xffL) << (8 * i);
+      }
+      return result;
+    }
+
+    String readString() {
+      final int length = (int) readLong();
+      require(length);
+      final String result = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+      this.position += length;
+      return result;
+    }
+
+    byte[] readBytes() {
+      final int length = (int) readLong();
+      require(length);
+      final byte[] result = Arrays.copyOfRange(this.buffer, this.position, this.position + length);
+      this.position += length;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import twitter4j.Paging;
+import twitter4j.Query;
+import twitter4j.QueryResult;
+import twitter4j.RateLimitStatus;
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Fills the gap between the last committed offset of each partition and the point the stream connected. Keywords are
+ * caught up with the search api and user ids with their timeline. Each is paged from newest to oldest with max_id
+ * while since_id stays fixed at the committed offset, which is how the REST api expects a gap to be walked.
+ *
+ * The seam is the time the stream connected. Statuses created after the seam plus the grace period are left to the
+ * stream. Statuses within the grace period on either side of the seam can be delivered by both, so their ids are
+ * checked with {@link #isDuplicateAtSeam(long)} from both paths.
+ *
+ * A partition is only marked complete, which releases its held offset, once the gap was walked or it reached
+ * maxPages. Calls that fail for any other reason than the rate limit are retried with a backoff. If they keep failing
+ * the offset stays held, so the next start of the task tries the same gap again.
+ */
+class Backfill implements Runnable {
+  private static final Logger log = LoggerFactory.getLogger(Backfill.class);
+  /**
+   * Epoch of the timestamp embedded in the upper bits of a status id.
+   */
+  static final long ID_EPOCH_MS = 1288834974657L;
+  static final int PAGE_SIZE = 100;
+  static final int MAX_ATTEMPTS = 5;
+  static final long RETRY_BACKOFF_MS = TimeUnit.SECONDS.toMillis(1);
+  static final long MAX_RETRY_BACKOFF_MS = TimeUnit.MINUTES.toMillis(1);
+
+  final Twitter twitter;
+  final StatusPartitions partitions;
+  final Map<Map<String, String>, Long> sinceIds;
+  final BiConsumer<Status, Map<String, String>> sink;
+  final int maxPages;
+  final long seamMs;
+  final long graceMs;
+  final StatusIdDeduplicator seam;
+  final AtomicLong statuses = new AtomicLong();
+  final AtomicLong pages = new AtomicLong();
+  final AtomicLong rateLimited = new AtomicLong();
+  final AtomicLong failed = new AtomicLong();
+  long retryBackoffMs = RETRY_BACKOFF_MS;
+  private volatile boolean running = true;
+  private RateLimitStatus rateLimitStatus;
+
+  Backfill(Twitter twitter, StatusPartitions partitions, Map<Map<String, String>, Long> sinceIds,
+           BiConsumer<Status, Map<String, String>> sink, int maxPages, long seamMs, long graceMs) {
+    this.twitter = twitter;
+    this.partitions = partitions;
+    this.sinceIds = sinceIds;
+    this.sink = sink;
+    this.maxPages = maxPages;
+    this.seamMs = seamMs;
+    this.graceMs = graceMs;
+    this.seam = new StatusIdDeduplicator(16 * 1024, 0L, System::currentTimeMillis);
+  }
+
+  /**
+   * @param statusId id of a status.
+   * @return the time the status was created, in milliseconds since the unix epoch.
+   */
+  static long timestamp(long statusId) {
+    return (statusId >> 22) + ID_EPOCH_MS;
+  }
+
+  boolean nearSeam(long statusId) {
+    return Math.abs(timestamp(statusId) - this.seamMs) <= this.graceMs;
+  }
+
+  /**
+   * @param statusId id of a status from either the stream or the backfill.
+   * @return true if the status is close to the seam and has already been seen by the other path.
+   */
+  boolean isDuplicateAtSeam(long statusId) {
+    return nearSeam(statusId) && !this.seam.add(statusId);
+  }
+
+  boolean isRunning() {
+    return this.running;
+  }
+
+  void stop() {
+    this.running = false;
+  }
+
+  @Override
+  public void run() {
+    try {
+      for (Map.Entry<Map<String, String>, Long> entry : this.sinceIds.entrySet()) {
+        if (!this.running) {
+          return;
+        }
+        Map<String, String> partition = entry.getKey();
+        if (backfill(partition, entry.getValue())) {
+          this.partitions.complete(partition);
+        } else {
+          this.failed.incrementAndGet();
+        }
+      }
+      log.info("Backfill finished. statuses = {} pages = {} rateLimited = {} failed = {}",
+          this.statuses.get(), this.pages.get(), this.rateLimited.get(), this.failed.get());
+    } catch (InterruptedException e) {
+      log.info("Backfill interrupted.");
+      Thread.currentThread().interrupt();
+    } finally {
+      this.running = false;
+    }
+  }
+
+  /**
+   * @return true if the gap was walked or maxPages was reached, false if the backfill failed or was stopped.
+   */
+  boolean backfill(Map<String, String> partition, long sinceId) throws InterruptedException {
+    log.info("Backfilling {} since {}", partition, sinceId);
+    long maxId = -1L;
+    int page = 0;
+    int attempts = 0;
+    while (page < this.maxPages && this.running) {
+      final List<Status> result;
+      try {
+        result = page(partition, sinceId, maxId);
+      } catch (TwitterException e) {
+        if (e.exceededRateLimitation()) {
+          this.rateLimited.incrementAndGet();
+          waitForReset(e.getRateLimitStatus());
+          continue;
+        }
+        if (++attempts >= MAX_ATTEMPTS) {
+          log.error("Backfill of {} failed {} times. The offset stays at {} until the next start.",
+              partition, attempts, sinceId, e);
+          return false;
+        }
+        final long backoffMs = Math.min(MAX_RETRY_BACKOFF_MS, this.retryBackoffMs << (attempts - 1));
+        log.warn("Backfill of {} failed. Retrying in {} ms.", partition, backoffMs, e);
+        TimeUnit.MILLISECONDS.sleep(backoffMs);
+        continue;
+      }
+      attempts = 0;
+      page++;
+      this.pages.incrementAndGet();
+      if (result.isEmpty()) {
+        return true;
+      }
+      for (Status status : result) {
+        final long statusId = status.getId();
+        maxId = maxId < 0 ? statusId - 1 : Math.min(maxId, statusId - 1);
+        if (statusId <= sinceId || timestamp(statusId) > this.seamMs + this.graceMs) {
+          continue;
+        }
+        this.sink.accept(status, partition);
+        this.statuses.incrementAndGet();
+      }
+      if (maxId <= sinceId) {
+        return true;
+      }
+      if (null != this.rateLimitStatus && this.rateLimitStatus.getRemaining() <= 0) {
+        waitForReset(this.rateLimitStatus);
+      }
+    }
+    if (!this.running) {
+      return false;
+    }
+    log.warn("Backfill of {} stopped after {} pages. Statuses older than {} were not backfilled.",
+        partition, this.maxPages, maxId);
+    return true;
+  }
+
+  List<Status> page(Map<String, String> partition, long sinceId, long maxId) throws TwitterException {
+    String keyword = partition.get(StatusPartitions.KEYWORD_PARTITION);
+    if (null != keyword) {
+      Query query = new Query(keyword)
+          .sinceId(sinceId)
+          .count(PAGE_SIZE)
+          .resultType(Query.RECENT);
+      if (maxId > 0) {
+        query.setMaxId(maxId);
+      }
+      QueryResult result = this.twitter.search(query);
+      this.rateLimitStatus = result.getRateLimitStatus();
+      return result.getTweets();
+    }
+    long userId = Long.parseLong(partition.get(StatusPartitions.USER_ID_PARTITION));
+    Paging paging = new Paging(1, PAGE_SIZE).sinceId(sinceId);
+    if (maxId > 0) {
+      paging.setMaxId(maxId);
+    }
+    ResponseList<Status> result = this.twitter.getUserTimeline(userId, paging);
+    this.rateLimitStatus = result.getRateLimitStatus();
+    return result;
+  }
+
+  void waitForReset(RateLimitStatus rateLimitStatus) throws InterruptedException {
+    final int seconds = null == rateLimitStatus ? 60 : Math.max(1, rateLimitStatus.getSecondsUntilReset());
+    log.info("Backfill rate limited. Waiting {} seconds for the window to reset.", seconds);
+    TimeUnit.SECONDS.sleep(seconds);
+  }
+}
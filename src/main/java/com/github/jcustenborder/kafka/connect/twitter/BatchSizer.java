@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+/**
+ * Decides how many records {@link RecordQueue#getBatch()} returns.
+ *
+ * {@link TwitterSourceConnectorConfig.BatchMode#FIXED} always returns up to queue.batch.size records.
+ * {@link TwitterSourceConnectorConfig.BatchMode#ADAPTIVE} starts there and doubles the batch each time a full batch
+ * leaves records behind in the queue, which means statuses arrive faster than poll() takes them, up to
+ * queue.batch.max.size. It halves the batch, down to queue.batch.size, while more than two batches are waiting for the
+ * producer to acknowledge them, so poll() does not outrun the producer. An adaptive batch also stops once it reaches
+ * queue.batch.max.bytes of estimated record size so producer requests stay near max.request.size.
+ *
+ * Only used by the poll thread, under the lock of the queue.
+ */
+class BatchSizer {
+  final int minSize;
+  final int maxSize;
+  final long maxBytes;
+  final boolean adaptive;
+  private int size;
+
+  BatchSizer(int minSize, int maxSize, long maxBytes, boolean adaptive) {
+    this.minSize = minSize;
+    this.maxSize = Math.max(minSize, maxSize);
+    this.maxBytes = maxBytes;
+    this.adaptive = adaptive;
+    this.size = minSize;
+  }
+
+  static BatchSizer fixed(int size) {
+    return new BatchSizer(size, size, Long.MAX_VALUE, false);
+  }
+
+  static BatchSizer of(TwitterSourceConnectorConfig config) {
+    if (TwitterSourceConnectorConfig.BatchMode.ADAPTIVE == config.queueBatchMode) {
+      return new BatchSizer(config.queueBatchSize, config.queueBatchMaxSize, config.queueBatchMaxBytes, true);
+    }
+    return fixed(config.queueBatchSize);
+  }
+
+  /**
+   * @return the number of records the next batch can hold.
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Called after each batch.
+   *
+   * @param returned  number of records in the batch.
+   * @param remaining number of records left in the queue and spill log.
+   * @param inFlight  number of records returned earlier that the producer has not acknowledged yet.
+   */
+  void polled(int returned, long remaining, int inFlight) {
+    if (!this.adaptive) {
+      return;
+    }
+    if (inFlight > 2L * this.size) {
+      this.size = Math.max(this.minSize, this.size / 2);
+    } else if (returned >= this.size && remaining > 0L) {
+      this.size = (int) Math.min(this.maxSize, 2L * this.size);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import twitter4j.Place;
+import twitter4j.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU caches of converted User and Place structs. The same authors and places show up over and over in a
+ * keyword stream, so a hit reuses the struct from an earlier status instead of building a new one. Entries are keyed
+ * on the id and checked against a fingerprint of the fields that change, so an author whose profile changes is
+ * converted again. Cached structs are shared between records and must not be modified.
+ */
+class ConversionCache {
+  final AtomicLong userHits = new AtomicLong();
+  final AtomicLong userMisses = new AtomicLong();
+  final AtomicLong placeHits = new AtomicLong();
+  final AtomicLong placeMisses = new AtomicLong();
+
+  private final Map<Long, Entry> users;
+  private final Map<String, Entry> places;
+
+  static class Entry {
+    final long fingerprint;
+    final Struct struct;
+
+    Entry(long fingerprint, Struct struct) {
+      this.fingerprint = fingerprint;
+      this.struct = struct;
+    }
+  }
+
+  static <K> Map<K, Entry> lru(final int maxEntries) {
+    return new LinkedHashMap<K, Entry>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  ConversionCache(int maxEntries) {
+    this.users = lru(maxEntries);
+    this.places = lru(maxEntries);
+  }
+
+  static ConversionCache of(TwitterSourceConnectorConfig config) {
+    return config.conversionCacheSize > 0 ? new ConversionCache(config.conversionCacheSize) : null;
+  }
+
+  static long mix(long hash, long value) {
+    return (hash ^ value) * 0x100000001B3L;
+  }
+
+  /**
+   * Fingerprint of the user fields that change between statuses. The counts change most often, the rest cover profile
+   * edits.
+   */
+  static long fingerprint(User user) {
+    long hash = 0xCBF29CE484222325L;
+    hash = mix(hash, user.getStatusesCount());
+    hash = mix(hash, user.getFollowersCount());
+    hash = mix(hash, user.getFriendsCount());
+    hash = mix(hash, user.getFavouritesCount());
+    hash = mix(hash, user.getListedCount());
+    hash = mix(hash, Objects.hashCode(user.getName()));
+    hash = mix(hash, Objects.hashCode(user.getScreenName()));
+    hash = mix(hash, Objects.hashCode(user.getDescription()));
+    hash = mix(hash, Objects.hashCode(user.getLocation()));
+    hash = mix(hash, Objects.hashCode(user.getURL()));
+    hash = mix(hash, Objects.hashCode(user.getProfileImageURL()));
+    hash = mix(hash, Objects.hashCode(user.getProfileBannerURL()));
+    hash = mix(hash, user.isVerified() ? 1 : 0);
+    hash = mix(hash, user.isProtected() ? 1 : 0);
+    return hash;
+  }
+
+  static long fingerprint(Place place) {
+    long hash = 0xCBF29CE484222325L;
+    hash = mix(hash, Objects.hashCode(place.getFullName()));
+    hash = mix(hash, Objects.hashCode(place.getName()));
+    hash = mix(hash, Objects.hashCode(place.getStreetAddress()));
+    hash = mix(hash, Objects.hashCode(place.getURL()));
+    return hash;
+  }
+
+  /**
+   * Returns the cached struct for the user, converting it on a miss.
+   */
+  synchronized Struct user(User user, Function<User, Struct> converter) {
+    final long fingerprint = fingerprint(user);
+    final Long key = user.getId();
+    Entry entry = this.users.get(key);
+    if (null != entry && entry.fingerprint == fingerprint) {
+      this.userHits.incrementAndGet();
+      return entry.struct;
+    }
+    this.userMisses.incrementAndGet();
+    Struct struct = converter.apply(user);
+    this.users.put(key, new Entry(fingerprint, struct));
+    return struct;
+  }
+
+  /**
+   * Returns the cached struct for the place, converting it on a miss.
+   */
+  synchronized Struct place(Place place, Function<Place, Struct> converter) {
+    final String key = place.getId();
+    if (null == key) {
+      return converter.apply(place);
+    }
+    final long fingerprint = fingerprint(place);
+    Entry entry = this.places.get(key);
+    if (null != entry && entry.fingerprint == fingerprint) {
+      this.placeHits.incrementAndGet();
+      return entry.struct;
+    }
+    this.placeMisses.incrementAndGet();
+    Struct struct = converter.apply(place);
+    this.places.put(key, new Entry(fingerprint, struct));
+    return struct;
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Moves conversion off the twitter4j listener thread. The listener submits work that converts a status and returns
+ * the step that publishes the result. Conversions run in parallel on a pool of threads, and the publish steps run in
+ * the order the work was submitted ({@link TwitterSourceConnectorConfig.ConversionOrdering#ARRIVAL}) or in the order
+ * it was submitted for each key ({@link TwitterSourceConnectorConfig.ConversionOrdering#KEY}).
+ *
+ * The number of submissions waiting to be published is bounded, so a listener that gets ahead of the workers blocks
+ * and the backlog stays in the stream client rather than the heap.
+ */
+class ConversionPipeline implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(ConversionPipeline.class);
+
+  static class Slot {
+    Runnable publish;
+    boolean done;
+  }
+
+  final TwitterSourceConnectorConfig.ConversionOrdering ordering;
+  final LongAdder submitted = new LongAdder();
+  final LongAdder blocked = new LongAdder();
+  private final Semaphore inFlight;
+  private final ExecutorService[] executors;
+  private final ArrayDeque<Slot> pending = new ArrayDeque<>();
+
+  ConversionPipeline(int threads, TwitterSourceConnectorConfig.ConversionOrdering ordering, int maxInFlight) {
+    this.ordering = ordering;
+    this.inFlight = new Semaphore(maxInFlight);
+    final ThreadFactory threadFactory = threadFactory();
+    if (TwitterSourceConnectorConfig.ConversionOrdering.ARRIVAL == ordering) {
+      this.executors = new ExecutorService[]{Executors.newFixedThreadPool(threads, threadFactory)};
+    } else {
+      // One thread per lane, so the statuses of a key are converted and published one after the other.
+      this.executors = new ExecutorService[threads];
+      for (int i = 0; i < threads; i++) {
+        this.executors[i] = Executors.newSingleThreadExecutor(threadFactory);
+      }
+    }
+  }
+
+  static ConversionPipeline of(TwitterSourceConnectorConfig config) {
+    if (config.conversionThreads <= 0 || config.outputFormat.raw) {
+      return null;
+    }
+    return new ConversionPipeline(config.conversionThreads, config.conversionOrdering, config.conversionMaxInFlight);
+  }
+
+  private static ThreadFactory threadFactory() {
+    final AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread thread = new Thread(r, "twitter-conversion-" + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * @param key  statuses with the same key are published in the order they were submitted. Only used for
+   *             {@link TwitterSourceConnectorConfig.ConversionOrdering#KEY}.
+   * @param work converts a status and returns the step that publishes it, or null if there is nothing to publish.
+   * @throws InterruptedException if interrupted while waiting for room in the pipeline.
+   */
+  void submit(long key, Supplier<Runnable> work) throws InterruptedException {
+    if (!this.inFlight.tryAcquire()) {
+      this.blocked.increment();
+      this.inFlight.acquire();
+    }
+    this.submitted.increment();
+    if (TwitterSourceConnectorConfig.ConversionOrdering.KEY == this.ordering) {
+      final int lane = (int) Math.floorMod(mix(key), (long) this.executors.length);
+      this.executors[lane].execute(() -> {
+        try {
+          publish(run(work));
+        } finally {
+          this.inFlight.release();
+        }
+      });
+      return;
+    }
+    final Slot slot = new Slot();
+    synchronized (this.pending) {
+      this.pending.add(slot);
+    }
+    this.executors[0].execute(() -> {
+      final Runnable publish = run(work);
+      synchronized (this.pending) {
+        slot.publish = publish;
+        slot.done = true;
+        // Whoever finishes the oldest conversion publishes everything that is ready behind it.
+        while (!this.pending.isEmpty() && this.pending.peek().done) {
+          publish(this.pending.remove().publish);
+          this.inFlight.release();
+        }
+      }
+    });
+  }
+
+  private static long mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 32);
+  }
+
+  private static Runnable run(Supplier<Runnable> work) {
+    try {
+      return work.get();
+    } catch (RuntimeException ex) {
+      log.error("Exception thrown while converting a status.", ex);
+      return null;
+    }
+  }
+
+  private static void publish(Runnable publish) {
+    if (null == publish) {
+      return;
+    }
+    try {
+      publish.run();
+    } catch (RuntimeException ex) {
+      log.error("Exception thrown while queueing a status.", ex);
+    }
+  }
+
+  /**
+   * Finishes the work that was already submitted and stops the threads.
+   */
+  @Override
+  public void close() {
+    for (ExecutorService executor : this.executors) {
+      executor.shutdown();
+    }
+    try {
+      for (ExecutorService executor : this.executors) {
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+          executor.shutdownNow();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.config.types.Password;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One set of OAuth credentials. The streaming api allows a single filter connection per set, so the connector hands
+ * each task its own set from the pool. A set is written as
+ * {@code consumerKey:consumerSecret:accessToken:accessTokenSecret}.
+ */
+class Credentials {
+  final String consumerKey;
+  final String consumerSecret;
+  final String accessToken;
+  final String accessTokenSecret;
+
+  Credentials(String consumerKey, String consumerSecret, String accessToken, String accessTokenSecret) {
+    this.consumerKey = consumerKey;
+    this.consumerSecret = consumerSecret;
+    this.accessToken = accessToken;
+    this.accessTokenSecret = accessTokenSecret;
+  }
+
+  static Credentials parse(String value) {
+    String[] parts = value.trim().split(":");
+    if (parts.length != 4) {
+      throw new IllegalArgumentException(
+          "Credentials must be in the format consumerKey:consumerSecret:accessToken:accessTokenSecret."
+      );
+    }
+    for (String part : parts) {
+      if (part.isEmpty()) {
+        throw new IllegalArgumentException("Credentials cannot have an empty part.");
+      }
+    }
+    return new Credentials(parts[0], parts[1], parts[2], parts[3]);
+  }
+
+  /**
+   * Parses sets separated by semicolons or new lines. Blank lines and lines starting with # are skipped.
+   *
+   * @param value sets of credentials.
+   * @return credentials in the order they were listed.
+   */
+  static List<Credentials> parseAll(String value) {
+    List<Credentials> result = new ArrayList<>();
+    for (String entry : value.split("[;\\r\\n]")) {
+      String trimmed = entry.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+      result.add(parse(trimmed));
+    }
+    return result;
+  }
+
+  /**
+   * The credentials pool from {@code credentials.pool} followed by the sets in {@code credentials.file}.
+   *
+   * @param config connector config.
+   * @return pool of credentials, or an empty list if neither is configured.
+   */
+  static List<Credentials> pool(TwitterSourceConnectorConfig config) {
+    List<Credentials> result = new ArrayList<>();
+    if (null != config.credentialsPool) {
+      result.addAll(parseAll(config.credentialsPool.value()));
+    }
+    if (!config.credentialsFile.isEmpty()) {
+      File file = new File(config.credentialsFile);
+      try {
+        result.addAll(parseAll(Files.asCharSource(file, Charsets.UTF_8).read()));
+      } catch (IOException | IllegalArgumentException e) {
+        throw new ConfigException(
+            TwitterSourceConnectorConfig.CREDENTIALS_FILE_CONF,
+            config.credentialsFile,
+            "Could not read credentials. " + e.getMessage()
+        );
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Overwrites the twitter.oauth settings with this set.
+   *
+   * @param settings task settings.
+   */
+  void apply(Map<String, String> settings) {
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_CONSUMER_KEY_CONF, this.consumerKey);
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_SECRET_KEY_CONF, this.consumerSecret);
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_CONF, this.accessToken);
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_SECRET_CONF, this.accessTokenSecret);
+  }
+
+  @Override
+  public String toString() {
+    // The consumer key identifies the set in logs without exposing the secrets.
+    return String.format("Credentials{consumerKey=%s}", this.consumerKey);
+  }
+
+  static class PoolValidator implements ConfigDef.Validator {
+    @Override
+    public void ensureValid(String key, Object o) {
+      if (o instanceof Password) {
+        try {
+          parseAll(((Password) o).value());
+        } catch (IllegalArgumentException e) {
+          throw new ConfigException(key, "[hidden]", e.getMessage());
+        }
+      }
+    }
+  }
+}
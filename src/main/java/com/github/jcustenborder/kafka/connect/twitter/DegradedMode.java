@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks how far behind the stream is from the percentFull of stall warnings and picks how much work to do for each
+ * status. The level goes up as soon as a warning crosses a threshold. It comes back down one level at a time, after
+ * a full recovery period without a warning and only once the queue has drained, so a connection that is still behind
+ * does not flap between levels.
+ *
+ * The listener thread only reads {@link #level}. Warnings and recovery are handled by the stream and poll threads.
+ */
+class DegradedMode {
+  private static final Logger log = LoggerFactory.getLogger(DegradedMode.class);
+
+  enum Level {
+    /**
+     * Full conversion.
+     */
+    NORMAL,
+    /**
+     * Statuses are converted with the reduced projection.
+     */
+    REDUCED,
+    /**
+     * Reduced, and statuses that are not priority are dropped.
+     */
+    SHED
+  }
+
+  final int reducedPercentFull;
+  final int shedPercentFull;
+  final long recoveryMs;
+  final LongSupplier clock;
+  final BooleanSupplier drained;
+  final StatusProjection projection;
+  volatile Level level = Level.NORMAL;
+  private long lastChangeMs;
+
+  DegradedMode(int reducedPercentFull, int shedPercentFull, long recoveryMs, LongSupplier clock,
+               BooleanSupplier drained, StatusProjection projection) {
+    this.reducedPercentFull = reducedPercentFull;
+    this.shedPercentFull = shedPercentFull;
+    this.recoveryMs = recoveryMs;
+    this.clock = clock;
+    this.drained = drained;
+    this.projection = projection;
+  }
+
+  static DegradedMode of(TwitterSourceConnectorConfig config, StatusProjection projection, RecordQueue queue) {
+    if (!config.degradedEnabled) {
+      return null;
+    }
+    StatusProjection reduced = new StatusProjection(
+        intersect(config.degradedStatusFields, config.statusFields),
+        intersect(config.degradedUserFields, config.userFields),
+        null,
+        projection.interner
+    );
+    return new DegradedMode(
+        config.degradedReducedPercentFull,
+        config.degradedShedPercentFull,
+        config.degradedRecoveryMs,
+        System::currentTimeMillis,
+        () -> queue.retainedBytes() <= queue.maxBytes / 2,
+        reduced
+    );
+  }
+
+  /**
+   * The reduced fields that are also written normally. An empty list writes every field.
+   */
+  static List<String> intersect(List<String> degraded, Collection<String> configured) {
+    if (configured.isEmpty()) {
+      return degraded;
+    }
+    List<String> result = new ArrayList<>(degraded);
+    result.retainAll(configured);
+    return result.isEmpty() ? new ArrayList<>(configured) : result;
+  }
+
+  Level level(int percentFull) {
+    if (percentFull >= this.shedPercentFull) {
+      return Level.SHED;
+    } else if (percentFull >= this.reducedPercentFull) {
+      return Level.REDUCED;
+    }
+    return Level.NORMAL;
+  }
+
+  synchronized void onStallWarning(int percentFull) {
+    final Level target = level(percentFull);
+    this.lastChangeMs = this.clock.getAsLong();
+    if (target.compareTo(this.level) > 0) {
+      log.warn("Stall warning at {}% full. Switching from {} to {}.", percentFull, this.level, target);
+      this.level = target;
+    }
+  }
+
+  /**
+   * Steps back one level if there has not been a stall warning for the recovery period and the queue has drained.
+   * Called from the poll thread.
+   */
+  synchronized void maybeRecover() {
+    if (Level.NORMAL == this.level) {
+      return;
+    }
+    final long now = this.clock.getAsLong();
+    if (now - this.lastChangeMs < this.recoveryMs || !this.drained.getAsBoolean()) {
+      return;
+    }
+    final Level target = Level.values()[this.level.ordinal() - 1];
+    log.info("No stall warning for {} ms. Switching from {} to {}.", now - this.lastChangeMs, this.level, target);
+    this.level = target;
+    this.lastChangeMs = now;
+  }
+}
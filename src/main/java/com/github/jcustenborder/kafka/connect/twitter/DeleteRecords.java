@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+
+/**
+ * Builds the records written for a deletion notice. By default a delete goes to {@code kafka.status.topic} with the
+ * StatusDeletionNoticeKey key and a null value. That key never matches the StatusKey of the status it removes, so
+ * compaction cannot drop either of them. With {@code compaction.enabled} the delete is a tombstone keyed with the
+ * StatusKey instead, written to every topic a status can be routed to since the notice does not carry the fields
+ * routing is done on. {@code kafka.delete.topic} moves the notice itself to its own topic, with the
+ * StatusDeletionNotice as the value.
+ */
+class DeleteRecords {
+  final String statusTopic;
+  final String deleteTopic;
+  final boolean compaction;
+  final String[] tombstoneTopics;
+
+  /**
+   * @param statusTopic     topic statuses go to when they do not match a route.
+   * @param deleteTopic     topic for the deletion notices. Empty writes them to the status topic unless compacting.
+   * @param compaction      write tombstones keyed with the StatusKey.
+   * @param tombstoneTopics every topic a status can be written to.
+   */
+  DeleteRecords(String statusTopic, String deleteTopic, boolean compaction, String[] tombstoneTopics) {
+    this.statusTopic = statusTopic;
+    this.deleteTopic = deleteTopic;
+    this.compaction = compaction;
+    this.tombstoneTopics = tombstoneTopics;
+  }
+
+  static DeleteRecords of(TwitterSourceConnectorConfig config, TopicRouter router) {
+    return new DeleteRecords(config.topic, config.deleteTopic, config.compactionEnabled, router.allTopics());
+  }
+
+  /**
+   * @param statusId  id of the deleted status.
+   * @param userId    id of the author of the deleted status.
+   * @param hasUserId false when the notice did not carry the author.
+   * @param timestamp when the status was deleted. Can be null.
+   * @return records to write for the delete, in order.
+   */
+  SourceRecord[] records(long statusId, long userId, boolean hasUserId, Long timestamp) {
+    final boolean notice = !this.deleteTopic.isEmpty() || !this.compaction;
+    final SourceRecord[] result = new SourceRecord[(notice ? 1 : 0) + (this.compaction ? this.tombstoneTopics.length : 0)];
+    int index = 0;
+    if (notice) {
+      Struct keyStruct = new Struct(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY)
+          .put("StatusId", statusId);
+      Struct valueStruct = null;
+      if (!this.deleteTopic.isEmpty()) {
+        valueStruct = new Struct(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE)
+            .put("StatusId", statusId)
+            .put("UserId", userId);
+      }
+      result[index++] = new SourceRecord(
+          StatusPartitions.UNMATCHED,
+          StatusPartitions.NO_OFFSET,
+          this.deleteTopic.isEmpty() ? this.statusTopic : this.deleteTopic,
+          null,
+          StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY,
+          keyStruct,
+          null == valueStruct ? null : StatusConverter.SCHEMA_STATUS_DELETION_NOTICE,
+          valueStruct,
+          timestamp,
+          headers(statusId, userId, hasUserId)
+      );
+    }
+    if (this.compaction) {
+      Struct keyStruct = new Struct(StatusConverter.STATUS_SCHEMA_KEY)
+          .put("Id", statusId);
+      for (String topic : this.tombstoneTopics) {
+        result[index++] = new SourceRecord(
+            StatusPartitions.UNMATCHED,
+            StatusPartitions.NO_OFFSET,
+            topic,
+            null,
+            StatusConverter.STATUS_SCHEMA_KEY,
+            keyStruct,
+            null,
+            null,
+            timestamp,
+            headers(statusId, userId, hasUserId)
+        );
+      }
+    }
+    return result;
+  }
+
+  static ConnectHeaders headers(long statusId, long userId, boolean hasUserId) {
+    ConnectHeaders headers = new ConnectHeaders();
+    headers.addLong(RawStatusConverter.HEADER_ID, statusId);
+    if (hasUserId) {
+      headers.addLong(RawStatusConverter.HEADER_USER_ID, userId);
+    }
+    return headers;
+  }
+}
@@ -0,0 +1,632 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import twitter4j.ConnectionLifeCycleListener;
+import twitter4j.HttpParameter;
+import twitter4j.HttpRequest;
+import twitter4j.RequestMethod;
+import twitter4j.auth.Authorization;
+import twitter4j.auth.AuthorizationFactory;
+import twitter4j.conf.Configuration;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Client for the streaming filter endpoint that replaces twitter4j's stream. The request asks for
+ * {@code delimited=length}, so every message is preceded by its length and can be handed to the listener as a slice
+ * of the buffer it was read into, without splitting lines or decoding the bytes to a String. The response is read
+ * from a non blocking {@link SocketChannel}, the chunked transfer encoding is removed in place and a gzip response is
+ * inflated incrementally. https goes through an {@link SSLSocket} wrapped in a channel because the JDK has no TLS
+ * channel. The host name of the certificate is verified the same way {@link javax.net.ssl.HttpsURLConnection} does it.
+ * The client connects directly, so the connector does not allow it together with a http proxy.
+ *
+ * The connection is retried with the back off the streaming api asks for. Errors on the network back off linearly
+ * from 250ms to 16s, http errors exponentially from 5s to 320s and a 420 exponentially from one minute.
+ */
+class DelimitedStreamClient implements Runnable, Closeable {
+  private static final Logger log = LoggerFactory.getLogger(DelimitedStreamClient.class);
+  static final String FILTER_PATH = "statuses/filter.json";
+  static final int BUFFER_SIZE = 64 * 1024;
+  static final int MAX_HEADER_SIZE = 64 * 1024;
+  static final long NETWORK_BACKOFF_MS = 250L;
+  static final long NETWORK_BACKOFF_MAX_MS = 16000L;
+  static final long HTTP_BACKOFF_MS = 5000L;
+  static final long HTTP_BACKOFF_MAX_MS = 320000L;
+  static final long RATE_LIMITED_BACKOFF_MS = 60000L;
+  private static final int CHUNK_SIZE = 0;
+  private static final int CHUNK_DATA = 1;
+  private static final int CHUNK_END = 2;
+  private static final int GZIP_FEXTRA = 4;
+  private static final int GZIP_FNAME = 8;
+  private static final int GZIP_FCOMMENT = 16;
+  private static final int GZIP_FHCRC = 2;
+
+  /**
+   * Receives each message of the stream.
+   */
+  interface Listener {
+    /**
+     * Called on the thread of the client for every message. The buffer is reused once this returns.
+     *
+     * @param buffer buffer holding the message.
+     * @param offset offset of the message in the buffer.
+     * @param length length of the message in bytes, without the trailing line break.
+     */
+    void onMessage(byte[] buffer, int offset, int length);
+  }
+
+  /**
+   * Thrown when the endpoint answers with something other than a 200.
+   */
+  static class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+    final int statusCode;
+
+    HttpStatusException(int statusCode, String message) {
+      super(message);
+      this.statusCode = statusCode;
+    }
+  }
+
+  final Configuration configuration;
+  final HttpParameter[] parameters;
+  final boolean gzip;
+  final Listener listener;
+  final ConnectionLifeCycleListener lifeCycleListener;
+  final AtomicLong messages = new AtomicLong();
+  final AtomicLong bytesRead = new AtomicLong();
+  final AtomicLong connects = new AtomicLong();
+  private volatile boolean running = true;
+  private volatile Closeable connection;
+  private volatile Selector selector;
+  private Thread thread;
+
+  private final byte[] network = new byte[BUFFER_SIZE];
+  private final byte[] inflated = new byte[BUFFER_SIZE];
+  private byte[] header = new byte[1024];
+  private int headerLength;
+  private byte[] message = new byte[BUFFER_SIZE];
+  private int messageLength;
+  private int messageExpected;
+  private int lengthPrefix;
+  private boolean lengthDigits;
+  private boolean chunked;
+  private long chunkRemaining;
+  private int chunkState;
+  private boolean chunkDigits;
+  private boolean chunkExtension;
+  private boolean gzipped;
+  private Inflater inflater;
+  private byte[] gzipHeader = new byte[64];
+  private int gzipHeaderLength;
+  private boolean gzipHeaderDone;
+
+  /**
+   * @param configuration     twitter4j configuration holding the stream base url and the credentials.
+   * @param parameters        filter parameters such as track, follow and locations.
+   * @param gzip              flag to ask for a gzip encoded response.
+   * @param listener          receives each message.
+   * @param lifeCycleListener notified when the stream connects and disconnects.
+   */
+  DelimitedStreamClient(Configuration configuration, HttpParameter[] parameters, boolean gzip, Listener listener, ConnectionLifeCycleListener lifeCycleListener) {
+    this.configuration = configuration;
+    this.parameters = Arrays.copyOf(parameters, parameters.length + 2);
+    this.parameters[parameters.length] = new HttpParameter("delimited", "length");
+    this.parameters[parameters.length + 1] = new HttpParameter("stall_warnings", true);
+    this.gzip = gzip;
+    this.listener = listener;
+    this.lifeCycleListener = lifeCycleListener;
+  }
+
+  /**
+   * Starts reading the stream on a daemon thread.
+   */
+  void start() {
+    this.thread = new Thread(this, "twitter-stream");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  @Override
+  public void run() {
+    long backoffMs = 0L;
+    while (this.running) {
+      try {
+        stream();
+        backoffMs = 0L;
+      } catch (HttpStatusException e) {
+        final long initialMs = 420 == e.statusCode ? RATE_LIMITED_BACKOFF_MS : HTTP_BACKOFF_MS;
+        backoffMs = Math.min(HTTP_BACKOFF_MAX_MS, Math.max(initialMs, backoffMs * 2));
+        if (this.running) {
+          log.warn("Stream returned {}. Reconnecting in {} ms. {}", e.statusCode, backoffMs, e.getMessage());
+        }
+      } catch (IOException | DataFormatException | RuntimeException e) {
+        backoffMs = Math.min(NETWORK_BACKOFF_MAX_MS, backoffMs + NETWORK_BACKOFF_MS);
+        if (this.running) {
+          log.warn("Stream failed. Reconnecting in {} ms.", backoffMs, e);
+        }
+      } finally {
+        closeConnection();
+      }
+      if (this.running && backoffMs > 0) {
+        try {
+          TimeUnit.MILLISECONDS.sleep(backoffMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    this.lifeCycleListener.onCleanUp();
+  }
+
+  /**
+   * Connects and reads until the stream is closed.
+   */
+  void stream() throws IOException, DataFormatException {
+    final URL url = new URL(this.configuration.getStreamBaseURL() + FILTER_PATH);
+    final boolean https = "https".equalsIgnoreCase(url.getProtocol());
+    final int port = -1 == url.getPort() ? url.getDefaultPort() : url.getPort();
+    final int timeoutMs = this.configuration.getHttpStreamingReadTimeout();
+    final byte[] request = request(url);
+
+    final ReadableByteChannel channel;
+    final Selector selector;
+    if (https) {
+      final Socket plain = new Socket();
+      this.connection = plain;
+      plain.connect(new InetSocketAddress(url.getHost(), port), timeoutMs);
+      final SSLSocket socket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(
+          plain, url.getHost(), port, true
+      );
+      this.connection = socket;
+      final SSLParameters sslParameters = socket.getSSLParameters();
+      sslParameters.setEndpointIdentificationAlgorithm("HTTPS");
+      socket.setSSLParameters(sslParameters);
+      socket.setSoTimeout(timeoutMs);
+      socket.startHandshake();
+      socket.getOutputStream().write(request);
+      socket.getOutputStream().flush();
+      channel = Channels.newChannel(socket.getInputStream());
+      selector = null;
+    } else {
+      SocketChannel socketChannel = SocketChannel.open();
+      this.connection = socketChannel;
+      socketChannel.socket().connect(new InetSocketAddress(url.getHost(), port), timeoutMs);
+      ByteBuffer requestBuffer = ByteBuffer.wrap(request);
+      while (requestBuffer.hasRemaining()) {
+        socketChannel.write(requestBuffer);
+      }
+      socketChannel.configureBlocking(false);
+      selector = Selector.open();
+      this.selector = selector;
+      socketChannel.register(selector, SelectionKey.OP_READ);
+      channel = socketChannel;
+    }
+    if (!this.running) {
+      return;
+    }
+
+    reset();
+    boolean connected = false;
+    final ByteBuffer buffer = ByteBuffer.wrap(this.network);
+    try {
+      while (this.running) {
+        buffer.clear();
+        final int read = read(channel, selector, buffer, timeoutMs);
+        if (read < 0) {
+          throw new IOException("Stream closed by the server.");
+        }
+        this.bytesRead.addAndGet(read);
+        int offset = 0;
+        if (!connected) {
+          offset = header(this.network, read);
+          if (offset < 0) {
+            continue;
+          }
+          connected = true;
+          this.connects.incrementAndGet();
+          this.lifeCycleListener.onConnect();
+        }
+        if (offset < read) {
+          body(this.network, offset, read - offset);
+        }
+      }
+    } finally {
+      if (connected) {
+        this.lifeCycleListener.onDisconnect();
+      }
+      if (null != this.inflater) {
+        this.inflater.end();
+        this.inflater = null;
+      }
+    }
+  }
+
+  private static int read(ReadableByteChannel channel, Selector selector, ByteBuffer buffer, int timeoutMs) throws IOException {
+    if (null == selector) {
+      return channel.read(buffer);
+    }
+    while (true) {
+      final int read = channel.read(buffer);
+      if (0 != read) {
+        return read;
+      }
+      if (0 == selector.select(timeoutMs)) {
+        if (!channel.isOpen()) {
+          return -1;
+        }
+        throw new SocketTimeoutException("No data received for " + timeoutMs + " ms.");
+      }
+      selector.selectedKeys().clear();
+    }
+  }
+
+  byte[] request(URL url) {
+    final String body = HttpParameter.encodeParameters(this.parameters);
+    final String requestUrl = url.getProtocol() + "://" + url.getAuthority() + url.getPath();
+    final Authorization authorization = AuthorizationFactory.getInstance(this.configuration);
+    final String authorizationHeader = authorization.isEnabled() ?
+        authorization.getAuthorizationHeader(
+            new HttpRequest(RequestMethod.POST, requestUrl, this.parameters, authorization, null)
+        ) : null;
+    final byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+    StringBuilder builder = new StringBuilder(512)
+        .append("POST ").append(url.getPath()).append(" HTTP/1.1\r\n")
+        .append("Host: ").append(url.getAuthority()).append("\r\n")
+        .append("User-Agent: kafka-connect-twitter\r\n")
+        .append("Content-Type: application/x-www-form-urlencoded\r\n")
+        .append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+    if (null != authorizationHeader) {
+      builder.append("Authorization: ").append(authorizationHeader).append("\r\n");
+    }
+    if (this.gzip) {
+      builder.append("Accept-Encoding: gzip\r\n");
+    }
+    builder.append("\r\n");
+    final byte[] head = builder.toString().getBytes(StandardCharsets.US_ASCII);
+    final byte[] result = Arrays.copyOf(head, head.length + bodyBytes.length);
+    System.arraycopy(bodyBytes, 0, result, head.length, bodyBytes.length);
+    return result;
+  }
+
+  private void reset() {
+    this.headerLength = 0;
+    this.messageLength = 0;
+    this.messageExpected = -1;
+    this.lengthPrefix = 0;
+    this.lengthDigits = false;
+    this.chunked = false;
+    this.chunkRemaining = 0L;
+    this.chunkState = CHUNK_SIZE;
+    this.chunkDigits = false;
+    this.chunkExtension = false;
+    this.gzipped = false;
+    this.gzipHeaderLength = 0;
+    this.gzipHeaderDone = false;
+  }
+
+  /**
+   * Collects the response headers.
+   *
+   * @return offset of the body in the buffer, or -1 if the headers are not complete yet.
+   */
+  private int header(byte[] buffer, int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      if (this.headerLength == this.header.length) {
+        if (this.header.length >= MAX_HEADER_SIZE) {
+          throw new IOException("Response headers are larger than " + MAX_HEADER_SIZE + " bytes.");
+        }
+        this.header = Arrays.copyOf(this.header, this.header.length * 2);
+      }
+      this.header[this.headerLength++] = buffer[i];
+      if (this.headerLength >= 4 && this.header[this.headerLength - 1] == '\n' &&
+          this.header[this.headerLength - 2] == '\r' && this.header[this.headerLength - 3] == '\n') {
+        headers(new String(this.header, 0, this.headerLength, StandardCharsets.ISO_8859_1));
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  private void headers(String headers) throws IOException {
+    final String[] lines = headers.split("\r\n");
+    final String[] status = lines[0].split(" ", 3);
+    final int statusCode = status.length > 1 ? Integer.parseInt(status[1]) : -1;
+    if (200 != statusCode) {
+      throw new HttpStatusException(statusCode, lines[0]);
+    }
+    for (int i = 1; i < lines.length; i++) {
+      final int colon = lines[i].indexOf(':');
+      if (colon < 0) {
+        continue;
+      }
+      final String name = lines[i].substring(0, colon).trim();
+      final String value = lines[i].substring(colon + 1).trim();
+      if ("Transfer-Encoding".equalsIgnoreCase(name) && value.toLowerCase().contains("chunked")) {
+        this.chunked = true;
+      } else if ("Content-Encoding".equalsIgnoreCase(name) && "gzip".equalsIgnoreCase(value)) {
+        this.gzipped = true;
+        this.inflater = new Inflater(true);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Connected. chunked = {} gzip = {}", this.chunked, this.gzipped);
+    }
+  }
+
+  /**
+   * Removes the chunked transfer encoding. The data of each chunk is passed on as a slice of the buffer.
+   */
+  private void body(byte[] buffer, int offset, int length) throws IOException, DataFormatException {
+    if (!this.chunked) {
+      content(buffer, offset, length);
+      return;
+    }
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      if (CHUNK_DATA == this.chunkState) {
+        final int n = (int) Math.min(this.chunkRemaining, end - i);
+        content(buffer, i, n);
+        this.chunkRemaining -= n;
+        i += n;
+        if (0 == this.chunkRemaining) {
+          this.chunkState = CHUNK_END;
+        }
+      } else if (CHUNK_END == this.chunkState) {
+        if (buffer[i++] == '\n') {
+          this.chunkState = CHUNK_SIZE;
+        }
+      } else {
+        final byte b = buffer[i++];
+        if (b == '\n') {
+          if (!this.chunkDigits) {
+            throw new IOException("Invalid chunk size.");
+          } else if (0 == this.chunkRemaining) {
+            throw new IOException("Stream ended with the last chunk.");
+          }
+          this.chunkState = CHUNK_DATA;
+          this.chunkDigits = false;
+          this.chunkExtension = false;
+        } else if (b == ';') {
+          this.chunkExtension = true;
+        } else if (b != '\r' && !this.chunkExtension) {
+          final int digit = Character.digit(b, 16);
+          if (digit < 0) {
+            throw new IOException("Invalid chunk size.");
+          }
+          this.chunkDigits = true;
+          this.chunkRemaining = this.chunkRemaining * 16 + digit;
+        }
+      }
+    }
+  }
+
+  /**
+   * Inflates the content if it is gzip encoded.
+   */
+  private void content(byte[] buffer, int offset, int length) throws IOException, DataFormatException {
+    if (!this.gzipped) {
+      frames(buffer, offset, length);
+      return;
+    }
+    if (!this.gzipHeaderDone) {
+      final int used = gzipHeader(buffer, offset, length);
+      if (!this.gzipHeaderDone) {
+        return;
+      }
+      offset += used;
+      length -= used;
+    }
+    if (this.inflater.finished()) {
+      // Anything after the end of the deflate stream is the gzip trailer.
+      return;
+    }
+    this.inflater.setInput(buffer, offset, length);
+    while (true) {
+      final int inflated = this.inflater.inflate(this.inflated, 0, this.inflated.length);
+      if (0 == inflated) {
+        break;
+      }
+      frames(this.inflated, 0, inflated);
+    }
+  }
+
+  /**
+   * Collects the gzip member header so the deflate stream after it can be handed to an {@link Inflater} in raw mode.
+   *
+   * @return number of bytes used from the buffer.
+   */
+  private int gzipHeader(byte[] buffer, int offset, int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      if (this.gzipHeaderLength == this.gzipHeader.length) {
+        this.gzipHeader = Arrays.copyOf(this.gzipHeader, this.gzipHeader.length * 2);
+      }
+      this.gzipHeader[this.gzipHeaderLength++] = buffer[offset + i];
+      if (gzipHeaderComplete()) {
+        this.gzipHeaderDone = true;
+        return i + 1;
+      }
+    }
+    return length;
+  }
+
+  private boolean gzipHeaderComplete() throws IOException {
+    final byte[] h = this.gzipHeader;
+    final int n = this.gzipHeaderLength;
+    if (n < 10) {
+      return false;
+    }
+    if ((h[0] & 0xFF) != 0x1F || (h[1] & 0xFF) != 0x8B || h[2] != 8) {
+      throw new IOException("Response is not gzip encoded.");
+    }
+    final int flags = h[3];
+    int position = 10;
+    if ((flags & GZIP_FEXTRA) != 0) {
+      if (n < position + 2) {
+        return false;
+      }
+      position += 2 + ((h[position] & 0xFF) | ((h[position + 1] & 0xFF) << 8));
+    }
+    if ((flags & GZIP_FNAME) != 0) {
+      position = terminator(h, position, n);
+      if (position < 0) {
+        return false;
+      }
+    }
+    if ((flags & GZIP_FCOMMENT) != 0) {
+      position = terminator(h, position, n);
+      if (position < 0) {
+        return false;
+      }
+    }
+    if ((flags & GZIP_FHCRC) != 0) {
+      position += 2;
+    }
+    return n >= position;
+  }
+
+  private static int terminator(byte[] buffer, int position, int length) {
+    for (int i = position; i < length; i++) {
+      if (0 == buffer[i]) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Splits the content into messages. Each message is a line with its length, then the message itself. The length
+   * includes the line break that ends the message. Blank lines are keep alives. A message that is completely inside
+   * the buffer is passed on without a copy.
+   */
+  void frames(byte[] buffer, int offset, int length) {
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      if (this.messageExpected < 0) {
+        final byte b = buffer[i++];
+        if (b >= '0' && b <= '9') {
+          this.lengthPrefix = this.lengthPrefix * 10 + (b - '0');
+          this.lengthDigits = true;
+        } else if (b == '\n' && this.lengthDigits) {
+          this.messageExpected = this.lengthPrefix;
+          this.messageLength = 0;
+          this.lengthPrefix = 0;
+          this.lengthDigits = false;
+        }
+        continue;
+      }
+      final int available = end - i;
+      if (0 == this.messageLength && available >= this.messageExpected) {
+        dispatch(buffer, i, this.messageExpected);
+        i += this.messageExpected;
+        this.messageExpected = -1;
+        continue;
+      }
+      final int n = Math.min(available, this.messageExpected - this.messageLength);
+      if (this.message.length < this.messageExpected) {
+        this.message = Arrays.copyOf(this.message, Math.max(this.messageExpected, this.message.length * 2));
+      }
+      System.arraycopy(buffer, i, this.message, this.messageLength, n);
+      this.messageLength += n;
+      i += n;
+      if (this.messageLength == this.messageExpected) {
+        dispatch(this.message, 0, this.messageLength);
+        this.messageLength = 0;
+        this.messageExpected = -1;
+      }
+    }
+  }
+
+  private void dispatch(byte[] buffer, int offset, int length) {
+    int end = offset + length;
+    while (end > offset && (buffer[end - 1] == '\n' || buffer[end - 1] == '\r')) {
+      end--;
+    }
+    if (end == offset) {
+      return;
+    }
+    this.messages.incrementAndGet();
+    this.listener.onMessage(buffer, offset, end - offset);
+  }
+
+  private void closeConnection() {
+    final Closeable connection = this.connection;
+    final Selector selector = this.selector;
+    this.connection = null;
+    this.selector = null;
+    try {
+      if (null != connection) {
+        connection.close();
+      }
+      if (null != selector) {
+        selector.close();
+      }
+    } catch (IOException e) {
+      log.debug("Exception thrown while closing the connection.", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    this.running = false;
+    final Selector selector = this.selector;
+    final Closeable connection = this.connection;
+    try {
+      if (null != connection) {
+        connection.close();
+      }
+    } catch (IOException e) {
+      log.debug("Exception thrown while closing the connection.", e);
+    }
+    if (null != selector) {
+      selector.wakeup();
+    }
+    if (null != this.thread) {
+      this.thread.interrupt();
+      try {
+        this.thread.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Splits the filter terms across tasks so each keyword, user id and location box is owned by a single connection.
+ * Every term costs the share of its per connection limit it uses, so 1 keyword out of 400 weighs as much as 12.5
+ * user ids out of 5000. Keywords keep the assignment they were given up to the keyword limit. Keywords over the limit,
+ * user ids and then location boxes are placed one at a time on the cheapest task that still has room for them.
+ */
+class FilterShards {
+  static class Shard {
+    final List<String> keywords = new ArrayList<>();
+    final List<Long> userIds = new ArrayList<>();
+    final List<double[]> locations = new ArrayList<>();
+    double cost;
+
+  }
+
+  private final int maxKeywords;
+  private final int maxUserIds;
+  private final int maxLocations;
+  int overflow;
+
+  FilterShards(int maxKeywords, int maxUserIds, int maxLocations) {
+    this.maxKeywords = maxKeywords;
+    this.maxUserIds = maxUserIds;
+    this.maxLocations = maxLocations;
+  }
+
+  static FilterShards of(TwitterSourceConnectorConfig config) {
+    return new FilterShards(config.filterMaxKeywords, config.filterMaxUserIds, config.filterMaxLocations);
+  }
+
+  /**
+   * The number of connections the keywords need at the keyword limit.
+   */
+  int required(int keywords) {
+    return (keywords + this.maxKeywords - 1) / this.maxKeywords;
+  }
+
+  /**
+   * The number of connections the terms need at the per connection limits.
+   */
+  int required(int keywords, int userIds, int locations) {
+    double cost = (double) keywords / this.maxKeywords +
+        (double) userIds / this.maxUserIds +
+        (double) locations / this.maxLocations;
+    return (int) Math.ceil(cost - 1e-9);
+  }
+
+  List<Shard> assign(List<List<String>> keywords, Collection<Long> userIds, Collection<double[]> locations) {
+    List<Shard> shards = new ArrayList<>(keywords.size());
+    List<String> over = new ArrayList<>();
+    for (List<String> k : keywords) {
+      Shard shard = new Shard();
+      for (String keyword : k) {
+        if (shard.keywords.size() < this.maxKeywords) {
+          shard.keywords.add(keyword);
+        } else {
+          over.add(keyword);
+        }
+      }
+      shard.cost = (double) shard.keywords.size() / this.maxKeywords;
+      shards.add(shard);
+    }
+    for (String keyword : over) {
+      Shard shard = cheapest(shards, s -> s.keywords.size() < this.maxKeywords);
+      shard.keywords.add(keyword);
+      shard.cost += 1D / this.maxKeywords;
+    }
+    for (Long userId : userIds) {
+      Shard shard = cheapest(shards, s -> s.userIds.size() < this.maxUserIds);
+      shard.userIds.add(userId);
+      shard.cost += 1D / this.maxUserIds;
+    }
+    for (double[] location : locations) {
+      Shard shard = cheapest(shards, s -> s.locations.size() < this.maxLocations);
+      shard.locations.add(location);
+      shard.cost += 1D / this.maxLocations;
+    }
+    return shards;
+  }
+
+  private Shard cheapest(List<Shard> shards, Predicate<Shard> hasRoom) {
+    Shard result = null;
+    Shard fallback = null;
+    for (Shard shard : shards) {
+      if (hasRoom.test(shard) && (null == result || shard.cost < result.cost)) {
+        result = shard;
+      }
+      if (null == fallback || shard.cost < fallback.cost) {
+        fallback = shard;
+      }
+    }
+    if (null == result) {
+      // Every connection is full. The term still has to go somewhere, the api will reject what is over the limit.
+      this.overflow++;
+      result = fallback;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import twitter4j.GeoLocation;
+import twitter4j.HashtagEntity;
+import twitter4j.MediaEntity;
+import twitter4j.Place;
+import twitter4j.Status;
+import twitter4j.SymbolEntity;
+import twitter4j.URLEntity;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts statuses to {@link StatusConverter#FLAT_STATUS_SCHEMA}. The author, place and location become top level
+ * fields and each kind of entity becomes an array of primitives, so columnar sinks can prune them and Avro does not
+ * have to encode nested records. A status from twitter4j is converted directly. A struct read by {@link StatusReader}
+ * is flattened field by field, which only copies references.
+ */
+class FlatStatusConverter {
+  static final Field CREATED_AT = StatusConverter.FLAT_STATUS_SCHEMA.field("CreatedAt");
+  static final Field ID = StatusConverter.FLAT_STATUS_SCHEMA.field("Id");
+  static final Field TEXT = StatusConverter.FLAT_STATUS_SCHEMA.field("Text");
+  static final Field SOURCE = StatusConverter.FLAT_STATUS_SCHEMA.field("Source");
+  static final Field TRUNCATED = StatusConverter.FLAT_STATUS_SCHEMA.field("Truncated");
+  static final Field IN_REPLY_TO_STATUS_ID = StatusConverter.FLAT_STATUS_SCHEMA.field("InReplyToStatusId");
+  static final Field IN_REPLY_TO_USER_ID = StatusConverter.FLAT_STATUS_SCHEMA.field("InReplyToUserId");
+  static final Field IN_REPLY_TO_SCREEN_NAME = StatusConverter.FLAT_STATUS_SCHEMA.field("InReplyToScreenName");
+  static final Field LATITUDE = StatusConverter.FLAT_STATUS_SCHEMA.field("Latitude");
+  static final Field LONGITUDE = StatusConverter.FLAT_STATUS_SCHEMA.field("Longitude");
+  static final Field PLACE_ID = StatusConverter.FLAT_STATUS_SCHEMA.field("PlaceId");
+  static final Field PLACE_NAME = StatusConverter.FLAT_STATUS_SCHEMA.field("PlaceName");
+  static final Field PLACE_FULL_NAME = StatusConverter.FLAT_STATUS_SCHEMA.field("PlaceFullName");
+  static final Field PLACE_TYPE = StatusConverter.FLAT_STATUS_SCHEMA.field("PlaceType");
+  static final Field PLACE_COUNTRY_CODE = StatusConverter.FLAT_STATUS_SCHEMA.field("PlaceCountryCode");
+  static final Field PLACE_COUNTRY = StatusConverter.FLAT_STATUS_SCHEMA.field("PlaceCountry");
+  static final Field FAVORITED = StatusConverter.FLAT_STATUS_SCHEMA.field("Favorited");
+  static final Field RETWEETED = StatusConverter.FLAT_STATUS_SCHEMA.field("Retweeted");
+  static final Field FAVORITE_COUNT = StatusConverter.FLAT_STATUS_SCHEMA.field("FavoriteCount");
+  static final Field RETWEET = StatusConverter.FLAT_STATUS_SCHEMA.field("Retweet");
+  static final Field RETWEET_COUNT = StatusConverter.FLAT_STATUS_SCHEMA.field("RetweetCount");
+  static final Field POSSIBLY_SENSITIVE = StatusConverter.FLAT_STATUS_SCHEMA.field("PossiblySensitive");
+  static final Field LANG = StatusConverter.FLAT_STATUS_SCHEMA.field("Lang");
+  static final Field USER_ID = StatusConverter.FLAT_STATUS_SCHEMA.field("UserId");
+  static final Field USER_NAME = StatusConverter.FLAT_STATUS_SCHEMA.field("UserName");
+  static final Field USER_SCREEN_NAME = StatusConverter.FLAT_STATUS_SCHEMA.field("UserScreenName");
+  static final Field USER_LOCATION = StatusConverter.FLAT_STATUS_SCHEMA.field("UserLocation");
+  static final Field USER_DESCRIPTION = StatusConverter.FLAT_STATUS_SCHEMA.field("UserDescription");
+  static final Field USER_URL = StatusConverter.FLAT_STATUS_SCHEMA.field("UserURL");
+  static final Field USER_PROFILE_IMAGE_URL_HTTPS = StatusConverter.FLAT_STATUS_SCHEMA.field("UserProfileImageURLHttps");
+  static final Field USER_PROTECTED = StatusConverter.FLAT_STATUS_SCHEMA.field("UserProtected");
+  static final Field USER_VERIFIED = StatusConverter.FLAT_STATUS_SCHEMA.field("UserVerified");
+  static final Field USER_FOLLOWERS_COUNT = StatusConverter.FLAT_STATUS_SCHEMA.field("UserFollowersCount");
+  static final Field USER_FRIENDS_COUNT = StatusConverter.FLAT_STATUS_SCHEMA.field("UserFriendsCount");
+  static final Field USER_LISTED_COUNT = StatusConverter.FLAT_STATUS_SCHEMA.field("UserListedCount");
+  static final Field USER_FAVOURITES_COUNT = StatusConverter.FLAT_STATUS_SCHEMA.field("UserFavouritesCount");
+  static final Field USER_STATUSES_COUNT = StatusConverter.FLAT_STATUS_SCHEMA.field("UserStatusesCount");
+  static final Field USER_CREATED_AT = StatusConverter.FLAT_STATUS_SCHEMA.field("UserCreatedAt");
+  static final Field USER_LANG = StatusConverter.FLAT_STATUS_SCHEMA.field("UserLang");
+  static final Field HASHTAGS = StatusConverter.FLAT_STATUS_SCHEMA.field("Hashtags");
+  static final Field MENTION_IDS = StatusConverter.FLAT_STATUS_SCHEMA.field("MentionIds");
+  static final Field MENTION_SCREEN_NAMES = StatusConverter.FLAT_STATUS_SCHEMA.field("MentionScreenNames");
+  static final Field URLS = StatusConverter.FLAT_STATUS_SCHEMA.field("URLs");
+  static final Field MEDIA_URLS = StatusConverter.FLAT_STATUS_SCHEMA.field("MediaURLs");
+  static final Field MEDIA_TYPES = StatusConverter.FLAT_STATUS_SCHEMA.field("MediaTypes");
+  static final Field SYMBOLS = StatusConverter.FLAT_STATUS_SCHEMA.field("Symbols");
+  static final Field WITHHELD_IN_COUNTRIES = StatusConverter.FLAT_STATUS_SCHEMA.field("WithheldInCountries");
+
+  static void convert(Status source, Struct struct) {
+    struct.put(CREATED_AT, source.getCreatedAt());
+    struct.put(ID, source.getId());
+    struct.put(TEXT, source.getText());
+    struct.put(SOURCE, source.getSource());
+    struct.put(TRUNCATED, source.isTruncated());
+    struct.put(IN_REPLY_TO_STATUS_ID, source.getInReplyToStatusId());
+    struct.put(IN_REPLY_TO_USER_ID, source.getInReplyToUserId());
+    struct.put(IN_REPLY_TO_SCREEN_NAME, source.getInReplyToScreenName());
+    final GeoLocation geoLocation = source.getGeoLocation();
+    if (null != geoLocation) {
+      struct.put(LATITUDE, geoLocation.getLatitude());
+      struct.put(LONGITUDE, geoLocation.getLongitude());
+    }
+    final Place place = source.getPlace();
+    if (null != place) {
+      struct.put(PLACE_ID, place.getId());
+      struct.put(PLACE_NAME, place.getName());
+      struct.put(PLACE_FULL_NAME, place.getFullName());
+      struct.put(PLACE_TYPE, place.getPlaceType());
+      struct.put(PLACE_COUNTRY_CODE, place.getCountryCode());
+      struct.put(PLACE_COUNTRY, place.getCountry());
+    }
+    struct.put(FAVORITED, source.isFavorited());
+    struct.put(RETWEETED, source.isRetweeted());
+    struct.put(FAVORITE_COUNT, source.getFavoriteCount());
+    struct.put(RETWEET, source.isRetweet());
+    struct.put(RETWEET_COUNT, source.getRetweetCount());
+    struct.put(POSSIBLY_SENSITIVE, source.isPossiblySensitive());
+    struct.put(LANG, source.getLang());
+    final User user = source.getUser();
+    if (null != user) {
+      struct.put(USER_ID, user.getId());
+      struct.put(USER_NAME, user.getName());
+      struct.put(USER_SCREEN_NAME, user.getScreenName());
+      struct.put(USER_LOCATION, user.getLocation());
+      struct.put(USER_DESCRIPTION, user.getDescription());
+      struct.put(USER_URL, user.getURL());
+      struct.put(USER_PROFILE_IMAGE_URL_HTTPS, user.getProfileImageURLHttps());
+      struct.put(USER_PROTECTED, user.isProtected());
+      struct.put(USER_VERIFIED, user.isVerified());
+      struct.put(USER_FOLLOWERS_COUNT, user.getFollowersCount());
+      struct.put(USER_FRIENDS_COUNT, user.getFriendsCount());
+      struct.put(USER_LISTED_COUNT, user.getListedCount());
+      struct.put(USER_FAVOURITES_COUNT, user.getFavouritesCount());
+      struct.put(USER_STATUSES_COUNT, user.getStatusesCount());
+      struct.put(USER_CREATED_AT, user.getCreatedAt());
+      struct.put(USER_LANG, user.getLang());
+    }
+    struct.put(HASHTAGS, hashtags(source.getHashtagEntities()));
+    final UserMentionEntity[] mentions = source.getUserMentionEntities();
+    struct.put(MENTION_IDS, mentionIds(mentions));
+    struct.put(MENTION_SCREEN_NAMES, mentionScreenNames(mentions));
+    struct.put(URLS, urls(source.getURLEntities()));
+    final MediaEntity[] media = source.getMediaEntities();
+    struct.put(MEDIA_URLS, mediaUrls(media));
+    struct.put(MEDIA_TYPES, mediaTypes(media));
+    struct.put(SYMBOLS, symbols(source.getSymbolEntities()));
+    struct.put(WITHHELD_IN_COUNTRIES, GeneratedConverters.convert(source.getWithheldInCountries()));
+  }
+
+  /**
+   * @param source status with the fields of {@link StatusConverter#STATUS_SCHEMA}.
+   * @param struct struct with {@link StatusConverter#FLAT_STATUS_SCHEMA}.
+   */
+  static void convert(Struct source, Struct struct) {
+    struct.put(CREATED_AT, source.get(GeneratedConverters.STATUS_CREATED_AT));
+    struct.put(ID, source.get(GeneratedConverters.STATUS_ID));
+    struct.put(TEXT, source.get(GeneratedConverters.STATUS_TEXT));
+    struct.put(SOURCE, source.get(GeneratedConverters.STATUS_SOURCE));
+    struct.put(TRUNCATED, source.get(GeneratedConverters.STATUS_TRUNCATED));
+    struct.put(IN_REPLY_TO_STATUS_ID, source.get(GeneratedConverters.STATUS_IN_REPLY_TO_STATUS_ID));
+    struct.put(IN_REPLY_TO_USER_ID, source.get(GeneratedConverters.STATUS_IN_REPLY_TO_USER_ID));
+    struct.put(IN_REPLY_TO_SCREEN_NAME, source.get(GeneratedConverters.STATUS_IN_REPLY_TO_SCREEN_NAME));
+    final Struct geoLocation = (Struct) source.get(GeneratedConverters.STATUS_GEO_LOCATION);
+    if (null != geoLocation) {
+      struct.put(LATITUDE, geoLocation.get(GeneratedConverters.GEO_LOCATION_LATITUDE));
+      struct.put(LONGITUDE, geoLocation.get(GeneratedConverters.GEO_LOCATION_LONGITUDE));
+    }
+    final Struct place = (Struct) source.get(GeneratedConverters.STATUS_PLACE);
+    if (null != place) {
+      struct.put(PLACE_ID, place.get(GeneratedConverters.PLACE_ID));
+      struct.put(PLACE_NAME, place.get(GeneratedConverters.PLACE_NAME));
+      struct.put(PLACE_FULL_NAME, place.get(GeneratedConverters.PLACE_FULL_NAME));
+      struct.put(PLACE_TYPE, place.get(GeneratedConverters.PLACE_PLACE_TYPE));
+      struct.put(PLACE_COUNTRY_CODE, place.get(GeneratedConverters.PLACE_COUNTRY_CODE));
+      struct.put(PLACE_COUNTRY, place.get(GeneratedConverters.PLACE_COUNTRY));
+    }
+    struct.put(FAVORITED, source.get(GeneratedConverters.STATUS_FAVORITED));
+    struct.put(RETWEETED, source.get(GeneratedConverters.STATUS_RETWEETED));
+    struct.put(FAVORITE_COUNT, source.get(GeneratedConverters.STATUS_FAVORITE_COUNT));
+    struct.put(RETWEET, source.get(GeneratedConverters.STATUS_RETWEET));
+    struct.put(RETWEET_COUNT, source.get(GeneratedConverters.STATUS_RETWEET_COUNT));
+    struct.put(POSSIBLY_SENSITIVE, source.get(GeneratedConverters.STATUS_POSSIBLY_SENSITIVE));
+    struct.put(LANG, source.get(GeneratedConverters.STATUS_LANG));
+    final Struct user = (Struct) source.get(GeneratedConverters.STATUS_USER);
+    if (null != user) {
+      struct.put(USER_ID, user.get(GeneratedConverters.USER_ID));
+      struct.put(USER_NAME, user.get(GeneratedConverters.USER_NAME));
+      struct.put(USER_SCREEN_NAME, user.get(GeneratedConverters.USER_SCREEN_NAME));
+      struct.put(USER_LOCATION, user.get(GeneratedConverters.USER_LOCATION));
+      struct.put(USER_DESCRIPTION, user.get(GeneratedConverters.USER_DESCRIPTION));
+      struct.put(USER_URL, user.get(GeneratedConverters.USER_URL));
+      struct.put(USER_PROFILE_IMAGE_URL_HTTPS, user.get(GeneratedConverters.USER_PROFILE_IMAGE_URL_HTTPS));
+      struct.put(USER_PROTECTED, user.get(GeneratedConverters.USER_PROTECTED));
+      struct.put(USER_VERIFIED, user.get(GeneratedConverters.USER_VERIFIED));
+      struct.put(USER_FOLLOWERS_COUNT, user.get(GeneratedConverters.USER_FOLLOWERS_COUNT));
+      struct.put(USER_FRIENDS_COUNT, user.get(GeneratedConverters.USER_FRIENDS_COUNT));
+      struct.put(USER_LISTED_COUNT, user.get(GeneratedConverters.USER_LISTED_COUNT));
+      struct.put(USER_FAVOURITES_COUNT, user.get(GeneratedConverters.USER_FAVOURITES_COUNT));
+      struct.put(USER_STATUSES_COUNT, user.get(GeneratedConverters.USER_STATUSES_COUNT));
+      struct.put(USER_CREATED_AT, user.get(GeneratedConverters.USER_CREATED_AT));
+      struct.put(USER_LANG, user.get(GeneratedConverters.USER_LANG));
+    }
+    struct.put(HASHTAGS, column(source, GeneratedConverters.STATUS_HASHTAG_ENTITIES, GeneratedConverters.HASHTAG_ENTITY_TEXT));
+    struct.put(MENTION_IDS, column(source, GeneratedConverters.STATUS_USER_MENTION_ENTITIES, GeneratedConverters.USER_MENTION_ENTITY_ID));
+    struct.put(MENTION_SCREEN_NAMES, column(source, GeneratedConverters.STATUS_USER_MENTION_ENTITIES, GeneratedConverters.USER_MENTION_ENTITY_SCREEN_NAME));
+    struct.put(URLS, column(source, GeneratedConverters.STATUS_URL_ENTITIES, GeneratedConverters.URL_ENTITY_EXPANDED_URL));
+    struct.put(MEDIA_URLS, column(source, GeneratedConverters.STATUS_MEDIA_ENTITIES, GeneratedConverters.MEDIA_ENTITY_MEDIA_URL_HTTPS));
+    struct.put(MEDIA_TYPES, column(source, GeneratedConverters.STATUS_MEDIA_ENTITIES, GeneratedConverters.MEDIA_ENTITY_TYPE));
+    struct.put(SYMBOLS, column(source, GeneratedConverters.STATUS_SYMBOL_ENTITIES, GeneratedConverters.SYMBOL_ENTITY_TEXT));
+    struct.put(WITHHELD_IN_COUNTRIES, source.get(GeneratedConverters.STATUS_WITHHELD_IN_COUNTRIES));
+  }
+
+  /**
+   * @return the value of field for each entity in the array entities of the status.
+   */
+  static List<Object> column(Struct status, Field entities, Field field) {
+    final List<?> items = (List<?>) status.get(entities);
+    if (null == items || items.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Object> result = new ArrayList<>(items.size());
+    for (Object item : items) {
+      result.add(((Struct) item).get(field));
+    }
+    return result;
+  }
+
+  static List<String> hashtags(HashtagEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>(items.length);
+    for (HashtagEntity item : items) {
+      result.add(item.getText());
+    }
+    return result;
+  }
+
+  static List<Long> mentionIds(UserMentionEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Long> result = new ArrayList<>(items.length);
+    for (UserMentionEntity item : items) {
+      result.add(item.getId());
+    }
+    return result;
+  }
+
+  static List<String> mentionScreenNames(UserMentionEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>(items.length);
+    for (UserMentionEntity item : items) {
+      result.add(item.getScreenName());
+    }
+    return result;
+  }
+
+  static List<String> urls(URLEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>(items.length);
+    for (URLEntity item : items) {
+      result.add(item.getExpandedURL());
+    }
+    return result;
+  }
+
+  static List<String> mediaUrls(MediaEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>(items.length);
+    for (MediaEntity item : items) {
+      result.add(item.getMediaURLHttps());
+    }
+    return result;
+  }
+
+  static List<String> mediaTypes(MediaEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>(items.length);
+    for (MediaEntity item : items) {
+      result.add(item.getType());
+    }
+    return result;
+  }
+
+  static List<String> symbols(SymbolEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>(items.length);
+    for (SymbolEntity item : items) {
+      result.add(item.getText());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,713 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import twitter4j.ExtendedMediaEntity;
+import twitter4j.GeoLocation;
+import twitter4j.HashtagEntity;
+import twitter4j.MediaEntity;
+import twitter4j.Place;
+import twitter4j.Status;
+import twitter4j.SymbolEntity;
+import twitter4j.URLEntity;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Generated by ConverterGenerator from the schemas in {@link StatusConverter}. Do not edit.
+ */
+final class GeneratedConverters {
+  private GeneratedConverters() {
+  }
+
+  static final Field STATUS_CREATED_AT = StatusConverter.STATUS_SCHEMA.field("CreatedAt");
+  static final Field STATUS_ID = StatusConverter.STATUS_SCHEMA.field("Id");
+  static final Field STATUS_TEXT = StatusConverter.STATUS_SCHEMA.field("Text");
+  static final Field STATUS_SOURCE = StatusConverter.STATUS_SCHEMA.field("Source");
+  static final Field STATUS_TRUNCATED = StatusConverter.STATUS_SCHEMA.field("Truncated");
+  static final Field STATUS_IN_REPLY_TO_STATUS_ID = StatusConverter.STATUS_SCHEMA.field("InReplyToStatusId");
+  static final Field STATUS_IN_REPLY_TO_USER_ID = StatusConverter.STATUS_SCHEMA.field("InReplyToUserId");
+  static final Field STATUS_IN_REPLY_TO_SCREEN_NAME = StatusConverter.STATUS_SCHEMA.field("InReplyToScreenName");
+  static final Field STATUS_GEO_LOCATION = StatusConverter.STATUS_SCHEMA.field("GeoLocation");
+  static final Field STATUS_PLACE = StatusConverter.STATUS_SCHEMA.field("Place");
+  static final Field STATUS_FAVORITED = StatusConverter.STATUS_SCHEMA.field("Favorited");
+  static final Field STATUS_RETWEETED = StatusConverter.STATUS_SCHEMA.field("Retweeted");
+  static final Field STATUS_FAVORITE_COUNT = StatusConverter.STATUS_SCHEMA.field("FavoriteCount");
+  static final Field STATUS_USER = StatusConverter.STATUS_SCHEMA.field("User");
+  static final Field STATUS_RETWEET = StatusConverter.STATUS_SCHEMA.field("Retweet");
+  static final Field STATUS_CONTRIBUTORS = StatusConverter.STATUS_SCHEMA.field("Contributors");
+  static final Field STATUS_RETWEET_COUNT = StatusConverter.STATUS_SCHEMA.field("RetweetCount");
+  static final Field STATUS_RETWEETED_BY_ME = StatusConverter.STATUS_SCHEMA.field("RetweetedByMe");
+  static final Field STATUS_CURRENT_USER_RETWEET_ID = StatusConverter.STATUS_SCHEMA.field("CurrentUserRetweetId");
+  static final Field STATUS_POSSIBLY_SENSITIVE = StatusConverter.STATUS_SCHEMA.field("PossiblySensitive");
+  static final Field STATUS_LANG = StatusConverter.STATUS_SCHEMA.field("Lang");
+  static final Field STATUS_WITHHELD_IN_COUNTRIES = StatusConverter.STATUS_SCHEMA.field("WithheldInCountries");
+  static final Field STATUS_HASHTAG_ENTITIES = StatusConverter.STATUS_SCHEMA.field("HashtagEntities");
+  static final Field STATUS_USER_MENTION_ENTITIES = StatusConverter.STATUS_SCHEMA.field("UserMentionEntities");
+  static final Field STATUS_MEDIA_ENTITIES = StatusConverter.STATUS_SCHEMA.field("MediaEntities");
+  static final Field STATUS_SYMBOL_ENTITIES = StatusConverter.STATUS_SCHEMA.field("SymbolEntities");
+  static final Field STATUS_URL_ENTITIES = StatusConverter.STATUS_SCHEMA.field("URLEntities");
+
+  static final Field USER_ID = StatusConverter.USER_SCHEMA.field("Id");
+  static final Field USER_NAME = StatusConverter.USER_SCHEMA.field("Name");
+  static final Field USER_SCREEN_NAME = StatusConverter.USER_SCHEMA.field("ScreenName");
+  static final Field USER_LOCATION = StatusConverter.USER_SCHEMA.field("Location");
+  static final Field USER_DESCRIPTION = StatusConverter.USER_SCHEMA.field("Description");
+  static final Field USER_CONTRIBUTORS_ENABLED = StatusConverter.USER_SCHEMA.field("ContributorsEnabled");
+  static final Field USER_PROFILE_IMAGE_URL = StatusConverter.USER_SCHEMA.field("ProfileImageURL");
+  static final Field USER_BIGGER_PROFILE_IMAGE_URL = StatusConverter.USER_SCHEMA.field("BiggerProfileImageURL");
+  static final Field USER_MINI_PROFILE_IMAGE_URL = StatusConverter.USER_SCHEMA.field("MiniProfileImageURL");
+  static final Field USER_ORIGINAL_PROFILE_IMAGE_URL = StatusConverter.USER_SCHEMA.field("OriginalProfileImageURL");
+  static final Field USER_PROFILE_IMAGE_URL_HTTPS = StatusConverter.USER_SCHEMA.field("ProfileImageURLHttps");
+  static final Field USER_BIGGER_PROFILE_IMAGE_URL_HTTPS = StatusConverter.USER_SCHEMA.field("BiggerProfileImageURLHttps");
+  static final Field USER_MINI_PROFILE_IMAGE_URL_HTTPS = StatusConverter.USER_SCHEMA.field("MiniProfileImageURLHttps");
+  static final Field USER_ORIGINAL_PROFILE_IMAGE_URL_HTTPS = StatusConverter.USER_SCHEMA.field("OriginalProfileImageURLHttps");
+  static final Field USER_DEFAULT_PROFILE_IMAGE = StatusConverter.USER_SCHEMA.field("DefaultProfileImage");
+  static final Field USER_URL = StatusConverter.USER_SCHEMA.field("URL");
+  static final Field USER_PROTECTED = StatusConverter.USER_SCHEMA.field("Protected");
+  static final Field USER_FOLLOWERS_COUNT = StatusConverter.USER_SCHEMA.field("FollowersCount");
+  static final Field USER_PROFILE_BACKGROUND_COLOR = StatusConverter.USER_SCHEMA.field("ProfileBackgroundColor");
+  static final Field USER_PROFILE_TEXT_COLOR = StatusConverter.USER_SCHEMA.field("ProfileTextColor");
+  static final Field USER_PROFILE_LINK_COLOR = StatusConverter.USER_SCHEMA.field("ProfileLinkColor");
+  static final Field USER_PROFILE_SIDEBAR_FILL_COLOR = StatusConverter.USER_SCHEMA.field("ProfileSidebarFillColor");
+  static final Field USER_PROFILE_SIDEBAR_BORDER_COLOR = StatusConverter.USER_SCHEMA.field("ProfileSidebarBorderColor");
+  static final Field USER_PROFILE_USE_BACKGROUND_IMAGE = StatusConverter.USER_SCHEMA.field("ProfileUseBackgroundImage");
+  static final Field USER_DEFAULT_PROFILE = StatusConverter.USER_SCHEMA.field("DefaultProfile");
+  static final Field USER_SHOW_ALL_INLINE_MEDIA = StatusConverter.USER_SCHEMA.field("ShowAllInlineMedia");
+  static final Field USER_FRIENDS_COUNT = StatusConverter.USER_SCHEMA.field("FriendsCount");
+  static final Field USER_CREATED_AT = StatusConverter.USER_SCHEMA.field("CreatedAt");
+  static final Field USER_FAVOURITES_COUNT = StatusConverter.USER_SCHEMA.field("FavouritesCount");
+  static final Field USER_UTC_OFFSET = StatusConverter.USER_SCHEMA.field("UtcOffset");
+  static final Field USER_TIME_ZONE = StatusConverter.USER_SCHEMA.field("TimeZone");
+  static final Field USER_PROFILE_BACKGROUND_IMAGE_URL = StatusConverter.USER_SCHEMA.field("ProfileBackgroundImageURL");
+  static final Field USER_PROFILE_BACKGROUND_IMAGE_URL_HTTPS = StatusConverter.USER_SCHEMA.field("ProfileBackgroundImageUrlHttps");
+  static final Field USER_PROFILE_BANNER_URL = StatusConverter.USER_SCHEMA.field("ProfileBannerURL");
+  static final Field USER_PROFILE_BANNER_RETINA_URL = StatusConverter.USER_SCHEMA.field("ProfileBannerRetinaURL");
+  static final Field USER_PROFILE_BANNER_I_PAD_URL = StatusConverter.USER_SCHEMA.field("ProfileBannerIPadURL");
+  static final Field USER_PROFILE_BANNER_I_PAD_RETINA_URL = StatusConverter.USER_SCHEMA.field("ProfileBannerIPadRetinaURL");
+  static final Field USER_PROFILE_BANNER_MOBILE_URL = StatusConverter.USER_SCHEMA.field("ProfileBannerMobileURL");
+  static final Field USER_PROFILE_BANNER_MOBILE_RETINA_URL = StatusConverter.USER_SCHEMA.field("ProfileBannerMobileRetinaURL");
+  static final Field USER_PROFILE_BACKGROUND_TILED = StatusConverter.USER_SCHEMA.field("ProfileBackgroundTiled");
+  static final Field USER_LANG = StatusConverter.USER_SCHEMA.field("Lang");
+  static final Field USER_STATUSES_COUNT = StatusConverter.USER_SCHEMA.field("StatusesCount");
+  static final Field USER_GEO_ENABLED = StatusConverter.USER_SCHEMA.field("GeoEnabled");
+  static final Field USER_VERIFIED = StatusConverter.USER_SCHEMA.field("Verified");
+  static final Field USER_TRANSLATOR = StatusConverter.USER_SCHEMA.field("Translator");
+  static final Field USER_LISTED_COUNT = StatusConverter.USER_SCHEMA.field("ListedCount");
+  static final Field USER_FOLLOW_REQUEST_SENT = StatusConverter.USER_SCHEMA.field("FollowRequestSent");
+  static final Field USER_WITHHELD_IN_COUNTRIES = StatusConverter.USER_SCHEMA.field("WithheldInCountries");
+
+  static final Field PLACE_NAME = StatusConverter.PLACE_SCHEMA.field("Name");
+  static final Field PLACE_STREET_ADDRESS = StatusConverter.PLACE_SCHEMA.field("StreetAddress");
+  static final Field PLACE_COUNTRY_CODE = StatusConverter.PLACE_SCHEMA.field("CountryCode");
+  static final Field PLACE_ID = StatusConverter.PLACE_SCHEMA.field("Id");
+  static final Field PLACE_COUNTRY = StatusConverter.PLACE_SCHEMA.field("Country");
+  static final Field PLACE_PLACE_TYPE = StatusConverter.PLACE_SCHEMA.field("PlaceType");
+  static final Field PLACE_URL = StatusConverter.PLACE_SCHEMA.field("URL");
+  static final Field PLACE_FULL_NAME = StatusConverter.PLACE_SCHEMA.field("FullName");
+
+  static final Field GEO_LOCATION_LATITUDE = StatusConverter.GEO_LOCATION_SCHEMA.field("Latitude");
+  static final Field GEO_LOCATION_LONGITUDE = StatusConverter.GEO_LOCATION_SCHEMA.field("Longitude");
+
+  static final Field HASHTAG_ENTITY_TEXT = StatusConverter.SCHEMA_HASHTAG_ENTITY.field("Text");
+  static final Field HASHTAG_ENTITY_START = StatusConverter.SCHEMA_HASHTAG_ENTITY.field("Start");
+  static final Field HASHTAG_ENTITY_END = StatusConverter.SCHEMA_HASHTAG_ENTITY.field("End");
+
+  static final Field USER_MENTION_ENTITY_NAME = StatusConverter.SCHEMA_USER_MENTION_ENTITY.field("Name");
+  static final Field USER_MENTION_ENTITY_ID = StatusConverter.SCHEMA_USER_MENTION_ENTITY.field("Id");
+  static final Field USER_MENTION_ENTITY_TEXT = StatusConverter.SCHEMA_USER_MENTION_ENTITY.field("Text");
+  static final Field USER_MENTION_ENTITY_SCREEN_NAME = StatusConverter.SCHEMA_USER_MENTION_ENTITY.field("ScreenName");
+  static final Field USER_MENTION_ENTITY_START = StatusConverter.SCHEMA_USER_MENTION_ENTITY.field("Start");
+  static final Field USER_MENTION_ENTITY_END = StatusConverter.SCHEMA_USER_MENTION_ENTITY.field("End");
+
+  static final Field MEDIA_ENTITY_ID = StatusConverter.SCHEMA_MEDIA_ENTITY.field("Id");
+  static final Field MEDIA_ENTITY_TYPE = StatusConverter.SCHEMA_MEDIA_ENTITY.field("Type");
+  static final Field MEDIA_ENTITY_MEDIA_URL = StatusConverter.SCHEMA_MEDIA_ENTITY.field("MediaURL");
+  static final Field MEDIA_ENTITY_SIZES = StatusConverter.SCHEMA_MEDIA_ENTITY.field("Sizes");
+  static final Field MEDIA_ENTITY_MEDIA_URL_HTTPS = StatusConverter.SCHEMA_MEDIA_ENTITY.field("MediaURLHttps");
+  static final Field MEDIA_ENTITY_VIDEO_ASPECT_RATIO_WIDTH = StatusConverter.SCHEMA_MEDIA_ENTITY.field("VideoAspectRatioWidth");
+  static final Field MEDIA_ENTITY_VIDEO_ASPECT_RATIO_HEIGHT = StatusConverter.SCHEMA_MEDIA_ENTITY.field("VideoAspectRatioHeight");
+  static final Field MEDIA_ENTITY_VIDEO_DURATION_MILLIS = StatusConverter.SCHEMA_MEDIA_ENTITY.field("VideoDurationMillis");
+  static final Field MEDIA_ENTITY_VIDEO_VARIANTS = StatusConverter.SCHEMA_MEDIA_ENTITY.field("VideoVariants");
+  static final Field MEDIA_ENTITY_EXT_ALT_TEXT = StatusConverter.SCHEMA_MEDIA_ENTITY.field("ExtAltText");
+  static final Field MEDIA_ENTITY_URL = StatusConverter.SCHEMA_MEDIA_ENTITY.field("URL");
+  static final Field MEDIA_ENTITY_TEXT = StatusConverter.SCHEMA_MEDIA_ENTITY.field("Text");
+  static final Field MEDIA_ENTITY_EXPANDED_URL = StatusConverter.SCHEMA_MEDIA_ENTITY.field("ExpandedURL");
+  static final Field MEDIA_ENTITY_START = StatusConverter.SCHEMA_MEDIA_ENTITY.field("Start");
+  static final Field MEDIA_ENTITY_END = StatusConverter.SCHEMA_MEDIA_ENTITY.field("End");
+  static final Field MEDIA_ENTITY_DISPLAY_URL = StatusConverter.SCHEMA_MEDIA_ENTITY.field("DisplayURL");
+
+  static final Field EXTENDED_MEDIA_ENTITY_VIDEO_ASPECT_RATIO_WIDTH = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("VideoAspectRatioWidth");
+  static final Field EXTENDED_MEDIA_ENTITY_VIDEO_ASPECT_RATIO_HEIGHT = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("VideoAspectRatioHeight");
+  static final Field EXTENDED_MEDIA_ENTITY_VIDEO_DURATION_MILLIS = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("VideoDurationMillis");
+  static final Field EXTENDED_MEDIA_ENTITY_VIDEO_VARIANTS = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("VideoVariants");
+  static final Field EXTENDED_MEDIA_ENTITY_EXT_ALT_TEXT = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("ExtAltText");
+  static final Field EXTENDED_MEDIA_ENTITY_ID = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("Id");
+  static final Field EXTENDED_MEDIA_ENTITY_TYPE = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("Type");
+  static final Field EXTENDED_MEDIA_ENTITY_MEDIA_URL = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("MediaURL");
+  static final Field EXTENDED_MEDIA_ENTITY_SIZES = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("Sizes");
+  static final Field EXTENDED_MEDIA_ENTITY_MEDIA_URL_HTTPS = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("MediaURLHttps");
+  static final Field EXTENDED_MEDIA_ENTITY_URL = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("URL");
+  static final Field EXTENDED_MEDIA_ENTITY_TEXT = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("Text");
+  static final Field EXTENDED_MEDIA_ENTITY_EXPANDED_URL = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("ExpandedURL");
+  static final Field EXTENDED_MEDIA_ENTITY_START = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("Start");
+  static final Field EXTENDED_MEDIA_ENTITY_END = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("End");
+  static final Field EXTENDED_MEDIA_ENTITY_DISPLAY_URL = StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY.field("DisplayURL");
+
+  static final Field MEDIA_ENTITY_SIZE_RESIZE = StatusConverter.SCHEMA_MEDIA_ENTITY_SIZE.field("Resize");
+  static final Field MEDIA_ENTITY_SIZE_WIDTH = StatusConverter.SCHEMA_MEDIA_ENTITY_SIZE.field("Width");
+  static final Field MEDIA_ENTITY_SIZE_HEIGHT = StatusConverter.SCHEMA_MEDIA_ENTITY_SIZE.field("Height");
+
+  static final Field MEDIA_ENTITY_VARIANT_URL = StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT.field("Url");
+  static final Field MEDIA_ENTITY_VARIANT_BITRATE = StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT.field("Bitrate");
+  static final Field MEDIA_ENTITY_VARIANT_CONTENT_TYPE = StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT.field("ContentType");
+
+  static final Field SYMBOL_ENTITY_START = StatusConverter.SCHEMA_SYMBOL_ENTITY.field("Start");
+  static final Field SYMBOL_ENTITY_END = StatusConverter.SCHEMA_SYMBOL_ENTITY.field("End");
+  static final Field SYMBOL_ENTITY_TEXT = StatusConverter.SCHEMA_SYMBOL_ENTITY.field("Text");
+
+  static final Field URL_ENTITY_URL = StatusConverter.SCHEMA_URL_ENTITY.field("URL");
+  static final Field URL_ENTITY_TEXT = StatusConverter.SCHEMA_URL_ENTITY.field("Text");
+  static final Field URL_ENTITY_EXPANDED_URL = StatusConverter.SCHEMA_URL_ENTITY.field("ExpandedURL");
+  static final Field URL_ENTITY_START = StatusConverter.SCHEMA_URL_ENTITY.field("Start");
+  static final Field URL_ENTITY_END = StatusConverter.SCHEMA_URL_ENTITY.field("End");
+  static final Field URL_ENTITY_DISPLAY_URL = StatusConverter.SCHEMA_URL_ENTITY.field("DisplayURL");
+
+  static final Map<String, Function<Status, Object>> STATUS_ACCESSORS;
+
+  static final Map<String, Function<User, Object>> USER_ACCESSORS;
+
+  static {
+    Map<String, Function<Status, Object>> status = new LinkedHashMap<>();
+    status.put("CreatedAt", source -> source.getCreatedAt());
+    status.put("Id", source -> source.getId());
+    status.put("Text", source -> source.getText());
+    status.put("Source", source -> source.getSource());
+    status.put("Truncated", source -> source.isTruncated());
+    status.put("InReplyToStatusId", source -> source.getInReplyToStatusId());
+    status.put("InReplyToUserId", source -> source.getInReplyToUserId());
+    status.put("InReplyToScreenName", source -> source.getInReplyToScreenName());
+    status.put("GeoLocation", source -> convert(source.getGeoLocation()));
+    status.put("Place", source -> convert(source.getPlace()));
+    status.put("Favorited", source -> source.isFavorited());
+    status.put("Retweeted", source -> source.isRetweeted());
+    status.put("FavoriteCount", source -> source.getFavoriteCount());
+    status.put("User", source -> convert(source.getUser()));
+    status.put("Retweet", source -> source.isRetweet());
+    status.put("Contributors", source -> convert(source.getContributors()));
+    status.put("RetweetCount", source -> source.getRetweetCount());
+    status.put("RetweetedByMe", source -> source.isRetweetedByMe());
+    status.put("CurrentUserRetweetId", source -> source.getCurrentUserRetweetId());
+    status.put("PossiblySensitive", source -> source.isPossiblySensitive());
+    status.put("Lang", source -> source.getLang());
+    status.put("WithheldInCountries", source -> convert(source.getWithheldInCountries()));
+    status.put("HashtagEntities", source -> convert(source.getHashtagEntities()));
+    status.put("UserMentionEntities", source -> convert(source.getUserMentionEntities()));
+    status.put("MediaEntities", source -> convert(source.getMediaEntities()));
+    status.put("SymbolEntities", source -> convert(source.getSymbolEntities()));
+    status.put("URLEntities", source -> convert(source.getURLEntities()));
+    STATUS_ACCESSORS = Collections.unmodifiableMap(status);
+
+    Map<String, Function<User, Object>> user = new LinkedHashMap<>();
+    user.put("Id", source -> source.getId());
+    user.put("Name", source -> source.getName());
+    user.put("ScreenName", source -> source.getScreenName());
+    user.put("Location", source -> source.getLocation());
+    user.put("Description", source -> source.getDescription());
+    user.put("ContributorsEnabled", source -> source.isContributorsEnabled());
+    user.put("ProfileImageURL", source -> source.getProfileImageURL());
+    user.put("BiggerProfileImageURL", source -> source.getBiggerProfileImageURL());
+    user.put("MiniProfileImageURL", source -> source.getMiniProfileImageURL());
+    user.put("OriginalProfileImageURL", source -> source.getOriginalProfileImageURL());
+    user.put("ProfileImageURLHttps", source -> source.getProfileImageURLHttps());
+    user.put("BiggerProfileImageURLHttps", source -> source.getBiggerProfileImageURLHttps());
+    user.put("MiniProfileImageURLHttps", source -> source.getMiniProfileImageURLHttps());
+    user.put("OriginalProfileImageURLHttps", source -> source.getOriginalProfileImageURLHttps());
+    user.put("DefaultProfileImage", source -> source.isDefaultProfileImage());
+    user.put("URL", source -> source.getURL());
+    user.put("Protected", source -> source.isProtected());
+    user.put("FollowersCount", source -> source.getFollowersCount());
+    user.put("ProfileBackgroundColor", source -> source.getProfileBackgroundColor());
+    user.put("ProfileTextColor", source -> source.getProfileTextColor());
+    user.put("ProfileLinkColor", source -> source.getProfileLinkColor());
+    user.put("ProfileSidebarFillColor", source -> source.getProfileSidebarFillColor());
+    user.put("ProfileSidebarBorderColor", source -> source.getProfileSidebarBorderColor());
+    user.put("ProfileUseBackgroundImage", source -> source.isProfileUseBackgroundImage());
+    user.put("DefaultProfile", source -> source.isDefaultProfile());
+    user.put("ShowAllInlineMedia", source -> source.isShowAllInlineMedia());
+    user.put("FriendsCount", source -> source.getFriendsCount());
+    user.put("CreatedAt", source -> source.getCreatedAt());
+    user.put("FavouritesCount", source -> source.getFavouritesCount());
+    user.put("UtcOffset", source -> source.getUtcOffset());
+    user.put("TimeZone", source -> source.getTimeZone());
+    user.put("ProfileBackgroundImageURL", source -> source.getProfileBackgroundImageURL());
+    user.put("ProfileBackgroundImageUrlHttps", source -> source.getProfileBackgroundImageUrlHttps());
+    user.put("ProfileBannerURL", source -> source.getProfileBannerURL());
+    user.put("ProfileBannerRetinaURL", source -> source.getProfileBannerRetinaURL());
+    user.put("ProfileBannerIPadURL", source -> source.getProfileBannerIPadURL());
+    user.put("ProfileBannerIPadRetinaURL", source -> source.getProfileBannerIPadRetinaURL());
+    user.put("ProfileBannerMobileURL", source -> source.getProfileBannerMobileURL());
+    user.put("ProfileBannerMobileRetinaURL", source -> source.getProfileBannerMobileRetinaURL());
+    user.put("ProfileBackgroundTiled", source -> source.isProfileBackgroundTiled());
+    user.put("Lang", source -> source.getLang());
+    user.put("StatusesCount", source -> source.getStatusesCount());
+    user.put("GeoEnabled", source -> source.isGeoEnabled());
+    user.put("Verified", source -> source.isVerified());
+    user.put("Translator", source -> source.isTranslator());
+    user.put("ListedCount", source -> source.getListedCount());
+    user.put("FollowRequestSent", source -> source.isFollowRequestSent());
+    user.put("WithheldInCountries", source -> convert(source.getWithheldInCountries()));
+    USER_ACCESSORS = Collections.unmodifiableMap(user);
+  }
+
+  static void convert(Status source, Struct struct) {
+    struct.put(STATUS_CREATED_AT, source.getCreatedAt());
+    struct.put(STATUS_ID, source.getId());
+    struct.put(STATUS_TEXT, source.getText());
+    struct.put(STATUS_SOURCE, source.getSource());
+    struct.put(STATUS_TRUNCATED, source.isTruncated());
+    struct.put(STATUS_IN_REPLY_TO_STATUS_ID, source.getInReplyToStatusId());
+    struct.put(STATUS_IN_REPLY_TO_USER_ID, source.getInReplyToUserId());
+    struct.put(STATUS_IN_REPLY_TO_SCREEN_NAME, source.getInReplyToScreenName());
+    struct.put(STATUS_GEO_LOCATION, convert(source.getGeoLocation()));
+    struct.put(STATUS_PLACE, convert(source.getPlace()));
+    struct.put(STATUS_FAVORITED, source.isFavorited());
+    struct.put(STATUS_RETWEETED, source.isRetweeted());
+    struct.put(STATUS_FAVORITE_COUNT, source.getFavoriteCount());
+    struct.put(STATUS_USER, convert(source.getUser()));
+    struct.put(STATUS_RETWEET, source.isRetweet());
+    struct.put(STATUS_CONTRIBUTORS, convert(source.getContributors()));
+    struct.put(STATUS_RETWEET_COUNT, source.getRetweetCount());
+    struct.put(STATUS_RETWEETED_BY_ME, source.isRetweetedByMe());
+    struct.put(STATUS_CURRENT_USER_RETWEET_ID, source.getCurrentUserRetweetId());
+    struct.put(STATUS_POSSIBLY_SENSITIVE, source.isPossiblySensitive());
+    struct.put(STATUS_LANG, source.getLang());
+    struct.put(STATUS_WITHHELD_IN_COUNTRIES, convert(source.getWithheldInCountries()));
+    struct.put(STATUS_HASHTAG_ENTITIES, convert(source.getHashtagEntities()));
+    struct.put(STATUS_USER_MENTION_ENTITIES, convert(source.getUserMentionEntities()));
+    struct.put(STATUS_MEDIA_ENTITIES, convert(source.getMediaEntities()));
+    struct.put(STATUS_SYMBOL_ENTITIES, convert(source.getSymbolEntities()));
+    struct.put(STATUS_URL_ENTITIES, convert(source.getURLEntities()));
+  }
+
+  static Struct convert(Status source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+    convert(source, struct);
+    return struct;
+  }
+
+  static void convert(User source, Struct struct) {
+    struct.put(USER_ID, source.getId());
+    struct.put(USER_NAME, source.getName());
+    struct.put(USER_SCREEN_NAME, source.getScreenName());
+    struct.put(USER_LOCATION, source.getLocation());
+    struct.put(USER_DESCRIPTION, source.getDescription());
+    struct.put(USER_CONTRIBUTORS_ENABLED, source.isContributorsEnabled());
+    struct.put(USER_PROFILE_IMAGE_URL, source.getProfileImageURL());
+    struct.put(USER_BIGGER_PROFILE_IMAGE_URL, source.getBiggerProfileImageURL());
+    struct.put(USER_MINI_PROFILE_IMAGE_URL, source.getMiniProfileImageURL());
+    struct.put(USER_ORIGINAL_PROFILE_IMAGE_URL, source.getOriginalProfileImageURL());
+    struct.put(USER_PROFILE_IMAGE_URL_HTTPS, source.getProfileImageURLHttps());
+    struct.put(USER_BIGGER_PROFILE_IMAGE_URL_HTTPS, source.getBiggerProfileImageURLHttps());
+    struct.put(USER_MINI_PROFILE_IMAGE_URL_HTTPS, source.getMiniProfileImageURLHttps());
+    struct.put(USER_ORIGINAL_PROFILE_IMAGE_URL_HTTPS, source.getOriginalProfileImageURLHttps());
+    struct.put(USER_DEFAULT_PROFILE_IMAGE, source.isDefaultProfileImage());
+    struct.put(USER_URL, source.getURL());
+    struct.put(USER_PROTECTED, source.isProtected());
+    struct.put(USER_FOLLOWERS_COUNT, source.getFollowersCount());
+    struct.put(USER_PROFILE_BACKGROUND_COLOR, source.getProfileBackgroundColor());
+    struct.put(USER_PROFILE_TEXT_COLOR, source.getProfileTextColor());
+    struct.put(USER_PROFILE_LINK_COLOR, source.getProfileLinkColor());
+    struct.put(USER_PROFILE_SIDEBAR_FILL_COLOR, source.getProfileSidebarFillColor());
+    struct.put(USER_PROFILE_SIDEBAR_BORDER_COLOR, source.getProfileSidebarBorderColor());
+    struct.put(USER_PROFILE_USE_BACKGROUND_IMAGE, source.isProfileUseBackgroundImage());
+    struct.put(USER_DEFAULT_PROFILE, source.isDefaultProfile());
+    struct.put(USER_SHOW_ALL_INLINE_MEDIA, source.isShowAllInlineMedia());
+    struct.put(USER_FRIENDS_COUNT, source.getFriendsCount());
+    struct.put(USER_CREATED_AT, source.getCreatedAt());
+    struct.put(USER_FAVOURITES_COUNT, source.getFavouritesCount());
+    struct.put(USER_UTC_OFFSET, source.getUtcOffset());
+    struct.put(USER_TIME_ZONE, source.getTimeZone());
+    struct.put(USER_PROFILE_BACKGROUND_IMAGE_URL, source.getProfileBackgroundImageURL());
+    struct.put(USER_PROFILE_BACKGROUND_IMAGE_URL_HTTPS, source.getProfileBackgroundImageUrlHttps());
+    struct.put(USER_PROFILE_BANNER_URL, source.getProfileBannerURL());
+    struct.put(USER_PROFILE_BANNER_RETINA_URL, source.getProfileBannerRetinaURL());
+    struct.put(USER_PROFILE_BANNER_I_PAD_URL, source.getProfileBannerIPadURL());
+    struct.put(USER_PROFILE_BANNER_I_PAD_RETINA_URL, source.getProfileBannerIPadRetinaURL());
+    struct.put(USER_PROFILE_BANNER_MOBILE_URL, source.getProfileBannerMobileURL());
+    struct.put(USER_PROFILE_BANNER_MOBILE_RETINA_URL, source.getProfileBannerMobileRetinaURL());
+    struct.put(USER_PROFILE_BACKGROUND_TILED, source.isProfileBackgroundTiled());
+    struct.put(USER_LANG, source.getLang());
+    struct.put(USER_STATUSES_COUNT, source.getStatusesCount());
+    struct.put(USER_GEO_ENABLED, source.isGeoEnabled());
+    struct.put(USER_VERIFIED, source.isVerified());
+    struct.put(USER_TRANSLATOR, source.isTranslator());
+    struct.put(USER_LISTED_COUNT, source.getListedCount());
+    struct.put(USER_FOLLOW_REQUEST_SENT, source.isFollowRequestSent());
+    struct.put(USER_WITHHELD_IN_COUNTRIES, convert(source.getWithheldInCountries()));
+  }
+
+  static Struct convert(User source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.USER_SCHEMA);
+    convert(source, struct);
+    return struct;
+  }
+
+  static void convert(Place source, Struct struct) {
+    struct.put(PLACE_NAME, source.getName());
+    struct.put(PLACE_STREET_ADDRESS, source.getStreetAddress());
+    struct.put(PLACE_COUNTRY_CODE, source.getCountryCode());
+    struct.put(PLACE_ID, source.getId());
+    struct.put(PLACE_COUNTRY, source.getCountry());
+    struct.put(PLACE_PLACE_TYPE, source.getPlaceType());
+    struct.put(PLACE_URL, source.getURL());
+    struct.put(PLACE_FULL_NAME, source.getFullName());
+  }
+
+  static Struct convert(Place source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.PLACE_SCHEMA);
+    convert(source, struct);
+    return struct;
+  }
+
+  static void convert(GeoLocation source, Struct struct) {
+    struct.put(GEO_LOCATION_LATITUDE, source.getLatitude());
+    struct.put(GEO_LOCATION_LONGITUDE, source.getLongitude());
+  }
+
+  static Struct convert(GeoLocation source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.GEO_LOCATION_SCHEMA);
+    convert(source, struct);
+    return struct;
+  }
+
+  static void convert(HashtagEntity source, Struct struct) {
+    struct.put(HASHTAG_ENTITY_TEXT, source.getText());
+    struct.put(HASHTAG_ENTITY_START, source.getStart());
+    struct.put(HASHTAG_ENTITY_END, source.getEnd());
+  }
+
+  static Struct convert(HashtagEntity source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_HASHTAG_ENTITY);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(HashtagEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (HashtagEntity item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(UserMentionEntity source, Struct struct) {
+    struct.put(USER_MENTION_ENTITY_NAME, source.getName());
+    struct.put(USER_MENTION_ENTITY_ID, source.getId());
+    struct.put(USER_MENTION_ENTITY_TEXT, source.getText());
+    struct.put(USER_MENTION_ENTITY_SCREEN_NAME, source.getScreenName());
+    struct.put(USER_MENTION_ENTITY_START, source.getStart());
+    struct.put(USER_MENTION_ENTITY_END, source.getEnd());
+  }
+
+  static Struct convert(UserMentionEntity source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_USER_MENTION_ENTITY);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(UserMentionEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (UserMentionEntity item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(MediaEntity source, Struct struct) {
+    struct.put(MEDIA_ENTITY_ID, source.getId());
+    struct.put(MEDIA_ENTITY_TYPE, source.getType());
+    struct.put(MEDIA_ENTITY_MEDIA_URL, source.getMediaURL());
+    struct.put(MEDIA_ENTITY_SIZES, convert(source.getSizes()));
+    struct.put(MEDIA_ENTITY_MEDIA_URL_HTTPS, source.getMediaURLHttps());
+    struct.put(MEDIA_ENTITY_VIDEO_ASPECT_RATIO_WIDTH, source.getVideoAspectRatioWidth());
+    struct.put(MEDIA_ENTITY_VIDEO_ASPECT_RATIO_HEIGHT, source.getVideoAspectRatioHeight());
+    struct.put(MEDIA_ENTITY_VIDEO_DURATION_MILLIS, source.getVideoDurationMillis());
+    struct.put(MEDIA_ENTITY_VIDEO_VARIANTS, convert(source.getVideoVariants()));
+    struct.put(MEDIA_ENTITY_EXT_ALT_TEXT, source.getExtAltText());
+    struct.put(MEDIA_ENTITY_URL, source.getURL());
+    struct.put(MEDIA_ENTITY_TEXT, source.getText());
+    struct.put(MEDIA_ENTITY_EXPANDED_URL, source.getExpandedURL());
+    struct.put(MEDIA_ENTITY_START, source.getStart());
+    struct.put(MEDIA_ENTITY_END, source.getEnd());
+    struct.put(MEDIA_ENTITY_DISPLAY_URL, source.getDisplayURL());
+  }
+
+  static Struct convert(MediaEntity source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(MediaEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (MediaEntity item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(ExtendedMediaEntity source, Struct struct) {
+    struct.put(EXTENDED_MEDIA_ENTITY_VIDEO_ASPECT_RATIO_WIDTH, source.getVideoAspectRatioWidth());
+    struct.put(EXTENDED_MEDIA_ENTITY_VIDEO_ASPECT_RATIO_HEIGHT, source.getVideoAspectRatioHeight());
+    struct.put(EXTENDED_MEDIA_ENTITY_VIDEO_DURATION_MILLIS, source.getVideoDurationMillis());
+    struct.put(EXTENDED_MEDIA_ENTITY_VIDEO_VARIANTS, convert(source.getVideoVariants()));
+    struct.put(EXTENDED_MEDIA_ENTITY_EXT_ALT_TEXT, source.getExtAltText());
+    struct.put(EXTENDED_MEDIA_ENTITY_ID, source.getId());
+    struct.put(EXTENDED_MEDIA_ENTITY_TYPE, source.getType());
+    struct.put(EXTENDED_MEDIA_ENTITY_MEDIA_URL, source.getMediaURL());
+    struct.put(EXTENDED_MEDIA_ENTITY_SIZES, convert(source.getSizes()));
+    struct.put(EXTENDED_MEDIA_ENTITY_MEDIA_URL_HTTPS, source.getMediaURLHttps());
+    struct.put(EXTENDED_MEDIA_ENTITY_URL, source.getURL());
+    struct.put(EXTENDED_MEDIA_ENTITY_TEXT, source.getText());
+    struct.put(EXTENDED_MEDIA_ENTITY_EXPANDED_URL, source.getExpandedURL());
+    struct.put(EXTENDED_MEDIA_ENTITY_START, source.getStart());
+    struct.put(EXTENDED_MEDIA_ENTITY_END, source.getEnd());
+    struct.put(EXTENDED_MEDIA_ENTITY_DISPLAY_URL, source.getDisplayURL());
+  }
+
+  static Struct convert(ExtendedMediaEntity source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(ExtendedMediaEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (ExtendedMediaEntity item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(MediaEntity.Size source, Struct struct) {
+    struct.put(MEDIA_ENTITY_SIZE_RESIZE, source.getResize());
+    struct.put(MEDIA_ENTITY_SIZE_WIDTH, source.getWidth());
+    struct.put(MEDIA_ENTITY_SIZE_HEIGHT, source.getHeight());
+  }
+
+  static Struct convert(MediaEntity.Size source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY_SIZE);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(MediaEntity.Size[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (MediaEntity.Size item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(MediaEntity.Variant source, Struct struct) {
+    struct.put(MEDIA_ENTITY_VARIANT_URL, source.getUrl());
+    struct.put(MEDIA_ENTITY_VARIANT_BITRATE, source.getBitrate());
+    struct.put(MEDIA_ENTITY_VARIANT_CONTENT_TYPE, source.getContentType());
+  }
+
+  static Struct convert(MediaEntity.Variant source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(MediaEntity.Variant[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (MediaEntity.Variant item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(ExtendedMediaEntity.Variant source, Struct struct) {
+    struct.put(MEDIA_ENTITY_VARIANT_URL, source.getUrl());
+    struct.put(MEDIA_ENTITY_VARIANT_BITRATE, source.getBitrate());
+    struct.put(MEDIA_ENTITY_VARIANT_CONTENT_TYPE, source.getContentType());
+  }
+
+  static Struct convert(ExtendedMediaEntity.Variant source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(ExtendedMediaEntity.Variant[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (ExtendedMediaEntity.Variant item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(SymbolEntity source, Struct struct) {
+    struct.put(SYMBOL_ENTITY_START, source.getStart());
+    struct.put(SYMBOL_ENTITY_END, source.getEnd());
+    struct.put(SYMBOL_ENTITY_TEXT, source.getText());
+  }
+
+  static Struct convert(SymbolEntity source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_SYMBOL_ENTITY);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(SymbolEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (SymbolEntity item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static void convert(URLEntity source, Struct struct) {
+    struct.put(URL_ENTITY_URL, source.getURL());
+    struct.put(URL_ENTITY_TEXT, source.getText());
+    struct.put(URL_ENTITY_EXPANDED_URL, source.getExpandedURL());
+    struct.put(URL_ENTITY_START, source.getStart());
+    struct.put(URL_ENTITY_END, source.getEnd());
+    struct.put(URL_ENTITY_DISPLAY_URL, source.getDisplayURL());
+  }
+
+  static Struct convert(URLEntity source) {
+    if (null == source) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.SCHEMA_URL_ENTITY);
+    convert(source, struct);
+    return struct;
+  }
+
+  static List<Struct> convert(URLEntity[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Struct> result = new ArrayList<>(items.length);
+    for (URLEntity item : items) {
+      result.add(convert(item));
+    }
+    return result;
+  }
+
+  static Map<Integer, Struct> convert(Map<Integer, MediaEntity.Size> items) {
+    if (null == items || items.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<Integer, Struct> result = new LinkedHashMap<>(items.size() * 2);
+    for (Map.Entry<Integer, MediaEntity.Size> kvp : items.entrySet()) {
+      result.put(kvp.getKey(), convert(kvp.getValue()));
+    }
+    return result;
+  }
+
+  static List<Long> convert(long[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    List<Long> result = new ArrayList<>(items.length);
+    for (long item : items) {
+      result.add(item);
+    }
+    return result;
+  }
+
+  static List<String> convert(String[] items) {
+    if (null == items || 0 == items.length) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(Arrays.asList(items));
+  }
+}
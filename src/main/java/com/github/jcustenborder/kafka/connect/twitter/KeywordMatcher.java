@@ -0,0 +1,350 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over the terms of the filter keywords. It is compiled once when the task starts and finds
+ * every keyword in a status with one pass over the text and the entities, no matter how many keywords there are.
+ * Matching follows the track parameter: case insensitive, a term only matches a whole word, and a phrase matches when
+ * all of its space separated terms are present. A term is a whole word when the characters around it are not letters
+ * or digits, so {@code kafka} matches {@code #kafka} and {@code @kafka} but not {@code kafkaesque}. Instances are
+ * immutable and can be shared between threads, each {@link Scan} is used by one thread.
+ */
+class KeywordMatcher {
+  static final String HEADER = "MatchedKeywords";
+  static final Schema HEADER_SCHEMA = SchemaBuilder.array(Schema.STRING_SCHEMA).build();
+  static final int[] NONE = new int[0];
+
+  private static final int ROOT = 0;
+
+  final String[] keywords;
+  /**
+   * Keywords that contain each term.
+   */
+  private final int[][] termKeywords;
+  /**
+   * Number of distinct terms in each keyword.
+   */
+  private final int[] keywordTerms;
+  /**
+   * Length of each term, to find where a match started.
+   */
+  private final int[] termLengths;
+  /**
+   * Flags for the terms that start and end with a letter or digit. Only those ends need a word boundary in the text.
+   */
+  private final boolean[] boundedStart;
+  private final boolean[] boundedEnd;
+  private final int terms;
+  private final TransitionTable transitions;
+  private final int[] failure;
+  /**
+   * Terms that end at each state, including the ones reached through the failure links.
+   */
+  private final int[][] output;
+
+  KeywordMatcher(String[] keywords) {
+    this.keywords = keywords;
+    this.keywordTerms = new int[keywords.length];
+    Map<String, List<Integer>> termIndex = new LinkedHashMap<>();
+    for (int k = 0; k < keywords.length; k++) {
+      for (String term : lowerCase(keywords[k]).trim().split("\\s+")) {
+        if (term.isEmpty()) {
+          continue;
+        }
+        List<Integer> containing = termIndex.computeIfAbsent(term, t -> new ArrayList<>());
+        if (containing.isEmpty() || containing.get(containing.size() - 1) != k) {
+          containing.add(k);
+          this.keywordTerms[k]++;
+        }
+      }
+    }
+    this.terms = termIndex.size();
+    this.termKeywords = new int[this.terms][];
+    this.termLengths = new int[this.terms];
+    this.boundedStart = new boolean[this.terms];
+    this.boundedEnd = new boolean[this.terms];
+
+    // Trie of the terms.
+    int capacity = 1;
+    for (String term : termIndex.keySet()) {
+      capacity += term.length();
+    }
+    this.transitions = new TransitionTable(capacity);
+    List<List<Integer>> ends = new ArrayList<>(capacity);
+    ends.add(new ArrayList<>());
+    int states = 1;
+    int t = 0;
+    for (Map.Entry<String, List<Integer>> entry : termIndex.entrySet()) {
+      this.termKeywords[t] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+      final String term = entry.getKey();
+      this.termLengths[t] = term.length();
+      this.boundedStart[t] = Character.isLetterOrDigit(term.charAt(0));
+      this.boundedEnd[t] = Character.isLetterOrDigit(term.charAt(term.length() - 1));
+      int state = ROOT;
+      for (int i = 0; i < entry.getKey().length(); i++) {
+        final char c = entry.getKey().charAt(i);
+        int next = this.transitions.get(state, c);
+        if (next < 0) {
+          next = states++;
+          this.transitions.put(state, c, next);
+          ends.add(new ArrayList<>());
+        }
+        state = next;
+      }
+      ends.get(state).add(t);
+      t++;
+    }
+
+    // Failure links, breadth first so the link of a shorter suffix is always known first.
+    this.failure = new int[states];
+    this.output = new int[states][];
+    List<List<Integer>> children = this.transitions.children(states);
+    Queue<Integer> queue = new ArrayDeque<>();
+    this.output[ROOT] = NONE;
+    for (int child : children.get(ROOT)) {
+      this.failure[child] = ROOT;
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      final int state = queue.remove();
+      this.output[state] = merge(ends.get(state), this.output[this.failure[state]]);
+      for (int child : children.get(state)) {
+        final char c = this.transitions.label(child);
+        int fallback = this.failure[state];
+        while (fallback != ROOT && this.transitions.get(fallback, c) < 0) {
+          fallback = this.failure[fallback];
+        }
+        int link = this.transitions.get(fallback, c);
+        this.failure[child] = link >= 0 ? link : ROOT;
+        queue.add(child);
+      }
+    }
+  }
+
+  private static int[] merge(List<Integer> own, int[] inherited) {
+    if (own.isEmpty()) {
+      return inherited;
+    }
+    int[] result = Arrays.copyOf(inherited, inherited.length + own.size());
+    for (int i = 0; i < own.size(); i++) {
+      result[inherited.length + i] = own.get(i);
+    }
+    return result;
+  }
+
+  private static String lowerCase(String value) {
+    // Char by char so the keywords are folded exactly the same way as the text being scanned.
+    char[] chars = value.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(chars[i]);
+    }
+    return new String(chars);
+  }
+
+  Scan scan() {
+    return new Scan();
+  }
+
+  /**
+   * @param text text to scan.
+   * @return indexes of the matched keywords in the order they were configured.
+   */
+  int[] match(String text) {
+    return scan().feed(text).matches();
+  }
+
+  List<String> keywords(int[] matches) {
+    if (matches.length == 0) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>(matches.length);
+    for (int match : matches) {
+      result.add(this.keywords[match]);
+    }
+    return result;
+  }
+
+  /**
+   * State of the matches for one status. Each piece of text is fed separately so a term can not span two of them.
+   */
+  class Scan {
+    private long[] seen;
+    private int[] counts;
+    private int[] matched = NONE;
+    private int matchedCount;
+
+    Scan feed(CharSequence text) {
+      if (null == text || terms == 0) {
+        return this;
+      }
+      int state = ROOT;
+      for (int i = 0; i < text.length(); i++) {
+        final char c = Character.toLowerCase(text.charAt(i));
+        int next = transitions.get(state, c);
+        while (next < 0 && state != ROOT) {
+          state = failure[state];
+          next = transitions.get(state, c);
+        }
+        state = next < 0 ? ROOT : next;
+        for (int term : output[state]) {
+          if (wholeWord(text, term, i)) {
+            found(term);
+          }
+        }
+      }
+      return this;
+    }
+
+    /**
+     * @param end index of the last character of the term in the text.
+     */
+    private boolean wholeWord(CharSequence text, int term, int end) {
+      if (boundedEnd[term] && end + 1 < text.length() && Character.isLetterOrDigit(text.charAt(end + 1))) {
+        return false;
+      }
+      final int before = end - termLengths[term];
+      return !boundedStart[term] || before < 0 || !Character.isLetterOrDigit(text.charAt(before));
+    }
+
+    private void found(int term) {
+      if (null == this.seen) {
+        this.seen = new long[(terms + 63) >>> 6];
+      }
+      final long bit = 1L << term;
+      if ((this.seen[term >>> 6] & bit) != 0) {
+        return;
+      }
+      this.seen[term >>> 6] |= bit;
+      for (int keyword : termKeywords[term]) {
+        if (keywordTerms[keyword] == 1) {
+          add(keyword);
+          continue;
+        }
+        if (null == this.counts) {
+          this.counts = new int[keywords.length];
+        }
+        if (++this.counts[keyword] == keywordTerms[keyword]) {
+          add(keyword);
+        }
+      }
+    }
+
+    private void add(int keyword) {
+      if (this.matchedCount == this.matched.length) {
+        this.matched = Arrays.copyOf(this.matched, Math.max(4, this.matched.length * 2));
+      }
+      this.matched[this.matchedCount++] = keyword;
+    }
+
+    /**
+     * @return indexes of the matched keywords in the order they were configured.
+     */
+    int[] matches() {
+      if (this.matchedCount == 0) {
+        return NONE;
+      }
+      int[] result = Arrays.copyOf(this.matched, this.matchedCount);
+      Arrays.sort(result);
+      return result;
+    }
+  }
+
+  /**
+   * Open addressing map from a state and a character to the next state. Scanning does not box or allocate.
+   */
+  static class TransitionTable {
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+    /**
+     * The character on the edge leading into each state.
+     */
+    private final char[] labels;
+
+    TransitionTable(int edges) {
+      int size = Integer.highestOneBit(Math.max(4, edges * 2) - 1) << 1;
+      this.keys = new long[size];
+      this.values = new int[size];
+      this.mask = size - 1;
+      this.labels = new char[edges + 1];
+      Arrays.fill(this.keys, -1L);
+    }
+
+    private static long key(int state, char c) {
+      return ((long) state << 16) | c;
+    }
+
+    private int slot(long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & this.mask;
+    }
+
+    int get(int state, char c) {
+      final long key = key(state, c);
+      int slot = slot(key);
+      while (true) {
+        long existing = this.keys[slot];
+        if (existing == key) {
+          return this.values[slot];
+        } else if (existing == -1L) {
+          return -1;
+        }
+        slot = (slot + 1) & this.mask;
+      }
+    }
+
+    void put(int state, char c, int next) {
+      final long key = key(state, c);
+      int slot = slot(key);
+      while (this.keys[slot] != -1L) {
+        slot = (slot + 1) & this.mask;
+      }
+      this.keys[slot] = key;
+      this.values[slot] = next;
+      this.labels[next] = c;
+    }
+
+    char label(int state) {
+      return this.labels[state];
+    }
+
+    List<List<Integer>> children(int states) {
+      List<List<Integer>> result = new ArrayList<>(states);
+      for (int i = 0; i < states; i++) {
+        result.add(new ArrayList<>());
+      }
+      for (int i = 0; i < this.keys.length; i++) {
+        if (this.keys[i] != -1L) {
+          result.get((int) (this.keys[i] >>> 16)).add(this.values[i]);
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Spreads keywords over tasks by the volume each one matches. Volumes are sampled from {@link KeywordVolumes} on every
+ * {@link #check()} and smoothed with an exponentially weighted moving average. A new assignment is only proposed when
+ * all of these hold, so a short burst does not restart every connection:
+ * <ul>
+ * <li>the busiest task carries more than the imbalance threshold times the average load on
+ * {@link #CONSECUTIVE_CHECKS} checks in a row.</li>
+ * <li>packing by volume lowers the load of the busiest task by at least {@link #MIN_IMPROVEMENT}.</li>
+ * <li>the minimum interval has passed since the last reassignment.</li>
+ * </ul>
+ *
+ * Volumes are only known for keywords of tasks in the same worker as the connector. Keywords without a volume are
+ * counted at the average of the known volumes, so the tasks holding them do not look idle, and stay on the task they
+ * are on, so they are never moved on a guess. No new assignment is proposed while any task with keywords has not
+ * reported a volume for at least one of them.
+ */
+class KeywordRebalancer {
+  private static final Logger log = LoggerFactory.getLogger(KeywordRebalancer.class);
+  static final int CONSECUTIVE_CHECKS = 2;
+  static final double MIN_IMPROVEMENT = 0.2D;
+  static final double ALPHA = 0.5D;
+
+  final Supplier<Map<String, Long>> counts;
+  final LongSupplier clock;
+  final double threshold;
+  final long minIntervalMs;
+  final Map<String, Double> volumes = new HashMap<>();
+  private final Map<String, Long> lastCounts = new HashMap<>();
+  private long lastCheckMs;
+  private long lastReassignedMs;
+  private int overThreshold;
+
+  KeywordRebalancer(Supplier<Map<String, Long>> counts, LongSupplier clock, double threshold, long minIntervalMs) {
+    this.counts = counts;
+    this.clock = clock;
+    this.threshold = threshold;
+    this.minIntervalMs = minIntervalMs;
+    this.lastCheckMs = clock.getAsLong();
+    this.lastReassignedMs = this.lastCheckMs;
+  }
+
+  /**
+   * Assigns keywords in the order they were configured, one task at a time.
+   */
+  static List<List<String>> roundRobin(Collection<String> keywords, int tasks) {
+    List<List<String>> result = new ArrayList<>(tasks);
+    for (int i = 0; i < tasks; i++) {
+      result.add(new ArrayList<>());
+    }
+    int index = 0;
+    for (String keyword : keywords) {
+      result.get(index % tasks).add(keyword);
+      index++;
+    }
+    return result;
+  }
+
+  /**
+   * Longest processing time first. Keywords are placed from the highest volume down, each on the task with the least
+   * volume so far.
+   */
+  static List<List<String>> pack(Collection<String> keywords, int tasks, Map<String, Double> volumes) {
+    return pack(keywords, Collections.nCopies(tasks, Collections.emptyList()), volumes);
+  }
+
+  /**
+   * Same as {@link #pack(Collection, int, Map)}, starting from keywords that are pinned to their tasks.
+   *
+   * @param keywords keywords to place.
+   * @param pinned   keywords already on each task. Their volume counts towards the load of the task.
+   * @param volumes  volume of each keyword.
+   */
+  static List<List<String>> pack(Collection<String> keywords, List<List<String>> pinned, Map<String, Double> volumes) {
+    final int tasks = pinned.size();
+    List<String> sorted = new ArrayList<>(keywords);
+    sorted.sort((a, b) -> Double.compare(volume(volumes, b), volume(volumes, a)));
+    List<List<String>> result = new ArrayList<>(tasks);
+    double[] loads = new double[tasks];
+    for (int i = 0; i < tasks; i++) {
+      result.add(new ArrayList<>(pinned.get(i)));
+      for (String keyword : pinned.get(i)) {
+        loads[i] += volume(volumes, keyword);
+      }
+    }
+    for (String keyword : sorted) {
+      int lightest = 0;
+      for (int i = 1; i < tasks; i++) {
+        if (loads[i] < loads[lightest] ||
+            (loads[i] == loads[lightest] && result.get(i).size() < result.get(lightest).size())) {
+          lightest = i;
+        }
+      }
+      result.get(lightest).add(keyword);
+      loads[lightest] += volume(volumes, keyword);
+    }
+    return result;
+  }
+
+  static double volume(Map<String, Double> volumes, String keyword) {
+    Double result = volumes.get(keyword);
+    return null == result ? 0D : result;
+  }
+
+  static double maxLoad(List<List<String>> assignment, Map<String, Double> volumes) {
+    double result = 0D;
+    for (List<String> keywords : assignment) {
+      double load = 0D;
+      for (String keyword : keywords) {
+        load += volume(volumes, keyword);
+      }
+      result = Math.max(result, load);
+    }
+    return result;
+  }
+
+  /**
+   * @return the load of the busiest task divided by the average load. 1 is perfectly balanced.
+   */
+  static double imbalance(List<List<String>> assignment, Map<String, Double> volumes) {
+    double total = 0D;
+    for (List<String> keywords : assignment) {
+      for (String keyword : keywords) {
+        total += volume(volumes, keyword);
+      }
+    }
+    if (total <= 0D || assignment.isEmpty()) {
+      return 1D;
+    }
+    return maxLoad(assignment, volumes) / (total / assignment.size());
+  }
+
+  /**
+   * Samples the keyword counters and updates the smoothed volume of each keyword in matches per second.
+   */
+  void sample() {
+    final long now = this.clock.getAsLong();
+    final double seconds = Math.max(1L, now - this.lastCheckMs) / 1000D;
+    this.lastCheckMs = now;
+    for (Map.Entry<String, Long> entry : this.counts.get().entrySet()) {
+      final long count = entry.getValue();
+      final Long last = this.lastCounts.put(entry.getKey(), count);
+      if (null == last) {
+        // There is no telling how long the first count took to build up.
+        continue;
+      }
+      // A task that restarted starts counting from zero again.
+      final long delta = count < last ? count : count - last;
+      final double rate = delta / seconds;
+      this.volumes.merge(entry.getKey(), rate, (previous, current) -> ALPHA * current + (1D - ALPHA) * previous);
+    }
+  }
+
+  /**
+   * Volumes for the supplied keywords. Keywords that have not been reported are left out.
+   */
+  Map<String, Double> volumes(Collection<String> keywords) {
+    Map<String, Double> result = new HashMap<>();
+    for (String keyword : keywords) {
+      Double volume = this.volumes.get(keyword);
+      if (null != volume) {
+        result.put(keyword, volume);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param keywords keywords of every task.
+   * @param known    volumes returned by {@link #volumes(Collection)}.
+   * @return the known volumes, with the average of them for every keyword that has not been reported.
+   */
+  static Map<String, Double> estimate(Collection<String> keywords, Map<String, Double> known) {
+    double total = 0D;
+    for (double volume : known.values()) {
+      total += volume;
+    }
+    final double average = known.isEmpty() ? 0D : total / known.size();
+    Map<String, Double> result = new HashMap<>(known);
+    for (String keyword : keywords) {
+      result.putIfAbsent(keyword, average);
+    }
+    return result;
+  }
+
+  /**
+   * Samples the volumes and decides whether the current assignment should be replaced.
+   *
+   * @param current current assignment of keywords to tasks.
+   * @return the new assignment, or null if the current one should be kept.
+   */
+  synchronized List<List<String>> check(List<List<String>> current) {
+    sample();
+    if (null == current || current.size() < 2) {
+      return null;
+    }
+    Set<String> keywords = new LinkedHashSet<>();
+    current.forEach(keywords::addAll);
+    Map<String, Double> volumes = volumes(keywords);
+    if (volumes.isEmpty()) {
+      return null;
+    }
+    for (List<String> task : current) {
+      if (!task.isEmpty() && task.stream().noneMatch(volumes::containsKey)) {
+        log.debug("Not rebalancing. A task with keywords {} has not reported a volume.", task);
+        return null;
+      }
+    }
+    final Map<String, Double> estimated = estimate(keywords, volumes);
+    final double imbalance = imbalance(current, estimated);
+    if (imbalance <= this.threshold) {
+      this.overThreshold = 0;
+      return null;
+    }
+    this.overThreshold++;
+    log.debug("Keyword imbalance {} is over {} on {} check(s).", imbalance, this.threshold, this.overThreshold);
+    if (this.overThreshold < CONSECUTIVE_CHECKS) {
+      return null;
+    }
+    final long now = this.clock.getAsLong();
+    if (now - this.lastReassignedMs < this.minIntervalMs) {
+      return null;
+    }
+    // Only keywords with a volume are moved. The rest stay where they are.
+    List<List<String>> pinned = new ArrayList<>(current.size());
+    for (List<String> task : current) {
+      List<String> unknown = new ArrayList<>();
+      for (String keyword : task) {
+        if (!volumes.containsKey(keyword)) {
+          unknown.add(keyword);
+        }
+      }
+      pinned.add(unknown);
+    }
+    List<List<String>> packed = pack(volumes.keySet(), pinned, estimated);
+    final double currentMax = maxLoad(current, estimated);
+    final double packedMax = maxLoad(packed, estimated);
+    if (packedMax > currentMax * (1D - MIN_IMPROVEMENT)) {
+      return null;
+    }
+    log.info(
+        "Reassigning keywords. Busiest task goes from {} to {} statuses per second. imbalance = {}",
+        currentMax, packedMax, imbalance
+    );
+    this.overThreshold = 0;
+    this.lastReassignedMs = now;
+    return Collections.unmodifiableList(packed);
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the number of statuses each keyword has matched, keyed by connector name. Tasks register a counter for
+ * each keyword they track and the connector reads them to decide how to spread keywords over tasks. Only tasks running
+ * in the same worker as the connector are visible. {@link KeywordRebalancer} counts keywords on other workers at the
+ * average of the known volumes, keeps them on their tasks and does not rebalance while a task has reported nothing.
+ */
+class KeywordVolumes {
+  private static final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> REGISTRY = new ConcurrentHashMap<>();
+
+  private KeywordVolumes() {
+
+  }
+
+  static String connectorName(TwitterSourceConnectorConfig config) {
+    String name = config.originalsStrings().get("name");
+    return null == name ? "" : name;
+  }
+
+  static void register(String connector, String keyword, LongAdder counter) {
+    REGISTRY.computeIfAbsent(connector, k -> new ConcurrentHashMap<>()).put(keyword, counter);
+  }
+
+  static void unregister(String connector, String keyword, LongAdder counter) {
+    ConcurrentMap<String, LongAdder> counters = REGISTRY.get(connector);
+    if (null != counters) {
+      counters.remove(keyword, counter);
+    }
+  }
+
+  /**
+   * @param connector name of the connector.
+   * @return total matches for each keyword reported by a task in this worker.
+   */
+  static Map<String, Long> counts(String connector) {
+    Map<String, Long> result = new LinkedHashMap<>();
+    ConcurrentMap<String, LongAdder> counters = REGISTRY.get(connector);
+    if (null != counters) {
+      counters.forEach((keyword, counter) -> result.put(keyword, counter.sum()));
+    }
+    return result;
+  }
+}
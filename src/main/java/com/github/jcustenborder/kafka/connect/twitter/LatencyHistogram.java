@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations in nanoseconds. Values below 16 get a bucket each and larger values are split into
+ * eight buckets per power of two, so a percentile is reported to within 12.5%. Recording is a couple of shifts and one
+ * atomic increment, which keeps it cheap enough to call for every status on the listener thread.
+ *
+ * Two windows are kept. {@link #rotate()} drops the older one, so percentiles cover between one and two rotation
+ * periods.
+ */
+class LatencyHistogram {
+  static final int LINEAR_BUCKETS = 16;
+  static final int SUB_BUCKETS = 8;
+  static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+  private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+  private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+
+  static int bucket(long value) {
+    if (value < LINEAR_BUCKETS) {
+      return value < 0 ? 0 : (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+    return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * @param bucket index of a bucket.
+   * @return the largest value that falls in the bucket.
+   */
+  static long upperBound(int bucket) {
+    if (bucket < LINEAR_BUCKETS) {
+      return bucket;
+    }
+    final int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+    final int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+  }
+
+  void record(long nanos) {
+    this.current.incrementAndGet(bucket(nanos));
+  }
+
+  void rotate() {
+    this.previous = this.current;
+    this.current = new AtomicLongArray(BUCKETS);
+  }
+
+  long count() {
+    long result = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      result += count(i);
+    }
+    return result;
+  }
+
+  private long count(int bucket) {
+    return this.current.get(bucket) + this.previous.get(bucket);
+  }
+
+  /**
+   * @param quantile quantile between 0 and 1.
+   * @return upper bound of the bucket holding the quantile in nanoseconds, or 0 if nothing was recorded.
+   */
+  long percentile(double quantile) {
+    final long[] counts = new long[BUCKETS];
+    long total = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = count(i);
+      total += counts[i];
+    }
+    if (total == 0L) {
+      return 0L;
+    }
+    final long target = Math.max(1L, (long) Math.ceil(quantile * total));
+    long seen = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return upperBound(i);
+      }
+    }
+    return upperBound(BUCKETS - 1);
+  }
+}
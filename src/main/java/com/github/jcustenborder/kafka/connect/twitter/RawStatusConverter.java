@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds records for the raw output formats. The value is the message exactly as it was received from the stream.
+ * Only the key and the routing fields Id, CreatedAt, Lang and UserId are extracted, and those are written as headers.
+ */
+class RawStatusConverter {
+  public static final String HEADER_ID = "Id";
+  public static final String HEADER_CREATED_AT = "CreatedAt";
+  public static final String HEADER_LANG = "Lang";
+  public static final String HEADER_USER_ID = "UserId";
+
+  final TwitterSourceConnectorConfig.OutputFormat outputFormat;
+  final Schema valueSchema;
+  final String topic;
+  final RawStatusParser parser = new RawStatusParser();
+
+  RawStatusConverter(TwitterSourceConnectorConfig.OutputFormat outputFormat, String topic) {
+    this.outputFormat = outputFormat;
+    this.topic = topic;
+    switch (outputFormat) {
+      case JSON_STRING:
+        this.valueSchema = Schema.STRING_SCHEMA;
+        break;
+      case JSON_BYTES:
+        this.valueSchema = Schema.BYTES_SCHEMA;
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format("%s is not a raw output format.", outputFormat)
+        );
+    }
+  }
+
+  /**
+   * Scans the supplied message. The fields of the last message scanned are available from {@link #parser}.
+   *
+   * @param json raw message from the stream.
+   * @return the type of message.
+   */
+  RawStatusParser.Type parse(String json) {
+    return this.parser.parse(json);
+  }
+
+  /**
+   * Creates a record for the last status passed to {@link #parse(String)}.
+   *
+   * @param json            the same message that was passed to {@link #parse(String)}.
+   * @param sourcePartition partition of the status.
+   * @param sourceOffset    offset of the status.
+   * @return record with the raw message as the value.
+   */
+  SourceRecord status(String json, Map<String, ?> sourcePartition, Map<String, ?> sourceOffset) {
+    return status(json, sourcePartition, sourceOffset, null, this.topic);
+  }
+
+  /**
+   * @param matchedKeywords keywords to write to the {@link KeywordMatcher#HEADER} header. null or empty leaves the
+   *                        header out.
+   * @param topic           topic the status was routed to.
+   */
+  SourceRecord status(String json, Map<String, ?> sourcePartition, Map<String, ?> sourceOffset, List<String> matchedKeywords, String topic) {
+    Struct keyStruct = new Struct(StatusConverter.STATUS_SCHEMA_KEY)
+        .put("Id", this.parser.id);
+
+    ConnectHeaders headers = new ConnectHeaders();
+    headers.addLong(HEADER_ID, this.parser.id);
+    headers.addTimestamp(HEADER_CREATED_AT, new Date(this.parser.createdAt));
+    if (null != this.parser.lang) {
+      headers.addString(HEADER_LANG, this.parser.lang);
+    }
+    if (this.parser.hasUserId) {
+      headers.addLong(HEADER_USER_ID, this.parser.userId);
+    }
+    if (null != matchedKeywords && !matchedKeywords.isEmpty()) {
+      headers.addList(KeywordMatcher.HEADER, matchedKeywords, KeywordMatcher.HEADER_SCHEMA);
+    }
+
+    return new SourceRecord(
+        sourcePartition,
+        sourceOffset,
+        topic,
+        null,
+        StatusConverter.STATUS_SCHEMA_KEY,
+        keyStruct,
+        this.valueSchema,
+        value(json),
+        this.parser.createdAt,
+        headers
+    );
+  }
+
+  private Object value(String json) {
+    return this.outputFormat == TwitterSourceConnectorConfig.OutputFormat.JSON_BYTES ?
+        json.getBytes(StandardCharsets.UTF_8) : json;
+  }
+}
@@ -0,0 +1,481 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Single pass scanner over a raw streaming api message. This pulls out the handful of fields needed to key and route
+ * a record without building the twitter4j object model or a JSON tree. Values that are not needed are skipped over
+ * without being materialized. Instances are reused between messages and are not thread safe.
+ */
+class RawStatusParser {
+  static final DateTimeFormatter CREATED_AT_FORMAT = DateTimeFormatter.ofPattern(
+      "EEE MMM dd HH:mm:ss Z yyyy", Locale.ENGLISH
+  );
+
+  enum Type {
+    STATUS,
+    DELETE,
+    WARNING,
+    LIMIT,
+    OTHER
+  }
+
+  private enum Context {
+    ROOT,
+    USER,
+    DELETE,
+    DELETE_STATUS,
+    WARNING,
+    LIMIT,
+    ENTITIES,
+    URL,
+    HASHTAG,
+    MENTION
+  }
+
+  Type type;
+  long id;
+  boolean hasId;
+  long userId;
+  boolean hasUserId;
+  long createdAt;
+  boolean hasCreatedAt;
+  String lang;
+  String text;
+  boolean userVerified;
+  int userFollowersCount;
+  int percentFull;
+  int limitTrack;
+  /**
+   * Expanded urls, hashtags and mentioned screen names of the status, the other places the track parameter matches.
+   */
+  final List<String> entities = new ArrayList<>();
+
+  private String json;
+  private int position;
+  private int createdAtStart;
+  private int createdAtEnd;
+  private boolean delete;
+  private boolean warning;
+  private boolean limit;
+
+  /**
+   * Scans the supplied message.
+   *
+   * @param json raw message from the stream.
+   * @return the type of message that was scanned.
+   */
+  Type parse(String json) {
+    this.json = json;
+    this.position = 0;
+    this.id = 0L;
+    this.hasId = false;
+    this.userId = 0L;
+    this.hasUserId = false;
+    this.createdAt = 0L;
+    this.hasCreatedAt = false;
+    this.createdAtStart = -1;
+    this.createdAtEnd = -1;
+    this.lang = null;
+    this.text = null;
+    this.userVerified = false;
+    this.userFollowersCount = 0;
+    this.delete = false;
+    this.warning = false;
+    this.limit = false;
+    this.percentFull = 0;
+    this.limitTrack = 0;
+    this.entities.clear();
+
+    skipWhitespace();
+    if (this.position >= json.length() || json.charAt(this.position) != '{') {
+      this.type = Type.OTHER;
+      return this.type;
+    }
+    readObject(Context.ROOT);
+
+    if (!this.hasCreatedAt && this.createdAtStart >= 0) {
+      this.createdAt = ZonedDateTime.parse(json.subSequence(this.createdAtStart, this.createdAtEnd), CREATED_AT_FORMAT)
+          .toInstant()
+          .toEpochMilli();
+      this.hasCreatedAt = true;
+    }
+
+    if (this.delete && this.hasId) {
+      this.type = Type.DELETE;
+    } else if (this.warning) {
+      this.type = Type.WARNING;
+    } else if (this.limit) {
+      this.type = Type.LIMIT;
+    } else if (this.hasId && this.createdAtStart >= 0) {
+      this.type = Type.STATUS;
+    } else {
+      this.type = Type.OTHER;
+    }
+    this.json = null;
+    return this.type;
+  }
+
+  private void readObject(Context context) {
+    expect('{');
+    skipWhitespace();
+    if (peek() == '}') {
+      this.position++;
+      return;
+    }
+    while (true) {
+      skipWhitespace();
+      expect('"');
+      final int keyStart = this.position;
+      skipStringBody();
+      final int keyEnd = this.position - 1;
+      skipWhitespace();
+      expect(':');
+      skipWhitespace();
+      readValue(context, keyStart, keyEnd - keyStart);
+      skipWhitespace();
+      char c = this.json.charAt(this.position++);
+      if (c == '}') {
+        return;
+      } else if (c != ',') {
+        throw unexpected(c);
+      }
+    }
+  }
+
+  private void readValue(Context context, int keyStart, int keyLength) {
+    switch (context) {
+      case ROOT:
+        if (key(keyStart, keyLength, "id")) {
+          this.id = readLong();
+          this.hasId = true;
+        } else if (key(keyStart, keyLength, "timestamp_ms")) {
+          if (peek() == '"') {
+            this.position++;
+            this.createdAt = readLong();
+            expect('"');
+          } else {
+            this.createdAt = readLong();
+          }
+          this.hasCreatedAt = true;
+        } else if (key(keyStart, keyLength, "created_at") && peek() == '"') {
+          this.createdAtStart = this.position + 1;
+          skipValue();
+          this.createdAtEnd = this.position - 1;
+        } else if (key(keyStart, keyLength, "lang") && peek() == '"') {
+          this.lang = readString();
+        } else if (key(keyStart, keyLength, "text") && peek() == '"') {
+          this.text = readString();
+        } else if (key(keyStart, keyLength, "user") && peek() == '{') {
+          readObject(Context.USER);
+        } else if (key(keyStart, keyLength, "entities") && peek() == '{') {
+          readObject(Context.ENTITIES);
+        } else if (key(keyStart, keyLength, "delete") && peek() == '{') {
+          this.delete = true;
+          readObject(Context.DELETE);
+        } else if (key(keyStart, keyLength, "warning")) {
+          this.warning = true;
+          if (peek() == '{') {
+            readObject(Context.WARNING);
+          } else {
+            skipValue();
+          }
+        } else if (key(keyStart, keyLength, "limit") && peek() == '{') {
+          this.limit = true;
+          readObject(Context.LIMIT);
+        } else {
+          skipValue();
+        }
+        break;
+      case USER:
+        if (key(keyStart, keyLength, "id")) {
+          this.userId = readLong();
+          this.hasUserId = true;
+        } else if (key(keyStart, keyLength, "verified")) {
+          this.userVerified = peek() == 't';
+          skipValue();
+        } else if (key(keyStart, keyLength, "followers_count")) {
+          this.userFollowersCount = (int) readLong();
+        } else {
+          skipValue();
+        }
+        break;
+      case DELETE:
+        if (key(keyStart, keyLength, "status") && peek() == '{') {
+          readObject(Context.DELETE_STATUS);
+        } else if (key(keyStart, keyLength, "timestamp_ms")) {
+          this.position++;
+          this.createdAt = readLong();
+          this.hasCreatedAt = true;
+          expect('"');
+        } else {
+          skipValue();
+        }
+        break;
+      case DELETE_STATUS:
+        if (key(keyStart, keyLength, "id")) {
+          this.id = readLong();
+          this.hasId = true;
+        } else if (key(keyStart, keyLength, "user_id")) {
+          this.userId = readLong();
+          this.hasUserId = true;
+        } else {
+          skipValue();
+        }
+        break;
+      case WARNING:
+        if (key(keyStart, keyLength, "percent_full")) {
+          this.percentFull = (int) readLong();
+        } else {
+          skipValue();
+        }
+        break;
+      case LIMIT:
+        if (key(keyStart, keyLength, "track")) {
+          this.limitTrack = (int) readLong();
+        } else {
+          skipValue();
+        }
+        break;
+      case ENTITIES:
+        if (key(keyStart, keyLength, "urls") && peek() == '[') {
+          readArray(Context.URL);
+        } else if (key(keyStart, keyLength, "hashtags") && peek() == '[') {
+          readArray(Context.HASHTAG);
+        } else if (key(keyStart, keyLength, "user_mentions") && peek() == '[') {
+          readArray(Context.MENTION);
+        } else {
+          skipValue();
+        }
+        break;
+      case URL:
+        readEntity(keyStart, keyLength, "expanded_url");
+        break;
+      case HASHTAG:
+        readEntity(keyStart, keyLength, "text");
+        break;
+      case MENTION:
+        readEntity(keyStart, keyLength, "screen_name");
+        break;
+      default:
+        skipValue();
+        break;
+    }
+  }
+
+  private void readEntity(int keyStart, int keyLength, String name) {
+    if (key(keyStart, keyLength, name) && peek() == '"') {
+      this.entities.add(readString());
+    } else {
+      skipValue();
+    }
+  }
+
+  /**
+   * Reads an array of objects in the supplied context. Anything else in the array is skipped.
+   */
+  private void readArray(Context context) {
+    expect('[');
+    skipWhitespace();
+    if (peek() == ']') {
+      this.position++;
+      return;
+    }
+    while (true) {
+      skipWhitespace();
+      if (peek() == '{') {
+        readObject(context);
+      } else {
+        skipValue();
+      }
+      skipWhitespace();
+      char c = this.json.charAt(this.position++);
+      if (c == ']') {
+        return;
+      } else if (c != ',') {
+        throw unexpected(c);
+      }
+    }
+  }
+
+  private boolean key(int keyStart, int keyLength, String name) {
+    return keyLength == name.length() && this.json.regionMatches(keyStart, name, 0, keyLength);
+  }
+
+  private long readLong() {
+    if (peek() == 'n') {
+      skipValue();
+      return 0L;
+    }
+    boolean negative = false;
+    if (peek() == '-') {
+      negative = true;
+      this.position++;
+    }
+    long result = 0L;
+    final int start = this.position;
+    while (this.position < this.json.length()) {
+      char c = this.json.charAt(this.position);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      result = result * 10 + (c - '0');
+      this.position++;
+    }
+    if (start == this.position) {
+      throw unexpected(peek());
+    }
+    return negative ? -result : result;
+  }
+
+  private String readString() {
+    expect('"');
+    final int start = this.position;
+    while (true) {
+      char c = this.json.charAt(this.position);
+      if (c == '"') {
+        String result = this.json.substring(start, this.position);
+        this.position++;
+        return result;
+      } else if (c == '\\') {
+        // Rare for the fields that are read. Fall back to a decoding copy.
+        this.position = start;
+        return readEscapedString();
+      }
+      this.position++;
+    }
+  }
+
+  private String readEscapedString() {
+    StringBuilder builder = new StringBuilder();
+    while (true) {
+      char c = this.json.charAt(this.position++);
+      if (c == '"') {
+        return builder.toString();
+      } else if (c == '\\') {
+        char escaped = this.json.charAt(this.position++);
+        switch (escaped) {
+          case 'b':
+            builder.append('\b');
+            break;
+          case 'f':
+            builder.append('\f');
+            break;
+          case 'n':
+            builder.append('\n');
+            break;
+          case 'r':
+            builder.append('\r');
+            break;
+          case 't':
+            builder.append('\t');
+            break;
+          case 'u':
+            builder.append((char) Integer.parseInt(this.json.substring(this.position, this.position + 4), 16));
+            this.position += 4;
+            break;
+          default:
+            builder.append(escaped);
+            break;
+        }
+      } else {
+        builder.append(c);
+      }
+    }
+  }
+
+  /**
+   * Advances past the remainder of a string whose opening quote has already been consumed.
+   */
+  private void skipStringBody() {
+    while (true) {
+      char c = this.json.charAt(this.position++);
+      if (c == '"') {
+        return;
+      } else if (c == '\\') {
+        this.position++;
+      }
+    }
+  }
+
+  private void skipValue() {
+    char c = peek();
+    switch (c) {
+      case '"':
+        this.position++;
+        skipStringBody();
+        break;
+      case '{':
+      case '[':
+        int depth = 0;
+        while (true) {
+          char n = this.json.charAt(this.position++);
+          if (n == '"') {
+            skipStringBody();
+          } else if (n == '{' || n == '[') {
+            depth++;
+          } else if (n == '}' || n == ']') {
+            depth--;
+            if (depth == 0) {
+              return;
+            }
+          }
+        }
+      default:
+        while (this.position < this.json.length()) {
+          char n = this.json.charAt(this.position);
+          if (n == ',' || n == '}' || n == ']' || Character.isWhitespace(n)) {
+            break;
+          }
+          this.position++;
+        }
+        break;
+    }
+  }
+
+  private void skipWhitespace() {
+    while (this.position < this.json.length() && Character.isWhitespace(this.json.charAt(this.position))) {
+      this.position++;
+    }
+  }
+
+  private char peek() {
+    if (this.position >= this.json.length()) {
+      throw new IllegalArgumentException("Unexpected end of message.");
+    }
+    return this.json.charAt(this.position);
+  }
+
+  private void expect(char expected) {
+    char c = peek();
+    if (c != expected) {
+      throw unexpected(c);
+    }
+    this.position++;
+  }
+
+  private IllegalArgumentException unexpected(char c) {
+    return new IllegalArgumentException(
+        String.format("Unexpected character '%s' at position %s.", c, this.position)
+    );
+  }
+}
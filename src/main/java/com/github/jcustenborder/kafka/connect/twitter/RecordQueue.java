@@ -0,0 +1,380 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.base.Preconditions;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue between the twitter4j listener thread and poll(). The queue is bounded by the estimated bytes retained by
+ * the records it holds rather than by a record count. What happens when a record does not fit is controlled by
+ * {@link TwitterSourceConnectorConfig.OverflowPolicy}.
+ */
+class RecordQueue {
+  private static final Logger log = LoggerFactory.getLogger(RecordQueue.class);
+  static final long LOG_EVERY = 10000L;
+
+  static class Entry {
+    final SourceRecord record;
+    final long bytes;
+    final long sequence;
+    final long queuedNanos;
+    final long createdAtMs;
+
+    Entry(SourceRecord record, long bytes, long sequence, long queuedNanos, long createdAtMs) {
+      this.record = record;
+      this.bytes = bytes;
+      this.sequence = sequence;
+      this.queuedNanos = queuedNanos;
+      this.createdAtMs = createdAtMs;
+    }
+  }
+
+  final long maxBytes;
+  final TwitterSourceConnectorConfig.OverflowPolicy overflowPolicy;
+  final long emptyWaitMs;
+  final SpillLog spillLog;
+  final BatchSizer batchSizer;
+  /*
+    Told about each record getBatch() returns, from memory or the spill log. Null when nothing is listening.
+   */
+  StageLatencies latencies;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  /*
+    Records are kept in arrival order. High priority records are only separated out so that the PRIORITY policy
+    can shed low priority records without scanning. Everything else lands in records.
+   */
+  private final ArrayDeque<Entry> records = new ArrayDeque<>();
+  private final ArrayDeque<Entry> priorityRecords = new ArrayDeque<>();
+  private long sequence;
+  private long retainedBytes;
+  private boolean closed;
+
+  final AtomicLong droppedNewest = new AtomicLong();
+  final AtomicLong droppedOldest = new AtomicLong();
+  final AtomicLong droppedLowPriority = new AtomicLong();
+  final AtomicLong spilled = new AtomicLong();
+
+  RecordQueue(long maxBytes, TwitterSourceConnectorConfig.OverflowPolicy overflowPolicy, long emptyWaitMs, SpillLog spillLog, BatchSizer batchSizer) {
+    Preconditions.checkArgument(
+        TwitterSourceConnectorConfig.OverflowPolicy.SPILL != overflowPolicy || null != spillLog,
+        "The SPILL overflow policy needs a spill log."
+    );
+    this.maxBytes = maxBytes;
+    this.overflowPolicy = overflowPolicy;
+    this.emptyWaitMs = emptyWaitMs;
+    this.spillLog = spillLog;
+    this.batchSizer = batchSizer;
+  }
+
+  static RecordQueue of(TwitterSourceConnectorConfig config) {
+    SpillLog spillLog = null;
+    if (TwitterSourceConnectorConfig.OverflowPolicy.SPILL == config.queueOverflowPolicy) {
+      // Resolved on the worker running the task, not where the config was built.
+      final String spillDir = config.queueSpillDir.isEmpty() ?
+          System.getProperty("java.io.tmpdir") : config.queueSpillDir;
+      try {
+        spillLog = new SpillLog(new File(spillDir), config.queueSpillSegmentBytes, config.queueSpillMaxBytes);
+      } catch (IOException e) {
+        throw new ConnectException("Exception thrown while creating spill log in " + spillDir, e);
+      }
+    }
+    return new RecordQueue(config.queueMaxBytes, config.queueOverflowPolicy, config.queueEmptyMs, spillLog, BatchSizer.of(config));
+  }
+
+  /**
+   * Adds a record to the queue, applying the overflow policy if it does not fit within the byte budget. A single
+   * record larger than the budget is always accepted by an empty queue.
+   *
+   * @param record   record to add.
+   * @param priority true if the record should be kept over low priority records by the PRIORITY policy.
+   * @return true if the record was queued.
+   */
+  public boolean offer(SourceRecord record, boolean priority) {
+    return offer(record, priority, 0L);
+  }
+
+  /**
+   * @param createdAtMs {@code CreatedAt} of the status the record was written for, 0 if it is not known. Passed on
+   *                    to {@link StageLatencies} when the record is polled.
+   * @see #offer(SourceRecord, boolean)
+   */
+  public boolean offer(SourceRecord record, boolean priority, long createdAtMs) {
+    final long bytes = RecordSizes.estimate(record);
+    lock.lock();
+    try {
+      if (null != this.spillLog && (this.spillLog.hasUnread() || (this.retainedBytes + bytes > this.maxBytes && !isEmpty()))) {
+        // Once anything is spilled everything after it has to be spilled too, otherwise it would be read out of order.
+        return spill(record, createdAtMs);
+      }
+      while (!this.closed && this.retainedBytes + bytes > this.maxBytes && !isEmpty()) {
+        switch (this.overflowPolicy) {
+          case BLOCK:
+            try {
+              this.notFull.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              dropped(this.droppedNewest, "interrupted while blocked on a full queue");
+              return false;
+            }
+            break;
+          case DROP_NEWEST:
+            dropped(this.droppedNewest, "dropping newest");
+            return false;
+          case DROP_OLDEST:
+            remove(oldest());
+            dropped(this.droppedOldest, "dropping oldest");
+            break;
+          case PRIORITY:
+            if (!priority) {
+              dropped(this.droppedLowPriority, "shedding low priority");
+              return false;
+            } else if (!this.records.isEmpty()) {
+              remove(this.records.peekFirst());
+              dropped(this.droppedLowPriority, "shedding low priority");
+            } else {
+              remove(this.priorityRecords.peekFirst());
+              dropped(this.droppedOldest, "dropping oldest");
+            }
+            break;
+          case SPILL:
+            // The record was spilled above. The constructor makes sure there is a spill log for this policy.
+            throw new IllegalStateException("Overflow policy SPILL without a spill log.");
+        }
+      }
+      if (this.closed) {
+        return false;
+      }
+
+      Entry entry = new Entry(record, bytes, this.sequence++, System.nanoTime(), createdAtMs);
+      if (priority && TwitterSourceConnectorConfig.OverflowPolicy.PRIORITY == this.overflowPolicy) {
+        this.priorityRecords.addLast(entry);
+      } else {
+        this.records.addLast(entry);
+      }
+      this.retainedBytes += bytes;
+      this.notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean spill(SourceRecord record, long createdAtMs) {
+    final long queuedNanos = System.nanoTime();
+    try {
+      while (!this.closed && !this.spillLog.append(record, queuedNanos, createdAtMs)) {
+        this.notFull.await();
+      }
+    } catch (IOException e) {
+      log.error("Exception thrown while spilling record", e);
+      dropped(this.droppedNewest, "could not spill");
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      dropped(this.droppedNewest, "interrupted while blocked on a full spill log");
+      return false;
+    }
+    if (this.closed) {
+      return false;
+    }
+    this.spilled.incrementAndGet();
+    this.notEmpty.signal();
+    return true;
+  }
+
+  /**
+   * Returns up to {@link BatchSizer#size()} records in the order they were added. Records held in memory are returned
+   * before records read back from the spill log. If the queue is empty this waits up to emptyWaitMs for a record to
+   * arrive and returns as soon as one does.
+   *
+   * @return records to hand to the framework, possibly empty.
+   * @throws InterruptedException thrown if interrupted while waiting.
+   */
+  public List<SourceRecord> getBatch() throws InterruptedException {
+    lock.lock();
+    try {
+      if (isEmpty() && !hasSpilled()) {
+        this.notEmpty.await(this.emptyWaitMs, TimeUnit.MILLISECONDS);
+      }
+      final long available = size() + (null == this.spillLog ? 0L : this.spillLog.unread());
+      final int count = (int) Math.min(this.batchSizer.size(), available);
+      List<SourceRecord> batch = new ArrayList<>(count);
+      final long now = System.nanoTime();
+      long bytes = 0L;
+      while (batch.size() < count && !isEmpty()) {
+        Entry entry = oldest();
+        if (!batch.isEmpty() && bytes + entry.bytes > this.batchSizer.maxBytes) {
+          break;
+        }
+        bytes += entry.bytes;
+        remove(entry);
+        batch.add(entry.record);
+        if (null != this.latencies) {
+          this.latencies.polled(entry.record, entry.queuedNanos, entry.createdAtMs, now);
+        }
+      }
+      if (!batch.isEmpty()) {
+        this.notFull.signalAll();
+      }
+      // The size of a spilled record is only known once it is read, so this can go over maxBytes by one record.
+      while (batch.size() < count && hasSpilled() && bytes < this.batchSizer.maxBytes) {
+        Entry entry = this.spillLog.read();
+        if (this.batchSizer.adaptive) {
+          bytes += RecordSizes.estimate(entry.record);
+        }
+        batch.add(entry.record);
+        if (null != this.latencies) {
+          this.latencies.polled(entry.record, entry.queuedNanos, entry.createdAtMs, now);
+        }
+      }
+      this.batchSizer.polled(
+          batch.size(),
+          size() + (null == this.spillLog ? 0L : this.spillLog.unread()),
+          null == this.latencies ? 0 : this.latencies.inFlight()
+      );
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Called once a record returned by {@link #getBatch()} has been written to Kafka. This reclaims spill segments
+   * once all of their records are acknowledged.
+   *
+   * @param record record that was written.
+   */
+  public void acknowledge(SourceRecord record) {
+    if (null == this.spillLog) {
+      return;
+    }
+    lock.lock();
+    try {
+      if (this.spillLog.acknowledge(record)) {
+        this.notFull.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases any thread blocked in {@link #offer(SourceRecord, boolean)}. Records offered after this are rejected.
+   */
+  public void close() {
+    lock.lock();
+    try {
+      this.closed = true;
+      if (null != this.spillLog) {
+        this.spillLog.close();
+      }
+      this.notFull.signalAll();
+      this.notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return this.records.size() + this.priorityRecords.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of records the next batch can hold.
+   */
+  public int batchTarget() {
+    lock.lock();
+    try {
+      return this.batchSizer.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long retainedBytes() {
+    lock.lock();
+    try {
+      return this.retainedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean hasSpilled() {
+    return null != this.spillLog && this.spillLog.hasUnread();
+  }
+
+  private boolean isEmpty() {
+    return this.records.isEmpty() && this.priorityRecords.isEmpty();
+  }
+
+  private Entry oldest() {
+    Entry record = this.records.peekFirst();
+    Entry priorityRecord = this.priorityRecords.peekFirst();
+    if (null == record) {
+      return priorityRecord;
+    } else if (null == priorityRecord) {
+      return record;
+    } else {
+      return record.sequence < priorityRecord.sequence ? record : priorityRecord;
+    }
+  }
+
+  private void remove(Entry entry) {
+    if (entry == this.records.peekFirst()) {
+      this.records.pollFirst();
+    } else {
+      this.priorityRecords.pollFirst();
+    }
+    this.retainedBytes -= entry.bytes;
+  }
+
+  private void dropped(AtomicLong counter, String reason) {
+    long count = counter.incrementAndGet();
+    if (count % LOG_EVERY == 1 && log.isWarnEnabled()) {
+      log.warn(
+          "Queue is over its budget of {} byte(s), {}. dropped(newest = {}, oldest = {}, lowPriority = {})",
+          this.maxBytes,
+          reason,
+          this.droppedNewest.get(),
+          this.droppedOldest.get(),
+          this.droppedLowPriority.get()
+      );
+    }
+  }
+}
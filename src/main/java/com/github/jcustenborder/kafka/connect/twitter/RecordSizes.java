@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Rough estimate of the heap retained by a queued record. This walks the key and value and charges each object with
+ * its header and payload. It is not exact, it only needs to be close enough to keep the queue within its budget.
+ */
+final class RecordSizes {
+  static final long OBJECT_HEADER = 16L;
+  static final long REFERENCE = 8L;
+  static final long BOXED = 16L;
+  static final long SOURCE_RECORD = OBJECT_HEADER + 12 * REFERENCE;
+
+  private RecordSizes() {
+
+  }
+
+  static long estimate(SourceRecord record) {
+    return SOURCE_RECORD + estimate(record.key()) + estimate(record.value());
+  }
+
+  static long array(long length, long elementSize) {
+    return OBJECT_HEADER + 8L + length * elementSize;
+  }
+
+  static long estimate(Object value) {
+    if (null == value) {
+      return 0L;
+    }
+
+    if (value instanceof String) {
+      String s = (String) value;
+      return OBJECT_HEADER + REFERENCE + array(s.length(), 2L);
+    } else if (value instanceof Struct) {
+      Struct struct = (Struct) value;
+      long result = OBJECT_HEADER + 2 * REFERENCE + array(struct.schema().fields().size(), REFERENCE);
+      for (Field field : struct.schema().fields()) {
+        result += estimate(struct.get(field));
+      }
+      return result;
+    } else if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      long result = OBJECT_HEADER + 2 * REFERENCE + array(collection.size(), REFERENCE);
+      for (Object item : collection) {
+        result += estimate(item);
+      }
+      return result;
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      long result = OBJECT_HEADER + 4 * REFERENCE + array(map.size(), REFERENCE) + map.size() * (OBJECT_HEADER + 4 * REFERENCE);
+      for (Map.Entry<?, ?> kvp : map.entrySet()) {
+        result += estimate(kvp.getKey());
+        result += estimate(kvp.getValue());
+      }
+      return result;
+    } else if (value instanceof byte[]) {
+      return array(((byte[]) value).length, 1L);
+    } else if (value instanceof ByteBuffer) {
+      return OBJECT_HEADER + 4 * REFERENCE + ((ByteBuffer) value).capacity();
+    } else if (value instanceof Date) {
+      return OBJECT_HEADER + 2 * REFERENCE;
+    } else {
+      return BOXED;
+    }
+  }
+}
@@ -0,0 +1,417 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of a SourceRecord for the spill log. Schemas are not written, each schema is assigned an id the
+ * first time it is seen and the id is written instead. This means the encoded form is only readable by the codec
+ * that wrote it, which is fine for a spill file that does not outlive the task. The time the record was queued is
+ * written with it, so records read back are timed by {@link StageLatencies} the same as records held in memory.
+ */
+class SpillCodec {
+  static final byte NULL = 0;
+  static final byte PRESENT = 1;
+  static final byte OFFSET_STRING = 1;
+  static final byte OFFSET_LONG = 2;
+  static final byte OFFSET_INT = 3;
+  static final byte OFFSET_BOOLEAN = 4;
+
+  private final List<Schema> schemas = new ArrayList<>();
+  private final Map<Schema, Integer> schemaIds = new IdentityHashMap<>();
+  private ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+
+  /**
+   * Encodes the record into a buffer that is reused by the next call.
+   *
+   * @param record      record to encode.
+   * @param queuedNanos {@link System#nanoTime()} when the record was queued.
+   * @param createdAtMs {@code CreatedAt} of the status, 0 if it is not known.
+   * @return buffer positioned at the start of the encoded record.
+   */
+  public ByteBuffer encode(SourceRecord record, long queuedNanos, long createdAtMs) {
+    this.buffer.clear();
+    ensure(16).putLong(queuedNanos).putLong(createdAtMs);
+    writeString(record.topic());
+    writeNullableInt(record.kafkaPartition());
+    writeOffsetMap(record.sourcePartition());
+    writeOffsetMap(record.sourceOffset());
+    writeSchemaAndValue(record.keySchema(), record.key());
+    writeSchemaAndValue(record.valueSchema(), record.value());
+    if (null == record.timestamp()) {
+      ensure(1).put(NULL);
+    } else {
+      ensure(9).put(PRESENT).putLong(record.timestamp());
+    }
+    int headerCount = 0;
+    for (Header ignored : record.headers()) {
+      headerCount++;
+    }
+    ensure(4).putInt(headerCount);
+    for (Header header : record.headers()) {
+      writeString(header.key());
+      writeSchemaAndValue(header.schema(), header.value());
+    }
+    this.buffer.flip();
+    return this.buffer;
+  }
+
+  public RecordQueue.Entry decode(ByteBuffer input) {
+    final int bytes = input.remaining();
+    final long queuedNanos = input.getLong();
+    final long createdAtMs = input.getLong();
+    final String topic = readString(input);
+    final Integer kafkaPartition = readNullableInt(input);
+    final Map<String, Object> sourcePartition = readOffsetMap(input);
+    final Map<String, Object> sourceOffset = readOffsetMap(input);
+    final Schema keySchema = readSchema(input);
+    final Object key = readValue(input, keySchema);
+    final Schema valueSchema = readSchema(input);
+    final Object value = readValue(input, valueSchema);
+    final Long timestamp = NULL == input.get() ? null : input.getLong();
+    final int headerCount = input.getInt();
+    ConnectHeaders headers = new ConnectHeaders();
+    for (int i = 0; i < headerCount; i++) {
+      String headerKey = readString(input);
+      Schema headerSchema = readSchema(input);
+      headers.add(headerKey, readValue(input, headerSchema), headerSchema);
+    }
+    SourceRecord record = new SourceRecord(
+        sourcePartition,
+        sourceOffset,
+        topic,
+        kafkaPartition,
+        keySchema,
+        key,
+        valueSchema,
+        value,
+        timestamp,
+        headers
+    );
+    return new RecordQueue.Entry(record, bytes, 0L, queuedNanos, createdAtMs);
+  }
+
+  private ByteBuffer ensure(int bytes) {
+    if (this.buffer.remaining() < bytes) {
+      int capacity = Math.max(this.buffer.capacity() * 2, this.buffer.position() + bytes);
+      ByteBuffer expanded = ByteBuffer.allocate(capacity);
+      this.buffer.flip();
+      expanded.put(this.buffer);
+      this.buffer = expanded;
+    }
+    return this.buffer;
+  }
+
+  private void writeString(String value) {
+    if (null == value) {
+      ensure(4).putInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ensure(4 + bytes.length).putInt(bytes.length).put(bytes);
+  }
+
+  private static String readString(ByteBuffer input) {
+    final int length = input.getInt();
+    if (length < 0) {
+      return null;
+    }
+    final String result;
+    if (input.hasArray()) {
+      result = new String(input.array(), input.arrayOffset() + input.position(), length, StandardCharsets.UTF_8);
+      input.position(input.position() + length);
+    } else {
+      byte[] bytes = new byte[length];
+      input.get(bytes);
+      result = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return result;
+  }
+
+  private void writeNullableInt(Integer value) {
+    if (null == value) {
+      ensure(1).put(NULL);
+    } else {
+      ensure(5).put(PRESENT).putInt(value);
+    }
+  }
+
+  private static Integer readNullableInt(ByteBuffer input) {
+    return NULL == input.get() ? null : input.getInt();
+  }
+
+  private void writeOffsetMap(Map<String, ?> map) {
+    if (null == map) {
+      ensure(4).putInt(-1);
+      return;
+    }
+    ensure(4).putInt(map.size());
+    for (Map.Entry<String, ?> kvp : map.entrySet()) {
+      writeString(kvp.getKey());
+      Object value = kvp.getValue();
+      if (value instanceof String) {
+        ensure(1).put(OFFSET_STRING);
+        writeString((String) value);
+      } else if (value instanceof Long) {
+        ensure(9).put(OFFSET_LONG).putLong((Long) value);
+      } else if (value instanceof Integer) {
+        ensure(5).put(OFFSET_INT).putInt((Integer) value);
+      } else if (value instanceof Boolean) {
+        ensure(2).put(OFFSET_BOOLEAN).put((Boolean) value ? PRESENT : NULL);
+      } else {
+        throw new DataException(
+            String.format("Source partition and offset value of %s is not supported.", null == value ? null : value.getClass())
+        );
+      }
+    }
+  }
+
+  private static Map<String, Object> readOffsetMap(ByteBuffer input) {
+    final int size = input.getInt();
+    if (size < 0) {
+      return null;
+    }
+    Map<String, Object> result = new LinkedHashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      String key = readString(input);
+      byte type = input.get();
+      switch (type) {
+        case OFFSET_STRING:
+          result.put(key, readString(input));
+          break;
+        case OFFSET_LONG:
+          result.put(key, input.getLong());
+          break;
+        case OFFSET_INT:
+          result.put(key, input.getInt());
+          break;
+        case OFFSET_BOOLEAN:
+          result.put(key, PRESENT == input.get());
+          break;
+        default:
+          throw new DataException(String.format("Unknown offset value type %s", type));
+      }
+    }
+    return result;
+  }
+
+  private void writeSchemaAndValue(Schema schema, Object value) {
+    if (null == schema) {
+      ensure(4).putInt(-1);
+      if (null != value) {
+        throw new DataException("Schemaless values are not supported by the spill log.");
+      }
+      return;
+    }
+    Integer schemaId = this.schemaIds.get(schema);
+    if (null == schemaId) {
+      schemaId = this.schemas.size();
+      this.schemas.add(schema);
+      this.schemaIds.put(schema, schemaId);
+    }
+    ensure(4).putInt(schemaId);
+    write(schema, value);
+  }
+
+  private Schema readSchema(ByteBuffer input) {
+    final int schemaId = input.getInt();
+    return schemaId < 0 ? null : this.schemas.get(schemaId);
+  }
+
+  private static Object readValue(ByteBuffer input, Schema schema) {
+    // writeSchemaAndValue does not write anything for a schemaless null.
+    return null == schema ? null : read(input, schema);
+  }
+
+  private void write(Schema schema, Object value) {
+    if (null == value) {
+      ensure(1).put(NULL);
+      return;
+    }
+    ensure(1).put(PRESENT);
+
+    if (null != schema.name()) {
+      switch (schema.name()) {
+        case Timestamp.LOGICAL_NAME:
+          ensure(8).putLong(Timestamp.fromLogical(schema, (java.util.Date) value));
+          return;
+        case Date.LOGICAL_NAME:
+          ensure(4).putInt(Date.fromLogical(schema, (java.util.Date) value));
+          return;
+        case Time.LOGICAL_NAME:
+          ensure(4).putInt(Time.fromLogical(schema, (java.util.Date) value));
+          return;
+        case Decimal.LOGICAL_NAME:
+          byte[] decimal = Decimal.fromLogical(schema, (BigDecimal) value);
+          ensure(4 + decimal.length).putInt(decimal.length).put(decimal);
+          return;
+        default:
+          break;
+      }
+    }
+
+    switch (schema.type()) {
+      case INT8:
+        ensure(1).put((Byte) value);
+        break;
+      case INT16:
+        ensure(2).putShort((Short) value);
+        break;
+      case INT32:
+        ensure(4).putInt((Integer) value);
+        break;
+      case INT64:
+        ensure(8).putLong((Long) value);
+        break;
+      case FLOAT32:
+        ensure(4).putFloat((Float) value);
+        break;
+      case FLOAT64:
+        ensure(8).putDouble((Double) value);
+        break;
+      case BOOLEAN:
+        ensure(1).put((Boolean) value ? PRESENT : NULL);
+        break;
+      case STRING:
+        writeString((String) value);
+        break;
+      case BYTES:
+        if (value instanceof ByteBuffer) {
+          ByteBuffer bytes = ((ByteBuffer) value).duplicate();
+          ensure(4 + bytes.remaining()).putInt(bytes.remaining()).put(bytes);
+        } else {
+          byte[] bytes = (byte[]) value;
+          ensure(4 + bytes.length).putInt(bytes.length).put(bytes);
+        }
+        break;
+      case ARRAY:
+        List<?> list = (List<?>) value;
+        ensure(4).putInt(list.size());
+        for (Object item : list) {
+          write(schema.valueSchema(), item);
+        }
+        break;
+      case MAP:
+        Map<?, ?> map = (Map<?, ?>) value;
+        ensure(4).putInt(map.size());
+        for (Map.Entry<?, ?> kvp : map.entrySet()) {
+          write(schema.keySchema(), kvp.getKey());
+          write(schema.valueSchema(), kvp.getValue());
+        }
+        break;
+      case STRUCT:
+        Struct struct = (Struct) value;
+        for (Field field : schema.fields()) {
+          write(field.schema(), struct.get(field));
+        }
+        break;
+      default:
+        throw new DataException(String.format("Schema type %s is not supported.", schema.type()));
+    }
+  }
+
+  private static Object read(ByteBuffer input, Schema schema) {
+    if (NULL == input.get()) {
+      return null;
+    }
+
+    if (null != schema.name()) {
+      switch (schema.name()) {
+        case Timestamp.LOGICAL_NAME:
+          return Timestamp.toLogical(schema, input.getLong());
+        case Date.LOGICAL_NAME:
+          return Date.toLogical(schema, input.getInt());
+        case Time.LOGICAL_NAME:
+          return Time.toLogical(schema, input.getInt());
+        case Decimal.LOGICAL_NAME:
+          byte[] decimal = new byte[input.getInt()];
+          input.get(decimal);
+          return Decimal.toLogical(schema, decimal);
+        default:
+          break;
+      }
+    }
+
+    switch (schema.type()) {
+      case INT8:
+        return input.get();
+      case INT16:
+        return input.getShort();
+      case INT32:
+        return input.getInt();
+      case INT64:
+        return input.getLong();
+      case FLOAT32:
+        return input.getFloat();
+      case FLOAT64:
+        return input.getDouble();
+      case BOOLEAN:
+        return PRESENT == input.get();
+      case STRING:
+        return readString(input);
+      case BYTES:
+        byte[] bytes = new byte[input.getInt()];
+        input.get(bytes);
+        return bytes;
+      case ARRAY:
+        final int length = input.getInt();
+        List<Object> list = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+          list.add(read(input, schema.valueSchema()));
+        }
+        return list;
+      case MAP:
+        final int size = input.getInt();
+        Map<Object, Object> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+          Object key = read(input, schema.keySchema());
+          map.put(key, read(input, schema.valueSchema()));
+        }
+        return map;
+      case STRUCT:
+        Struct struct = new Struct(schema);
+        for (Field field : schema.fields()) {
+          Object fieldValue = read(input, field.schema());
+          if (null != fieldValue) {
+            struct.put(field, fieldValue);
+          }
+        }
+        return struct;
+      default:
+        throw new DataException(String.format("Schema type %s is not supported.", schema.type()));
+    }
+  }
+}
@@ -0,0 +1,343 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Append only log of records that did not fit in memory. Records are written to memory mapped segment files and
+ * read back in the order they were written. A segment file is deleted once every record in it has been read and
+ * acknowledged. The log is scratch space for a single task, it is deleted when the task stops.
+ *
+ * A segment is unmapped as soon as it is deleted. A mapping otherwise keeps the disk space of the deleted file until
+ * the buffer is garbage collected. Each log holds a lock on a file in its directory while it is open. Directories under
+ * the parent that are not locked were left behind by a task that did not stop cleanly and are removed when a log is
+ * opened.
+ *
+ * This class is not thread safe, callers are expected to synchronize access.
+ */
+class SpillLog implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(SpillLog.class);
+  static final String PREFIX = "spill";
+  static final String LOCK_FILE = "lock";
+  static final String PARENT_LOCK_FILE = "spill.lock";
+  private static final Consumer<MappedByteBuffer> UNMAPPER = unmapper();
+
+  static class Segment {
+    final File file;
+    final MappedByteBuffer buffer;
+    int writePosition;
+    int readPosition;
+    int written;
+    int read;
+    int acknowledged;
+    boolean sealed;
+
+    Segment(File file, int size) throws IOException {
+      this.file = file;
+      // The mapping stays valid after the channel is closed.
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+        randomAccessFile.setLength(size);
+        this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+    }
+
+    boolean fits(int bytes) {
+      return this.buffer.capacity() - this.writePosition >= bytes;
+    }
+
+    boolean isReclaimable() {
+      return this.sealed && this.read == this.written && this.acknowledged == this.written;
+    }
+  }
+
+  final File directory;
+  final int segmentBytes;
+  final long maxBytes;
+  private final SpillCodec codec = new SpillCodec();
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private final Map<SourceRecord, Segment> unacknowledged = new IdentityHashMap<>();
+  private final FileChannel lockChannel;
+  private final FileLock lock;
+  private long segmentCount;
+  private long sizeInBytes;
+  private long unread;
+
+  SpillLog(File parent, int segmentBytes, long maxBytes) throws IOException {
+    Files.createDirectories(parent.toPath());
+    /*
+    Tasks on the same worker share the parent. The sweep and the new directory are done under a lock on the parent so
+    a directory is never removed between being created and being locked. A file lock is held by the process, so tasks
+    in the same JVM are kept apart by the monitor.
+     */
+    synchronized (SpillLog.class) {
+      try (FileChannel parentChannel = FileChannel.open(
+          new File(parent, PARENT_LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE
+      )) {
+        final FileLock parentLock = parentChannel.lock();
+        try {
+          sweep(parent);
+          this.directory = Files.createTempDirectory(parent.toPath(), PREFIX).toFile();
+          this.lockChannel = FileChannel.open(
+              new File(this.directory, LOCK_FILE).toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE
+          );
+          this.lock = this.lockChannel.lock();
+        } finally {
+          parentLock.release();
+        }
+      }
+    }
+    this.segmentBytes = segmentBytes;
+    this.maxBytes = maxBytes;
+    log.info("Spilling records that do not fit in memory to {}", this.directory);
+  }
+
+  /**
+   * Appends a record to the end of the log.
+   *
+   * @param record      record to append.
+   * @param queuedNanos {@link System#nanoTime()} when the record was queued.
+   * @param createdAtMs {@code CreatedAt} of the status, 0 if it is not known.
+   * @return false if the log is at maxBytes and the record was not written.
+   * @throws IOException thrown if a new segment could not be created.
+   */
+  public boolean append(SourceRecord record, long queuedNanos, long createdAtMs) throws IOException {
+    ByteBuffer encoded = this.codec.encode(record, queuedNanos, createdAtMs);
+    final int length = 4 + encoded.remaining();
+    Segment segment = this.segments.peekLast();
+
+    if (null == segment || segment.sealed || !segment.fits(length)) {
+      final int size = Math.max(this.segmentBytes, length);
+      if (this.sizeInBytes + size > this.maxBytes && !this.segments.isEmpty()) {
+        return false;
+      }
+      if (null != segment) {
+        segment.sealed = true;
+      }
+      File file = new File(this.directory, String.format("%020d.segment", this.segmentCount++));
+      segment = new Segment(file, size);
+      this.segments.addLast(segment);
+      this.sizeInBytes += size;
+    }
+
+    segment.buffer.putInt(segment.writePosition, encoded.remaining());
+    ByteBuffer target = segment.buffer.duplicate();
+    target.position(segment.writePosition + 4);
+    target.put(encoded);
+    segment.writePosition += length;
+    segment.written++;
+    this.unread++;
+    return true;
+  }
+
+  /**
+   * Reads the next record in the log. The record must be passed to {@link #acknowledge(SourceRecord)} once it has
+   * been written to Kafka so the segment holding it can be reclaimed.
+   *
+   * @return next record with the time it was queued, or null if every record has been read.
+   */
+  public RecordQueue.Entry read() {
+    for (Segment segment : this.segments) {
+      if (segment.read == segment.written) {
+        continue;
+      }
+      final int length = segment.buffer.getInt(segment.readPosition);
+      ByteBuffer source = segment.buffer.duplicate();
+      source.position(segment.readPosition + 4);
+      source.limit(segment.readPosition + 4 + length);
+      RecordQueue.Entry entry = this.codec.decode(source.slice());
+      segment.readPosition += 4 + length;
+      segment.read++;
+      this.unread--;
+      this.unacknowledged.put(entry.record, segment);
+      return entry;
+    }
+    return null;
+  }
+
+  /**
+   * Marks a record returned by {@link #read()} as written to Kafka.
+   *
+   * @param record record that was acknowledged.
+   * @return true if a segment was reclaimed.
+   */
+  public boolean acknowledge(SourceRecord record) {
+    Segment segment = this.unacknowledged.remove(record);
+    if (null == segment) {
+      return false;
+    }
+    segment.acknowledged++;
+    if (segment == this.segments.peekLast() && segment.read == segment.written) {
+      /*
+      The tail segment is only sealed when a new one is rolled. Seal it once it is fully drained so it can be
+      reclaimed rather than sitting on disk waiting for the next spill.
+       */
+      segment.sealed = true;
+    }
+
+    boolean reclaimed = false;
+    while (!this.segments.isEmpty() && this.segments.peekFirst().isReclaimable()) {
+      reclaim(this.segments.pollFirst());
+      reclaimed = true;
+    }
+    return reclaimed;
+  }
+
+  /**
+   * @return true if there are records that have not been read.
+   */
+  public boolean hasUnread() {
+    return this.unread > 0;
+  }
+
+  public long unread() {
+    return this.unread;
+  }
+
+  public long sizeInBytes() {
+    return this.sizeInBytes;
+  }
+
+  public int segments() {
+    return this.segments.size();
+  }
+
+  private void reclaim(Segment segment) {
+    this.sizeInBytes -= segment.buffer.capacity();
+    UNMAPPER.accept(segment.buffer);
+    if (!segment.file.delete()) {
+      log.warn("Could not delete {}", segment.file);
+    }
+  }
+
+  /**
+   * Removes the spill directories under the parent that no open log holds the lock of.
+   */
+  static void sweep(File parent) {
+    final File[] directories = parent.listFiles(f -> f.isDirectory() && f.getName().startsWith(PREFIX));
+    if (null == directories) {
+      return;
+    }
+    for (File directory : directories) {
+      final File lockFile = new File(directory, LOCK_FILE);
+      try (FileChannel channel = FileChannel.open(
+          lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE
+      )) {
+        final FileLock lock = channel.tryLock();
+        if (null == lock) {
+          continue;
+        }
+        try {
+          final File[] files = directory.listFiles(f -> !f.equals(lockFile));
+          if (null != files) {
+            for (File file : files) {
+              Files.deleteIfExists(file.toPath());
+            }
+          }
+        } finally {
+          lock.release();
+        }
+      } catch (OverlappingFileLockException e) {
+        continue;
+      } catch (IOException e) {
+        log.warn("Could not remove stale spill directory {}", directory, e);
+        continue;
+      }
+      if (lockFile.delete() && directory.delete()) {
+        log.info("Removed stale spill directory {}", directory);
+      } else {
+        log.warn("Could not remove stale spill directory {}", directory);
+      }
+    }
+  }
+
+  /**
+   * Looks up the JDK internal call that releases a mapping. Java 9 and later expose it as Unsafe.invokeCleaner, Java 8
+   * through the cleaner of the buffer. If neither is available the mapping is released once the buffer is garbage
+   * collected.
+   */
+  static Consumer<MappedByteBuffer> unmapper() {
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      final Object unsafe = theUnsafe.get(null);
+      return buffer -> invoke(invokeCleaner, unsafe, buffer);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.trace("Unsafe.invokeCleaner is not available.", e);
+    }
+    try {
+      final Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+      final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      return buffer -> invoke(clean, invoke(cleanerMethod, buffer));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.warn("Spill segments can not be unmapped. Their disk space is released once they are garbage collected.", e);
+    }
+    return buffer -> {
+    };
+  }
+
+  private static Object invoke(Method method, Object target, Object... args) {
+    if (null == target) {
+      return null;
+    }
+    try {
+      return method.invoke(target, args);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("Could not unmap a spill segment.", e);
+      return null;
+    }
+  }
+
+  @Override
+  public void close() {
+    while (!this.segments.isEmpty()) {
+      reclaim(this.segments.pollFirst());
+    }
+    this.unacknowledged.clear();
+    this.unread = 0;
+    try {
+      this.lock.release();
+      this.lockChannel.close();
+    } catch (IOException e) {
+      log.debug("Exception thrown while releasing {}", this.directory, e);
+    }
+    if (!new File(this.directory, LOCK_FILE).delete() || !this.directory.delete()) {
+      log.warn("Could not delete {}", this.directory);
+    }
+  }
+}
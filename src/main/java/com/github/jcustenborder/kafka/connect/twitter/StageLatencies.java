@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each stage a status passes through on its way to Kafka.
+ *
+ * <ul>
+ * <li>TWITTER - from {@code CreatedAt} until the status was received from the stream. This includes the twitter4j
+ * buffer and any clock difference with Twitter. {@code CreatedAt} only has seconds so this is up to a second off.</li>
+ * <li>CONVERSION - from receipt until the record was queued. This includes matching, routing, deduplication and
+ * waiting for the conversion pipeline as well as the conversion itself.</li>
+ * <li>QUEUE - from being queued until it was returned by poll().</li>
+ * <li>SEND - from poll() until the producer acknowledged it in commitRecord().</li>
+ * <li>END_TO_END - from {@code CreatedAt} until the producer acknowledged it.</li>
+ * </ul>
+ *
+ * Statuses from the backfill and records read back from the spill log are not timed. Records returned by poll() are
+ * kept by identity until they are acknowledged, which Connect does for every record including the ones a transform
+ * drops.
+ */
+class StageLatencies {
+  static final long UNTIMED = Long.MIN_VALUE;
+  static final int MAX_IN_FLIGHT = 100000;
+
+  enum Stage {
+    TWITTER("twitter", "time from CreatedAt until a status was received"),
+    CONVERSION("conversion", "time from receiving a status until its record was queued"),
+    QUEUE("queue", "time a record waited in the queue for poll"),
+    SEND("send", "time from poll until the producer acknowledged a record"),
+    END_TO_END("end-to-end", "time from CreatedAt until the producer acknowledged a record");
+
+    final String metricName;
+    final String description;
+
+    Stage(String metricName, String description) {
+      this.metricName = metricName;
+      this.description = description;
+    }
+  }
+
+  final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+  /*
+    Value is the nanoTime the record was polled and its CreatedAt in milliseconds, 0 if it does not have one.
+   */
+  private final Map<SourceRecord, long[]> inFlight = new IdentityHashMap<>();
+
+  StageLatencies() {
+    for (Stage stage : Stage.values()) {
+      this.histograms.put(stage, new LatencyHistogram());
+    }
+  }
+
+  LatencyHistogram histogram(Stage stage) {
+    return this.histograms.get(stage);
+  }
+
+  /**
+   * Called by the listener just before a record is queued.
+   *
+   * @param receivedNanos {@link System#nanoTime()} when the status was received, or {@link #UNTIMED}.
+   * @param createdAtMs   {@code CreatedAt} of the status, 0 if it is not known.
+   */
+  void converted(long receivedNanos, long createdAtMs) {
+    if (UNTIMED == receivedNanos) {
+      return;
+    }
+    final long conversionNanos = System.nanoTime() - receivedNanos;
+    histogram(Stage.CONVERSION).record(conversionNanos);
+    if (createdAtMs > 0L) {
+      final long sinceCreatedNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - createdAtMs);
+      histogram(Stage.TWITTER).record(sinceCreatedNanos - conversionNanos);
+    }
+  }
+
+  /**
+   * Called by the queue for each record it returns from poll().
+   *
+   * @param queuedNanos {@link System#nanoTime()} when the record was queued.
+   * @param createdAtMs {@code CreatedAt} of the status, 0 if it is not known.
+   * @param nowNanos    {@link System#nanoTime()} of the poll.
+   */
+  void polled(SourceRecord record, long queuedNanos, long createdAtMs, long nowNanos) {
+    histogram(Stage.QUEUE).record(nowNanos - queuedNanos);
+    synchronized (this.inFlight) {
+      if (this.inFlight.size() < MAX_IN_FLIGHT) {
+        this.inFlight.put(record, new long[]{nowNanos, createdAtMs});
+      }
+    }
+  }
+
+  /**
+   * Called from commitRecord() on the producer's thread.
+   */
+  void acknowledged(SourceRecord record) {
+    final long[] stamps;
+    synchronized (this.inFlight) {
+      stamps = this.inFlight.remove(record);
+    }
+    if (null == stamps) {
+      return;
+    }
+    histogram(Stage.SEND).record(System.nanoTime() - stamps[0]);
+    if (stamps[1] > 0L) {
+      histogram(Stage.END_TO_END).record(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - stamps[1]));
+    }
+  }
+
+  int inFlight() {
+    synchronized (this.inFlight) {
+      return this.inFlight.size();
+    }
+  }
+
+  /**
+   * @return the stage with the highest 99th percentile, or null if nothing was recorded. END_TO_END covers every other
+   * stage so it is left out.
+   */
+  Stage slowest() {
+    Stage result = null;
+    long slowest = 0L;
+    for (Stage stage : new Stage[]{Stage.TWITTER, Stage.CONVERSION, Stage.QUEUE, Stage.SEND}) {
+      final long p99 = histogram(stage).percentile(0.99);
+      if (p99 > slowest) {
+        slowest = p99;
+        result = stage;
+      }
+    }
+    return result;
+  }
+
+  void rotate() {
+    for (LatencyHistogram histogram : this.histograms.values()) {
+      histogram.rotate();
+    }
+  }
+}
@@ -31,10 +31,7 @@ import twitter4j.URLEntity;
 import twitter4j.User;
 import twitter4j.UserMentionEntity;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 public class StatusConverter {
 
@@ -45,6 +42,7 @@ public class StatusConverter {
   public static final Schema SCHEMA_STATUS_DELETION_NOTICE_KEY;
   public static final Schema STATUS_SCHEMA_KEY;
   public static final Schema STATUS_SCHEMA;
+  public static final Schema FLAT_STATUS_SCHEMA;
 
   public static final Schema USER_SCHEMA = SchemaBuilder.struct()
       .name("com.github.jcustenborder.kafka.connect.twitter.User")
@@ -274,367 +272,117 @@ public class StatusConverter {
         .build();
   }
 
-  static Map<Integer, Struct> convertSizes(Map<Integer, MediaEntity.Size> items) {
-    Map<Integer, Struct> results = new LinkedHashMap<>();
-
-    if (items == null) {
-      return results;
-    }
-
-    for (Map.Entry<Integer, MediaEntity.Size> kvp : items.entrySet()) {
-      results.put(kvp.getKey(), convertMediaEntitySize(kvp.getValue()));
-    }
-
-    return results;
+  static {
+    FLAT_STATUS_SCHEMA = SchemaBuilder.struct()
+        .name("com.github.jcustenborder.kafka.connect.twitter.FlatStatus")
+        .doc("Twitter status message with the author, place and location as top level fields and the entities as " +
+            "arrays of primitives.")
+        .field("CreatedAt", Timestamp.builder().doc("Return the created_at").optional().build())
+        .field("Id", SchemaBuilder.int64().doc("Returns the id of the status").optional().build())
+        .field("Text", SchemaBuilder.string().doc("Returns the text of the status").optional().build())
+        .field("Source", SchemaBuilder.string().doc("Returns the source").optional().build())
+        .field("Truncated", SchemaBuilder.bool().doc("Test if the status is truncated").optional().build())
+        .field("InReplyToStatusId", SchemaBuilder.int64().doc("Returns the in_reply_tostatus_id").optional().build())
+        .field("InReplyToUserId", SchemaBuilder.int64().doc("Returns the in_reply_user_id").optional().build())
+        .field("InReplyToScreenName", SchemaBuilder.string().doc("Returns the in_reply_to_screen_name").optional().build())
+        .field("Latitude", SchemaBuilder.float64().doc("Latitude of the location the tweet refers to.").optional().build())
+        .field("Longitude", SchemaBuilder.float64().doc("Longitude of the location the tweet refers to.").optional().build())
+        .field("PlaceId", SchemaBuilder.string().doc("Id of the place attached to the status.").optional().build())
+        .field("PlaceName", SchemaBuilder.string().optional().build())
+        .field("PlaceFullName", SchemaBuilder.string().optional().build())
+        .field("PlaceType", SchemaBuilder.string().optional().build())
+        .field("PlaceCountryCode", SchemaBuilder.string().optional().build())
+        .field("PlaceCountry", SchemaBuilder.string().optional().build())
+        .field("Favorited", SchemaBuilder.bool().doc("Test if the status is favorited").optional().build())
+        .field("Retweeted", SchemaBuilder.bool().doc("Test if the status is retweeted").optional().build())
+        .field("FavoriteCount", SchemaBuilder.int32().doc("Indicates approximately how many times this Tweet has been \"favorited\" by Twitter users.").optional().build())
+        .field("Retweet", SchemaBuilder.bool().optional().build())
+        .field("RetweetCount", SchemaBuilder.int32().doc("Returns the number of times this tweet has been retweeted, or -1 when the tweet was created before this feature was enabled.").optional().build())
+        .field("PossiblySensitive", SchemaBuilder.bool().optional().build())
+        .field("Lang", SchemaBuilder.string().doc("Returns the lang of the status text if available.").optional().build())
+        .field("UserId", SchemaBuilder.int64().doc("Returns the id of the user").optional().build())
+        .field("UserName", SchemaBuilder.string().doc("Returns the name of the user").optional().build())
+        .field("UserScreenName", SchemaBuilder.string().doc("Returns the screen name of the user").optional().build())
+        .field("UserLocation", SchemaBuilder.string().doc("Returns the location of the user").optional().build())
+        .field("UserDescription", SchemaBuilder.string().doc("Returns the description of the user").optional().build())
+        .field("UserURL", SchemaBuilder.string().doc("Returns the url of the user").optional().build())
+        .field("UserProfileImageURLHttps", SchemaBuilder.string().optional().build())
+        .field("UserProtected", SchemaBuilder.bool().doc("Test if the user status is protected").optional().build())
+        .field("UserVerified", SchemaBuilder.bool().optional().build())
+        .field("UserFollowersCount", SchemaBuilder.int32().doc("Returns the number of followers").optional().build())
+        .field("UserFriendsCount", SchemaBuilder.int32().doc("Returns the number of users the user follows (AKA \"followings\")").optional().build())
+        .field("UserListedCount", SchemaBuilder.int32().doc("Returns the number of public lists the user is listed on, or -1 if the count is unavailable.").optional().build())
+        .field("UserFavouritesCount", SchemaBuilder.int32().optional().build())
+        .field("UserStatusesCount", SchemaBuilder.int32().optional().build())
+        .field("UserCreatedAt", Timestamp.builder().optional().build())
+        .field("UserLang", SchemaBuilder.string().doc("Returns the preferred language of the user").optional().build())
+        .field("Hashtags", SchemaBuilder.array(Schema.STRING_SCHEMA).doc("Text of each hashtag in the tweet, without #.").optional().build())
+        .field("MentionIds", SchemaBuilder.array(Schema.INT64_SCHEMA).doc("Id of each user mentioned in the tweet.").optional().build())
+        .field("MentionScreenNames", SchemaBuilder.array(Schema.STRING_SCHEMA).doc("Screen name of each user mentioned in the tweet.").optional().build())
+        .field("URLs", SchemaBuilder.array(Schema.STRING_SCHEMA).doc("Expanded url of each url in the tweet.").optional().build())
+        .field("MediaURLs", SchemaBuilder.array(Schema.STRING_SCHEMA).doc("Secure url of each media in the tweet.").optional().build())
+        .field("MediaTypes", SchemaBuilder.array(Schema.STRING_SCHEMA).doc("Type of each media in the tweet, in the same order as MediaURLs.").optional().build())
+        .field("Symbols", SchemaBuilder.array(Schema.STRING_SCHEMA).doc("Text of each symbol in the tweet.").optional().build())
+        .field("WithheldInCountries", SchemaBuilder.array(Schema.STRING_SCHEMA).doc("Returns the list of country codes where the tweet is withheld").optional().build())
+        .build();
   }
 
   public static void convert(User user, Struct struct) {
-    struct
-        .put("Id", user.getId())
-        .put("Name", user.getName())
-        .put("ScreenName", user.getScreenName())
-        .put("Location", user.getLocation())
-        .put("Description", user.getDescription())
-        .put("ContributorsEnabled", user.isContributorsEnabled())
-        .put("ProfileImageURL", user.getProfileImageURL())
-        .put("BiggerProfileImageURL", user.getBiggerProfileImageURL())
-        .put("MiniProfileImageURL", user.getMiniProfileImageURL())
-        .put("OriginalProfileImageURL", user.getOriginalProfileImageURL())
-        .put("ProfileImageURLHttps", user.getProfileImageURLHttps())
-        .put("BiggerProfileImageURLHttps", user.getBiggerProfileImageURLHttps())
-        .put("MiniProfileImageURLHttps", user.getMiniProfileImageURLHttps())
-        .put("OriginalProfileImageURLHttps", user.getOriginalProfileImageURLHttps())
-        .put("DefaultProfileImage", user.isDefaultProfileImage())
-        .put("URL", user.getURL())
-        .put("Protected", user.isProtected())
-        .put("FollowersCount", user.getFollowersCount())
-        .put("ProfileBackgroundColor", user.getProfileBackgroundColor())
-        .put("ProfileTextColor", user.getProfileTextColor())
-        .put("ProfileLinkColor", user.getProfileLinkColor())
-        .put("ProfileSidebarFillColor", user.getProfileSidebarFillColor())
-        .put("ProfileSidebarBorderColor", user.getProfileSidebarBorderColor())
-        .put("ProfileUseBackgroundImage", user.isProfileUseBackgroundImage())
-        .put("DefaultProfile", user.isDefaultProfile())
-        .put("ShowAllInlineMedia", user.isShowAllInlineMedia())
-        .put("FriendsCount", user.getFriendsCount())
-        .put("CreatedAt", user.getCreatedAt())
-        .put("FavouritesCount", user.getFavouritesCount())
-        .put("UtcOffset", user.getUtcOffset())
-        .put("TimeZone", user.getTimeZone())
-        .put("ProfileBackgroundImageURL", user.getProfileBackgroundImageURL())
-        .put("ProfileBackgroundImageUrlHttps", user.getProfileBackgroundImageUrlHttps())
-        .put("ProfileBannerURL", user.getProfileBannerURL())
-        .put("ProfileBannerRetinaURL", user.getProfileBannerRetinaURL())
-        .put("ProfileBannerIPadURL", user.getProfileBannerIPadURL())
-        .put("ProfileBannerIPadRetinaURL", user.getProfileBannerIPadRetinaURL())
-        .put("ProfileBannerMobileURL", user.getProfileBannerMobileURL())
-        .put("ProfileBannerMobileRetinaURL", user.getProfileBannerMobileRetinaURL())
-        .put("ProfileBackgroundTiled", user.isProfileBackgroundTiled())
-        .put("Lang", user.getLang())
-        .put("StatusesCount", user.getStatusesCount())
-        .put("GeoEnabled", user.isGeoEnabled())
-        .put("Verified", user.isVerified())
-        .put("Translator", user.isTranslator())
-        .put("ListedCount", user.getListedCount())
-        .put("FollowRequestSent", user.isFollowRequestSent());
-
-    List<String> withheldInCountries = new ArrayList<>();
-    if (null != user.getWithheldInCountries()) {
-      for (String s : user.getWithheldInCountries()) {
-        withheldInCountries.add(s);
-      }
-    }
-    struct.put("WithheldInCountries", withheldInCountries);
-
+    GeneratedConverters.convert(user, struct);
   }
 
   public static void convert(Place place, Struct struct) {
     if (null == place) {
       return;
     }
-    struct.put("Name", place.getName())
-        .put("StreetAddress", place.getStreetAddress())
-        .put("CountryCode", place.getCountryCode())
-        .put("Id", place.getId())
-        .put("Country", place.getCountry())
-        .put("PlaceType", place.getPlaceType())
-        .put("URL", place.getURL())
-        .put("FullName", place.getFullName());
+    GeneratedConverters.convert(place, struct);
   }
 
   public static void convert(GeoLocation geoLocation, Struct struct) {
     if (null == geoLocation) {
       return;
     }
-    struct.put("Latitude", geoLocation.getLatitude())
-        .put("Longitude", geoLocation.getLongitude());
-  }
-
-
-  static Struct convertMediaEntityVariant(MediaEntity.Variant variant) {
-    return new Struct(SCHEMA_MEDIA_ENTITY_VARIANT)
-        .put("Url", variant.getUrl())
-        .put("Bitrate", variant.getBitrate())
-        .put("ContentType", variant.getContentType());
+    GeneratedConverters.convert(geoLocation, struct);
   }
 
   public static List<Struct> convert(MediaEntity.Variant[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (MediaEntity.Variant item : items) {
-      Struct struct = convertMediaEntityVariant(item);
-      result.add(struct);
-    }
-    return result;
-  }
-
-
-  static Struct convertMediaEntitySize(MediaEntity.Size size) {
-    return new Struct(SCHEMA_MEDIA_ENTITY_SIZE)
-        .put("Resize", size.getResize())
-        .put("Width", size.getWidth())
-        .put("Height", size.getHeight());
+    return GeneratedConverters.convert(items);
   }
 
   public static List<Struct> convert(MediaEntity.Size[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (MediaEntity.Size item : items) {
-      Struct struct = convertMediaEntitySize(item);
-      result.add(struct);
-    }
-    return result;
-  }
-
-
-  static Struct convertExtendedMediaEntity(ExtendedMediaEntity extendedMediaEntity) {
-    return new Struct(SCHEMA_EXTENDED_MEDIA_ENTITY)
-        .put("VideoAspectRatioWidth", extendedMediaEntity.getVideoAspectRatioWidth())
-        .put("VideoAspectRatioHeight", extendedMediaEntity.getVideoAspectRatioHeight())
-        .put("VideoDurationMillis", extendedMediaEntity.getVideoDurationMillis())
-        .put("VideoVariants", extendedMediaEntity.getVideoVariants())
-        .put("ExtAltText", extendedMediaEntity.getExtAltText())
-        .put("Id", extendedMediaEntity.getId())
-        .put("Type", extendedMediaEntity.getType())
-        .put("MediaURL", extendedMediaEntity.getMediaURL())
-        .put("Sizes", extendedMediaEntity.getSizes())
-        .put("MediaURLHttps", extendedMediaEntity.getMediaURLHttps())
-        .put("URL", extendedMediaEntity.getURL())
-        .put("Text", extendedMediaEntity.getText())
-        .put("ExpandedURL", extendedMediaEntity.getExpandedURL())
-        .put("Start", extendedMediaEntity.getStart())
-        .put("End", extendedMediaEntity.getEnd())
-        .put("DisplayURL", extendedMediaEntity.getDisplayURL());
+    return GeneratedConverters.convert(items);
   }
 
   public static List<Struct> convert(ExtendedMediaEntity[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (ExtendedMediaEntity item : items) {
-      Struct struct = convertExtendedMediaEntity(item);
-      result.add(struct);
-    }
-    return result;
-  }
-
-
-  static Struct convertHashtagEntity(HashtagEntity hashtagEntity) {
-    return new Struct(SCHEMA_HASHTAG_ENTITY)
-        .put("Text", hashtagEntity.getText())
-        .put("Start", hashtagEntity.getStart())
-        .put("End", hashtagEntity.getEnd());
+    return GeneratedConverters.convert(items);
   }
 
   public static List<Struct> convert(HashtagEntity[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (HashtagEntity item : items) {
-      Struct struct = convertHashtagEntity(item);
-      result.add(struct);
-    }
-    return result;
-  }
-
-
-  static Struct convertMediaEntity(MediaEntity mediaEntity) {
-    return new Struct(SCHEMA_MEDIA_ENTITY)
-        .put("Id", mediaEntity.getId())
-        .put("Type", mediaEntity.getType())
-        .put("MediaURL", mediaEntity.getMediaURL())
-        .put("Sizes", convertSizes(mediaEntity.getSizes()))
-        .put("MediaURLHttps", mediaEntity.getMediaURLHttps())
-        .put("VideoAspectRatioWidth", mediaEntity.getVideoAspectRatioWidth())
-        .put("VideoAspectRatioHeight", mediaEntity.getVideoAspectRatioHeight())
-        .put("VideoDurationMillis", mediaEntity.getVideoDurationMillis())
-        .put("VideoVariants", convert(mediaEntity.getVideoVariants()))
-        .put("ExtAltText", mediaEntity.getExtAltText())
-        .put("URL", mediaEntity.getURL())
-        .put("Text", mediaEntity.getText())
-        .put("ExpandedURL", mediaEntity.getExpandedURL())
-        .put("Start", mediaEntity.getStart())
-        .put("End", mediaEntity.getEnd())
-        .put("DisplayURL", mediaEntity.getDisplayURL());
+    return GeneratedConverters.convert(items);
   }
 
   public static List<Struct> convert(MediaEntity[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (MediaEntity item : items) {
-      Struct struct = convertMediaEntity(item);
-      result.add(struct);
-    }
-    return result;
-  }
-
-
-  static Struct convertSymbolEntity(SymbolEntity symbolEntity) {
-    return new Struct(SCHEMA_SYMBOL_ENTITY)
-        .put("Start", symbolEntity.getStart())
-        .put("End", symbolEntity.getEnd())
-        .put("Text", symbolEntity.getText());
+    return GeneratedConverters.convert(items);
   }
 
   public static List<Struct> convert(SymbolEntity[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (SymbolEntity item : items) {
-      Struct struct = convertSymbolEntity(item);
-      result.add(struct);
-    }
-    return result;
-  }
-
-
-  static Struct convertURLEntity(URLEntity uRLEntity) {
-    return new Struct(SCHEMA_URL_ENTITY)
-        .put("URL", uRLEntity.getURL())
-        .put("Text", uRLEntity.getText())
-        .put("ExpandedURL", uRLEntity.getExpandedURL())
-        .put("Start", uRLEntity.getStart())
-        .put("End", uRLEntity.getEnd())
-        .put("DisplayURL", uRLEntity.getDisplayURL());
+    return GeneratedConverters.convert(items);
   }
 
   public static List<Struct> convert(URLEntity[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (URLEntity item : items) {
-      Struct struct = convertURLEntity(item);
-      result.add(struct);
-    }
-    return result;
-  }
-
-
-  static Struct convertUserMentionEntity(UserMentionEntity userMentionEntity) {
-    return new Struct(SCHEMA_USER_MENTION_ENTITY)
-        .put("Name", userMentionEntity.getName())
-        .put("Id", userMentionEntity.getId())
-        .put("Text", userMentionEntity.getText())
-        .put("ScreenName", userMentionEntity.getScreenName())
-        .put("Start", userMentionEntity.getStart())
-        .put("End", userMentionEntity.getEnd());
+    return GeneratedConverters.convert(items);
   }
 
   public static List<Struct> convert(UserMentionEntity[] items) {
-    List<Struct> result = new ArrayList<>();
-    if (null == items) {
-      return result;
-    }
-    for (UserMentionEntity item : items) {
-      Struct struct = convertUserMentionEntity(item);
-      result.add(struct);
-    }
-    return result;
+    return GeneratedConverters.convert(items);
   }
 
-
   public static void convertKey(Status status, Struct struct) {
     struct.put("Id", status.getId());
   }
 
   public static void convert(Status status, Struct struct) {
-    struct
-        .put("CreatedAt", status.getCreatedAt())
-        .put("Id", status.getId())
-        .put("Text", status.getText())
-        .put("Source", status.getSource())
-        .put("Truncated", status.isTruncated())
-        .put("InReplyToStatusId", status.getInReplyToStatusId())
-        .put("InReplyToUserId", status.getInReplyToUserId())
-        .put("InReplyToScreenName", status.getInReplyToScreenName())
-        .put("Favorited", status.isFavorited())
-        .put("Retweeted", status.isRetweeted())
-        .put("FavoriteCount", status.getFavoriteCount())
-        .put("Retweet", status.isRetweet())
-        .put("RetweetCount", status.getRetweetCount())
-        .put("RetweetedByMe", status.isRetweetedByMe())
-        .put("CurrentUserRetweetId", status.getCurrentUserRetweetId())
-        .put("PossiblySensitive", status.isPossiblySensitive())
-        .put("Lang", status.getLang());
-
-    Struct userStruct;
-    if (null != status.getUser()) {
-      userStruct = new Struct(USER_SCHEMA);
-      convert(status.getUser(), userStruct);
-    } else {
-      userStruct = null;
-    }
-    struct.put("User", userStruct);
-
-    Struct placeStruct;
-    if (null != status.getPlace()) {
-      placeStruct = new Struct(PLACE_SCHEMA);
-      convert(status.getPlace(), placeStruct);
-    } else {
-      placeStruct = null;
-    }
-    struct.put("Place", placeStruct);
-
-    Struct geoLocationStruct;
-    if (null != status.getGeoLocation()) {
-      geoLocationStruct = new Struct(GEO_LOCATION_SCHEMA);
-      convert(status.getGeoLocation(), geoLocationStruct);
-    } else {
-      geoLocationStruct = null;
-    }
-    struct.put("GeoLocation", geoLocationStruct);
-    List<Long> contributers = new ArrayList<>();
-
-    if (null != status.getContributors()) {
-      for (Long l : status.getContributors()) {
-        contributers.add(l);
-      }
-    }
-    struct.put("Contributors", contributers);
-
-    List<String> withheldInCountries = new ArrayList<>();
-    if (null != status.getWithheldInCountries()) {
-      for (String s : status.getWithheldInCountries()) {
-        withheldInCountries.add(s);
-      }
-    }
-    struct.put("WithheldInCountries", withheldInCountries);
-
-    struct.put("HashtagEntities", convert(status.getHashtagEntities()));
-    struct.put("UserMentionEntities", convert(status.getUserMentionEntities()));
-    struct.put("MediaEntities", convert(status.getMediaEntities()));
-    struct.put("SymbolEntities", convert(status.getSymbolEntities()));
-    struct.put("URLEntities", convert(status.getURLEntities()));
+    GeneratedConverters.convert(status, struct);
   }
 
   public static void convert(StatusDeletionNotice statusDeletionNotice, Struct struct) {
@@ -0,0 +1,234 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Drops statuses whose id has already been seen. Ids are kept in two generations of a primitive open addressing hash
+ * set. Once the current generation holds {@code windowSize} ids, or has been open for {@code windowMs}, it becomes the
+ * previous generation and the old previous generation is cleared. An id is remembered for at least one full window
+ * and at most two, without boxing or per-id allocation.
+ */
+class StatusIdDeduplicator {
+  private static final Logger log = LoggerFactory.getLogger(StatusIdDeduplicator.class);
+  static final int FILE_MAGIC = 0x54574455;
+
+  final AtomicLong hits = new AtomicLong();
+  final AtomicLong misses = new AtomicLong();
+
+  private final int windowSize;
+  private final long windowMs;
+  private final LongSupplier clock;
+  private LongSet current;
+  private LongSet previous;
+  private long generationStart;
+
+  /**
+   * @param windowSize number of ids in each generation.
+   * @param windowMs   maximum age of a generation in milliseconds. 0 rotates on size only.
+   * @param clock      source of the current time in milliseconds.
+   */
+  StatusIdDeduplicator(int windowSize, long windowMs, LongSupplier clock) {
+    this.windowSize = windowSize;
+    this.windowMs = windowMs;
+    this.clock = clock;
+    this.current = new LongSet(windowSize);
+    this.previous = new LongSet(windowSize);
+    this.generationStart = clock.getAsLong();
+  }
+
+  static StatusIdDeduplicator of(TwitterSourceConnectorConfig config) {
+    if (!config.dedupEnabled) {
+      return null;
+    }
+    StatusIdDeduplicator result = new StatusIdDeduplicator(
+        config.dedupWindowSize, config.dedupWindowMs, System::currentTimeMillis
+    );
+    if (!config.dedupStateFile.isEmpty()) {
+      File file = new File(config.dedupStateFile);
+      if (file.exists()) {
+        try {
+          result.load(file);
+        } catch (IOException e) {
+          log.warn("Could not load dedup state from '{}'. Starting with an empty window.", file, e);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Records the id.
+   *
+   * @param id status id.
+   * @return true if the id has not been seen within the window.
+   */
+  synchronized boolean add(long id) {
+    if (this.previous.contains(id) || !this.current.add(id)) {
+      this.hits.incrementAndGet();
+      return false;
+    }
+    this.misses.incrementAndGet();
+    if (this.current.size() >= this.windowSize ||
+        (this.windowMs > 0 && this.clock.getAsLong() - this.generationStart >= this.windowMs)) {
+      rotate();
+    }
+    return true;
+  }
+
+  private void rotate() {
+    LongSet cleared = this.previous;
+    cleared.clear();
+    this.previous = this.current;
+    this.current = cleared;
+    this.generationStart = this.clock.getAsLong();
+  }
+
+  synchronized int size() {
+    return this.current.size() + this.previous.size();
+  }
+
+  /**
+   * Writes the ids in the window to the file. The file is written to a temporary file first and then moved into place
+   * so a crash never leaves a partial file behind.
+   */
+  synchronized void save(File file) throws IOException {
+    File temp = new File(file.getAbsolutePath() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      output.writeInt(FILE_MAGIC);
+      output.writeInt(this.previous.size() + this.current.size());
+      this.previous.write(output);
+      this.current.write(output);
+    }
+    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Adds the ids in the file to the window, oldest first. The counters are not changed.
+   */
+  synchronized void load(File file) throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (FILE_MAGIC != input.readInt()) {
+        throw new IOException(String.format("'%s' is not a dedup state file.", file));
+      }
+      final int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        this.current.add(input.readLong());
+        if (this.current.size() >= this.windowSize) {
+          rotate();
+        }
+      }
+    }
+    this.generationStart = this.clock.getAsLong();
+  }
+
+  /**
+   * Open addressing hash set of longs with linear probing. 0 marks an empty slot, so it is tracked separately.
+   */
+  static class LongSet {
+    private final long[] slots;
+    private final int mask;
+    private int size;
+    private boolean containsZero;
+
+    LongSet(int expected) {
+      int capacity = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+      this.slots = new long[capacity];
+      this.mask = capacity - 1;
+    }
+
+    private int slot(long value) {
+      long hash = value * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+
+    boolean contains(long value) {
+      if (0L == value) {
+        return this.containsZero;
+      }
+      int index = slot(value);
+      while (true) {
+        long slot = this.slots[index];
+        if (0L == slot) {
+          return false;
+        } else if (value == slot) {
+          return true;
+        }
+        index = (index + 1) & this.mask;
+      }
+    }
+
+    boolean add(long value) {
+      if (0L == value) {
+        if (this.containsZero) {
+          return false;
+        }
+        this.containsZero = true;
+        this.size++;
+        return true;
+      }
+      int index = slot(value);
+      while (true) {
+        long slot = this.slots[index];
+        if (0L == slot) {
+          this.slots[index] = value;
+          this.size++;
+          return true;
+        } else if (value == slot) {
+          return false;
+        }
+        index = (index + 1) & this.mask;
+      }
+    }
+
+    int size() {
+      return this.size;
+    }
+
+    void clear() {
+      Arrays.fill(this.slots, 0L);
+      this.size = 0;
+      this.containsZero = false;
+    }
+
+    void write(DataOutputStream output) throws IOException {
+      if (this.containsZero) {
+        output.writeLong(0L);
+      }
+      for (long slot : this.slots) {
+        if (0L != slot) {
+          output.writeLong(slot);
+        }
+      }
+    }
+  }
+}
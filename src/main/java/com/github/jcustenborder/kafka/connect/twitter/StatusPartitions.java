@@ -0,0 +1,327 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.data.Struct;
+import twitter4j.HashtagEntity;
+import twitter4j.Status;
+import twitter4j.URLEntity;
+import twitter4j.UserMentionEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Assigns statuses to source partitions and tracks the offset of each one. There is a partition for every keyword
+ * and every followed user id, and the offset is the highest status id seen for it. Keyword partitions survive tasks
+ * being reassigned keywords, since the offset belongs to the keyword rather than the task.
+ *
+ * While a partition is being backfilled its offset is held at the committed status id, so a restart during the
+ * backfill starts over from the same point instead of skipping the part of the gap that was not written yet.
+ *
+ * With {@link TwitterSourceConnectorConfig.ConversionOrdering#KEY} records are queued out of arrival order. Each status
+ * is held from {@link #hold(Map, long)} until {@link #release(Map, long)}, and the offset stays below the oldest held
+ * status of the partition, so a newer status can not commit past one that was not queued yet.
+ */
+class StatusPartitions {
+  static final String KEYWORD_PARTITION = "keyword";
+  static final String USER_ID_PARTITION = "userId";
+  static final String STATUS_ID_OFFSET = "statusId";
+  static final Map<String, String> UNMATCHED = ImmutableMap.of();
+  static final Map<String, Object> NO_OFFSET = ImmutableMap.of();
+
+  static class State {
+    final Map<String, String> partition;
+    final LongAdder matches = new LongAdder();
+    long maxId;
+    long pendingId = -1L;
+    /**
+     * Number of held statuses by id.
+     */
+    TreeMap<Long, Integer> held;
+
+    State(Map<String, String> partition) {
+      this.partition = partition;
+    }
+  }
+
+  final Map<Map<String, String>, State> states = new LinkedHashMap<>();
+  final Map<Long, State> users = new LinkedHashMap<>();
+  final String[] keywords;
+  final KeywordMatcher matcher;
+  final State[] keywordStates;
+
+  StatusPartitions(Collection<String> keywords, Collection<Long> userIds) {
+    this.keywords = keywords.toArray(new String[0]);
+    this.matcher = new KeywordMatcher(this.keywords);
+    this.keywordStates = new State[this.keywords.length];
+    for (int i = 0; i < this.keywords.length; i++) {
+      this.keywordStates[i] = state(keywordPartition(this.keywords[i]));
+    }
+    for (Long userId : userIds) {
+      this.users.put(userId, state(userIdPartition(userId)));
+    }
+  }
+
+  static StatusPartitions of(TwitterSourceConnectorConfig config) {
+    return new StatusPartitions(config.filterKeywords, config.filterUserIds);
+  }
+
+  static Map<String, String> keywordPartition(String keyword) {
+    return ImmutableMap.of(KEYWORD_PARTITION, keyword);
+  }
+
+  static Map<String, String> userIdPartition(long userId) {
+    return ImmutableMap.of(USER_ID_PARTITION, Long.toString(userId));
+  }
+
+  private State state(Map<String, String> partition) {
+    return this.states.computeIfAbsent(partition, State::new);
+  }
+
+  /**
+   * @return every partition this task writes to.
+   */
+  List<Map<String, String>> partitions() {
+    return new ArrayList<>(this.states.keySet());
+  }
+
+  /**
+   * Finds the keywords of this task in the text, expanded urls, hashtags and mentions of a status.
+   *
+   * @param status status to scan.
+   * @return indexes of the matched keywords in the order they were configured.
+   */
+  int[] match(Status status) {
+    KeywordMatcher.Scan scan = this.matcher.scan().feed(status.getText());
+    URLEntity[] urls = status.getURLEntities();
+    if (null != urls) {
+      for (URLEntity url : urls) {
+        scan.feed(url.getExpandedURL());
+      }
+    }
+    HashtagEntity[] hashtags = status.getHashtagEntities();
+    if (null != hashtags) {
+      for (HashtagEntity hashtag : hashtags) {
+        scan.feed(hashtag.getText());
+      }
+    }
+    UserMentionEntity[] mentions = status.getUserMentionEntities();
+    if (null != mentions) {
+      for (UserMentionEntity mention : mentions) {
+        scan.feed(mention.getScreenName());
+      }
+    }
+    return scan.matches();
+  }
+
+  /**
+   * Finds the keywords of this task in the last status scanned by the parser.
+   */
+  int[] match(RawStatusParser parser) {
+    KeywordMatcher.Scan scan = this.matcher.scan().feed(parser.text);
+    for (int i = 0; i < parser.entities.size(); i++) {
+      scan.feed(parser.entities.get(i));
+    }
+    return scan.matches();
+  }
+
+  /**
+   * Same as {@link #match(Status)} for a status read by {@link StatusReader}.
+   */
+  int[] match(Struct status) {
+    KeywordMatcher.Scan scan = this.matcher.scan().feed(status.getString("Text"));
+    for (Struct url : status.<Struct>getArray("URLEntities")) {
+      scan.feed(url.getString("ExpandedURL"));
+    }
+    for (Struct hashtag : status.<Struct>getArray("HashtagEntities")) {
+      scan.feed(hashtag.getString("Text"));
+    }
+    for (Struct mention : status.<Struct>getArray("UserMentionEntities")) {
+      scan.feed(mention.getString("ScreenName"));
+    }
+    return scan.matches();
+  }
+
+  /**
+   * @param matches indexes returned by one of the match methods.
+   * @return the matched keywords.
+   */
+  List<String> keywords(int[] matches) {
+    return this.matcher.keywords(matches);
+  }
+
+  /**
+   * Finds the partition for a status. The first matched keyword in the order they were configured wins, then the
+   * author.
+   *
+   * @param matches indexes returned by one of the match methods.
+   * @param userId  id of the author.
+   * @return partition for the status or {@link #UNMATCHED} if it matched on something this task does not track, such
+   *     as a location.
+   */
+  Map<String, String> partition(int[] matches, long userId) {
+    if (matches.length > 0) {
+      return this.keywordStates[matches[0]].partition;
+    }
+    State user = this.users.get(userId);
+    return null != user ? user.partition : UNMATCHED;
+  }
+
+  Map<String, String> partition(String text, long userId) {
+    return partition(this.matcher.match(text), userId);
+  }
+
+  /**
+   * Records a status for a partition.
+   *
+   * @param partition partition returned by {@link #partition(String, long)}.
+   * @param statusId  id of the status.
+   * @return offset to write with the record.
+   */
+  synchronized Map<String, ?> offset(Map<String, String> partition, long statusId) {
+    State state = this.states.get(partition);
+    if (null == state) {
+      return NO_OFFSET;
+    }
+    state.matches.increment();
+    if (statusId > state.maxId) {
+      state.maxId = statusId;
+    }
+    return ImmutableMap.of(STATUS_ID_OFFSET, state.pendingId >= 0 ? state.pendingId : state.maxId);
+  }
+
+  /**
+   * Records a status for a partition and holds the offset below it until it is released.
+   *
+   * @param partition partition returned by {@link #partition(String, long)}.
+   * @param statusId  id of the status.
+   */
+  synchronized void hold(Map<String, String> partition, long statusId) {
+    State state = this.states.get(partition);
+    if (null == state) {
+      return;
+    }
+    state.matches.increment();
+    if (statusId > state.maxId) {
+      state.maxId = statusId;
+    }
+    if (null == state.held) {
+      state.held = new TreeMap<>();
+    }
+    state.held.merge(statusId, 1, Integer::sum);
+  }
+
+  /**
+   * @param partition partition passed to {@link #hold(Map, long)}.
+   * @param statusId  id of the held status the record is for. It does not hold its own offset.
+   * @return offset to write with the record. Below every other held status of the partition.
+   */
+  synchronized Map<String, ?> heldOffset(Map<String, String> partition, long statusId) {
+    State state = this.states.get(partition);
+    if (null == state) {
+      return NO_OFFSET;
+    }
+    if (state.pendingId >= 0) {
+      return ImmutableMap.of(STATUS_ID_OFFSET, state.pendingId);
+    }
+    long offset = state.maxId;
+    for (Map.Entry<Long, Integer> entry : state.held.entrySet()) {
+      if (entry.getKey() == statusId && entry.getValue() == 1) {
+        continue;
+      }
+      offset = Math.min(offset, entry.getKey() - 1L);
+      break;
+    }
+    return ImmutableMap.of(STATUS_ID_OFFSET, offset);
+  }
+
+  /**
+   * Releases a status once its record was queued, or once it is known it will not be.
+   *
+   * @param partition partition passed to {@link #hold(Map, long)}.
+   * @param statusId  id of the status.
+   */
+  synchronized void release(Map<String, String> partition, long statusId) {
+    State state = this.states.get(partition);
+    if (null == state || null == state.held) {
+      return;
+    }
+    state.held.computeIfPresent(statusId, (id, count) -> count > 1 ? count - 1 : null);
+  }
+
+  /**
+   * Restores the committed offsets and marks the partitions that have one as pending a backfill.
+   *
+   * @param offsets committed offsets by partition.
+   * @return status id to backfill from by partition.
+   */
+  synchronized Map<Map<String, String>, Long> restore(Map<Map<String, String>, Map<String, Object>> offsets) {
+    Map<Map<String, String>, Long> result = new LinkedHashMap<>();
+    if (null == offsets) {
+      return result;
+    }
+    for (Map.Entry<Map<String, String>, Map<String, Object>> entry : offsets.entrySet()) {
+      State state = this.states.get(entry.getKey());
+      if (null == state || null == entry.getValue()) {
+        continue;
+      }
+      Object value = entry.getValue().get(STATUS_ID_OFFSET);
+      if (value instanceof Number) {
+        final long statusId = ((Number) value).longValue();
+        state.maxId = Math.max(state.maxId, statusId);
+        state.pendingId = statusId;
+        result.put(state.partition, statusId);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Publishes the match counter of each keyword so the connector can balance keywords by volume.
+   *
+   * @param connector name of the connector.
+   */
+  void register(String connector) {
+    for (int i = 0; i < this.keywords.length; i++) {
+      KeywordVolumes.register(connector, this.keywords[i], this.keywordStates[i].matches);
+    }
+  }
+
+  void unregister(String connector) {
+    for (int i = 0; i < this.keywords.length; i++) {
+      KeywordVolumes.unregister(connector, this.keywords[i], this.keywordStates[i].matches);
+    }
+  }
+
+  /**
+   * Marks the backfill of a partition as finished. Later records carry the highest status id seen.
+   *
+   * @param partition partition that was backfilled.
+   */
+  synchronized void complete(Map<String, String> partition) {
+    State state = this.states.get(partition);
+    if (null != state) {
+      state.pendingId = -1L;
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import twitter4j.Place;
+import twitter4j.Status;
+import twitter4j.User;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Function;
+
+/**
+ * A subset of the fields in {@link StatusConverter#STATUS_SCHEMA} and {@link StatusConverter#USER_SCHEMA}. The pruned
+ * schemas are built once and conversion walks an array of field handles and the generated accessors, so the getters
+ * for excluded fields are never called and the nested structs for excluded fields are never allocated. User and Place
+ * structs can be served from a {@link ConversionCache} and low cardinality strings interned with a
+ * {@link StringInterner}.
+ */
+class StatusProjection {
+  /**
+   * Projection of every field. This produces the same structs as the full schemas.
+   */
+  static final StatusProjection ALL = new StatusProjection(Collections.emptyList(), Collections.emptyList());
+  static final int INTERNER_MAX_ENTRIES = 4096;
+
+  final Schema statusSchema;
+  final Schema userSchema;
+  final boolean full;
+  final ConversionCache cache;
+  final StringInterner interner;
+  private final Field[] statusFields;
+  private final Function<Status, Object>[] statusAccessors;
+  private final Field[] userFields;
+  private final Function<User, Object>[] userAccessors;
+
+  StatusProjection(Collection<String> statusFields, Collection<String> userFields) {
+    this(statusFields, userFields, null, null);
+  }
+
+  /**
+   * @param statusFields names of the status fields to include. Empty includes every field.
+   * @param userFields   names of the user fields to include. Empty includes every field.
+   * @param cache        cache for User and Place structs. null disables caching.
+   * @param interner     interner for Lang, Source, PlaceType and CountryCode. null disables interning.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  StatusProjection(Collection<String> statusFields, Collection<String> userFields, ConversionCache cache, StringInterner interner) {
+    this.cache = cache;
+    this.interner = interner;
+    this.full = statusFields.isEmpty() && userFields.isEmpty() && null == cache && null == interner;
+    this.userSchema = userFields.isEmpty() ?
+        StatusConverter.USER_SCHEMA : prune(StatusConverter.USER_SCHEMA, userFields);
+    this.statusSchema = this.full ?
+        StatusConverter.STATUS_SCHEMA : prune(StatusConverter.STATUS_SCHEMA, statusFields, this.userSchema);
+
+    this.userFields = this.userSchema.fields().toArray(new Field[0]);
+    this.userAccessors = new Function[this.userFields.length];
+    for (int i = 0; i < this.userFields.length; i++) {
+      this.userAccessors[i] = GeneratedConverters.USER_ACCESSORS.get(this.userFields[i].name());
+    }
+    if (null != interner) {
+      intern(this.userFields, this.userAccessors, "Lang");
+    }
+
+    this.statusFields = this.statusSchema.fields().toArray(new Field[0]);
+    this.statusAccessors = new Function[this.statusFields.length];
+    for (int i = 0; i < this.statusFields.length; i++) {
+      String name = this.statusFields[i].name();
+      if ("User".equals(name)) {
+        // User is resolved per projection so the pruned user schema and the cache are used.
+        this.statusAccessors[i] = this::convertUser;
+      } else if ("Place".equals(name) && (null != cache || null != interner)) {
+        this.statusAccessors[i] = this::convertPlace;
+      } else {
+        this.statusAccessors[i] = GeneratedConverters.STATUS_ACCESSORS.get(name);
+      }
+    }
+    if (null != interner) {
+      intern(this.statusFields, this.statusAccessors, "Lang");
+      intern(this.statusFields, this.statusAccessors, "Source");
+    }
+  }
+
+  private <T> void intern(Field[] fields, Function<T, Object>[] accessors, String fieldName) {
+    for (int i = 0; i < fields.length; i++) {
+      if (fieldName.equals(fields[i].name())) {
+        final Function<T, Object> accessor = accessors[i];
+        accessors[i] = source -> this.interner.intern((String) accessor.apply(source));
+      }
+    }
+  }
+
+  static StatusProjection of(TwitterSourceConnectorConfig config) {
+    ConversionCache cache = ConversionCache.of(config);
+    StringInterner interner = config.conversionInternStrings ? new StringInterner(INTERNER_MAX_ENTRIES) : null;
+    if (config.statusFields.isEmpty() && config.userFields.isEmpty() && null == cache && null == interner) {
+      return ALL;
+    }
+    return new StatusProjection(config.statusFields, config.userFields, cache, interner);
+  }
+
+  public void convert(Status status, Struct struct) {
+    if (this.full) {
+      GeneratedConverters.convert(status, struct);
+      return;
+    }
+    for (int i = 0; i < this.statusFields.length; i++) {
+      struct.put(this.statusFields[i], this.statusAccessors[i].apply(status));
+    }
+  }
+
+  public void convert(User user, Struct struct) {
+    if (this.userSchema == StatusConverter.USER_SCHEMA && null == this.interner) {
+      GeneratedConverters.convert(user, struct);
+      return;
+    }
+    for (int i = 0; i < this.userFields.length; i++) {
+      struct.put(this.userFields[i], this.userAccessors[i].apply(user));
+    }
+  }
+
+  /**
+   * Projects a struct of the full {@link StatusConverter#STATUS_SCHEMA}, such as one read by {@link StatusReader}. The
+   * cache is not used because there is no twitter4j object to compare against.
+   *
+   * @param status struct with every field.
+   * @return struct with the fields of this projection.
+   */
+  Struct project(Struct status) {
+    if (this.full) {
+      return status;
+    }
+    Struct struct = new Struct(this.statusSchema);
+    for (Field field : this.statusFields) {
+      Object value = status.get(field.name());
+      if (null == value) {
+        continue;
+      }
+      switch (field.name()) {
+        case "User":
+          value = projectUser((Struct) value);
+          break;
+        case "Place":
+          if (null != this.interner) {
+            Struct place = (Struct) value;
+            place.put(GeneratedConverters.PLACE_PLACE_TYPE, this.interner.intern(place.getString("PlaceType")));
+            place.put(GeneratedConverters.PLACE_COUNTRY_CODE, this.interner.intern(place.getString("CountryCode")));
+          }
+          break;
+        case "Lang":
+        case "Source":
+          if (null != this.interner) {
+            value = this.interner.intern((String) value);
+          }
+          break;
+        default:
+          break;
+      }
+      struct.put(field, value);
+    }
+    return struct;
+  }
+
+  private Struct projectUser(Struct user) {
+    if (this.userSchema == StatusConverter.USER_SCHEMA && null == this.interner) {
+      return user;
+    }
+    Struct struct = new Struct(this.userSchema);
+    for (Field field : this.userFields) {
+      Object value = user.get(field.name());
+      if (null != this.interner && "Lang".equals(field.name())) {
+        value = this.interner.intern((String) value);
+      }
+      struct.put(field, value);
+    }
+    return struct;
+  }
+
+  private Object convertUser(Status status) {
+    User user = status.getUser();
+    if (null == user) {
+      return null;
+    }
+    return null == this.cache ? newUser(user) : this.cache.user(user, this::newUser);
+  }
+
+  private Struct newUser(User user) {
+    Struct struct = new Struct(this.userSchema);
+    convert(user, struct);
+    return struct;
+  }
+
+  private Object convertPlace(Status status) {
+    Place place = status.getPlace();
+    if (null == place) {
+      return null;
+    }
+    return null == this.cache ? newPlace(place) : this.cache.place(place, this::newPlace);
+  }
+
+  private Struct newPlace(Place place) {
+    Struct struct = GeneratedConverters.convert(place);
+    if (null != this.interner) {
+      struct.put(GeneratedConverters.PLACE_PLACE_TYPE, this.interner.intern(place.getPlaceType()));
+      struct.put(GeneratedConverters.PLACE_COUNTRY_CODE, this.interner.intern(place.getCountryCode()));
+    }
+    return struct;
+  }
+
+  private static Schema prune(Schema schema, Collection<String> fieldNames) {
+    return prune(schema, fieldNames, null);
+  }
+
+  /**
+   * Copies the named fields of the schema, keeping the order of the original schema.
+   */
+  private static Schema prune(Schema schema, Collection<String> fieldNames, Schema userSchema) {
+    SchemaBuilder builder = SchemaBuilder.struct()
+        .name(schema.name())
+        .doc(schema.doc());
+    if (schema.isOptional()) {
+      builder.optional();
+    }
+    for (Field field : schema.fields()) {
+      if (!fieldNames.isEmpty() && !fieldNames.contains(field.name())) {
+        continue;
+      }
+      Schema fieldSchema = null != userSchema && "User".equals(field.name()) ? userSchema : field.schema();
+      builder.field(field.name(), fieldSchema);
+    }
+    return builder.build();
+  }
+}
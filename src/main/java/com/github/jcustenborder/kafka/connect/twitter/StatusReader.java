@@ -0,0 +1,1292 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.primitives.Longs;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull parser that reads a status from the UTF-8 bytes of a streaming api message straight into a
+ * {@link StatusConverter#STATUS_SCHEMA} struct. twitter4j first builds its own object graph and
+ * {@link GeneratedConverters} then copies it into structs. This reader produces the same struct in one pass without
+ * the intermediate objects.
+ *
+ * The values follow twitter4j, including its defaults of -1 and false for missing fields, the derived profile image
+ * and banner urls, text taken from extended_tweet and entity indexes that slide when the text is unescaped. The api
+ * escapes every &amp; it sends, so only &amp;amp;, &amp;lt;, &amp;gt; and &amp;quot; are unescaped instead of the
+ * full HTML table. Instances are reused between messages and are not thread safe.
+ */
+class StatusReader {
+  private static final int SIZE_THUMB = 0;
+  private static final int SIZE_SMALL = 1;
+  private static final int SIZE_MEDIUM = 2;
+  private static final int SIZE_LARGE = 3;
+  private static final int RESIZE_FIT = 100;
+  private static final int RESIZE_CROP = 101;
+  private static final Comparator<Struct> BY_START = Comparator.comparingInt(s -> s.getInt32("Start"));
+
+  /**
+   * Entity arrays of a status. null means the array was not in the message.
+   */
+  static class Entities {
+    List<Struct> mentions;
+    List<Struct> urls;
+    List<Struct> hashtags;
+    List<Struct> symbols;
+    List<Struct> media;
+
+    void clear() {
+      this.mentions = null;
+      this.urls = null;
+      this.hashtags = null;
+      this.symbols = null;
+      this.media = null;
+    }
+
+    /**
+     * Replaces the arrays that are in the other entities, the way twitter4j merges extended_tweet.
+     */
+    void merge(Entities other) {
+      if (null != other.mentions) {
+        this.mentions = other.mentions;
+      }
+      if (null != other.urls) {
+        this.urls = other.urls;
+      }
+      if (null != other.hashtags) {
+        this.hashtags = other.hashtags;
+      }
+      if (null != other.symbols) {
+        this.symbols = other.symbols;
+      }
+      if (null != other.media) {
+        this.media = other.media;
+      }
+    }
+  }
+
+  final Entities entities = new Entities();
+  final Entities extendedEntities = new Entities();
+  final Entities extendedTweetEntities = new Entities();
+
+  private byte[] buffer;
+  private int position;
+  private int end;
+  private int keyStart;
+  private int keyLength;
+  private char[] chars = new char[1024];
+  private final byte[] lastCreatedAt = new byte[64];
+  private int lastCreatedAtLength = -1;
+  private long lastCreatedAtMs;
+
+  private boolean hasId;
+  private boolean hasCreatedAt;
+  private boolean notStatus;
+  private String text;
+  private String fullText;
+  private boolean extendedTweet;
+  private String extendedFullText;
+
+  /**
+   * Reads a message.
+   *
+   * @param buffer buffer holding the message.
+   * @param offset offset of the message in the buffer.
+   * @param length length of the message in bytes.
+   * @return the status, or null if the message is something else such as a deletion notice or a stall warning.
+   */
+  Struct read(byte[] buffer, int offset, int length) {
+    this.buffer = buffer;
+    this.position = offset;
+    this.end = offset + length;
+    this.hasId = false;
+    this.hasCreatedAt = false;
+    this.notStatus = false;
+    this.text = null;
+    this.fullText = null;
+    this.extendedTweet = false;
+    this.extendedFullText = null;
+    this.entities.clear();
+    this.extendedEntities.clear();
+    this.extendedTweetEntities.clear();
+    try {
+      skipWhitespace();
+      if (this.position >= this.end || this.buffer[this.position] != '{') {
+        return null;
+      }
+      Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+      readStatus(struct);
+      if (this.notStatus || !this.hasId || !this.hasCreatedAt) {
+        return null;
+      }
+      finish(struct);
+      return struct;
+    } finally {
+      this.buffer = null;
+    }
+  }
+
+  private void readStatus(Struct struct) {
+    long currentUserRetweetId = -1L;
+    List<Long> contributors = Collections.emptyList();
+    List<String> withheldInCountries = Collections.emptyList();
+    struct.put(GeneratedConverters.STATUS_ID, -1L);
+    struct.put(GeneratedConverters.STATUS_TRUNCATED, false);
+    struct.put(GeneratedConverters.STATUS_IN_REPLY_TO_STATUS_ID, -1L);
+    struct.put(GeneratedConverters.STATUS_IN_REPLY_TO_USER_ID, -1L);
+    struct.put(GeneratedConverters.STATUS_FAVORITED, false);
+    struct.put(GeneratedConverters.STATUS_RETWEETED, false);
+    struct.put(GeneratedConverters.STATUS_FAVORITE_COUNT, -1);
+    struct.put(GeneratedConverters.STATUS_RETWEET, false);
+    struct.put(GeneratedConverters.STATUS_RETWEET_COUNT, -1);
+    struct.put(GeneratedConverters.STATUS_POSSIBLY_SENSITIVE, false);
+
+    beginObject();
+    while (nextKey()) {
+      if (key("id")) {
+        struct.put(GeneratedConverters.STATUS_ID, readLong());
+        this.hasId = true;
+      } else if (key("created_at")) {
+        Date createdAt = readStatusCreatedAt();
+        struct.put(GeneratedConverters.STATUS_CREATED_AT, createdAt);
+        this.hasCreatedAt = null != createdAt;
+      } else if (key("text")) {
+        this.text = readString();
+      } else if (key("full_text")) {
+        this.fullText = readString();
+      } else if (key("source")) {
+        struct.put(GeneratedConverters.STATUS_SOURCE, unescape(readString()));
+      } else if (key("truncated")) {
+        struct.put(GeneratedConverters.STATUS_TRUNCATED, readBoolean());
+      } else if (key("in_reply_to_status_id")) {
+        struct.put(GeneratedConverters.STATUS_IN_REPLY_TO_STATUS_ID, readLong());
+      } else if (key("in_reply_to_user_id")) {
+        struct.put(GeneratedConverters.STATUS_IN_REPLY_TO_USER_ID, readLong());
+      } else if (key("in_reply_to_screen_name")) {
+        struct.put(GeneratedConverters.STATUS_IN_REPLY_TO_SCREEN_NAME, unescape(readString()));
+      } else if (key("coordinates")) {
+        struct.put(GeneratedConverters.STATUS_GEO_LOCATION, readCoordinates());
+      } else if (key("place")) {
+        struct.put(GeneratedConverters.STATUS_PLACE, readPlace());
+      } else if (key("favorited")) {
+        struct.put(GeneratedConverters.STATUS_FAVORITED, readBoolean());
+      } else if (key("retweeted")) {
+        struct.put(GeneratedConverters.STATUS_RETWEETED, readBoolean());
+      } else if (key("favorite_count")) {
+        struct.put(GeneratedConverters.STATUS_FAVORITE_COUNT, readInt());
+      } else if (key("user")) {
+        struct.put(GeneratedConverters.STATUS_USER, readUser());
+      } else if (key("retweeted_status")) {
+        if (!readNull()) {
+          struct.put(GeneratedConverters.STATUS_RETWEET, true);
+          skipValue();
+        }
+      } else if (key("contributors")) {
+        contributors = readLongs();
+      } else if (key("retweet_count")) {
+        struct.put(GeneratedConverters.STATUS_RETWEET_COUNT, (int) readLong());
+      } else if (key("current_user_retweet")) {
+        currentUserRetweetId = readCurrentUserRetweet();
+      } else if (key("possibly_sensitive")) {
+        struct.put(GeneratedConverters.STATUS_POSSIBLY_SENSITIVE, readBoolean());
+      } else if (key("lang")) {
+        struct.put(GeneratedConverters.STATUS_LANG, unescape(readString()));
+      } else if (key("withheld_in_countries")) {
+        withheldInCountries = readStrings();
+      } else if (key("entities")) {
+        readEntities(this.entities);
+      } else if (key("extended_entities")) {
+        readEntities(this.extendedEntities);
+      } else if (key("extended_tweet")) {
+        readExtendedTweet();
+      } else if (key("delete") || key("warning") || key("limit") || key("scrub_geo") || key("status_withheld") ||
+          key("user_withheld") || key("disconnect")) {
+        this.notStatus = true;
+        skipValue();
+      } else {
+        skipValue();
+      }
+    }
+    struct.put(GeneratedConverters.STATUS_CONTRIBUTORS, contributors);
+    struct.put(GeneratedConverters.STATUS_RETWEETED_BY_ME, -1L != currentUserRetweetId);
+    struct.put(GeneratedConverters.STATUS_CURRENT_USER_RETWEET_ID, currentUserRetweetId);
+    struct.put(GeneratedConverters.STATUS_WITHHELD_IN_COUNTRIES, withheldInCountries);
+  }
+
+  /**
+   * Resolves the text and entities in the same order as twitter4j. extended_entities replaces the media, the text is
+   * unescaped and then extended_tweet replaces both.
+   */
+  private void finish(Struct struct) {
+    final Entities entities = this.entities;
+    if (null != this.extendedEntities.media) {
+      entities.media = this.extendedEntities.media;
+    }
+    String text = null;
+    if (null != this.text) {
+      text = unescape(this.text, entities);
+    }
+    if (null != this.fullText) {
+      text = unescape(this.fullText, entities);
+    }
+    if (this.extendedTweet) {
+      entities.merge(this.extendedTweetEntities);
+      text = unescape(this.extendedFullText, entities);
+    }
+    struct.put(GeneratedConverters.STATUS_TEXT, text);
+    struct.put(GeneratedConverters.STATUS_HASHTAG_ENTITIES, orEmpty(entities.hashtags));
+    struct.put(GeneratedConverters.STATUS_USER_MENTION_ENTITIES, orEmpty(entities.mentions));
+    struct.put(GeneratedConverters.STATUS_MEDIA_ENTITIES, orEmpty(entities.media));
+    struct.put(GeneratedConverters.STATUS_SYMBOL_ENTITIES, orEmpty(entities.symbols));
+    struct.put(GeneratedConverters.STATUS_URL_ENTITIES, orEmpty(entities.urls));
+  }
+
+  private static <T> List<T> orEmpty(List<T> items) {
+    return null == items ? Collections.emptyList() : items;
+  }
+
+  private void readExtendedTweet() {
+    if (readNull()) {
+      return;
+    }
+    this.extendedTweet = true;
+    beginObject();
+    while (nextKey()) {
+      if (key("full_text")) {
+        this.extendedFullText = readString();
+      } else if (key("entities")) {
+        readEntities(this.extendedTweetEntities);
+      } else {
+        skipValue();
+      }
+    }
+  }
+
+  private long readCurrentUserRetweet() {
+    if (readNull()) {
+      return -1L;
+    }
+    long result = -1L;
+    beginObject();
+    while (nextKey()) {
+      if (key("id")) {
+        result = readLong();
+      } else {
+        skipValue();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * twitter4j reads the GeoJSON point in coordinates, which is longitude first, and ignores the deprecated geo.
+   */
+  private Struct readCoordinates() {
+    if (readNull()) {
+      return null;
+    }
+    Struct result = null;
+    beginObject();
+    while (nextKey()) {
+      if (readNull()) {
+        continue;
+      }
+      if (key("coordinates")) {
+        beginArray();
+        nextElement();
+        final double longitude = readDouble();
+        nextElement();
+        final double latitude = readDouble();
+        while (nextElement()) {
+          skipValue();
+        }
+        result = new Struct(StatusConverter.GEO_LOCATION_SCHEMA)
+            .put(GeneratedConverters.GEO_LOCATION_LATITUDE, latitude)
+            .put(GeneratedConverters.GEO_LOCATION_LONGITUDE, longitude);
+      } else {
+        skipValue();
+      }
+    }
+    return result;
+  }
+
+  private Struct readPlace() {
+    if (readNull()) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.PLACE_SCHEMA);
+    String placeType = null;
+    String type = null;
+    beginObject();
+    while (nextKey()) {
+      if (key("name")) {
+        struct.put(GeneratedConverters.PLACE_NAME, unescape(readString()));
+      } else if (key("street_address")) {
+        struct.put(GeneratedConverters.PLACE_STREET_ADDRESS, unescape(readString()));
+      } else if (key("country_code")) {
+        struct.put(GeneratedConverters.PLACE_COUNTRY_CODE, readString());
+      } else if (key("id")) {
+        struct.put(GeneratedConverters.PLACE_ID, readString());
+      } else if (key("country")) {
+        struct.put(GeneratedConverters.PLACE_COUNTRY, readString());
+      } else if (key("place_type")) {
+        placeType = readString();
+      } else if (key("type")) {
+        type = readString();
+      } else if (key("url")) {
+        struct.put(GeneratedConverters.PLACE_URL, readString());
+      } else if (key("full_name")) {
+        struct.put(GeneratedConverters.PLACE_FULL_NAME, readString());
+      } else {
+        skipValue();
+      }
+    }
+    struct.put(GeneratedConverters.PLACE_PLACE_TYPE, null != placeType ? placeType : type);
+    return struct;
+  }
+
+  private Struct readUser() {
+    if (readNull()) {
+      return null;
+    }
+    Struct struct = new Struct(StatusConverter.USER_SCHEMA);
+    String profileImageUrl = null;
+    String profileImageUrlHttps = null;
+    String profileBannerUrl = null;
+    List<String> withheldInCountries = Collections.emptyList();
+    struct.put(GeneratedConverters.USER_ID, -1L);
+    struct.put(GeneratedConverters.USER_CONTRIBUTORS_ENABLED, false);
+    struct.put(GeneratedConverters.USER_DEFAULT_PROFILE_IMAGE, false);
+    struct.put(GeneratedConverters.USER_PROTECTED, false);
+    struct.put(GeneratedConverters.USER_FOLLOWERS_COUNT, -1);
+    struct.put(GeneratedConverters.USER_PROFILE_USE_BACKGROUND_IMAGE, false);
+    struct.put(GeneratedConverters.USER_DEFAULT_PROFILE, false);
+    struct.put(GeneratedConverters.USER_SHOW_ALL_INLINE_MEDIA, false);
+    struct.put(GeneratedConverters.USER_FRIENDS_COUNT, -1);
+    struct.put(GeneratedConverters.USER_FAVOURITES_COUNT, -1);
+    struct.put(GeneratedConverters.USER_UTC_OFFSET, -1);
+    struct.put(GeneratedConverters.USER_PROFILE_BACKGROUND_TILED, false);
+    struct.put(GeneratedConverters.USER_STATUSES_COUNT, -1);
+    struct.put(GeneratedConverters.USER_GEO_ENABLED, false);
+    struct.put(GeneratedConverters.USER_VERIFIED, false);
+    struct.put(GeneratedConverters.USER_TRANSLATOR, false);
+    struct.put(GeneratedConverters.USER_LISTED_COUNT, -1);
+    struct.put(GeneratedConverters.USER_FOLLOW_REQUEST_SENT, false);
+
+    beginObject();
+    while (nextKey()) {
+      if (key("id")) {
+        struct.put(GeneratedConverters.USER_ID, readLong());
+      } else if (key("name")) {
+        struct.put(GeneratedConverters.USER_NAME, readString());
+      } else if (key("screen_name")) {
+        struct.put(GeneratedConverters.USER_SCREEN_NAME, readString());
+      } else if (key("location")) {
+        struct.put(GeneratedConverters.USER_LOCATION, readString());
+      } else if (key("description")) {
+        struct.put(GeneratedConverters.USER_DESCRIPTION, unescape(readString()));
+      } else if (key("contributors_enabled")) {
+        struct.put(GeneratedConverters.USER_CONTRIBUTORS_ENABLED, readBoolean());
+      } else if (key("profile_image_url")) {
+        profileImageUrl = readString();
+      } else if (key("profile_image_url_https")) {
+        profileImageUrlHttps = readString();
+      } else if (key("default_profile_image")) {
+        struct.put(GeneratedConverters.USER_DEFAULT_PROFILE_IMAGE, readBoolean());
+      } else if (key("url")) {
+        struct.put(GeneratedConverters.USER_URL, readString());
+      } else if (key("protected")) {
+        struct.put(GeneratedConverters.USER_PROTECTED, readBoolean());
+      } else if (key("followers_count")) {
+        struct.put(GeneratedConverters.USER_FOLLOWERS_COUNT, readInt());
+      } else if (key("profile_background_color")) {
+        struct.put(GeneratedConverters.USER_PROFILE_BACKGROUND_COLOR, readString());
+      } else if (key("profile_text_color")) {
+        struct.put(GeneratedConverters.USER_PROFILE_TEXT_COLOR, readString());
+      } else if (key("profile_link_color")) {
+        struct.put(GeneratedConverters.USER_PROFILE_LINK_COLOR, readString());
+      } else if (key("profile_sidebar_fill_color")) {
+        struct.put(GeneratedConverters.USER_PROFILE_SIDEBAR_FILL_COLOR, readString());
+      } else if (key("profile_sidebar_border_color")) {
+        struct.put(GeneratedConverters.USER_PROFILE_SIDEBAR_BORDER_COLOR, readString());
+      } else if (key("profile_use_background_image")) {
+        struct.put(GeneratedConverters.USER_PROFILE_USE_BACKGROUND_IMAGE, readBoolean());
+      } else if (key("default_profile")) {
+        struct.put(GeneratedConverters.USER_DEFAULT_PROFILE, readBoolean());
+      } else if (key("show_all_inline_media")) {
+        struct.put(GeneratedConverters.USER_SHOW_ALL_INLINE_MEDIA, readBoolean());
+      } else if (key("friends_count")) {
+        struct.put(GeneratedConverters.USER_FRIENDS_COUNT, readInt());
+      } else if (key("created_at")) {
+        struct.put(GeneratedConverters.USER_CREATED_AT, readDate());
+      } else if (key("favourites_count")) {
+        struct.put(GeneratedConverters.USER_FAVOURITES_COUNT, readInt());
+      } else if (key("utc_offset")) {
+        struct.put(GeneratedConverters.USER_UTC_OFFSET, readInt());
+      } else if (key("time_zone")) {
+        struct.put(GeneratedConverters.USER_TIME_ZONE, readString());
+      } else if (key("profile_background_image_url")) {
+        struct.put(GeneratedConverters.USER_PROFILE_BACKGROUND_IMAGE_URL, readString());
+      } else if (key("profile_background_image_url_https")) {
+        struct.put(GeneratedConverters.USER_PROFILE_BACKGROUND_IMAGE_URL_HTTPS, readString());
+      } else if (key("profile_banner_url")) {
+        profileBannerUrl = readString();
+      } else if (key("profile_background_tile")) {
+        struct.put(GeneratedConverters.USER_PROFILE_BACKGROUND_TILED, readBoolean());
+      } else if (key("lang")) {
+        struct.put(GeneratedConverters.USER_LANG, readString());
+      } else if (key("statuses_count")) {
+        struct.put(GeneratedConverters.USER_STATUSES_COUNT, readInt());
+      } else if (key("geo_enabled")) {
+        struct.put(GeneratedConverters.USER_GEO_ENABLED, readBoolean());
+      } else if (key("verified")) {
+        struct.put(GeneratedConverters.USER_VERIFIED, readBoolean());
+      } else if (key("is_translator")) {
+        struct.put(GeneratedConverters.USER_TRANSLATOR, readBoolean());
+      } else if (key("listed_count")) {
+        struct.put(GeneratedConverters.USER_LISTED_COUNT, readInt());
+      } else if (key("follow_request_sent")) {
+        struct.put(GeneratedConverters.USER_FOLLOW_REQUEST_SENT, readBoolean());
+      } else if (key("withheld_in_countries")) {
+        withheldInCountries = readStrings();
+      } else {
+        skipValue();
+      }
+    }
+    struct.put(GeneratedConverters.USER_PROFILE_IMAGE_URL, profileImageUrl);
+    struct.put(GeneratedConverters.USER_BIGGER_PROFILE_IMAGE_URL, resized(profileImageUrl, "_bigger"));
+    struct.put(GeneratedConverters.USER_MINI_PROFILE_IMAGE_URL, resized(profileImageUrl, "_mini"));
+    struct.put(GeneratedConverters.USER_ORIGINAL_PROFILE_IMAGE_URL, resized(profileImageUrl, ""));
+    struct.put(GeneratedConverters.USER_PROFILE_IMAGE_URL_HTTPS, profileImageUrlHttps);
+    struct.put(GeneratedConverters.USER_BIGGER_PROFILE_IMAGE_URL_HTTPS, resized(profileImageUrlHttps, "_bigger"));
+    struct.put(GeneratedConverters.USER_MINI_PROFILE_IMAGE_URL_HTTPS, resized(profileImageUrlHttps, "_mini"));
+    struct.put(GeneratedConverters.USER_ORIGINAL_PROFILE_IMAGE_URL_HTTPS, resized(profileImageUrlHttps, ""));
+    struct.put(GeneratedConverters.USER_PROFILE_BANNER_URL, banner(profileBannerUrl, "/web"));
+    struct.put(GeneratedConverters.USER_PROFILE_BANNER_RETINA_URL, banner(profileBannerUrl, "/web_retina"));
+    struct.put(GeneratedConverters.USER_PROFILE_BANNER_I_PAD_URL, banner(profileBannerUrl, "/ipad"));
+    struct.put(GeneratedConverters.USER_PROFILE_BANNER_I_PAD_RETINA_URL, banner(profileBannerUrl, "/ipad_retina"));
+    struct.put(GeneratedConverters.USER_PROFILE_BANNER_MOBILE_URL, banner(profileBannerUrl, "/mobile"));
+    struct.put(GeneratedConverters.USER_PROFILE_BANNER_MOBILE_RETINA_URL, banner(profileBannerUrl, "/mobile_retina"));
+    struct.put(GeneratedConverters.USER_WITHHELD_IN_COUNTRIES, withheldInCountries);
+    return struct;
+  }
+
+  /**
+   * Same as twitter4j, which swaps the size suffix after the last underscore. twitter4j fails on a url without an
+   * underscore, this keeps the url.
+   */
+  static String resized(String url, String suffix) {
+    if (null == url) {
+      return null;
+    }
+    final int underscore = url.lastIndexOf('_');
+    final int dot = url.lastIndexOf('.');
+    final int slash = url.lastIndexOf('/');
+    String result = (underscore < 0 ? url : url.substring(0, underscore)) + suffix;
+    if (underscore >= 0 && dot > slash) {
+      result += url.substring(dot);
+    }
+    return result;
+  }
+
+  private static String banner(String url, String suffix) {
+    return null == url ? null : url + suffix;
+  }
+
+  private void readEntities(Entities result) {
+    if (readNull()) {
+      return;
+    }
+    beginObject();
+    while (nextKey()) {
+      if (readNull()) {
+        continue;
+      }
+      if (key("user_mentions")) {
+        result.mentions = readEntityArray(EntityType.MENTION);
+      } else if (key("urls")) {
+        result.urls = readEntityArray(EntityType.URL);
+      } else if (key("hashtags")) {
+        result.hashtags = readEntityArray(EntityType.HASHTAG);
+      } else if (key("symbols")) {
+        result.symbols = readEntityArray(EntityType.SYMBOL);
+      } else if (key("media")) {
+        result.media = readEntityArray(EntityType.MEDIA);
+      } else {
+        skipValue();
+      }
+    }
+  }
+
+  private enum EntityType {
+    MENTION,
+    URL,
+    HASHTAG,
+    SYMBOL,
+    MEDIA
+  }
+
+  private List<Struct> readEntityArray(EntityType type) {
+    List<Struct> result = new ArrayList<>();
+    beginArray();
+    while (nextElement()) {
+      switch (type) {
+        case MENTION:
+          result.add(readMention());
+          break;
+        case URL:
+          result.add(readUrl());
+          break;
+        case HASHTAG:
+          result.add(readHashtag(StatusConverter.SCHEMA_HASHTAG_ENTITY));
+          break;
+        case SYMBOL:
+          result.add(readHashtag(StatusConverter.SCHEMA_SYMBOL_ENTITY));
+          break;
+        default:
+          result.add(readMedia());
+          break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the indices array into the Start and End fields.
+   */
+  private void readIndices(Struct struct) {
+    if (readNull()) {
+      return;
+    }
+    beginArray();
+    int index = 0;
+    while (nextElement()) {
+      if (0 == index) {
+        struct.put("Start", readInt());
+      } else if (1 == index) {
+        struct.put("End", readInt());
+      } else {
+        skipValue();
+      }
+      index++;
+    }
+  }
+
+  private Struct readMention() {
+    Struct struct = new Struct(StatusConverter.SCHEMA_USER_MENTION_ENTITY)
+        .put(GeneratedConverters.USER_MENTION_ENTITY_ID, -1L);
+    beginObject();
+    while (nextKey()) {
+      if (key("indices")) {
+        readIndices(struct);
+      } else if (key("name")) {
+        struct.put(GeneratedConverters.USER_MENTION_ENTITY_NAME, readString());
+      } else if (key("screen_name")) {
+        String screenName = readString();
+        struct.put(GeneratedConverters.USER_MENTION_ENTITY_SCREEN_NAME, screenName);
+        struct.put(GeneratedConverters.USER_MENTION_ENTITY_TEXT, screenName);
+      } else if (key("id")) {
+        struct.put(GeneratedConverters.USER_MENTION_ENTITY_ID, readLong());
+      } else {
+        skipValue();
+      }
+    }
+    return struct;
+  }
+
+  private Struct readUrl() {
+    Struct struct = new Struct(StatusConverter.SCHEMA_URL_ENTITY);
+    String url = null;
+    String expandedUrl = null;
+    String displayUrl = null;
+    beginObject();
+    while (nextKey()) {
+      if (key("indices")) {
+        readIndices(struct);
+      } else if (key("url")) {
+        url = readString();
+      } else if (key("expanded_url")) {
+        expandedUrl = readString();
+      } else if (key("display_url")) {
+        displayUrl = readString();
+      } else {
+        skipValue();
+      }
+    }
+    struct.put(GeneratedConverters.URL_ENTITY_URL, url);
+    struct.put(GeneratedConverters.URL_ENTITY_TEXT, url);
+    struct.put(GeneratedConverters.URL_ENTITY_EXPANDED_URL, null != expandedUrl ? expandedUrl : url);
+    struct.put(GeneratedConverters.URL_ENTITY_DISPLAY_URL, null != displayUrl ? displayUrl : url);
+    return struct;
+  }
+
+  private Struct readHashtag(Schema schema) {
+    Struct struct = new Struct(schema);
+    beginObject();
+    while (nextKey()) {
+      if (key("indices")) {
+        readIndices(struct);
+      } else if (key("text")) {
+        struct.put("Text", readString());
+      } else {
+        skipValue();
+      }
+    }
+    return struct;
+  }
+
+  private Struct readMedia() {
+    Struct struct = new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY)
+        .put(GeneratedConverters.MEDIA_ENTITY_ID, -1L)
+        .put(GeneratedConverters.MEDIA_ENTITY_VIDEO_ASPECT_RATIO_WIDTH, 0)
+        .put(GeneratedConverters.MEDIA_ENTITY_VIDEO_ASPECT_RATIO_HEIGHT, 0)
+        .put(GeneratedConverters.MEDIA_ENTITY_VIDEO_DURATION_MILLIS, 0L)
+        .put(GeneratedConverters.MEDIA_ENTITY_VIDEO_VARIANTS, Collections.emptyList())
+        .put(GeneratedConverters.MEDIA_ENTITY_SIZES, Collections.emptyMap());
+    beginObject();
+    while (nextKey()) {
+      if (readNull()) {
+        continue;
+      }
+      if (key("indices")) {
+        readIndices(struct);
+      } else if (key("id")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_ID, readLong());
+      } else if (key("url")) {
+        String url = readString();
+        struct.put(GeneratedConverters.MEDIA_ENTITY_URL, url);
+        struct.put(GeneratedConverters.MEDIA_ENTITY_TEXT, url);
+      } else if (key("expanded_url")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_EXPANDED_URL, readString());
+      } else if (key("media_url")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_MEDIA_URL, readString());
+      } else if (key("media_url_https")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_MEDIA_URL_HTTPS, readString());
+      } else if (key("display_url")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_DISPLAY_URL, readString());
+      } else if (key("type")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_TYPE, readString());
+      } else if (key("ext_alt_text")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_EXT_ALT_TEXT, readString());
+      } else if (key("sizes")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_SIZES, readSizes());
+      } else if (key("video_info")) {
+        readVideoInfo(struct);
+      } else {
+        skipValue();
+      }
+    }
+    return struct;
+  }
+
+  private Map<Integer, Struct> readSizes() {
+    Map<Integer, Struct> result = new LinkedHashMap<>(8);
+    beginObject();
+    while (nextKey()) {
+      final int size;
+      if (key("thumb")) {
+        size = SIZE_THUMB;
+      } else if (key("small")) {
+        size = SIZE_SMALL;
+      } else if (key("medium")) {
+        size = SIZE_MEDIUM;
+      } else if (key("large")) {
+        size = SIZE_LARGE;
+      } else {
+        skipValue();
+        continue;
+      }
+      if (readNull()) {
+        continue;
+      }
+      Struct struct = new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY_SIZE)
+          .put(GeneratedConverters.MEDIA_ENTITY_SIZE_RESIZE, RESIZE_CROP);
+      beginObject();
+      while (nextKey()) {
+        if (key("w")) {
+          struct.put(GeneratedConverters.MEDIA_ENTITY_SIZE_WIDTH, readInt());
+        } else if (key("h")) {
+          struct.put(GeneratedConverters.MEDIA_ENTITY_SIZE_HEIGHT, readInt());
+        } else if (key("resize")) {
+          struct.put(GeneratedConverters.MEDIA_ENTITY_SIZE_RESIZE, "fit".equals(readString()) ? RESIZE_FIT : RESIZE_CROP);
+        } else {
+          skipValue();
+        }
+      }
+      result.put(size, struct);
+    }
+    return result;
+  }
+
+  private void readVideoInfo(Struct struct) {
+    beginObject();
+    while (nextKey()) {
+      if (readNull()) {
+        continue;
+      }
+      if (key("aspect_ratio")) {
+        beginArray();
+        int index = 0;
+        while (nextElement()) {
+          if (0 == index) {
+            struct.put(GeneratedConverters.MEDIA_ENTITY_VIDEO_ASPECT_RATIO_WIDTH, readInt());
+          } else if (1 == index) {
+            struct.put(GeneratedConverters.MEDIA_ENTITY_VIDEO_ASPECT_RATIO_HEIGHT, readInt());
+          } else {
+            skipValue();
+          }
+          index++;
+        }
+      } else if (key("duration_millis")) {
+        struct.put(GeneratedConverters.MEDIA_ENTITY_VIDEO_DURATION_MILLIS, readLong());
+      } else if (key("variants")) {
+        List<Struct> variants = new ArrayList<>();
+        beginArray();
+        while (nextElement()) {
+          Struct variant = new Struct(StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT)
+              .put(GeneratedConverters.MEDIA_ENTITY_VARIANT_BITRATE, 0);
+          beginObject();
+          while (nextKey()) {
+            if (key("bitrate")) {
+              variant.put(GeneratedConverters.MEDIA_ENTITY_VARIANT_BITRATE, readInt());
+            } else if (key("content_type")) {
+              variant.put(GeneratedConverters.MEDIA_ENTITY_VARIANT_CONTENT_TYPE, readString());
+            } else if (key("url")) {
+              variant.put(GeneratedConverters.MEDIA_ENTITY_VARIANT_URL, readString());
+            } else {
+              skipValue();
+            }
+          }
+          variants.add(variant);
+        }
+        struct.put(GeneratedConverters.MEDIA_ENTITY_VIDEO_VARIANTS, variants);
+      } else {
+        skipValue();
+      }
+    }
+  }
+
+  /**
+   * Unescapes the HTML entities the api writes into text fields.
+   */
+  static String unescape(String text) {
+    return unescape(text, null);
+  }
+
+  /**
+   * Port of twitter4j's HTMLEntity.unescapeAndSlideEntityIncdices. The entity indexes point into the escaped text,
+   * so every entity after an escape moves to the left by the length of the escape.
+   *
+   * @param text     text to unescape.
+   * @param entities entities whose Start and End are moved, or null.
+   * @return the unescaped text.
+   */
+  static String unescape(String text, Entities entities) {
+    if (null == text || text.indexOf('&') < 0) {
+      return text;
+    }
+    List<Struct> indexes = new ArrayList<>();
+    if (null != entities) {
+      add(indexes, entities.mentions);
+      add(indexes, entities.urls);
+      add(indexes, entities.hashtags);
+      add(indexes, entities.media);
+      indexes.sort(BY_START);
+    }
+    StringBuilder builder = new StringBuilder(text.length());
+    boolean handlingStart = true;
+    int entityIndex = 0;
+    for (int i = 0; i < text.length(); i++) {
+      int delta = 0;
+      final char c = text.charAt(i);
+      if (c == '&') {
+        final int semicolon = text.indexOf(';', i);
+        final String replacement = -1 == semicolon ? null : entity(text, i, semicolon + 1);
+        if (null != replacement) {
+          builder.append(replacement);
+          delta = i - semicolon;
+          i = semicolon;
+        } else {
+          builder.append(c);
+        }
+      } else {
+        builder.append(c);
+      }
+      if (entityIndex < indexes.size()) {
+        Struct index = indexes.get(entityIndex);
+        if (handlingStart) {
+          if (index.getInt32("Start") == delta + i) {
+            index.put("Start", builder.length() - 1);
+            handlingStart = false;
+          }
+        } else if (index.getInt32("End") == delta + i) {
+          index.put("End", builder.length() - 1);
+          entityIndex++;
+          handlingStart = true;
+        }
+      }
+    }
+    if (entityIndex < indexes.size()) {
+      Struct index = indexes.get(entityIndex);
+      if (index.getInt32("End") == text.length()) {
+        index.put("End", builder.length());
+      }
+    }
+    return builder.toString();
+  }
+
+  private static void add(List<Struct> indexes, List<Struct> items) {
+    if (null != items) {
+      indexes.addAll(items);
+    }
+  }
+
+  private static String entity(String text, int start, int end) {
+    switch (end - start) {
+      case 4:
+        if (text.startsWith("&lt;", start)) {
+          return "<";
+        } else if (text.startsWith("&gt;", start)) {
+          return ">";
+        }
+        return null;
+      case 5:
+        return text.startsWith("&amp;", start) ? "&" : null;
+      case 6:
+        return text.startsWith("&quot;", start) ? "\"" : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Statuses arrive in created_at order, so most of them share the created_at of the status before them.
+   */
+  private Date readStatusCreatedAt() {
+    if (readNull()) {
+      return null;
+    }
+    expect('"');
+    final int start = this.position;
+    skipStringBody();
+    final int length = this.position - 1 - start;
+    if (length == this.lastCreatedAtLength && regionEquals(start, length)) {
+      return new Date(this.lastCreatedAtMs);
+    }
+    final long result = parseDate(new String(this.buffer, start, length, StandardCharsets.UTF_8));
+    if (length <= this.lastCreatedAt.length) {
+      System.arraycopy(this.buffer, start, this.lastCreatedAt, 0, length);
+      this.lastCreatedAtLength = length;
+      this.lastCreatedAtMs = result;
+    }
+    return new Date(result);
+  }
+
+  private boolean regionEquals(int start, int length) {
+    for (int i = 0; i < length; i++) {
+      if (this.buffer[start + i] != this.lastCreatedAt[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Date readDate() {
+    String value = readString();
+    return null == value ? null : new Date(parseDate(value));
+  }
+
+  private static long parseDate(String value) {
+    return ZonedDateTime.parse(value, RawStatusParser.CREATED_AT_FORMAT).toInstant().toEpochMilli();
+  }
+
+  private List<Long> readLongs() {
+    if (readNull()) {
+      return Collections.emptyList();
+    }
+    List<Long> result = new ArrayList<>();
+    beginArray();
+    while (nextElement()) {
+      result.add(readLong());
+    }
+    return result;
+  }
+
+  private List<String> readStrings() {
+    if (readNull()) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>();
+    beginArray();
+    while (nextElement()) {
+      result.add(readString());
+    }
+    return result;
+  }
+
+  private boolean key(String name) {
+    if (name.length() != this.keyLength) {
+      return false;
+    }
+    for (int i = 0; i < this.keyLength; i++) {
+      if (this.buffer[this.keyStart + i] != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void beginObject() {
+    skipWhitespace();
+    expect('{');
+  }
+
+  private void beginArray() {
+    skipWhitespace();
+    expect('[');
+  }
+
+  /**
+   * Moves to the next key of the current object and past its colon.
+   *
+   * @return false at the end of the object.
+   */
+  private boolean nextKey() {
+    skipWhitespace();
+    byte c = peek();
+    if (c == ',') {
+      this.position++;
+      skipWhitespace();
+      c = peek();
+    }
+    if (c == '}') {
+      this.position++;
+      return false;
+    }
+    expect('"');
+    this.keyStart = this.position;
+    skipStringBody();
+    this.keyLength = this.position - 1 - this.keyStart;
+    skipWhitespace();
+    expect(':');
+    skipWhitespace();
+    return true;
+  }
+
+  /**
+   * Moves to the next element of the current array.
+   *
+   * @return false at the end of the array.
+   */
+  private boolean nextElement() {
+    skipWhitespace();
+    byte c = peek();
+    if (c == ',') {
+      this.position++;
+      skipWhitespace();
+      c = peek();
+    }
+    if (c == ']') {
+      this.position++;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Consumes a null literal.
+   *
+   * @return true if the value was null.
+   */
+  private boolean readNull() {
+    skipWhitespace();
+    if (peek() == 'n') {
+      skipLiteral();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Same as twitter4j's ParseUtil.getLong, which is -1 for null or anything that is not a whole number.
+   */
+  private long readLong() {
+    skipWhitespace();
+    final byte c = peek();
+    if (c == '"') {
+      String value = readString();
+      if (value.endsWith("+")) {
+        Long result = Longs.tryParse(value.substring(0, value.length() - 1));
+        return null == result ? -1L : result + 1;
+      }
+      Long result = Longs.tryParse(value);
+      return null == result ? -1L : result;
+    } else if (c != '-' && (c < '0' || c > '9')) {
+      skipValue();
+      return -1L;
+    }
+    final boolean negative = c == '-';
+    if (negative) {
+      this.position++;
+    }
+    long result = 0L;
+    int digits = 0;
+    while (this.position < this.end) {
+      final byte b = this.buffer[this.position];
+      if (b < '0' || b > '9') {
+        break;
+      }
+      result = result * 10 + (b - '0');
+      digits++;
+      this.position++;
+    }
+    if (this.position < this.end) {
+      final byte b = this.buffer[this.position];
+      if (b == '.' || b == 'e' || b == 'E') {
+        skipLiteral();
+        return -1L;
+      }
+    }
+    if (0 == digits) {
+      return -1L;
+    } else if (digits > 18) {
+      // Could overflow, let the JDK check it.
+      final int start = negative ? this.position - digits - 1 : this.position - digits;
+      Long parsed = Longs.tryParse(new String(this.buffer, start, this.position - start, StandardCharsets.US_ASCII));
+      return null == parsed ? -1L : parsed;
+    }
+    return negative ? -result : result;
+  }
+
+  /**
+   * Same as twitter4j's ParseUtil.getInt, which is -1 for null or anything that does not fit an int.
+   */
+  private int readInt() {
+    final long result = readLong();
+    return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? -1 : (int) result;
+  }
+
+  private boolean readBoolean() {
+    skipWhitespace();
+    final byte c = peek();
+    if (c == 't') {
+      skipLiteral();
+      return true;
+    } else if (c == '"') {
+      return "true".equalsIgnoreCase(readString());
+    }
+    skipValue();
+    return false;
+  }
+
+  private double readDouble() {
+    skipWhitespace();
+    final int start = this.position;
+    skipLiteral();
+    return Double.parseDouble(new String(this.buffer, start, this.position - start, StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Reads a string value. Strings without escapes are decoded straight from the buffer.
+   *
+   * @return the string, or null if the value was null.
+   */
+  private String readString() {
+    skipWhitespace();
+    final byte c = peek();
+    if (c == 'n') {
+      skipLiteral();
+      return null;
+    } else if (c != '"') {
+      // twitter4j returns the text of a number or boolean when a string is asked for.
+      final int start = this.position;
+      skipValue();
+      return new String(this.buffer, start, this.position - start, StandardCharsets.UTF_8);
+    }
+    this.position++;
+    final int start = this.position;
+    boolean escaped = false;
+    while (true) {
+      final byte b = this.buffer[this.position++];
+      if (b == '"') {
+        break;
+      } else if (b == '\\') {
+        escaped = true;
+        this.position++;
+      }
+    }
+    final int length = this.position - 1 - start;
+    return escaped ? decode(start, length) : new String(this.buffer, start, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decodes a string with escapes. Every byte produces at most one char, so the length in bytes is enough room.
+   */
+  private String decode(int start, int length) {
+    if (this.chars.length < length) {
+      this.chars = new char[Math.max(length, this.chars.length * 2)];
+    }
+    final char[] chars = this.chars;
+    final byte[] buffer = this.buffer;
+    final int end = start + length;
+    int count = 0;
+    int i = start;
+    while (i < end) {
+      final int b = buffer[i];
+      if (b == '\\') {
+        final byte escape = buffer[i + 1];
+        i += 2;
+        switch (escape) {
+          case 'b':
+            chars[count++] = '\b';
+            break;
+          case 'f':
+            chars[count++] = '\f';
+            break;
+          case 'n':
+            chars[count++] = '\n';
+            break;
+          case 'r':
+            chars[count++] = '\r';
+            break;
+          case 't':
+            chars[count++] = '\t';
+            break;
+          case 'u':
+            chars[count++] = (char) Integer.parseInt(
+                new String(buffer, i, 4, StandardCharsets.US_ASCII), 16
+            );
+            i += 4;
+            break;
+          default:
+            chars[count++] = (char) escape;
+            break;
+        }
+      } else if (b >= 0) {
+        chars[count++] = (char) b;
+        i++;
+      } else if ((b & 0xE0) == 0xC0 && i + 1 < end) {
+        chars[count++] = (char) (((b & 0x1F) << 6) | (buffer[i + 1] & 0x3F));
+        i += 2;
+      } else if ((b & 0xF0) == 0xE0 && i + 2 < end) {
+        chars[count++] = (char) (((b & 0x0F) << 12) | ((buffer[i + 1] & 0x3F) << 6) | (buffer[i + 2] & 0x3F));
+        i += 3;
+      } else if ((b & 0xF8) == 0xF0 && i + 3 < end) {
+        final int codePoint = ((b & 0x07) << 18) | ((buffer[i + 1] & 0x3F) << 12) |
+            ((buffer[i + 2] & 0x3F) << 6) | (buffer[i + 3] & 0x3F);
+        chars[count++] = Character.highSurrogate(codePoint);
+        chars[count++] = Character.lowSurrogate(codePoint);
+        i += 4;
+      } else {
+        chars[count++] = '�';
+        i++;
+      }
+    }
+    return new String(chars, 0, count);
+  }
+
+  private void skipValue() {
+    skipWhitespace();
+    final byte c = peek();
+    if (c == '{' || c == '[') {
+      int depth = 0;
+      while (this.position < this.end) {
+        final byte b = this.buffer[this.position++];
+        if (b == '"') {
+          skipStringBody();
+        } else if (b == '{' || b == '[') {
+          depth++;
+        } else if (b == '}' || b == ']') {
+          if (--depth == 0) {
+            return;
+          }
+        }
+      }
+      throw new IllegalStateException("Unterminated value.");
+    } else if (c == '"') {
+      this.position++;
+      skipStringBody();
+    } else {
+      skipLiteral();
+    }
+  }
+
+  /**
+   * Skips a number or a literal such as true, false or null.
+   */
+  private void skipLiteral() {
+    while (this.position < this.end) {
+      final byte b = this.buffer[this.position];
+      if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+        return;
+      }
+      this.position++;
+    }
+  }
+
+  /**
+   * Skips to just past the closing quote of a string whose opening quote was already consumed.
+   */
+  private void skipStringBody() {
+    while (this.position < this.end) {
+      final byte b = this.buffer[this.position++];
+      if (b == '"') {
+        return;
+      } else if (b == '\\') {
+        this.position++;
+      }
+    }
+    throw new IllegalStateException("Unterminated string.");
+  }
+
+  private void skipWhitespace() {
+    while (this.position < this.end) {
+      final byte b = this.buffer[this.position];
+      if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+        return;
+      }
+      this.position++;
+    }
+  }
+
+  private byte peek() {
+    if (this.position >= this.end) {
+      throw new IllegalStateException("Unexpected end of message.");
+    }
+    return this.buffer[this.position];
+  }
+
+  private void expect(char expected) {
+    final byte c = peek();
+    if (c != expected) {
+      throw new IllegalStateException(
+          String.format("Expected '%s' but found '%s' at %s.", expected, (char) c, this.position)
+      );
+    }
+    this.position++;
+  }
+}
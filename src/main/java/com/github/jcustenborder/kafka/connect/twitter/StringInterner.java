@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns low cardinality strings such as language and country codes. twitter4j allocates a new string for every
+ * occurrence, so records waiting in the queue each retain their own copy. Interning shares a single instance. The table
+ * is bounded and is cleared when it fills up, so a field with more distinct values than expected cannot grow it
+ * without limit.
+ */
+class StringInterner {
+  private final int maxEntries;
+  private final Map<String, String> strings;
+
+  StringInterner(int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.strings = new HashMap<>(maxEntries * 2);
+  }
+
+  synchronized String intern(String value) {
+    if (null == value) {
+      return null;
+    }
+    String result = this.strings.get(value);
+    if (null != result) {
+      return result;
+    }
+    if (this.strings.size() >= this.maxEntries) {
+      this.strings.clear();
+    }
+    this.strings.put(value, value);
+    return value;
+  }
+}
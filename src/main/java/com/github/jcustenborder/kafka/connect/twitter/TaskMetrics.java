@@ -0,0 +1,318 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.apache.kafka.common.metrics.KafkaMetricsContext;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Meter;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import twitter4j.ConnectionLifeCycleListener;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Metrics for a task, registered with Kafka {@link Metrics} and reported over JMX under
+ * {@code kafka.connect.twitter:type=twitter-source-task-metrics,connector=...,task=...}.
+ *
+ * The listener thread only touches {@link LongAdder}s and a {@link LatencyHistogram}. The poll thread moves the
+ * counters into the rate sensors each time it calls {@link #polled(int, long)}, so the per second rates are computed
+ * off of the listener thread.
+ *
+ * Once per histogram window the 99th percentile of each {@link StageLatencies} stage is logged along with the slowest
+ * stage.
+ */
+class TaskMetrics implements ConnectionLifeCycleListener, Closeable {
+  private static final Logger log = LoggerFactory.getLogger(TaskMetrics.class);
+  static final String JMX_PREFIX = "kafka.connect.twitter";
+  static final String GROUP = "twitter-source-task-metrics";
+  static final Pattern TASK_THREAD_PATTERN = Pattern.compile("^task-thread-(.+)-(\\d+)$");
+  static final long HISTOGRAM_WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  final Metrics metrics;
+  final Map<String, String> tags;
+
+  final LongAdder statuses = new LongAdder();
+  final LongAdder deletes = new LongAdder();
+  final LongAdder conversionErrors = new LongAdder();
+  final LongAdder stallWarnings = new LongAdder();
+  final LongAdder trackLimitations = new LongAdder();
+  final LongAdder connects = new LongAdder();
+  final LongAdder disconnects = new LongAdder();
+  final LongAdder shed = new LongAdder();
+  final LatencyHistogram conversionTime = new LatencyHistogram();
+  final StageLatencies stages = new StageLatencies();
+  volatile int stallPercentFull;
+  volatile int trackLimitationUndelivered;
+  volatile int degradedLevel;
+
+  private final Sensor statusesSensor;
+  private final Sensor deletesSensor;
+  private final Sensor conversionErrorsSensor;
+  private final Sensor pollBatchSizeSensor;
+  private final Sensor pollWaitTimeSensor;
+  private long statusesRecorded;
+  private long deletesRecorded;
+  private long conversionErrorsRecorded;
+  private long lastRotationMs;
+
+  TaskMetrics(Metrics metrics, Map<String, String> tags, RecordQueue queue) {
+    this.metrics = metrics;
+    this.tags = tags;
+    this.lastRotationMs = System.currentTimeMillis();
+
+    this.statusesSensor = meter("statuses", "statuses received from the stream");
+    this.deletesSensor = meter("deletes", "deletion notices received from the stream");
+    this.conversionErrorsSensor = meter("conversion-errors", "messages that could not be converted to a record");
+
+    this.pollBatchSizeSensor = this.metrics.sensor("poll-batch-size");
+    this.pollBatchSizeSensor.add(name("poll-batch-size-avg", "The average number of records returned by poll."), new Avg());
+    this.pollBatchSizeSensor.add(name("poll-batch-size-max", "The maximum number of records returned by poll."), new Max());
+    this.pollWaitTimeSensor = this.metrics.sensor("poll-wait-time");
+    this.pollWaitTimeSensor.add(name("poll-wait-time-avg-ms", "The average time poll waited for records."), new Avg());
+    this.pollWaitTimeSensor.add(name("poll-wait-time-max-ms", "The maximum time poll waited for records."), new Max());
+
+    percentile("conversion-time-p50-ms", 0.50);
+    percentile("conversion-time-p99-ms", 0.99);
+    percentile("conversion-time-p999-ms", 0.999);
+    percentile("conversion-time-max-ms", 1.0);
+    for (StageLatencies.Stage stage : StageLatencies.Stage.values()) {
+      final LatencyHistogram histogram = this.stages.histogram(stage);
+      percentile(stage.metricName + "-latency-p50-ms", stage.description, histogram, 0.50);
+      percentile(stage.metricName + "-latency-p99-ms", stage.description, histogram, 0.99);
+      percentile(stage.metricName + "-latency-max-ms", stage.description, histogram, 1.0);
+    }
+    gauge("in-flight", "The number of polled records waiting for the producer to acknowledge them.", (config, now) -> this.stages.inFlight());
+
+    gauge("queue-size", "The number of records waiting to be polled.", (config, now) -> queue.size());
+    gauge("queue-bytes", "The estimated bytes retained by records waiting to be polled.", (config, now) -> queue.retainedBytes());
+    gauge("poll-batch-target", "The number of records the next poll can return.", (config, now) -> queue.batchTarget());
+    gauge("stall-warnings-total", "The number of stall warnings received.", (config, now) -> this.stallWarnings.sum());
+    gauge("stall-percent-full", "The percentFull of the last stall warning.", (config, now) -> this.stallPercentFull);
+    gauge("track-limitations-total", "The number of track limitation notices received.", (config, now) -> this.trackLimitations.sum());
+    gauge(
+        "track-limitation-undelivered",
+        "The number of undelivered statuses in the last track limitation notice.",
+        (config, now) -> this.trackLimitationUndelivered
+    );
+    gauge("connects-total", "The number of times the stream connected.", (config, now) -> this.connects.sum());
+    gauge("reconnects-total", "The number of times the stream reconnected.", (config, now) -> Math.max(0L, this.connects.sum() - 1L));
+    gauge("disconnects-total", "The number of times the stream disconnected.", (config, now) -> this.disconnects.sum());
+    gauge("degraded-level", "0 for normal processing, 1 while reduced and 2 while shedding.", (config, now) -> this.degradedLevel);
+    gauge("shed-total", "The number of statuses dropped while shedding.", (config, now) -> this.shed.sum());
+  }
+
+  /**
+   * Registers the hit and miss counters of the dedup window.
+   *
+   * @param deduplicator dedup window of the task.
+   */
+  void deduplicator(StatusIdDeduplicator deduplicator) {
+    gauge("dedup-hits-total", "The number of statuses dropped as duplicates.", (config, now) -> deduplicator.hits.get());
+    gauge("dedup-misses-total", "The number of statuses that were not duplicates.", (config, now) -> deduplicator.misses.get());
+  }
+
+  /**
+   * Registers the hit and miss counters of the User and Place cache.
+   *
+   * @param cache conversion cache of the task.
+   */
+  void cache(ConversionCache cache) {
+    gauge("cache-user-hits-total", "The number of User structs served from the cache.", (config, now) -> cache.userHits.get());
+    gauge("cache-user-misses-total", "The number of User structs that had to be converted.", (config, now) -> cache.userMisses.get());
+    gauge("cache-place-hits-total", "The number of Place structs served from the cache.", (config, now) -> cache.placeHits.get());
+    gauge("cache-place-misses-total", "The number of Place structs that had to be converted.", (config, now) -> cache.placeMisses.get());
+  }
+
+  static TaskMetrics of(TwitterSourceConnectorConfig config, RecordQueue queue) {
+    Map<String, String> tags = tags(config.originalsStrings().get("name"), Thread.currentThread().getName());
+    List<MetricsReporter> reporters = Collections.singletonList(new JmxReporter());
+    Metrics metrics = new Metrics(
+        new MetricConfig(),
+        reporters,
+        Time.SYSTEM,
+        new KafkaMetricsContext(JMX_PREFIX)
+    );
+    return new TaskMetrics(metrics, tags, queue);
+  }
+
+  /**
+   * Connect starts each task on a thread named after the connector and task number. Fall back to a counter when that is
+   * not the case, such as in tests.
+   */
+  static Map<String, String> tags(String connectorName, String threadName) {
+    Matcher matcher = TASK_THREAD_PATTERN.matcher(threadName);
+    if (matcher.matches()) {
+      return ImmutableMap.of("connector", matcher.group(1), "task", matcher.group(2));
+    }
+    return ImmutableMap.of(
+        "connector", null == connectorName ? "twitter" : connectorName,
+        "task", Integer.toString(INSTANCES.getAndIncrement())
+    );
+  }
+
+  private MetricName name(String name, String description) {
+    return this.metrics.metricName(name, GROUP, description, this.tags);
+  }
+
+  private Sensor meter(String name, String description) {
+    Sensor sensor = this.metrics.sensor(name);
+    sensor.add(new Meter(
+        name(name + "-rate", "The number of " + description + " per second."),
+        name(name + "-total", "The total number of " + description + ".")
+    ));
+    return sensor;
+  }
+
+  private void gauge(String name, String description, Gauge<?> gauge) {
+    this.metrics.addMetric(name(name, description), gauge);
+  }
+
+  private void percentile(String name, double quantile) {
+    percentile(name, "time taken to convert a status", this.conversionTime, quantile);
+  }
+
+  private void percentile(String name, String description, LatencyHistogram histogram, double quantile) {
+    gauge(
+        name,
+        String.format("The %s percentile of the %s.", quantile, description),
+        (config, now) -> histogram.percentile(quantile) / 1000000D
+    );
+  }
+
+  void status() {
+    this.statuses.increment();
+  }
+
+  void delete() {
+    this.deletes.increment();
+  }
+
+  /**
+   * @param startNanos value of {@link System#nanoTime()} before the conversion started.
+   */
+  void converted(long startNanos) {
+    this.conversionTime.record(System.nanoTime() - startNanos);
+  }
+
+  void conversionError() {
+    this.conversionErrors.increment();
+  }
+
+  void stallWarning(int percentFull) {
+    this.stallPercentFull = percentFull;
+    this.stallWarnings.increment();
+  }
+
+  void shed() {
+    this.shed.increment();
+  }
+
+  void trackLimitation(int undelivered) {
+    this.trackLimitationUndelivered = undelivered;
+    this.trackLimitations.increment();
+  }
+
+  /**
+   * Called from the poll thread.
+   *
+   * @param batchSize  number of records returned.
+   * @param waitNanos time spent waiting for the batch.
+   */
+  void polled(int batchSize, long waitNanos) {
+    final long now = System.currentTimeMillis();
+    this.pollBatchSizeSensor.record(batchSize, now);
+    this.pollWaitTimeSensor.record(waitNanos / 1000000D, now);
+    this.statusesRecorded = recordDelta(this.statusesSensor, this.statuses, this.statusesRecorded, now);
+    this.deletesRecorded = recordDelta(this.deletesSensor, this.deletes, this.deletesRecorded, now);
+    this.conversionErrorsRecorded = recordDelta(
+        this.conversionErrorsSensor, this.conversionErrors, this.conversionErrorsRecorded, now
+    );
+    if (now - this.lastRotationMs >= HISTOGRAM_WINDOW_MS) {
+      logStages();
+      this.conversionTime.rotate();
+      this.stages.rotate();
+      this.lastRotationMs = now;
+    }
+  }
+
+  void logStages() {
+    final StageLatencies.Stage slowest = this.stages.slowest();
+    if (null == slowest || !log.isInfoEnabled()) {
+      return;
+    }
+    log.info(
+        "Stage latency p99 twitter = {} ms conversion = {} ms queue = {} ms send = {} ms end-to-end = {} ms. Slowest is {}.",
+        p99Ms(StageLatencies.Stage.TWITTER),
+        p99Ms(StageLatencies.Stage.CONVERSION),
+        p99Ms(StageLatencies.Stage.QUEUE),
+        p99Ms(StageLatencies.Stage.SEND),
+        p99Ms(StageLatencies.Stage.END_TO_END),
+        slowest.metricName
+    );
+  }
+
+  private double p99Ms(StageLatencies.Stage stage) {
+    return this.stages.histogram(stage).percentile(0.99) / 1000000D;
+  }
+
+  private static long recordDelta(Sensor sensor, LongAdder counter, long recorded, long now) {
+    final long total = counter.sum();
+    if (total > recorded) {
+      sensor.record(total - recorded, now);
+    }
+    return total;
+  }
+
+  @Override
+  public void onConnect() {
+    this.connects.increment();
+  }
+
+  @Override
+  public void onDisconnect() {
+    this.disconnects.increment();
+  }
+
+  @Override
+  public void onCleanUp() {
+
+  }
+
+  @Override
+  public void close() {
+    this.metrics.close();
+  }
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.primitives.Longs;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks the topics for a status from the matched keywords, the language and the author. A route is written as
+ * {@code keyword:kafka=twitter-kafka}, {@code lang:ja=twitter-ja} or {@code userId:783214=twitter-dev}. Without fan
+ * out a status goes to the first route it matches in the order they were configured, with fan out it goes to every
+ * topic it matches. Statuses that do not match a route go to {@code kafka.status.topic}.
+ */
+class TopicRouter {
+  enum Type {
+    KEYWORD("keyword"),
+    LANG("lang"),
+    USER_ID("userId");
+
+    final String prefix;
+
+    Type(String prefix) {
+      this.prefix = prefix;
+    }
+  }
+
+  static class Route {
+    final Type type;
+    final String value;
+    final String topic;
+    final int order;
+
+    Route(Type type, String value, String topic, int order) {
+      this.type = type;
+      this.value = value;
+      this.topic = topic;
+      this.order = order;
+    }
+
+    static Route parse(String route, int order) {
+      final int colon = route.indexOf(':');
+      final int equals = route.lastIndexOf('=');
+      if (colon <= 0 || equals <= colon + 1 || equals == route.length() - 1) {
+        throw new IllegalArgumentException(
+            String.format("Route '%s' must be in the format type:value=topic.", route)
+        );
+      }
+      final String prefix = route.substring(0, colon).trim();
+      final String value = route.substring(colon + 1, equals).trim();
+      final String topic = route.substring(equals + 1).trim();
+      for (Type type : Type.values()) {
+        if (type.prefix.equals(prefix)) {
+          if (Type.USER_ID == type && null == Longs.tryParse(value)) {
+            throw new IllegalArgumentException(String.format("Route '%s' has a user id that is not a number.", route));
+          }
+          return new Route(type, value, topic, order);
+        }
+      }
+      throw new IllegalArgumentException(
+          String.format("Route '%s' must start with keyword, lang or userId.", route)
+      );
+    }
+  }
+
+  final String defaultTopic;
+  final boolean fanout;
+  final List<Route> routes;
+  private final String[] defaultTopics;
+  private final Route[][] keywordRoutes;
+  private final Map<String, Route[]> langRoutes = new HashMap<>();
+  private final Map<Long, Route[]> userIdRoutes = new HashMap<>();
+
+  /**
+   * @param keywords     keywords of the task in the order they are matched by {@link KeywordMatcher}.
+   * @param routes       routes in order of precedence.
+   * @param defaultTopic topic for statuses that do not match a route.
+   * @param fanout       write a status to every route it matches.
+   */
+  TopicRouter(String[] keywords, List<Route> routes, String defaultTopic, boolean fanout) {
+    this.defaultTopic = defaultTopic;
+    this.fanout = fanout;
+    this.routes = routes;
+    this.defaultTopics = new String[]{defaultTopic};
+    this.keywordRoutes = new Route[keywords.length][];
+    Map<String, List<Route>> byKeyword = new HashMap<>();
+    Map<String, List<Route>> byLang = new HashMap<>();
+    Map<Long, List<Route>> byUserId = new HashMap<>();
+    for (Route route : routes) {
+      switch (route.type) {
+        case KEYWORD:
+          byKeyword.computeIfAbsent(route.value, k -> new ArrayList<>()).add(route);
+          break;
+        case LANG:
+          byLang.computeIfAbsent(route.value, k -> new ArrayList<>()).add(route);
+          break;
+        case USER_ID:
+          byUserId.computeIfAbsent(Long.parseLong(route.value), k -> new ArrayList<>()).add(route);
+          break;
+      }
+    }
+    for (int i = 0; i < keywords.length; i++) {
+      this.keywordRoutes[i] = byKeyword.getOrDefault(keywords[i], Collections.emptyList()).toArray(new Route[0]);
+    }
+    byLang.forEach((lang, r) -> this.langRoutes.put(lang, r.toArray(new Route[0])));
+    byUserId.forEach((userId, r) -> this.userIdRoutes.put(userId, r.toArray(new Route[0])));
+  }
+
+  static TopicRouter of(TwitterSourceConnectorConfig config, StatusPartitions partitions) {
+    return new TopicRouter(partitions.keywords, parse(config.topicRoutes), config.topic, config.topicRoutesFanout);
+  }
+
+  static List<Route> parse(List<String> routes) {
+    List<Route> result = new ArrayList<>(routes.size());
+    for (int i = 0; i < routes.size(); i++) {
+      result.add(Route.parse(routes.get(i), i));
+    }
+    return result;
+  }
+
+  /**
+   * @param matches indexes of the matched keywords.
+   * @param lang    language of the status. Can be null.
+   * @param userId  id of the author.
+   * @return topics to write the status to. Never empty.
+   */
+  String[] topics(int[] matches, String lang, long userId) {
+    if (this.routes.isEmpty()) {
+      return this.defaultTopics;
+    }
+    if (!this.fanout) {
+      Route first = null;
+      for (int match : matches) {
+        first = first(first, this.keywordRoutes[match]);
+      }
+      first = first(first, null == lang ? null : this.langRoutes.get(lang));
+      first = first(first, this.userIdRoutes.get(userId));
+      return null == first ? this.defaultTopics : new String[]{first.topic};
+    }
+    List<Route> matched = new ArrayList<>();
+    for (int match : matches) {
+      Collections.addAll(matched, this.keywordRoutes[match]);
+    }
+    if (null != lang && this.langRoutes.containsKey(lang)) {
+      Collections.addAll(matched, this.langRoutes.get(lang));
+    }
+    if (this.userIdRoutes.containsKey(userId)) {
+      Collections.addAll(matched, this.userIdRoutes.get(userId));
+    }
+    if (matched.isEmpty()) {
+      return this.defaultTopics;
+    }
+    matched.sort((a, b) -> Integer.compare(a.order, b.order));
+    Set<String> topics = new LinkedHashSet<>();
+    for (Route route : matched) {
+      topics.add(route.topic);
+    }
+    return topics.toArray(new String[0]);
+  }
+
+  /**
+   * @return kafka.status.topic followed by the topic of each route, without duplicates.
+   */
+  String[] allTopics() {
+    Set<String> topics = new LinkedHashSet<>();
+    topics.add(this.defaultTopic);
+    for (Route route : this.routes) {
+      topics.add(route.topic);
+    }
+    return topics.toArray(new String[0]);
+  }
+
+  private static Route first(Route current, Route[] candidates) {
+    if (null == candidates) {
+      return current;
+    }
+    for (Route candidate : candidates) {
+      if (null == current || candidate.order < current.order) {
+        current = candidate;
+      }
+    }
+    return current;
+  }
+
+  static class RoutesValidator implements ConfigDef.Validator {
+    @Override
+    public void ensureValid(String key, Object o) {
+      if (o instanceof List) {
+        try {
+          parse((List<String>) o);
+        } catch (IllegalArgumentException e) {
+          throw new ConfigException(key, o, e.getMessage());
+        }
+      }
+    }
+  }
+}
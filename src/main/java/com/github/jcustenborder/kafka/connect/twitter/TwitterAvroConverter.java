@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.storage.Converter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Converter for the schemas this connector writes. Each schema is compiled once into an {@link AvroCodec} and
+ * values are encoded into a buffer that is reused between messages. Messages are Avro binary in the single object
+ * encoding, so any Avro reader that has the schema can read them. Schemas from anywhere else, and messages that are
+ * not in the single object encoding, go to the fallback converter.
+ *
+ * Reading needs the writer schema up front. The full schemas are always known. The projected schema and the reduced
+ * schema of degraded mode are built from the same field settings the connector uses. A message whose fingerprint is
+ * still unknown fails instead of being handed to the fallback converter, which could not read it either.
+ */
+public class TwitterAvroConverter implements Converter {
+  private static final Logger log = LoggerFactory.getLogger(TwitterAvroConverter.class);
+  static final String SCHEMA_NAME_PREFIX = "com.github.jcustenborder.kafka.connect.twitter.";
+
+  private final Map<Schema, Optional<AvroCodec>> codecs = new IdentityHashMap<>();
+  private final Map<Schema, Optional<AvroCodec>> codecsByValue = new HashMap<>();
+  private final Map<Long, AvroCodec> fingerprints = new HashMap<>();
+  private Converter fallback;
+  private AvroCodec.Output output;
+
+  @Override
+  public void configure(Map<String, ?> settings, boolean isKey) {
+    final TwitterAvroConverterConfig config = new TwitterAvroConverterConfig(settings);
+    this.output = new AvroCodec.Output(config.bufferSize);
+    if (!config.fallbackConverter.isEmpty()) {
+      try {
+        this.fallback = Utils.newInstance(config.fallbackConverter, Converter.class);
+      } catch (ClassNotFoundException e) {
+        throw new DataException(String.format("Fallback converter %s was not found.", config.fallbackConverter), e);
+      }
+      this.fallback.configure(config.originalsWithPrefix(TwitterAvroConverterConfig.FALLBACK_CONVERTER_PREFIX), isKey);
+    }
+    List<Schema> schemas = new ArrayList<>(Arrays.asList(
+        StatusConverter.STATUS_SCHEMA,
+        StatusConverter.STATUS_SCHEMA_KEY,
+        StatusConverter.FLAT_STATUS_SCHEMA,
+        StatusConverter.SCHEMA_STATUS_DELETION_NOTICE,
+        StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY
+    ));
+    schemas.add(new StatusProjection(config.statusFields, config.userFields).statusSchema);
+    schemas.add(new StatusProjection(
+        DegradedMode.intersect(config.degradedStatusFields, config.statusFields),
+        DegradedMode.intersect(config.degradedUserFields, config.userFields)
+    ).statusSchema);
+    for (Schema schema : schemas) {
+      codec(schema);
+    }
+  }
+
+  /**
+   * @return codec for the schema, or null if this converter does not handle it.
+   */
+  AvroCodec codec(Schema schema) {
+    Optional<AvroCodec> result = this.codecs.get(schema);
+    if (null == result) {
+      result = this.codecsByValue.computeIfAbsent(schema, this::compile);
+      this.codecs.put(schema, result);
+    }
+    return result.orElse(null);
+  }
+
+  private Optional<AvroCodec> compile(Schema schema) {
+    if (Schema.Type.STRUCT != schema.type() || null == schema.name() || !schema.name().startsWith(SCHEMA_NAME_PREFIX)) {
+      return Optional.empty();
+    }
+    final AvroCodec codec;
+    try {
+      codec = AvroCodec.of(schema);
+    } catch (DataException e) {
+      log.warn("Schema {} cannot be written as Avro and will go to the fallback converter. {}", schema.name(),
+          e.getMessage());
+      return Optional.empty();
+    }
+    this.fingerprints.putIfAbsent(codec.fingerprint, codec);
+    log.trace("compile() - schema = '{}' fingerprint = {}", schema.name(), codec.fingerprint);
+    return Optional.of(codec);
+  }
+
+  @Override
+  public byte[] fromConnectData(String topic, Schema schema, Object value) {
+    if (null == value) {
+      return null;
+    }
+    final AvroCodec codec = null == schema ? null : codec(schema);
+    if (null == codec) {
+      return fallback().fromConnectData(topic, schema, value);
+    }
+    this.output.reset();
+    codec.write(value, this.output);
+    return this.output.toByteArray();
+  }
+
+  @Override
+  public SchemaAndValue toConnectData(String topic, byte[] value) {
+    if (null == value) {
+      return SchemaAndValue.NULL;
+    }
+    final Long fingerprint = AvroCodec.headerFingerprint(value, value.length);
+    if (null == fingerprint) {
+      return fallback().toConnectData(topic, value);
+    }
+    final AvroCodec codec = this.fingerprints.get(fingerprint);
+    if (null == codec) {
+      throw new DataException(
+          String.format("Message on '%s' was written with an Avro schema this converter does not know, fingerprint " +
+                  "%016x. Set '%s', '%s', '%s' and '%s' to the values the connector uses.",
+              topic,
+              fingerprint,
+              TwitterSourceConnectorConfig.STATUS_FIELDS_CONF,
+              TwitterSourceConnectorConfig.USER_FIELDS_CONF,
+              TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_CONF,
+              TwitterSourceConnectorConfig.DEGRADED_USER_FIELDS_CONF
+          )
+      );
+    }
+    final Object result = codec.read(new AvroCodec.Input(value, AvroCodec.HEADER_LENGTH, value.length));
+    return new SchemaAndValue(codec.schema, result);
+  }
+
+  private Converter fallback() {
+    if (null == this.fallback) {
+      throw new DataException(
+          String.format("No fallback converter is configured. Set '%s' to convert other schemas.",
+              TwitterAvroConverterConfig.FALLBACK_CONVERTER_CONF)
+      );
+    }
+    return this.fallback;
+  }
+}
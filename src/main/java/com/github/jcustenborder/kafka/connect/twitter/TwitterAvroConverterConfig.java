@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.github.jcustenborder.kafka.connect.utils.config.ConfigKeyBuilder;
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigDef.Importance;
+import org.apache.kafka.common.config.ConfigDef.Type;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TwitterAvroConverterConfig extends AbstractConfig {
+  public static final String FALLBACK_CONVERTER_CONF = "fallback.converter";
+  public static final String FALLBACK_CONVERTER_PREFIX = "fallback.";
+  static final String FALLBACK_CONVERTER_DOC = "Converter used for schemas that are not written by this " +
+      "connector and for messages that were not written by this converter. Settings prefixed with `" +
+      FALLBACK_CONVERTER_PREFIX + "` are passed to it. Leave empty to fail on those instead.";
+  public static final String BUFFER_SIZE_CONF = "buffer.size.bytes";
+  static final String BUFFER_SIZE_DOC = "Initial size of the buffer a message is encoded into. The buffer is reused " +
+      "between messages and grows to fit the largest one.";
+
+  static final String FIELDS_DOC = " Set to the same value as the connector so messages written with the projected " +
+      "schema can be read back.";
+
+  public final String fallbackConverter;
+  public final int bufferSize;
+  public final List<String> statusFields;
+  public final List<String> userFields;
+  public final List<String> degradedStatusFields;
+  public final List<String> degradedUserFields;
+
+  public TwitterAvroConverterConfig(Map<String, ?> originals) {
+    super(config(), originals);
+    this.fallbackConverter = getString(FALLBACK_CONVERTER_CONF);
+    this.bufferSize = getInt(BUFFER_SIZE_CONF);
+    this.statusFields = getList(TwitterSourceConnectorConfig.STATUS_FIELDS_CONF);
+    this.userFields = getList(TwitterSourceConnectorConfig.USER_FIELDS_CONF);
+    this.degradedStatusFields = getList(TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_CONF);
+    this.degradedUserFields = getList(TwitterSourceConnectorConfig.DEGRADED_USER_FIELDS_CONF);
+  }
+
+  public static ConfigDef config() {
+    return new ConfigDef()
+        .define(
+            ConfigKeyBuilder.of(FALLBACK_CONVERTER_CONF, Type.STRING)
+                .importance(Importance.MEDIUM)
+                .documentation(FALLBACK_CONVERTER_DOC)
+                .defaultValue("org.apache.kafka.connect.json.JsonConverter")
+                .build()
+        ).define(
+            ConfigKeyBuilder.of(BUFFER_SIZE_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(BUFFER_SIZE_DOC)
+                .defaultValue(8192)
+                .validator(ConfigDef.Range.atLeast(64))
+                .build()
+        ).define(
+            ConfigKeyBuilder.of(TwitterSourceConnectorConfig.STATUS_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(TwitterSourceConnectorConfig.STATUS_FIELDS_DOC + FIELDS_DOC)
+                .defaultValue(Collections.emptyList())
+                .validator(new TwitterSourceConnectorConfig.FieldNameValidator(StatusConverter.STATUS_SCHEMA))
+                .build()
+        ).define(
+            ConfigKeyBuilder.of(TwitterSourceConnectorConfig.USER_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(TwitterSourceConnectorConfig.USER_FIELDS_DOC + FIELDS_DOC)
+                .defaultValue(Collections.emptyList())
+                .validator(new TwitterSourceConnectorConfig.FieldNameValidator(StatusConverter.USER_SCHEMA))
+                .build()
+        ).define(
+            ConfigKeyBuilder.of(TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_DOC + FIELDS_DOC)
+                .defaultValue(TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_DEFAULT)
+                .validator(new TwitterSourceConnectorConfig.FieldNameValidator(StatusConverter.STATUS_SCHEMA))
+                .build()
+        ).define(
+            ConfigKeyBuilder.of(TwitterSourceConnectorConfig.DEGRADED_USER_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(TwitterSourceConnectorConfig.DEGRADED_USER_FIELDS_DOC + FIELDS_DOC)
+                .defaultValue(TwitterSourceConnectorConfig.DEGRADED_USER_FIELDS_DEFAULT)
+                .validator(new TwitterSourceConnectorConfig.FieldNameValidator(StatusConverter.USER_SCHEMA))
+                .build()
+        );
+  }
+}
@@ -20,19 +20,23 @@ import com.github.jcustenborder.kafka.connect.utils.config.Description;
 import com.github.jcustenborder.kafka.connect.utils.config.Title;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.connector.Task;
 import org.apache.kafka.connect.source.SourceConnector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Title("Twitter")
 @Description("This Twitter Source connector is used to pull data from Twitter in realtime.")
@@ -40,6 +44,10 @@ public class TwitterSourceConnector extends SourceConnector {
   private static Logger log = LoggerFactory.getLogger(TwitterSourceConnector.class);
   Map<String, String> settings;
   private TwitterSourceConnectorConfig config;
+  List<Credentials> credentials;
+  KeywordRebalancer rebalancer;
+  ScheduledExecutorService rebalanceExecutor;
+  volatile List<List<String>> assignment;
 
   @Override
   public String version() {
@@ -50,6 +58,86 @@ public class TwitterSourceConnector extends SourceConnector {
   public void start(Map<String, String> map) {
     this.config = new TwitterSourceConnectorConfig(map);
     this.settings = map;
+    if (this.config.filterKeywords.isEmpty() && this.config.filterUserIds.isEmpty() &&
+        this.config.filterLocations.isEmpty()) {
+      throw new ConfigException(
+          TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF,
+          "",
+          "At least one of filter.keywords, filter.userIds or filter.locations has to be set."
+      );
+    }
+    if (this.config.compactionEnabled && !this.config.processDeletes) {
+      throw new ConfigException(
+          TwitterSourceConnectorConfig.COMPACTION_ENABLED_CONF,
+          true,
+          "compaction.enabled needs process.deletes to write tombstones."
+      );
+    }
+    if (TwitterSourceConnectorConfig.OutputFormat.FLAT == this.config.outputFormat) {
+      // FLAT has a fixed schema, so degraded mode can only shed. A reduced field list would silently do nothing.
+      for (String key : Arrays.asList(
+          TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_CONF,
+          TwitterSourceConnectorConfig.DEGRADED_USER_FIELDS_CONF)) {
+        if (map.containsKey(key)) {
+          throw new ConfigException(key, map.get(key), "Reduced fields do not apply to output.format=FLAT.");
+        }
+      }
+    }
+    if (TwitterSourceConnectorConfig.StreamClient.BUILTIN == this.config.streamClient &&
+        null != this.config.configuration().getHttpClientConfiguration().getHttpProxyHost()) {
+      throw new ConfigException(
+          TwitterSourceConnectorConfig.STREAM_CLIENT_CONF,
+          TwitterSourceConnectorConfig.StreamClient.BUILTIN.name(),
+          "The BUILTIN stream client does not support twitter.http.proxyHost. Use TWITTER4J behind a proxy."
+      );
+    }
+    this.credentials = Credentials.pool(this.config);
+    if (!this.credentials.isEmpty()) {
+      log.info("Loaded {} set(s) of credentials.", this.credentials.size());
+      final int required = FilterShards.of(this.config).required(this.config.filterKeywords.size());
+      if (this.credentials.size() < required) {
+        throw new ConfigException(
+            TwitterSourceConnectorConfig.CREDENTIALS_POOL_CONF,
+            this.credentials.size() + " set(s)",
+            String.format(
+                "%s keywords need at least %s connections at filter.max.keywords.per.connection=%s.",
+                this.config.filterKeywords.size(), required, this.config.filterMaxKeywords
+            )
+        );
+      }
+    }
+    if (this.config.rebalanceEnabled) {
+      final String name = KeywordVolumes.connectorName(this.config);
+      this.rebalancer = new KeywordRebalancer(
+          () -> KeywordVolumes.counts(name),
+          System::currentTimeMillis,
+          this.config.rebalanceImbalanceThreshold,
+          this.config.rebalanceMinIntervalMs
+      );
+      this.rebalanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "twitter-rebalance");
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.rebalanceExecutor.scheduleWithFixedDelay(
+          this::rebalance,
+          this.config.rebalanceIntervalMs,
+          this.config.rebalanceIntervalMs,
+          TimeUnit.MILLISECONDS
+      );
+    }
+  }
+
+  void rebalance() {
+    try {
+      List<List<String>> next = this.rebalancer.check(this.assignment);
+      if (null != next) {
+        this.assignment = next;
+        this.context.requestTaskReconfiguration();
+      }
+    } catch (Exception ex) {
+      log.error("Exception thrown while checking the keyword balance.", ex);
+    }
   }
 
   @Override
@@ -60,31 +148,109 @@ public class TwitterSourceConnector extends SourceConnector {
   @Override
   public List<Map<String, String>> taskConfigs(int maxTasks) {
     Preconditions.checkState(maxTasks > 0, "MaxTasks must be greater than 0");
-    final int tasks = Math.min(maxTasks, this.config.filterKeywords.size());
-
+    final int terms = this.config.filterKeywords.size() + this.config.filterUserIds.size() +
+        this.config.filterLocations.size();
+    int tasks = Math.min(maxTasks, terms);
+    if (!this.credentials.isEmpty() && tasks > this.credentials.size()) {
+      log.info("Limiting to {} task(s), one for each set of credentials.", this.credentials.size());
+      tasks = this.credentials.size();
+    }
+    final FilterShards filterShards = FilterShards.of(this.config);
+    final int keywordConnections = filterShards.required(this.config.filterKeywords.size());
+    if (tasks < keywordConnections) {
+      throw new ConfigException(
+          "tasks.max",
+          maxTasks,
+          String.format(
+              "%s keywords need at least %s connections at filter.max.keywords.per.connection=%s.",
+              this.config.filterKeywords.size(), keywordConnections, this.config.filterMaxKeywords
+          )
+      );
+    }
+    final int required = filterShards.required(
+        this.config.filterKeywords.size(),
+        this.config.filterUserIds.size(),
+        this.config.filterLocations.size()
+    );
+    if (tasks < required) {
+      log.warn(
+          "{} keywords, {} user ids and {} locations need at least {} connections but only {} task(s) can be " +
+              "started. Add credentials or raise tasks.max.",
+          this.config.filterKeywords.size(), this.config.filterUserIds.size(), this.config.filterLocations.size(),
+          required, tasks
+      );
+    }
 
-    Multimap<Integer, String> taskToKeywords = ArrayListMultimap.create();
-    int index = 0;
-    for (String keyword : this.config.filterKeywords) {
-      final int taskID = index % tasks;
-      taskToKeywords.put(taskID, keyword);
-      index++;
+    List<List<String>> assignment = this.assignment;
+    if (!isValid(assignment, tasks)) {
+      assignment = KeywordRebalancer.roundRobin(this.config.filterKeywords, tasks);
+      this.assignment = assignment;
+    }
+    // Sorted so a restart hands out the same user ids to the same tasks.
+    final List<FilterShards.Shard> shards = filterShards.assign(
+        assignment,
+        new TreeSet<>(this.config.filterUserIds),
+        this.config.filterLocations
+    );
+    if (filterShards.overflow > 0) {
+      log.warn("{} filter term(s) are over the per connection limits.", filterShards.overflow);
     }
     final List<Map<String, String>> taskConfigs = new ArrayList<>(tasks);
 
-    for (Integer taskID : taskToKeywords.keySet()) {
-      Collection<String> keywords = taskToKeywords.get(taskID);
+    for (int taskID = 0; taskID < shards.size(); taskID++) {
+      FilterShards.Shard shard = shards.get(taskID);
       Map<String, String> taskSettings = new LinkedHashMap<>(this.settings);
-      taskSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, Joiner.on(',').join(keywords));
+      taskSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, Joiner.on(',').join(shard.keywords));
+      // Each user id and location is only followed by one task, otherwise every task writes its own copy.
+      if (!this.config.filterUserIds.isEmpty()) {
+        taskSettings.put(TwitterSourceConnectorConfig.FILTER_USER_IDS_CONF, Joiner.on(',').join(shard.userIds));
+      }
+      if (!this.config.filterLocations.isEmpty()) {
+        List<String> locations = new ArrayList<>(shard.locations.size() * 4);
+        for (double[] location : shard.locations) {
+          for (double value : location) {
+            locations.add(Double.toString(value));
+          }
+        }
+        taskSettings.put(TwitterSourceConnectorConfig.FILTER_LOCATIONS_CONF, Joiner.on(',').join(locations));
+      }
+      // Tasks on the same worker would overwrite each other's dedup window.
+      if (!this.config.dedupStateFile.isEmpty()) {
+        taskSettings.put(
+            TwitterSourceConnectorConfig.DEDUP_STATE_FILE_CONF,
+            this.config.dedupStateFile + "." + taskID
+        );
+      }
+      // Each task only gets its own set of credentials.
+      taskSettings.remove(TwitterSourceConnectorConfig.CREDENTIALS_POOL_CONF);
+      taskSettings.remove(TwitterSourceConnectorConfig.CREDENTIALS_FILE_CONF);
+      if (!this.credentials.isEmpty()) {
+        this.credentials.get(taskID).apply(taskSettings);
+      }
       taskConfigs.add(taskSettings);
     }
 
     return taskConfigs;
   }
 
+  /**
+   * An assignment from a rebalance is only used if it was made for the same keywords and number of tasks.
+   */
+  boolean isValid(List<List<String>> assignment, int tasks) {
+    if (null == assignment || assignment.size() != tasks) {
+      return false;
+    }
+    List<String> keywords = new ArrayList<>();
+    assignment.forEach(keywords::addAll);
+    return keywords.size() == this.config.filterKeywords.size() &&
+        new HashSet<>(keywords).equals(this.config.filterKeywords);
+  }
+
   @Override
   public void stop() {
-
+    if (null != this.rebalanceExecutor) {
+      this.rebalanceExecutor.shutdownNow();
+    }
   }
 
   @Override
@@ -17,15 +17,21 @@ package com.github.jcustenborder.kafka.connect.twitter;
 
 import com.github.jcustenborder.kafka.connect.utils.config.ConfigKeyBuilder;
 import com.github.jcustenborder.kafka.connect.utils.config.ConfigUtils;
+import com.github.jcustenborder.kafka.connect.utils.config.validators.Validators;
+import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Longs;
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigDef.Importance;
 import org.apache.kafka.common.config.ConfigDef.Type;
 import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.config.types.Password;
+import org.apache.kafka.connect.data.Schema;
 import twitter4j.conf.Configuration;
 import twitter4j.conf.PropertyConfiguration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +49,7 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
   public static final String TWITTER_OAUTH_ACCESS_TOKEN_SECRET_CONF = "twitter.oauth.accessTokenSecret";
   public static final String FILTER_KEYWORDS_CONF = "filter.keywords";
   public static final String FILTER_USER_IDS_CONF = "filter.userIds";
+  public static final String FILTER_LOCATIONS_CONF = "filter.locations";
   public static final String KAFKA_STATUS_TOPIC_CONF = "kafka.status.topic";
   public static final String KAFKA_STATUS_TOPIC_DOC = "Kafka topic to write the statuses to.";
   public static final String PROCESS_DELETES_CONF = "process.deletes";
@@ -56,8 +63,242 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
   private static final String TWITTER_OAUTH_ACCESS_TOKEN_SECRET_DOC = "OAuth access token secret";
   private static final String FILTER_KEYWORDS_DOC = "Twitter keywords to filter for.";
   private static final String FILTER_USER_IDS_DOC = "Twitter user IDs to follow.";
+  private static final String FILTER_LOCATIONS_DOC = "Bounding boxes to filter for. Each box is four numbers, the " +
+      "longitude and latitude of the south west corner followed by the longitude and latitude of the north east " +
+      "corner. At least one of filter.keywords, filter.userIds or filter.locations has to be set.";
   public static final String QUEUE_EMPTY_MS_DOC = "The amount of time to wait if there are no records in the queue.";
   public static final String QUEUE_BATCH_SIZE_DOC = "The number of records to return in a single batch.";
+  public static final String QUEUE_MAX_BYTES_CONF = "queue.max.bytes";
+  public static final String QUEUE_MAX_BYTES_DOC = "The maximum estimated number of bytes retained by records waiting " +
+      "in the queue. When the queue is over this budget `queue.overflow.policy` is applied.";
+  public static final String QUEUE_OVERFLOW_POLICY_CONF = "queue.overflow.policy";
+  public static final String QUEUE_OVERFLOW_POLICY_DOC = "What to do with a record when the queue is over `" +
+      QUEUE_MAX_BYTES_CONF + "`. `" + OverflowPolicy.BLOCK + "` blocks the twitter listener thread until poll() " +
+      "frees space. `" + OverflowPolicy.DROP_OLDEST + "` discards the oldest queued records. `" +
+      OverflowPolicy.DROP_NEWEST + "` discards the incoming record. `" + OverflowPolicy.PRIORITY + "` keeps " +
+      "statuses from priority authors and sheds the rest first. `" + OverflowPolicy.SPILL + "` writes records to a " +
+      "memory mapped spill log under `queue.spill.dir` and reads them back in order once poll() catches up.";
+  public static final String QUEUE_PRIORITY_MIN_FOLLOWERS_CONF = "queue.priority.min.followers";
+  public static final String QUEUE_PRIORITY_MIN_FOLLOWERS_DOC = "Authors with at least this many followers are " +
+      "treated as priority by the `" + OverflowPolicy.PRIORITY + "` overflow policy.";
+  public static final String QUEUE_PRIORITY_VERIFIED_CONF = "queue.priority.verified";
+  public static final String QUEUE_PRIORITY_VERIFIED_DOC = "Flag to treat verified authors as priority for the `" +
+      OverflowPolicy.PRIORITY + "` overflow policy.";
+  public static final String QUEUE_SPILL_DIR_CONF = "queue.spill.dir";
+  public static final String QUEUE_SPILL_DIR_DOC = "Directory to write spill segments to when `" +
+      QUEUE_OVERFLOW_POLICY_CONF + "` is `" + OverflowPolicy.SPILL + "`. Each task creates its own directory " +
+      "under this path and removes it when it stops. Directories left behind by a task that did not stop cleanly are " +
+      "removed when the next task starts. Empty uses the java.io.tmpdir of the worker running the task. This should " +
+      "be on fast local storage.";
+  public static final String QUEUE_SPILL_SEGMENT_BYTES_CONF = "queue.spill.segment.bytes";
+  public static final String QUEUE_SPILL_SEGMENT_BYTES_DOC = "Size of each memory mapped spill segment. A segment " +
+      "is deleted once all of the records in it have been written to Kafka.";
+  public static final String QUEUE_SPILL_MAX_BYTES_CONF = "queue.spill.max.bytes";
+  public static final String QUEUE_SPILL_MAX_BYTES_DOC = "The maximum number of bytes of spill segments on disk. " +
+      "When the spill log is full the twitter listener thread blocks until segments are reclaimed.";
+  public static final String QUEUE_BATCH_MODE_CONF = "queue.batch.mode";
+  public static final String QUEUE_BATCH_MODE_DOC = "How the number of records returned by poll() is chosen. `" +
+      BatchMode.FIXED + "` returns up to `" + QUEUE_BATCH_SIZE_CONF + "` records. `" + BatchMode.ADAPTIVE + "` " +
+      "starts at `" + QUEUE_BATCH_SIZE_CONF + "`, doubles the batch while poll() leaves records behind, up to `" +
+      "queue.batch.max.size`, and halves it while more than two batches are waiting for the producer to acknowledge " +
+      "them. Adaptive batches are also limited to `queue.batch.max.bytes`.";
+  public static final String QUEUE_BATCH_MAX_SIZE_CONF = "queue.batch.max.size";
+  public static final String QUEUE_BATCH_MAX_SIZE_DOC = "The largest number of records an adaptive batch grows to.";
+  public static final String QUEUE_BATCH_MAX_BYTES_CONF = "queue.batch.max.bytes";
+  public static final String QUEUE_BATCH_MAX_BYTES_DOC = "The estimated bytes after which an adaptive batch is cut " +
+      "off. Keep this near the producer's max.request.size so each poll fills producer requests without going over.";
+  public static final String OUTPUT_FORMAT_CONF = "output.format";
+  public static final String OUTPUT_FORMAT_DOC = "The format of the record value. `" + OutputFormat.STRUCT + "` " +
+      "converts each status to the Status struct. `" + OutputFormat.JSON_STRING + "` and `" +
+      OutputFormat.JSON_BYTES + "` write the message as it was received from Twitter as a string or as UTF-8 bytes. " +
+      "The raw formats skip parsing the status into an object model, only extracting the key and the Id, " +
+      "CreatedAt, Lang and UserId fields which are written as headers. `" + OutputFormat.FLAT + "` converts each " +
+      "status to the FlatStatus struct, with the author, place and location as top level fields and the entities " +
+      "as arrays of strings and ids. status.fields and user.fields do not apply to it.";
+
+  public static final String STATUS_FIELDS_CONF = "status.fields";
+  public static final String STATUS_FIELDS_DOC = "The fields of the Status schema to write. Getters for fields that " +
+      "are not listed are never called. Empty writes every field.";
+  public static final String USER_FIELDS_CONF = "user.fields";
+  public static final String USER_FIELDS_DOC = "The fields of the User schema to write for the author of each " +
+      "status. Empty writes every field.";
+
+  public static final String DEDUP_ENABLED_CONF = "dedup.enabled";
+  public static final String DEDUP_ENABLED_DOC = "Flag to drop statuses whose id has already been written within the " +
+      "dedup window. Duplicates show up after reconnects.";
+  public static final String DEDUP_WINDOW_SIZE_CONF = "dedup.window.size";
+  public static final String DEDUP_WINDOW_SIZE_DOC = "The number of status ids in each generation of the dedup window. " +
+      "Two generations are kept, so an id is remembered for between one and two windows. Each generation uses " +
+      "between 16 and 32 bytes per id.";
+  public static final String DEDUP_WINDOW_MS_CONF = "dedup.window.ms";
+  public static final String DEDUP_WINDOW_MS_DOC = "The maximum age of a generation of the dedup window in " +
+      "milliseconds. 0 only rotates generations when they are full.";
+  public static final String DEDUP_STATE_FILE_CONF = "dedup.state.file";
+  public static final String DEDUP_STATE_FILE_DOC = "Local file to write the dedup window to when the task stops and " +
+      "read it from when the task starts, so the window survives task restarts on the same worker. Each task " +
+      "appends its task number, so the window of task 0 is kept in <file>.0. Empty keeps the window in memory only.";
+
+  public static final String CONVERSION_CACHE_SIZE_CONF = "conversion.cache.size";
+  public static final String CONVERSION_CACHE_SIZE_DOC = "The number of converted User and Place structs to keep in " +
+      "an LRU cache. A cached struct is reused for later statuses from the same author or place as long as its " +
+      "counts and profile fields have not changed. 0 disables the cache.";
+  public static final String CONVERSION_INTERN_STRINGS_CONF = "conversion.intern.strings";
+  public static final String CONVERSION_INTERN_STRINGS_DOC = "Flag to intern the Lang, Source, PlaceType and " +
+      "CountryCode strings so records waiting in the queue share a single copy of each value. This trades a little " +
+      "conversion throughput for less heap retained by a deep queue.";
+  public static final String CONVERSION_THREADS_CONF = "conversion.threads";
+  public static final String CONVERSION_THREADS_DOC = "The number of threads converting statuses to structs. The " +
+      "twitter4j listener thread only hands statuses off, so conversion can use more than one core. 0 converts on the " +
+      "listener thread. Only used by the STRUCT output format.";
+  public static final String CONVERSION_ORDERING_CONF = "conversion.ordering";
+  public static final String CONVERSION_ORDERING_DOC = "The order converted statuses are queued in when " +
+      "conversion.threads is above 0. ARRIVAL keeps the order they were received in. KEY only keeps the order of " +
+      "statuses by the same user, so a slow status does not hold up everyone else. KEY keeps the offset of a " +
+      "partition below its oldest status that is still being converted.";
+  public static final String CONVERSION_MAX_IN_FLIGHT_CONF = "conversion.max.in.flight";
+  public static final String CONVERSION_MAX_IN_FLIGHT_DOC = "The maximum number of statuses waiting to be converted. " +
+      "The listener thread blocks when it is reached.";
+  public static final String STREAM_CLIENT_CONF = "stream.client";
+  public static final String STREAM_CLIENT_DOC = "The client that reads the stream. TWITTER4J uses the twitter4j " +
+      "stream. BUILTIN reads the length delimited stream over a socket channel and parses each status straight into " +
+      "a struct, without building twitter4j objects first. conversion.threads is not used by BUILTIN.";
+  public static final String STREAM_GZIP_ENABLED_CONF = "stream.gzip.enabled";
+  public static final String STREAM_GZIP_ENABLED_DOC = "Flag to ask for a gzip encoded stream. Only used by the " +
+      "BUILTIN stream.client.";
+
+  public static final String BACKFILL_ENABLED_CONF = "backfill.enabled";
+  public static final String BACKFILL_ENABLED_DOC = "Flag to fill the gap left while the task was stopped. On start " +
+      "each keyword and user id with a committed offset is caught up through the REST api, from the last committed " +
+      "status id up to the point the stream connected, in parallel with the live stream. Point " +
+      "twitter.restBaseURL at a different host to use something other than api.twitter.com.";
+  public static final String BACKFILL_MAX_PAGES_CONF = "backfill.max.pages";
+  public static final String BACKFILL_MAX_PAGES_DOC = "The maximum number of pages of up to 100 statuses to request " +
+      "for each keyword or user id during a backfill.";
+  public static final String BACKFILL_SEAM_MS_CONF = "backfill.seam.ms";
+  public static final String BACKFILL_SEAM_MS_DOC = "Statuses created within this many milliseconds of the time the " +
+      "stream connected can be returned by both the stream and the backfill. Ids in this window are checked against " +
+      "each other so they are only written once.";
+
+  public static final String DEGRADED_ENABLED_CONF = "degraded.enabled";
+  public static final String DEGRADED_ENABLED_DOC = "Flag to switch to cheaper processing when stall warnings show the " +
+      "connection is falling behind, instead of waiting to be disconnected. The task switches back a level at a time " +
+      "once warnings stop and the queue has drained.";
+  public static final String DEGRADED_REDUCED_PERCENT_FULL_CONF = "degraded.reduced.percent.full";
+  public static final String DEGRADED_REDUCED_PERCENT_FULL_DOC = "The percentFull of a stall warning at which " +
+      "statuses are converted with degraded.status.fields and degraded.user.fields.";
+  public static final String DEGRADED_SHED_PERCENT_FULL_CONF = "degraded.shed.percent.full";
+  public static final String DEGRADED_SHED_PERCENT_FULL_DOC = "The percentFull of a stall warning at which statuses " +
+      "that are not priority, as defined by queue.priority.min.followers and queue.priority.verified, are dropped.";
+  public static final String DEGRADED_RECOVERY_MS_CONF = "degraded.recovery.ms";
+  public static final String DEGRADED_RECOVERY_MS_DOC = "The time without a stall warning before stepping back one " +
+      "level. Twitter sends stall warnings about every five minutes while a connection is behind.";
+  public static final String DEGRADED_STATUS_FIELDS_CONF = "degraded.status.fields";
+  public static final String DEGRADED_STATUS_FIELDS_DOC = "The fields of the Status schema to write while reduced. " +
+      "Only fields that are also in status.fields are written.";
+  public static final String DEGRADED_USER_FIELDS_CONF = "degraded.user.fields";
+  public static final String DEGRADED_USER_FIELDS_DOC = "The fields of the User schema to write while reduced. Only " +
+      "fields that are also in user.fields are written.";
+  static final List<String> DEGRADED_STATUS_FIELDS_DEFAULT = Collections.unmodifiableList(Arrays.asList(
+      "CreatedAt", "Id", "Text", "Source", "Truncated", "InReplyToStatusId", "InReplyToUserId",
+      "InReplyToScreenName", "Favorited", "Retweeted", "FavoriteCount", "User", "RetweetCount", "Lang"
+  ));
+  static final List<String> DEGRADED_USER_FIELDS_DEFAULT = Collections.unmodifiableList(Arrays.asList(
+      "Id", "Name", "ScreenName", "FollowersCount", "Verified", "Lang"
+  ));
+
+  public static final String CREDENTIALS_POOL_CONF = "credentials.pool";
+  public static final String CREDENTIALS_POOL_DOC = "Sets of OAuth credentials to give one to each task, separated by " +
+      "semicolons. Each set is consumerKey:consumerSecret:accessToken:accessTokenSecret. The streaming api allows one " +
+      "filter connection per set, so the number of tasks is limited to the number of sets. Empty uses the " +
+      "twitter.oauth settings for every task.";
+  public static final String CREDENTIALS_FILE_CONF = "credentials.file";
+  public static final String CREDENTIALS_FILE_DOC = "File on the worker running the connector with one set of " +
+      "credentials per line, in the same format as credentials.pool. Lines starting with # are ignored. The sets are " +
+      "added to credentials.pool.";
+  public static final String FILTER_MAX_KEYWORDS_CONF = "filter.max.keywords.per.connection";
+  public static final String FILTER_MAX_KEYWORDS_DOC = "The maximum number of keywords the api accepts on a single " +
+      "filter connection.";
+  public static final String FILTER_MAX_USER_IDS_CONF = "filter.max.userIds.per.connection";
+  public static final String FILTER_MAX_USER_IDS_DOC = "The maximum number of user ids the api accepts on a single " +
+      "filter connection.";
+  public static final String FILTER_MAX_LOCATIONS_CONF = "filter.max.locations.per.connection";
+  public static final String FILTER_MAX_LOCATIONS_DOC = "The maximum number of location boxes the api accepts on a " +
+      "single filter connection.";
+
+  public static final String REBALANCE_ENABLED_CONF = "rebalance.enabled";
+  public static final String REBALANCE_ENABLED_DOC = "Flag to move keywords between tasks by the number of statuses " +
+      "each one matches, so busy keywords do not end up on the same connection. Volumes are only known for tasks " +
+      "running in the same worker as the connector.";
+  public static final String REBALANCE_INTERVAL_MS_CONF = "rebalance.interval.ms";
+  public static final String REBALANCE_INTERVAL_MS_DOC = "How often keyword volumes are sampled and the balance checked.";
+  public static final String REBALANCE_IMBALANCE_THRESHOLD_CONF = "rebalance.imbalance.threshold";
+  public static final String REBALANCE_IMBALANCE_THRESHOLD_DOC = "The volume of the busiest task divided by the " +
+      "average volume of all tasks above which keywords are reassigned. It has to stay above the threshold for two " +
+      "checks in a row.";
+  public static final String REBALANCE_MIN_INTERVAL_MS_CONF = "rebalance.min.interval.ms";
+  public static final String REBALANCE_MIN_INTERVAL_MS_DOC = "The minimum time between reassignments. Every " +
+      "reassignment reconnects the streams of the tasks.";
+
+  public static final String MATCHED_KEYWORDS_ENABLED_CONF = "matched.keywords.enabled";
+  public static final String MATCHED_KEYWORDS_ENABLED_DOC = "Flag to add a MatchedKeywords header to each status " +
+      "with the filter.keywords it matched in its text, expanded urls, hashtags or mentions. The header is an array " +
+      "of strings and is left out when nothing matched, for example for statuses from a followed user.";
+
+  public static final String TOPIC_ROUTES_CONF = "topic.routes";
+  public static final String TOPIC_ROUTES_DOC = "Routes that send statuses to other topics than kafka.status.topic. " +
+      "Each route is written as keyword:<keyword>=<topic>, lang:<language>=<topic> or userId:<user id>=<topic>. " +
+      "Statuses that do not match a route are written to kafka.status.topic.";
+  public static final String TOPIC_ROUTES_FANOUT_CONF = "topic.routes.fanout";
+  public static final String TOPIC_ROUTES_FANOUT_DOC = "Flag to write a status to the topic of every route it " +
+      "matches. When false a status only goes to the first route it matches in the order of topic.routes.";
+
+  public static final String KAFKA_DELETE_TOPIC_CONF = "kafka.delete.topic";
+  public static final String KAFKA_DELETE_TOPIC_DOC = "Kafka topic to write delete events to. Each delete is written " +
+      "with the StatusDeletionNoticeKey key and the StatusDeletionNotice value. Empty writes deletes to " +
+      "kafka.status.topic with a null value, unless compaction.enabled is set.";
+  public static final String COMPACTION_ENABLED_CONF = "compaction.enabled";
+  public static final String COMPACTION_ENABLED_DOC = "Flag to write each delete as a tombstone with the same " +
+      "StatusKey key as the status it removes, to kafka.status.topic and every topic in topic.routes. This lets " +
+      "the status topics run with cleanup.policy=compact. Requires process.deletes.";
+
+  public enum OverflowPolicy {
+    BLOCK,
+    DROP_OLDEST,
+    DROP_NEWEST,
+    PRIORITY,
+    SPILL
+  }
+
+  public enum OutputFormat {
+    STRUCT(false),
+    JSON_STRING(true),
+    JSON_BYTES(true),
+    FLAT(false);
+
+    /**
+     * The value is the message as it was received rather than a converted struct.
+     */
+    public final boolean raw;
+
+    OutputFormat(boolean raw) {
+      this.raw = raw;
+    }
+  }
+
+  public enum BatchMode {
+    FIXED,
+    ADAPTIVE
+  }
+
+  public enum ConversionOrdering {
+    ARRIVAL,
+    KEY
+  }
+
+  public enum StreamClient {
+    TWITTER4J,
+    BUILTIN
+  }
 
 
   public final String topic;
@@ -65,8 +306,56 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
   public final boolean processDeletes;
   public final Set<String> filterKeywords;
   public final Set<Long> filterUserIds;
+  public final List<double[]> filterLocations;
   public final int queueEmptyMs;
   public final int queueBatchSize;
+  public final long queueMaxBytes;
+  public final OverflowPolicy queueOverflowPolicy;
+  public final int queuePriorityMinFollowers;
+  public final boolean queuePriorityVerified;
+  public final String queueSpillDir;
+  public final int queueSpillSegmentBytes;
+  public final long queueSpillMaxBytes;
+  public final BatchMode queueBatchMode;
+  public final int queueBatchMaxSize;
+  public final long queueBatchMaxBytes;
+  public final OutputFormat outputFormat;
+  public final List<String> statusFields;
+  public final List<String> userFields;
+  public final boolean dedupEnabled;
+  public final int dedupWindowSize;
+  public final long dedupWindowMs;
+  public final String dedupStateFile;
+  public final int conversionCacheSize;
+  public final boolean conversionInternStrings;
+  public final int conversionThreads;
+  public final ConversionOrdering conversionOrdering;
+  public final int conversionMaxInFlight;
+  public final StreamClient streamClient;
+  public final boolean streamGzipEnabled;
+  public final boolean backfillEnabled;
+  public final int backfillMaxPages;
+  public final long backfillSeamMs;
+  public final boolean degradedEnabled;
+  public final int degradedReducedPercentFull;
+  public final int degradedShedPercentFull;
+  public final long degradedRecoveryMs;
+  public final List<String> degradedStatusFields;
+  public final List<String> degradedUserFields;
+  public final Password credentialsPool;
+  public final String credentialsFile;
+  public final int filterMaxKeywords;
+  public final int filterMaxUserIds;
+  public final int filterMaxLocations;
+  public final boolean rebalanceEnabled;
+  public final long rebalanceIntervalMs;
+  public final double rebalanceImbalanceThreshold;
+  public final long rebalanceMinIntervalMs;
+  public final boolean matchedKeywordsEnabled;
+  public final List<String> topicRoutes;
+  public final boolean topicRoutesFanout;
+  public final String deleteTopic;
+  public final boolean compactionEnabled;
 
 
   public TwitterSourceConnectorConfig(Map<String, String> parsedConfig) {
@@ -79,8 +368,56 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
         .stream()
         .map(Long::parseLong)
         .collect(Collectors.toSet());
+    this.filterLocations = locations(getList(FILTER_LOCATIONS_CONF));
     this.queueBatchSize = getInt(QUEUE_BATCH_SIZE_CONF);
     this.queueEmptyMs = getInt(QUEUE_EMPTY_MS_CONF);
+    this.queueMaxBytes = getLong(QUEUE_MAX_BYTES_CONF);
+    this.queueOverflowPolicy = ConfigUtils.getEnum(OverflowPolicy.class, this, QUEUE_OVERFLOW_POLICY_CONF);
+    this.queuePriorityMinFollowers = getInt(QUEUE_PRIORITY_MIN_FOLLOWERS_CONF);
+    this.queuePriorityVerified = getBoolean(QUEUE_PRIORITY_VERIFIED_CONF);
+    this.queueSpillDir = getString(QUEUE_SPILL_DIR_CONF);
+    this.queueSpillSegmentBytes = getInt(QUEUE_SPILL_SEGMENT_BYTES_CONF);
+    this.queueSpillMaxBytes = getLong(QUEUE_SPILL_MAX_BYTES_CONF);
+    this.queueBatchMode = ConfigUtils.getEnum(BatchMode.class, this, QUEUE_BATCH_MODE_CONF);
+    this.queueBatchMaxSize = getInt(QUEUE_BATCH_MAX_SIZE_CONF);
+    this.queueBatchMaxBytes = getLong(QUEUE_BATCH_MAX_BYTES_CONF);
+    this.outputFormat = ConfigUtils.getEnum(OutputFormat.class, this, OUTPUT_FORMAT_CONF);
+    this.statusFields = getList(STATUS_FIELDS_CONF);
+    this.userFields = getList(USER_FIELDS_CONF);
+    this.dedupEnabled = getBoolean(DEDUP_ENABLED_CONF);
+    this.dedupWindowSize = getInt(DEDUP_WINDOW_SIZE_CONF);
+    this.dedupWindowMs = getLong(DEDUP_WINDOW_MS_CONF);
+    this.dedupStateFile = getString(DEDUP_STATE_FILE_CONF);
+    this.conversionCacheSize = getInt(CONVERSION_CACHE_SIZE_CONF);
+    this.conversionInternStrings = getBoolean(CONVERSION_INTERN_STRINGS_CONF);
+    this.conversionThreads = getInt(CONVERSION_THREADS_CONF);
+    this.conversionOrdering = ConfigUtils.getEnum(ConversionOrdering.class, this, CONVERSION_ORDERING_CONF);
+    this.conversionMaxInFlight = getInt(CONVERSION_MAX_IN_FLIGHT_CONF);
+    this.streamClient = ConfigUtils.getEnum(StreamClient.class, this, STREAM_CLIENT_CONF);
+    this.streamGzipEnabled = getBoolean(STREAM_GZIP_ENABLED_CONF);
+    this.backfillEnabled = getBoolean(BACKFILL_ENABLED_CONF);
+    this.backfillMaxPages = getInt(BACKFILL_MAX_PAGES_CONF);
+    this.backfillSeamMs = getLong(BACKFILL_SEAM_MS_CONF);
+    this.degradedEnabled = getBoolean(DEGRADED_ENABLED_CONF);
+    this.degradedReducedPercentFull = getInt(DEGRADED_REDUCED_PERCENT_FULL_CONF);
+    this.degradedShedPercentFull = getInt(DEGRADED_SHED_PERCENT_FULL_CONF);
+    this.degradedRecoveryMs = getLong(DEGRADED_RECOVERY_MS_CONF);
+    this.degradedStatusFields = getList(DEGRADED_STATUS_FIELDS_CONF);
+    this.degradedUserFields = getList(DEGRADED_USER_FIELDS_CONF);
+    this.credentialsPool = getPassword(CREDENTIALS_POOL_CONF);
+    this.credentialsFile = getString(CREDENTIALS_FILE_CONF);
+    this.filterMaxKeywords = getInt(FILTER_MAX_KEYWORDS_CONF);
+    this.filterMaxUserIds = getInt(FILTER_MAX_USER_IDS_CONF);
+    this.filterMaxLocations = getInt(FILTER_MAX_LOCATIONS_CONF);
+    this.rebalanceEnabled = getBoolean(REBALANCE_ENABLED_CONF);
+    this.rebalanceIntervalMs = getLong(REBALANCE_INTERVAL_MS_CONF);
+    this.rebalanceImbalanceThreshold = getDouble(REBALANCE_IMBALANCE_THRESHOLD_CONF);
+    this.rebalanceMinIntervalMs = getLong(REBALANCE_MIN_INTERVAL_MS_CONF);
+    this.matchedKeywordsEnabled = getBoolean(MATCHED_KEYWORDS_ENABLED_CONF);
+    this.topicRoutes = getList(TOPIC_ROUTES_CONF);
+    this.topicRoutesFanout = getBoolean(TOPIC_ROUTES_FANOUT_CONF);
+    this.deleteTopic = getString(KAFKA_DELETE_TOPIC_CONF);
+    this.compactionEnabled = getBoolean(COMPACTION_ENABLED_CONF);
   }
 
   static class UserIdValidator implements ConfigDef.Validator {
@@ -99,6 +436,76 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
 
   static final ConfigDef.Validator USERID_VALIDATOR = new UserIdValidator();
 
+  /**
+   * Groups the flat list of numbers into boxes of south west longitude, latitude, north east longitude, latitude.
+   */
+  static List<double[]> locations(List<String> values) {
+    List<double[]> result = new ArrayList<>(values.size() / 4);
+    for (int i = 0; i + 3 < values.size(); i += 4) {
+      result.add(new double[]{
+          Double.parseDouble(values.get(i)),
+          Double.parseDouble(values.get(i + 1)),
+          Double.parseDouble(values.get(i + 2)),
+          Double.parseDouble(values.get(i + 3))
+      });
+    }
+    return result;
+  }
+
+  static class LocationValidator implements ConfigDef.Validator {
+    @Override
+    public void ensureValid(String key, Object o) {
+      if (o instanceof List) {
+        List<String> values = (List<String>) o;
+        if (values.size() % 4 != 0) {
+          throw new ConfigException(key, values, "Each location needs four numbers.");
+        }
+        for (int i = 0; i < values.size(); i++) {
+          final String value = values.get(i);
+          final Double number = Doubles.tryParse(value);
+          if (null == number) {
+            throw new ConfigException(key, value, "Could not parse to double.");
+          }
+          final boolean longitude = i % 2 == 0;
+          if (Math.abs(number) > (longitude ? 180D : 90D)) {
+            throw new ConfigException(key, value, longitude ? "Longitude is out of range." : "Latitude is out of range.");
+          }
+        }
+        for (double[] box : locations(values)) {
+          if (box[0] >= box[2] || box[1] >= box[3]) {
+            throw new ConfigException(
+                key,
+                values,
+                "The south west corner of a location has to be below and to the left of the north east corner."
+            );
+          }
+        }
+      }
+    }
+  }
+
+  static final ConfigDef.Validator LOCATION_VALIDATOR = new LocationValidator();
+
+  static class FieldNameValidator implements ConfigDef.Validator {
+    final Schema schema;
+
+    FieldNameValidator(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public void ensureValid(String key, Object o) {
+      if (o instanceof List) {
+        List<String> fieldNames = (List<String>) o;
+        for (String fieldName : fieldNames) {
+          if (null == this.schema.field(fieldName)) {
+            throw new ConfigException(key, fieldName, String.format("Field is not in %s.", this.schema.name()));
+          }
+        }
+      }
+    }
+  }
+
   public static ConfigDef conf() {
     return new ConfigDef()
         .define(TWITTER_DEBUG_CONF, Type.BOOLEAN, false, Importance.LOW, TWITTER_DEBUG_DOC)
@@ -106,7 +513,13 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
         .define(TWITTER_OAUTH_SECRET_KEY_CONF, Type.PASSWORD, Importance.HIGH, TWITTER_OAUTH_SECRET_KEY_DOC)
         .define(TWITTER_OAUTH_ACCESS_TOKEN_CONF, Type.PASSWORD, Importance.HIGH, TWITTER_OAUTH_ACCESS_TOKEN_DOC)
         .define(TWITTER_OAUTH_ACCESS_TOKEN_SECRET_CONF, Type.PASSWORD, Importance.HIGH, TWITTER_OAUTH_ACCESS_TOKEN_SECRET_DOC)
-        .define(FILTER_KEYWORDS_CONF, Type.LIST, Importance.HIGH, FILTER_KEYWORDS_DOC)
+        .define(
+            ConfigKeyBuilder.of(FILTER_KEYWORDS_CONF, Type.LIST)
+                .importance(Importance.HIGH)
+                .documentation(FILTER_KEYWORDS_DOC)
+                .defaultValue(Collections.emptyList())
+                .build()
+        )
         .define(
             ConfigKeyBuilder.of(FILTER_USER_IDS_CONF, Type.LIST)
                 .importance(Importance.HIGH)
@@ -115,6 +528,14 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
                 .validator(USERID_VALIDATOR)
                 .build()
         )
+        .define(
+            ConfigKeyBuilder.of(FILTER_LOCATIONS_CONF, Type.LIST)
+                .importance(Importance.MEDIUM)
+                .documentation(FILTER_LOCATIONS_DOC)
+                .defaultValue(Collections.emptyList())
+                .validator(LOCATION_VALIDATOR)
+                .build()
+        )
         .define(KAFKA_STATUS_TOPIC_CONF, Type.STRING, Importance.HIGH, KAFKA_STATUS_TOPIC_DOC)
         .define(PROCESS_DELETES_CONF, Type.BOOLEAN, Importance.HIGH, PROCESS_DELETES_DOC)
         .define(
@@ -132,6 +553,368 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
                 .defaultValue(100)
                 .validator(ConfigDef.Range.atLeast(1))
                 .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_MAX_BYTES_CONF, Type.LONG)
+                .importance(Importance.MEDIUM)
+                .documentation(QUEUE_MAX_BYTES_DOC)
+                .defaultValue(64L * 1024L * 1024L)
+                .validator(ConfigDef.Range.atLeast(1024L))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_OVERFLOW_POLICY_CONF, Type.STRING)
+                .importance(Importance.MEDIUM)
+                .documentation(QUEUE_OVERFLOW_POLICY_DOC)
+                .defaultValue(OverflowPolicy.BLOCK.name())
+                .validator(Validators.validEnum(OverflowPolicy.class))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_PRIORITY_MIN_FOLLOWERS_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_PRIORITY_MIN_FOLLOWERS_DOC)
+                .defaultValue(10000)
+                .validator(ConfigDef.Range.atLeast(0))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_PRIORITY_VERIFIED_CONF, Type.BOOLEAN)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_PRIORITY_VERIFIED_DOC)
+                .defaultValue(true)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_SPILL_DIR_CONF, Type.STRING)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_SPILL_DIR_DOC)
+                .defaultValue("")
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_SPILL_SEGMENT_BYTES_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_SPILL_SEGMENT_BYTES_DOC)
+                .defaultValue(64 * 1024 * 1024)
+                .validator(ConfigDef.Range.atLeast(64 * 1024))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_SPILL_MAX_BYTES_CONF, Type.LONG)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_SPILL_MAX_BYTES_DOC)
+                .defaultValue(8L * 1024L * 1024L * 1024L)
+                .validator(ConfigDef.Range.atLeast(64L * 1024L))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(OUTPUT_FORMAT_CONF, Type.STRING)
+                .importance(Importance.MEDIUM)
+                .documentation(OUTPUT_FORMAT_DOC)
+                .defaultValue(OutputFormat.STRUCT.name())
+                .validator(Validators.validEnum(OutputFormat.class))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(STATUS_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(STATUS_FIELDS_DOC)
+                .defaultValue(Collections.emptyList())
+                .validator(new FieldNameValidator(StatusConverter.STATUS_SCHEMA))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(USER_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(USER_FIELDS_DOC)
+                .defaultValue(Collections.emptyList())
+                .validator(new FieldNameValidator(StatusConverter.USER_SCHEMA))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEDUP_ENABLED_CONF, Type.BOOLEAN)
+                .importance(Importance.MEDIUM)
+                .documentation(DEDUP_ENABLED_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEDUP_WINDOW_SIZE_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(DEDUP_WINDOW_SIZE_DOC)
+                .defaultValue(100000)
+                .validator(ConfigDef.Range.between(16, 1 << 28))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEDUP_WINDOW_MS_CONF, Type.LONG)
+                .importance(Importance.LOW)
+                .documentation(DEDUP_WINDOW_MS_DOC)
+                .defaultValue(60L * 60L * 1000L)
+                .validator(ConfigDef.Range.atLeast(0L))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEDUP_STATE_FILE_CONF, Type.STRING)
+                .importance(Importance.LOW)
+                .documentation(DEDUP_STATE_FILE_DOC)
+                .defaultValue("")
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(CONVERSION_CACHE_SIZE_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(CONVERSION_CACHE_SIZE_DOC)
+                .defaultValue(0)
+                .validator(ConfigDef.Range.atLeast(0))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(CONVERSION_INTERN_STRINGS_CONF, Type.BOOLEAN)
+                .importance(Importance.LOW)
+                .documentation(CONVERSION_INTERN_STRINGS_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(BACKFILL_ENABLED_CONF, Type.BOOLEAN)
+                .importance(Importance.MEDIUM)
+                .documentation(BACKFILL_ENABLED_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(BACKFILL_MAX_PAGES_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(BACKFILL_MAX_PAGES_DOC)
+                .defaultValue(10)
+                .validator(ConfigDef.Range.atLeast(1))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(BACKFILL_SEAM_MS_CONF, Type.LONG)
+                .importance(Importance.LOW)
+                .documentation(BACKFILL_SEAM_MS_DOC)
+                .defaultValue(60L * 1000L)
+                .validator(ConfigDef.Range.atLeast(0L))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEGRADED_ENABLED_CONF, Type.BOOLEAN)
+                .importance(Importance.MEDIUM)
+                .documentation(DEGRADED_ENABLED_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEGRADED_REDUCED_PERCENT_FULL_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(DEGRADED_REDUCED_PERCENT_FULL_DOC)
+                .defaultValue(40)
+                .validator(ConfigDef.Range.between(0, 100))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEGRADED_SHED_PERCENT_FULL_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(DEGRADED_SHED_PERCENT_FULL_DOC)
+                .defaultValue(70)
+                .validator(ConfigDef.Range.between(0, 100))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEGRADED_RECOVERY_MS_CONF, Type.LONG)
+                .importance(Importance.LOW)
+                .documentation(DEGRADED_RECOVERY_MS_DOC)
+                .defaultValue(6L * 60L * 1000L)
+                .validator(ConfigDef.Range.atLeast(0L))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEGRADED_STATUS_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(DEGRADED_STATUS_FIELDS_DOC)
+                .defaultValue(DEGRADED_STATUS_FIELDS_DEFAULT)
+                .validator(new FieldNameValidator(StatusConverter.STATUS_SCHEMA))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(DEGRADED_USER_FIELDS_CONF, Type.LIST)
+                .importance(Importance.LOW)
+                .documentation(DEGRADED_USER_FIELDS_DOC)
+                .defaultValue(DEGRADED_USER_FIELDS_DEFAULT)
+                .validator(new FieldNameValidator(StatusConverter.USER_SCHEMA))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(CREDENTIALS_POOL_CONF, Type.PASSWORD)
+                .importance(Importance.MEDIUM)
+                .documentation(CREDENTIALS_POOL_DOC)
+                .defaultValue("")
+                .validator(new Credentials.PoolValidator())
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(CREDENTIALS_FILE_CONF, Type.STRING)
+                .importance(Importance.MEDIUM)
+                .documentation(CREDENTIALS_FILE_DOC)
+                .defaultValue("")
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(FILTER_MAX_KEYWORDS_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(FILTER_MAX_KEYWORDS_DOC)
+                .defaultValue(400)
+                .validator(ConfigDef.Range.atLeast(1))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(FILTER_MAX_USER_IDS_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(FILTER_MAX_USER_IDS_DOC)
+                .defaultValue(5000)
+                .validator(ConfigDef.Range.atLeast(1))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(FILTER_MAX_LOCATIONS_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(FILTER_MAX_LOCATIONS_DOC)
+                .defaultValue(25)
+                .validator(ConfigDef.Range.atLeast(1))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(REBALANCE_ENABLED_CONF, Type.BOOLEAN)
+                .importance(Importance.LOW)
+                .documentation(REBALANCE_ENABLED_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(REBALANCE_INTERVAL_MS_CONF, Type.LONG)
+                .importance(Importance.LOW)
+                .documentation(REBALANCE_INTERVAL_MS_DOC)
+                .defaultValue(5L * 60L * 1000L)
+                .validator(ConfigDef.Range.atLeast(1000L))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(REBALANCE_IMBALANCE_THRESHOLD_CONF, Type.DOUBLE)
+                .importance(Importance.LOW)
+                .documentation(REBALANCE_IMBALANCE_THRESHOLD_DOC)
+                .defaultValue(1.5D)
+                .validator(ConfigDef.Range.atLeast(1D))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(REBALANCE_MIN_INTERVAL_MS_CONF, Type.LONG)
+                .importance(Importance.LOW)
+                .documentation(REBALANCE_MIN_INTERVAL_MS_DOC)
+                .defaultValue(30L * 60L * 1000L)
+                .validator(ConfigDef.Range.atLeast(0L))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(MATCHED_KEYWORDS_ENABLED_CONF, Type.BOOLEAN)
+                .importance(Importance.LOW)
+                .documentation(MATCHED_KEYWORDS_ENABLED_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(TOPIC_ROUTES_CONF, Type.LIST)
+                .importance(Importance.MEDIUM)
+                .documentation(TOPIC_ROUTES_DOC)
+                .defaultValue(Collections.emptyList())
+                .validator(new TopicRouter.RoutesValidator())
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(TOPIC_ROUTES_FANOUT_CONF, Type.BOOLEAN)
+                .importance(Importance.LOW)
+                .documentation(TOPIC_ROUTES_FANOUT_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(CONVERSION_THREADS_CONF, Type.INT)
+                .importance(Importance.MEDIUM)
+                .documentation(CONVERSION_THREADS_DOC)
+                .defaultValue(0)
+                .validator(ConfigDef.Range.atLeast(0))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(CONVERSION_ORDERING_CONF, Type.STRING)
+                .importance(Importance.LOW)
+                .documentation(CONVERSION_ORDERING_DOC)
+                .defaultValue(ConversionOrdering.ARRIVAL.name())
+                .validator(Validators.validEnum(ConversionOrdering.class))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(CONVERSION_MAX_IN_FLIGHT_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(CONVERSION_MAX_IN_FLIGHT_DOC)
+                .defaultValue(10000)
+                .validator(ConfigDef.Range.atLeast(1))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(STREAM_CLIENT_CONF, Type.STRING)
+                .importance(Importance.LOW)
+                .documentation(STREAM_CLIENT_DOC)
+                .defaultValue(StreamClient.TWITTER4J.name())
+                .validator(Validators.validEnum(StreamClient.class))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(STREAM_GZIP_ENABLED_CONF, Type.BOOLEAN)
+                .importance(Importance.LOW)
+                .documentation(STREAM_GZIP_ENABLED_DOC)
+                .defaultValue(true)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(KAFKA_DELETE_TOPIC_CONF, Type.STRING)
+                .importance(Importance.HIGH)
+                .documentation(KAFKA_DELETE_TOPIC_DOC)
+                .defaultValue("")
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(COMPACTION_ENABLED_CONF, Type.BOOLEAN)
+                .importance(Importance.MEDIUM)
+                .documentation(COMPACTION_ENABLED_DOC)
+                .defaultValue(false)
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_BATCH_MODE_CONF, Type.STRING)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_BATCH_MODE_DOC)
+                .defaultValue(BatchMode.FIXED.name())
+                .validator(Validators.validEnum(BatchMode.class))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_BATCH_MAX_SIZE_CONF, Type.INT)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_BATCH_MAX_SIZE_DOC)
+                .defaultValue(10000)
+                .validator(ConfigDef.Range.atLeast(1))
+                .build()
+        )
+        .define(
+            ConfigKeyBuilder.of(QUEUE_BATCH_MAX_BYTES_CONF, Type.LONG)
+                .importance(Importance.LOW)
+                .documentation(QUEUE_BATCH_MAX_BYTES_DOC)
+                .defaultValue(1024L * 1024L)
+                .validator(ConfigDef.Range.atLeast(1024L))
+                .build()
         );
   }
 
@@ -145,4 +928,19 @@ public class TwitterSourceConnectorConfig extends AbstractConfig {
     properties.putAll(this.originalsWithPrefix("twitter."));
     return new PropertyConfiguration(properties);
   }
+
+  /**
+   * Configuration for the REST client used by the backfill. The raw output formats need the json of each status, so
+   * the json store is turned on for them.
+   *
+   * @return configuration for the REST client.
+   */
+  public Configuration restConfiguration() {
+    Properties properties = new Properties();
+    properties.putAll(this.originalsWithPrefix("twitter."));
+    if (this.outputFormat.raw) {
+      properties.put("jsonStoreEnabled", "true");
+    }
+    return new PropertyConfiguration(properties);
+  }
 }
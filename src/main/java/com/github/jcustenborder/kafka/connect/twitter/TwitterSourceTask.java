@@ -16,32 +16,55 @@
 package com.github.jcustenborder.kafka.connect.twitter;
 
 import com.github.jcustenborder.kafka.connect.utils.VersionUtil;
-import com.github.jcustenborder.kafka.connect.utils.data.SourceRecordDeque;
-import com.github.jcustenborder.kafka.connect.utils.data.SourceRecordDequeBuilder;
 import com.google.common.base.Joiner;
-import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import twitter4j.FilterQuery;
+import twitter4j.HttpParameter;
+import twitter4j.RawStreamListener;
 import twitter4j.StallWarning;
 import twitter4j.Status;
 import twitter4j.StatusDeletionNotice;
 import twitter4j.StatusListener;
+import twitter4j.TwitterFactory;
+import twitter4j.TwitterObjectFactory;
 import twitter4j.TwitterStream;
 import twitter4j.TwitterStreamFactory;
+import twitter4j.User;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 public class TwitterSourceTask extends SourceTask implements StatusListener {
   static final Logger log = LoggerFactory.getLogger(TwitterSourceTask.class);
-  SourceRecordDeque messageQueue;
+  RecordQueue messageQueue;
 
   TwitterStream twitterStream;
   TwitterSourceConnectorConfig config;
+  StatusProjection projection;
+  StatusIdDeduplicator deduplicator;
+  StatusPartitions partitions;
+  TopicRouter router;
+  DeleteRecords deletes;
+  volatile Backfill backfill;
+  Thread backfillThread;
+  TaskMetrics metrics;
+  DegradedMode degradedMode;
+  ConversionPipeline pipeline;
+  DelimitedStreamClient streamClient;
 
   @Override
   public String version() {
@@ -51,36 +74,210 @@ public class TwitterSourceTask extends SourceTask implements StatusListener {
   @Override
   public void start(Map<String, String> map) {
     this.config = new TwitterSourceConnectorConfig(map);
-    this.messageQueue = SourceRecordDequeBuilder.of()
-        .emptyWaitMs(this.config.queueEmptyMs)
-        .batchSize(this.config.queueBatchSize)
-        .build();
+    this.messageQueue = RecordQueue.of(this.config);
+    this.projection = StatusProjection.of(this.config);
+    this.deduplicator = StatusIdDeduplicator.of(this.config);
+    this.partitions = StatusPartitions.of(this.config);
+    this.router = TopicRouter.of(this.config, this.partitions);
+    this.deletes = DeleteRecords.of(this.config, this.router);
+    this.partitions.register(KeywordVolumes.connectorName(this.config));
+    this.metrics = TaskMetrics.of(this.config, this.messageQueue);
+    this.messageQueue.latencies = this.metrics.stages;
+    if (null != this.deduplicator) {
+      this.metrics.deduplicator(this.deduplicator);
+    }
+    if (null != this.projection.cache) {
+      this.metrics.cache(this.projection.cache);
+    }
+    this.degradedMode = DegradedMode.of(this.config, this.projection, this.messageQueue);
+    this.pipeline = ConversionPipeline.of(this.config);
+    // Offsets have to be restored before the stream writes its first record so it carries the committed offset.
+    final long seamMs = System.currentTimeMillis();
+    final Map<Map<String, String>, Long> sinceIds = restoreOffsets();
+    // The seam set has to exist before the stream delivers anything, or statuses near the seam are written twice.
+    if (!sinceIds.isEmpty()) {
+      this.backfill = createBackfill(sinceIds, seamMs);
+    }
 
-    TwitterStreamFactory twitterStreamFactory = new TwitterStreamFactory(this.config.configuration());
-    this.twitterStream = twitterStreamFactory.getInstance();
-    String[] keywords = this.config.filterKeywords.toArray(new String[0]);
-    if (log.isInfoEnabled()) {
-      log.info("Setting up filters. Keywords = {}", Joiner.on(", ").join(keywords));
+    if (TwitterSourceConnectorConfig.StreamClient.BUILTIN == this.config.streamClient) {
+      startStreamClient();
+    } else {
+      startTwitterStream();
+    }
+
+    if (null != this.backfill) {
+      startBackfill();
     }
+  }
 
+  void startTwitterStream() {
+    TwitterStreamFactory twitterStreamFactory = new TwitterStreamFactory(this.config.configuration());
+    this.twitterStream = twitterStreamFactory.getInstance();
+    this.twitterStream.addConnectionLifeCycleListener(this.metrics);
+    // A task can end up with only user ids or only locations, and an empty track parameter is rejected by the api.
     FilterQuery filterQuery = new FilterQuery();
-    filterQuery.track(keywords);
+    if (!this.config.filterKeywords.isEmpty()) {
+      String[] keywords = this.config.filterKeywords.toArray(new String[0]);
+      if (log.isInfoEnabled()) {
+        log.info("Setting up filters. Keywords = {}", Joiner.on(", ").join(keywords));
+      }
+      filterQuery.track(keywords);
+    }
     if (!this.config.filterUserIds.isEmpty()) {
       long[] userIds = this.config.filterUserIds.stream().mapToLong(Long::valueOf).toArray();
       log.info("Setting up filters. userIds = {}", Joiner.on(", ").join(this.config.filterUserIds));
       filterQuery.follow(userIds);
     }
+    if (!this.config.filterLocations.isEmpty()) {
+      double[][] locations = new double[this.config.filterLocations.size() * 2][];
+      for (int i = 0; i < this.config.filterLocations.size(); i++) {
+        double[] box = this.config.filterLocations.get(i);
+        locations[i * 2] = new double[]{box[0], box[1]};
+        locations[i * 2 + 1] = new double[]{box[2], box[3]};
+      }
+      log.info("Setting up filters. {} location(s)", this.config.filterLocations.size());
+      filterQuery.locations(locations);
+    }
 
     if (log.isInfoEnabled()) {
       log.info("Starting the twitter stream.");
     }
-    twitterStream.addListener(this);
+    if (!this.config.outputFormat.raw) {
+      twitterStream.addListener(this);
+    } else {
+      /*
+        twitter4j only parses a message when a StatusListener is registered. Registering just the raw listener means
+        the payload is handed over as is.
+       */
+      twitterStream.addListener(new RawListener(new RawStatusConverter(this.config.outputFormat, this.config.topic)));
+    }
     twitterStream.filter(filterQuery);
   }
 
+  /**
+   * Reads the stream with {@link DelimitedStreamClient} instead of twitter4j.
+   */
+  void startStreamClient() {
+    final DelimitedStreamClient.Listener listener;
+    if (!this.config.outputFormat.raw) {
+      listener = new StructListener();
+    } else {
+      final RawListener rawListener = new RawListener(
+          new RawStatusConverter(this.config.outputFormat, this.config.topic)
+      );
+      listener = (buffer, offset, length) -> rawListener.onMessage(
+          new String(buffer, offset, length, StandardCharsets.UTF_8)
+      );
+    }
+    if (log.isInfoEnabled()) {
+      log.info("Starting the built-in stream client. gzip = {}", this.config.streamGzipEnabled);
+    }
+    this.streamClient = new DelimitedStreamClient(
+        this.config.configuration(),
+        filterParameters(),
+        this.config.streamGzipEnabled,
+        listener,
+        this.metrics
+    );
+    this.streamClient.start();
+  }
+
+  /**
+   * The same filter parameters twitter4j sends for a {@link FilterQuery}.
+   */
+  HttpParameter[] filterParameters() {
+    List<HttpParameter> result = new ArrayList<>();
+    if (!this.config.filterKeywords.isEmpty()) {
+      log.info("Setting up filters. Keywords = {}", Joiner.on(", ").join(this.config.filterKeywords));
+      result.add(new HttpParameter("track", Joiner.on(',').join(this.config.filterKeywords)));
+    }
+    if (!this.config.filterUserIds.isEmpty()) {
+      log.info("Setting up filters. userIds = {}", Joiner.on(", ").join(this.config.filterUserIds));
+      result.add(new HttpParameter("follow", Joiner.on(',').join(this.config.filterUserIds)));
+    }
+    if (!this.config.filterLocations.isEmpty()) {
+      log.info("Setting up filters. {} location(s)", this.config.filterLocations.size());
+      StringBuilder locations = new StringBuilder();
+      for (double[] box : this.config.filterLocations) {
+        for (double value : box) {
+          if (locations.length() > 0) {
+            locations.append(',');
+          }
+          locations.append(value);
+        }
+      }
+      result.add(new HttpParameter("locations", locations.toString()));
+    }
+    return result.toArray(new HttpParameter[0]);
+  }
+
+  Map<Map<String, String>, Long> restoreOffsets() {
+    if (!this.config.backfillEnabled) {
+      return Collections.emptyMap();
+    }
+    if (null == this.context || null == this.context.offsetStorageReader()) {
+      log.warn("No offset storage reader is available. Skipping backfill.");
+      return Collections.emptyMap();
+    }
+    Map<Map<String, String>, Map<String, Object>> offsets = this.context.offsetStorageReader().offsets(
+        this.partitions.partitions()
+    );
+    Map<Map<String, String>, Long> result = this.partitions.restore(offsets);
+    if (log.isInfoEnabled()) {
+      log.info("Restored {} offset(s) to backfill from. {}", result.size(), result);
+    }
+    return result;
+  }
+
+  Backfill createBackfill(Map<Map<String, String>, Long> sinceIds, long seamMs) {
+    final BiConsumer<Status, Map<String, String>> sink;
+    if (!this.config.outputFormat.raw) {
+      sink = (status, partition) -> onStatus(
+          status, partition, this.partitions.match(status), this.projection, StageLatencies.UNTIMED
+      );
+    } else {
+      // The parser is not thread safe so the backfill thread gets its own converter.
+      final RawStatusConverter converter = new RawStatusConverter(this.config.outputFormat, this.config.topic);
+      sink = (status, partition) -> {
+        String json = TwitterObjectFactory.getRawJSON(status);
+        if (null != json && RawStatusParser.Type.STATUS == converter.parse(json)) {
+          onRawStatus(converter, json, partition, this.partitions.match(converter.parser), StageLatencies.UNTIMED);
+        }
+      };
+    }
+    return new Backfill(
+        new TwitterFactory(this.config.restConfiguration()).getInstance(),
+        this.partitions,
+        sinceIds,
+        sink,
+        this.config.backfillMaxPages,
+        seamMs,
+        this.config.backfillSeamMs
+    );
+  }
+
+  void startBackfill() {
+    this.backfillThread = new Thread(this.backfill, "twitter-backfill");
+    this.backfillThread.setDaemon(true);
+    this.backfillThread.start();
+  }
+
   @Override
   public List<SourceRecord> poll() throws InterruptedException {
-    return this.messageQueue.getBatch();
+    final long start = System.nanoTime();
+    List<SourceRecord> records = this.messageQueue.getBatch();
+    this.metrics.polled(null == records ? 0 : records.size(), System.nanoTime() - start);
+    if (null != this.degradedMode) {
+      this.degradedMode.maybeRecover();
+      this.metrics.degradedLevel = this.degradedMode.level.ordinal();
+    }
+    return records;
+  }
+
+  @Override
+  public void commitRecord(SourceRecord record, RecordMetadata metadata) throws InterruptedException {
+    this.metrics.stages.acknowledged(record);
+    this.messageQueue.acknowledge(record);
   }
 
   @Override
@@ -88,47 +285,479 @@ public class TwitterSourceTask extends SourceTask implements StatusListener {
     if (log.isInfoEnabled()) {
       log.info("Shutting down twitter stream.");
     }
-    twitterStream.shutdown();
+    if (null != this.twitterStream) {
+      this.twitterStream.shutdown();
+    }
+    if (null != this.streamClient) {
+      this.streamClient.close();
+      if (log.isInfoEnabled()) {
+        log.info(
+            "Stream client connects = {} messages = {} bytesRead = {}",
+            this.streamClient.connects.get(),
+            this.streamClient.messages.get(),
+            this.streamClient.bytesRead.get()
+        );
+      }
+    }
+    if (null != this.backfillThread) {
+      this.backfill.stop();
+      this.backfillThread.interrupt();
+      try {
+        this.backfillThread.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (log.isInfoEnabled()) {
+        log.info(
+            "Backfill statuses = {} pages = {} rateLimited = {}",
+            this.backfill.statuses.get(),
+            this.backfill.pages.get(),
+            this.backfill.rateLimited.get()
+        );
+      }
+    }
+    this.messageQueue.close();
+    if (null != this.pipeline) {
+      // After the queue is closed so a worker blocked on a full queue does not hold up the shutdown.
+      this.pipeline.close();
+      if (log.isInfoEnabled()) {
+        log.info(
+            "Conversion pipeline submitted = {} blocked = {}",
+            this.pipeline.submitted.sum(),
+            this.pipeline.blocked.sum()
+        );
+      }
+    }
+    if (null != this.projection.cache && log.isInfoEnabled()) {
+      log.info(
+          "Conversion cache user(hits = {}, misses = {}) place(hits = {}, misses = {})",
+          this.projection.cache.userHits.get(),
+          this.projection.cache.userMisses.get(),
+          this.projection.cache.placeHits.get(),
+          this.projection.cache.placeMisses.get()
+      );
+    }
+    if (null != this.deduplicator) {
+      if (log.isInfoEnabled()) {
+        log.info(
+            "Dedup hits = {} misses = {}",
+            this.deduplicator.hits.get(),
+            this.deduplicator.misses.get()
+        );
+      }
+      if (!this.config.dedupStateFile.isEmpty()) {
+        File file = new File(this.config.dedupStateFile);
+        try {
+          this.deduplicator.save(file);
+        } catch (IOException e) {
+          log.warn("Could not save dedup state to '{}'.", file, e);
+        }
+      }
+    }
+    if (log.isInfoEnabled()) {
+      log.info(
+          "Queue dropped(newest = {}, oldest = {}, lowPriority = {}) spilled = {}",
+          this.messageQueue.droppedNewest.get(),
+          this.messageQueue.droppedOldest.get(),
+          this.messageQueue.droppedLowPriority.get(),
+          this.messageQueue.spilled.get()
+      );
+    }
+    this.metrics.close();
+    this.partitions.unregister(KeywordVolumes.connectorName(this.config));
+  }
+
+  boolean isPriority(Status status) {
+    User user = status.getUser();
+    if (null == user) {
+      return false;
+    }
+    return isPriority(user.isVerified(), user.getFollowersCount());
+  }
+
+  boolean isPriority(boolean verified, int followersCount) {
+    return (this.config.queuePriorityVerified && verified) ||
+        followersCount >= this.config.queuePriorityMinFollowers;
+  }
+
+  class RawListener implements RawStreamListener {
+    final RawStatusConverter converter;
+
+    RawListener(RawStatusConverter converter) {
+      this.converter = converter;
+    }
+
+    @Override
+    public void onMessage(String rawString) {
+      final long received = System.nanoTime();
+      try {
+        RawStatusParser.Type type = this.converter.parse(rawString);
+        switch (type) {
+          case STATUS:
+            metrics.status();
+            if (null != degradedMode && DegradedMode.Level.SHED == degradedMode.level &&
+                !isPriority(this.converter.parser.userVerified, this.converter.parser.userFollowersCount)) {
+              metrics.shed();
+              break;
+            }
+            final int[] matches = partitions.match(this.converter.parser);
+            onRawStatus(
+                this.converter,
+                rawString,
+                partitions.partition(matches, this.converter.parser.userId),
+                matches,
+                received
+            );
+            break;
+          case DELETE:
+            metrics.delete();
+            if (config.processDeletes) {
+              offerDelete(
+                  this.converter.parser.id,
+                  this.converter.parser.userId,
+                  this.converter.parser.hasUserId,
+                  this.converter.parser.hasCreatedAt ? this.converter.parser.createdAt : null
+              );
+            }
+            break;
+          case WARNING:
+            onStallWarning(this.converter.parser.percentFull);
+            if (log.isWarnEnabled()) {
+              log.warn("Stall warning - {}", rawString);
+            }
+            break;
+          case LIMIT:
+            metrics.trackLimitation(this.converter.parser.limitTrack);
+            break;
+          default:
+            if (log.isTraceEnabled()) {
+              log.trace("Ignoring message - {}", rawString);
+            }
+            break;
+        }
+      } catch (Exception ex) {
+        metrics.conversionError();
+        if (log.isErrorEnabled()) {
+          log.error("Exception thrown", ex);
+        }
+      }
+    }
+
+    @Override
+    public void onException(Exception ex) {
+      TwitterSourceTask.this.onException(ex);
+    }
+  }
+
+  /**
+   * @return the keywords to write to the header, or null when the header is turned off.
+   */
+  List<String> matchedKeywords(int[] matches) {
+    return this.config.matchedKeywordsEnabled ? this.partitions.keywords(matches) : null;
+  }
+
+  /**
+   * @param received {@link System#nanoTime()} when the status was received, or {@link StageLatencies#UNTIMED}.
+   */
+  void onRawStatus(RawStatusConverter converter, String json, Map<String, String> partition, int[] matches, long received) {
+    if (isDuplicate(converter.parser.id)) {
+      return;
+    }
+    final long start = System.nanoTime();
+    final String[] topics = this.router.topics(matches, converter.parser.lang, converter.parser.userId);
+    SourceRecord record = converter.status(
+        json,
+        partition,
+        this.partitions.offset(partition, converter.parser.id),
+        matchedKeywords(matches),
+        topics[0]
+    );
+    this.metrics.converted(start);
+    offer(
+        record,
+        topics,
+        isPriority(converter.parser.userVerified, converter.parser.userFollowersCount),
+        received,
+        converter.parser.createdAt
+    );
+  }
+
+  /**
+   * Queues the record for its first topic and a copy for each of the other topics it was routed to.
+   *
+   * @param received    {@link System#nanoTime()} when the status was received, or {@link StageLatencies#UNTIMED}.
+   * @param createdAtMs {@code CreatedAt} of the status, 0 if it is not known.
+   */
+  void offer(SourceRecord record, String[] topics, boolean priority, long received, long createdAtMs) {
+    this.metrics.stages.converted(received, createdAtMs);
+    final long timedCreatedAtMs = StageLatencies.UNTIMED == received ? 0L : createdAtMs;
+    this.messageQueue.offer(record, priority, timedCreatedAtMs);
+    for (int i = 1; i < topics.length; i++) {
+      this.messageQueue.offer(
+          record.newRecord(
+              topics[i],
+              record.kafkaPartition(),
+              record.keySchema(),
+              record.key(),
+              record.valueSchema(),
+              record.value(),
+              record.timestamp(),
+              record.headers().duplicate()
+          ),
+          priority,
+          timedCreatedAtMs
+      );
+    }
+  }
+
+  boolean isDuplicate(long statusId) {
+    if (null != this.backfill && this.backfill.isDuplicateAtSeam(statusId)) {
+      return true;
+    }
+    return null != this.deduplicator && !this.deduplicator.add(statusId);
   }
 
   @Override
   public void onStatus(Status status) {
+    final long received = System.nanoTime();
+    this.metrics.status();
+    StatusProjection projection = this.projection;
+    if (null != this.degradedMode) {
+      final DegradedMode.Level level = this.degradedMode.level;
+      if (DegradedMode.Level.SHED == level && !isPriority(status)) {
+        this.metrics.shed();
+        return;
+      } else if (DegradedMode.Level.NORMAL != level) {
+        projection = this.degradedMode.projection;
+      }
+    }
+    User user = status.getUser();
+    final int[] matches = this.partitions.match(status);
+    onStatus(status, this.partitions.partition(matches, null == user ? 0L : user.getId()), matches, projection, received);
+  }
+
+  /**
+   * @param received {@link System#nanoTime()} when the status was received, or {@link StageLatencies#UNTIMED}.
+   */
+  void onStatus(Status status, Map<String, String> sourcePartition, int[] matches, StatusProjection projection, long received) {
+    if (isDuplicate(status.getId())) {
+      return;
+    }
+    // Routes are worked out in arrival order. Only the conversion itself is handed off.
+    final long statusId = status.getId();
+    final User user = status.getUser();
+    final long userId = null == user ? 0L : user.getId();
+    final String[] topics = this.router.topics(matches, status.getLang(), userId);
+    final boolean priority = isPriority(status);
+    final long createdAtMs = null == status.getCreatedAt() ? 0L : status.getCreatedAt().getTime();
+    if (null == this.pipeline) {
+      final Map<String, ?> sourceOffset = this.partitions.offset(sourcePartition, statusId);
+      SourceRecord record = convert(status, sourcePartition, sourceOffset, matches, topics[0], projection);
+      if (null != record) {
+        offer(record, topics, priority, received, createdAtMs);
+      }
+      return;
+    }
+    if (TwitterSourceConnectorConfig.ConversionOrdering.KEY == this.pipeline.ordering) {
+      /*
+      Lanes queue records out of arrival order. The status holds the offset of its partition below its id until its
+      record is queued, so a newer status from another lane can not commit past it.
+       */
+      this.partitions.hold(sourcePartition, statusId);
+      try {
+        this.pipeline.submit(userId, () -> {
+          final Map<String, ?> sourceOffset = this.partitions.heldOffset(sourcePartition, statusId);
+          SourceRecord record = convert(status, sourcePartition, sourceOffset, matches, topics[0], projection);
+          return () -> {
+            try {
+              if (null != record) {
+                offer(record, topics, priority, received, createdAtMs);
+              }
+            } finally {
+              this.partitions.release(sourcePartition, statusId);
+            }
+          };
+        });
+      } catch (InterruptedException e) {
+        this.partitions.release(sourcePartition, statusId);
+        Thread.currentThread().interrupt();
+        log.warn("Interrupted while waiting to convert status {}.", statusId);
+      }
+      return;
+    }
+    // Offsets are worked out in arrival order, and ARRIVAL queues the records in that order.
+    final Map<String, ?> sourceOffset = this.partitions.offset(sourcePartition, statusId);
     try {
-      Struct keyStruct = new Struct(StatusConverter.STATUS_SCHEMA_KEY);
-      Struct valueStruct = new Struct(StatusConverter.STATUS_SCHEMA);
+      this.pipeline.submit(userId, () -> {
+        SourceRecord record = convert(status, sourcePartition, sourceOffset, matches, topics[0], projection);
+        return null == record ? null : () -> offer(record, topics, priority, received, createdAtMs);
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Interrupted while waiting to convert status {}.", statusId);
+    }
+  }
 
+  SourceRecord convert(Status status, Map<String, ?> sourcePartition, Map<String, ?> sourceOffset, int[] matches, String topic, StatusProjection projection) {
+    try {
+      final long start = System.nanoTime();
+      Struct keyStruct = new Struct(StatusConverter.STATUS_SCHEMA_KEY);
       StatusConverter.convertKey(status, keyStruct);
-      StatusConverter.convert(status, valueStruct);
 
-      Map<String, ?> sourcePartition = ImmutableMap.of();
-      Map<String, ?> sourceOffset = ImmutableMap.of();
+      final Struct valueStruct;
+      if (TwitterSourceConnectorConfig.OutputFormat.FLAT == this.config.outputFormat) {
+        valueStruct = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+        FlatStatusConverter.convert(status, valueStruct);
+      } else {
+        valueStruct = new Struct(projection.statusSchema);
+        projection.convert(status, valueStruct);
+      }
+
+      this.metrics.converted(start);
 
-      SourceRecord record = new SourceRecord(sourcePartition, sourceOffset, this.config.topic, StatusConverter.STATUS_SCHEMA_KEY, keyStruct, StatusConverter.STATUS_SCHEMA, valueStruct);
-      this.messageQueue.add(record);
+      return new SourceRecord(sourcePartition, sourceOffset, topic, null, StatusConverter.STATUS_SCHEMA_KEY, keyStruct, valueStruct.schema(), valueStruct, null, headers(matches));
     } catch (Exception ex) {
+      this.metrics.conversionError();
       if (log.isErrorEnabled()) {
         log.error("Exception thrown", ex);
       }
+      return null;
+    }
+  }
+
+  ConnectHeaders headers(int[] matches) {
+    ConnectHeaders headers = new ConnectHeaders();
+    List<String> matchedKeywords = matchedKeywords(matches);
+    if (null != matchedKeywords && !matchedKeywords.isEmpty()) {
+      headers.addList(KeywordMatcher.HEADER, matchedKeywords, KeywordMatcher.HEADER_SCHEMA);
+    }
+    return headers;
+  }
+
+  /**
+   * Receives the messages of {@link DelimitedStreamClient} for the STRUCT output format. Statuses are read straight
+   * into structs. Everything else is scanned with {@link RawStatusParser}.
+   */
+  class StructListener implements DelimitedStreamClient.Listener {
+    final StatusReader reader = new StatusReader();
+    final RawStatusParser parser = new RawStatusParser();
+
+    @Override
+    public void onMessage(byte[] buffer, int offset, int length) {
+      try {
+        final long start = System.nanoTime();
+        Struct status = this.reader.read(buffer, offset, length);
+        if (null != status) {
+          onStatus(status, start);
+          return;
+        }
+        final String json = new String(buffer, offset, length, StandardCharsets.UTF_8);
+        switch (this.parser.parse(json)) {
+          case DELETE:
+            metrics.delete();
+            if (config.processDeletes) {
+              offerDelete(
+                  this.parser.id,
+                  this.parser.userId,
+                  this.parser.hasUserId,
+                  this.parser.hasCreatedAt ? this.parser.createdAt : null
+              );
+            }
+            break;
+          case WARNING:
+            onStallWarning(this.parser.percentFull);
+            if (log.isWarnEnabled()) {
+              log.warn("Stall warning - {}", json);
+            }
+            break;
+          case LIMIT:
+            metrics.trackLimitation(this.parser.limitTrack);
+            break;
+          default:
+            if (log.isTraceEnabled()) {
+              log.trace("Ignoring message - {}", json);
+            }
+            break;
+        }
+      } catch (Exception ex) {
+        metrics.conversionError();
+        if (log.isErrorEnabled()) {
+          log.error("Exception thrown", ex);
+        }
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #onStatus(Status)} for a status read by {@link StatusReader}. The conversion pipeline is not used,
+   * reading the struct is already the conversion.
+   *
+   * @param status status with every field of {@link StatusConverter#STATUS_SCHEMA}.
+   * @param start  {@link System#nanoTime()} when reading the status started.
+   */
+  void onStatus(Struct status, long start) {
+    this.metrics.status();
+    final Struct user = status.getStruct("User");
+    final boolean priority = null != user && isPriority(user.getBoolean("Verified"), user.getInt32("FollowersCount"));
+    StatusProjection projection = this.projection;
+    if (null != this.degradedMode) {
+      final DegradedMode.Level level = this.degradedMode.level;
+      if (DegradedMode.Level.SHED == level && !priority) {
+        this.metrics.shed();
+        return;
+      } else if (DegradedMode.Level.NORMAL != level) {
+        projection = this.degradedMode.projection;
+      }
+    }
+    final long statusId = status.getInt64("Id");
+    final long userId = null == user ? 0L : user.getInt64("Id");
+    final int[] matches = this.partitions.match(status);
+    final Map<String, String> sourcePartition = this.partitions.partition(matches, userId);
+    if (isDuplicate(statusId)) {
+      return;
+    }
+    final Map<String, ?> sourceOffset = this.partitions.offset(sourcePartition, statusId);
+    final String[] topics = this.router.topics(matches, status.getString("Lang"), userId);
+    Struct keyStruct = new Struct(StatusConverter.STATUS_SCHEMA_KEY)
+        .put("Id", statusId);
+    final Struct valueStruct;
+    if (TwitterSourceConnectorConfig.OutputFormat.FLAT == this.config.outputFormat) {
+      valueStruct = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+      FlatStatusConverter.convert(status, valueStruct);
+    } else {
+      valueStruct = projection.project(status);
+    }
+    this.metrics.converted(start);
+    final Date createdAt = (Date) status.get("CreatedAt");
+    offer(
+        new SourceRecord(sourcePartition, sourceOffset, topics[0], null, StatusConverter.STATUS_SCHEMA_KEY, keyStruct, valueStruct.schema(), valueStruct, null, headers(matches)),
+        topics,
+        priority,
+        start,
+        null == createdAt ? 0L : createdAt.getTime()
+    );
+  }
+
+  /**
+   * Queues the records {@link DeleteRecords} builds for a deletion notice. Deletes are always priority.
+   */
+  void offerDelete(long statusId, long userId, boolean hasUserId, Long timestamp) {
+    for (SourceRecord record : this.deletes.records(statusId, userId, hasUserId, timestamp)) {
+      this.messageQueue.offer(record, true);
     }
   }
 
   @Override
   public void onDeletionNotice(StatusDeletionNotice statusDeletionNotice) {
+    this.metrics.delete();
     if (!this.config.processDeletes) {
       return;
     }
 
     try {
-      Struct keyStruct = new Struct(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY);
-
-      StatusConverter.convertKey(statusDeletionNotice, keyStruct);
-
-      Map<String, ?> sourcePartition = ImmutableMap.of();
-      Map<String, ?> sourceOffset = ImmutableMap.of();
-
-      SourceRecord record = new SourceRecord(sourcePartition, sourceOffset, this.config.topic, StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY, keyStruct, null, null);
-      this.messageQueue.add(record);
+      offerDelete(statusDeletionNotice.getStatusId(), statusDeletionNotice.getUserId(), true, null);
     } catch (Exception ex) {
+      this.metrics.conversionError();
       if (log.isErrorEnabled()) {
         log.error("Exception thrown", ex);
       }
@@ -136,8 +765,8 @@ public class TwitterSourceTask extends SourceTask implements StatusListener {
   }
 
   @Override
-  public void onTrackLimitationNotice(int i) {
-
+  public void onTrackLimitationNotice(int numberOfLimitedStatuses) {
+    this.metrics.trackLimitation(numberOfLimitedStatuses);
   }
 
   @Override
@@ -147,11 +776,20 @@ public class TwitterSourceTask extends SourceTask implements StatusListener {
 
   @Override
   public void onStallWarning(StallWarning stallWarning) {
+    onStallWarning(stallWarning.getPercentFull());
     if (log.isWarnEnabled()) {
       log.warn("code = '{}' percentFull = '{}' - {}", stallWarning.getCode(), stallWarning.getPercentFull(), stallWarning.getMessage());
     }
   }
 
+  void onStallWarning(int percentFull) {
+    this.metrics.stallWarning(percentFull);
+    if (null != this.degradedMode) {
+      this.degradedMode.onStallWarning(percentFull);
+      this.metrics.degradedLevel = this.degradedMode.level.ordinal();
+    }
+  }
+
   @Override
   public void onException(Exception e) {
     if (log.isErrorEnabled()) {
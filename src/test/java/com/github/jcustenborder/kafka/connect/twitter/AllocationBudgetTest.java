@@ -0,0 +1,342 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import twitter4j.GeoLocation;
+import twitter4j.Place;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+import twitter4j.User;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Bytes allocated per converted status, measured with {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes}
+ * after the conversion has been warmed up. Each fixture has a budget, so a change that adds garbage to the conversion
+ * hot path fails the build instead of showing up as longer gc pauses. The fixtures are {@link
+ * StatusConverterTest#mockStatus()} written out as json and parsed with twitter4j, since a mockito mock allocates on
+ * every call. When a change legitimately needs more, update the budget alongside it.
+ */
+public class AllocationBudgetTest {
+  private static final Logger log = LoggerFactory.getLogger(AllocationBudgetTest.class);
+  static final int WARMUP = 20000;
+  static final int ITERATIONS = 2000;
+  static final int RETAINED_RECORDS = 5000;
+  static final String SMALL = "small";
+  static final String MEDIA = "media";
+  static final String ENTITIES = "entities";
+
+  /**
+   * Bytes per operation by fixture. These are roughly a quarter above what was measured when they were recorded.
+   */
+  static final Map<String, Long> CONVERT_BUDGETS = budgets(9000L, 10000L, 8200L);
+  static final Map<String, Long> READ_BUDGETS = budgets(13800L, 17900L, 14900L);
+  static final Map<String, Long> RAW_BUDGETS = budgets(900L, 900L, 1100L);
+
+  static Map<String, String> fixtures;
+
+  static Map<String, Long> budgets(long small, long media, long entities) {
+    Map<String, Long> result = new LinkedHashMap<>();
+    result.put(SMALL, small);
+    result.put(MEDIA, media);
+    result.put(ENTITIES, entities);
+    return result;
+  }
+
+  @BeforeAll
+  public static void setup() {
+    fixtures = new LinkedHashMap<>();
+    // Profile image urls from the api always carry the _normal size that twitter4j resizes.
+    final String status = json(StatusConverterTest.mockStatus()).replace("/profile.jpg", "/profile_normal.jpg");
+    fixtures.put(SMALL, status);
+    fixtures.put(MEDIA, status.replace("\"entities\":{", "\"entities\":{" + MEDIA_ENTITIES + ","));
+    fixtures.put(ENTITIES, status.replace(EMPTY_ENTITIES, "\"entities\":{" + TEXT_ENTITIES + "}"));
+  }
+
+  static final String EMPTY_ENTITIES = "\"entities\":{\"hashtags\":[],\"urls\":[],\"user_mentions\":[],\"symbols\":[]}";
+  static final String MEDIA_ENTITIES = "\"media\":[" + media(1) + "," + media(2) + "]";
+  static final String TEXT_ENTITIES = "\"hashtags\":[{\"text\":\"kafka\",\"indices\":[0,6]}," +
+      "{\"text\":\"connect\",\"indices\":[7,15]}]," +
+      "\"user_mentions\":[{\"screen_name\":\"example\",\"name\":\"Example User\",\"id\":1234,\"indices\":[16,24]}]," +
+      "\"urls\":[{\"url\":\"https://t.co/abc\",\"expanded_url\":\"https://www.example.com/a/long/path\"," +
+      "\"display_url\":\"example.com/a/long\",\"indices\":[25,48]}]," +
+      "\"symbols\":[{\"text\":\"TWTR\",\"indices\":[49,54]}]";
+
+  static String media(int id) {
+    return "{\"id\":" + id + ",\"type\":\"photo\",\"url\":\"https://t.co/m" + id + "\"," +
+        "\"expanded_url\":\"https://twitter.com/example/status/9823452/photo/" + id + "\"," +
+        "\"display_url\":\"pic.twitter.com/m" + id + "\"," +
+        "\"media_url\":\"http://pbs.twimg.com/media/m" + id + ".jpg\"," +
+        "\"media_url_https\":\"https://pbs.twimg.com/media/m" + id + ".jpg\",\"indices\":[15,38]," +
+        "\"sizes\":{\"thumb\":{\"w\":150,\"h\":150,\"resize\":\"crop\"},\"small\":{\"w\":680,\"h\":453,\"resize\":\"fit\"}," +
+        "\"medium\":{\"w\":1200,\"h\":800,\"resize\":\"fit\"},\"large\":{\"w\":2048,\"h\":1365,\"resize\":\"fit\"}}}";
+  }
+
+  /**
+   * Writes the fields of a status the way the streaming api does.
+   */
+  static String json(Status status) {
+    SimpleDateFormat format = new SimpleDateFormat("EEE MMM dd HH:mm:ss Z yyyy", Locale.ENGLISH);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    User user = status.getUser();
+    Place place = status.getPlace();
+    GeoLocation geoLocation = status.getGeoLocation();
+    StringBuilder builder = new StringBuilder(4096)
+        .append("{\"created_at\":\"").append(format.format(status.getCreatedAt())).append('"')
+        .append(",\"id\":").append(status.getId())
+        .append(",\"text\":\"").append(status.getText()).append('"')
+        .append(",\"source\":\"").append(status.getSource()).append('"')
+        .append(",\"truncated\":").append(status.isTruncated())
+        .append(",\"in_reply_to_status_id\":").append(status.getInReplyToStatusId())
+        .append(",\"in_reply_to_user_id\":").append(status.getInReplyToUserId())
+        .append(",\"in_reply_to_screen_name\":\"").append(status.getInReplyToScreenName()).append('"')
+        .append(",\"user\":{")
+        .append("\"id\":").append(user.getId())
+        .append(",\"name\":\"").append(user.getName()).append('"')
+        .append(",\"screen_name\":\"").append(user.getScreenName()).append('"')
+        .append(",\"location\":\"").append(user.getLocation()).append('"')
+        .append(",\"url\":\"").append(user.getURL()).append('"')
+        .append(",\"description\":\"").append(user.getDescription()).append('"')
+        .append(",\"protected\":").append(user.isProtected())
+        .append(",\"verified\":").append(user.isVerified())
+        .append(",\"followers_count\":").append(user.getFollowersCount())
+        .append(",\"friends_count\":").append(user.getFriendsCount())
+        .append(",\"listed_count\":").append(user.getListedCount())
+        .append(",\"favourites_count\":").append(user.getFavouritesCount())
+        .append(",\"statuses_count\":").append(user.getStatusesCount())
+        .append(",\"created_at\":\"").append(format.format(user.getCreatedAt())).append('"')
+        .append(",\"utc_offset\":").append(user.getUtcOffset())
+        .append(",\"time_zone\":\"").append(user.getTimeZone()).append('"')
+        .append(",\"geo_enabled\":").append(user.isGeoEnabled())
+        .append(",\"lang\":\"").append(user.getLang()).append('"')
+        .append(",\"contributors_enabled\":").append(user.isContributorsEnabled())
+        .append(",\"is_translator\":").append(user.isTranslator())
+        .append(",\"profile_background_color\":\"").append(user.getProfileBackgroundColor()).append('"')
+        .append(",\"profile_background_image_url\":\"").append(user.getProfileBackgroundImageURL()).append('"')
+        .append(",\"profile_background_image_url_https\":\"").append(user.getProfileBackgroundImageUrlHttps()).append('"')
+        .append(",\"profile_background_tile\":").append(user.isProfileBackgroundTiled())
+        .append(",\"profile_link_color\":\"").append(user.getProfileLinkColor()).append('"')
+        .append(",\"profile_sidebar_border_color\":\"").append(user.getProfileSidebarBorderColor()).append('"')
+        .append(",\"profile_sidebar_fill_color\":\"").append(user.getProfileSidebarFillColor()).append('"')
+        .append(",\"profile_text_color\":\"").append(user.getProfileTextColor()).append('"')
+        .append(",\"profile_use_background_image\":").append(user.isProfileUseBackgroundImage())
+        .append(",\"profile_image_url\":\"").append(user.getProfileImageURL()).append('"')
+        .append(",\"profile_image_url_https\":\"").append(user.getProfileImageURLHttps()).append('"')
+        .append(",\"profile_banner_url\":\"").append(user.getProfileBannerURL()).append('"')
+        .append(",\"default_profile\":").append(user.isDefaultProfile())
+        .append(",\"default_profile_image\":").append(user.isDefaultProfileImage())
+        .append(",\"follow_request_sent\":").append(user.isFollowRequestSent())
+        .append(",\"withheld_in_countries\":[\"").append(String.join("\",\"", user.getWithheldInCountries())).append("\"]")
+        .append('}')
+        .append(",\"coordinates\":{\"type\":\"Point\",\"coordinates\":[")
+        .append(geoLocation.getLongitude()).append(',').append(geoLocation.getLatitude()).append("]}")
+        .append(",\"place\":{")
+        .append("\"id\":\"").append(place.getId()).append('"')
+        .append(",\"url\":\"").append(place.getURL()).append('"')
+        .append(",\"place_type\":\"").append(place.getPlaceType()).append('"')
+        .append(",\"name\":\"").append(place.getName()).append('"')
+        .append(",\"full_name\":\"").append(place.getFullName()).append('"')
+        .append(",\"country_code\":\"").append(place.getCountryCode()).append('"')
+        .append(",\"country\":\"").append(place.getCountry()).append('"')
+        .append(",\"street_address\":\"").append(place.getStreetAddress()).append('"')
+        .append('}')
+        .append(",\"contributors\":[");
+    long[] contributors = status.getContributors();
+    for (int i = 0; i < contributors.length; i++) {
+      builder.append(i > 0 ? "," : "").append(contributors[i]);
+    }
+    return builder.append(']')
+        .append(",\"retweet_count\":").append(status.getRetweetCount())
+        .append(",\"favorite_count\":").append(status.getFavoriteCount())
+        .append(',').append(EMPTY_ENTITIES)
+        .append(",\"favorited\":").append(status.isFavorited())
+        .append(",\"retweeted\":").append(status.isRetweeted())
+        .append(",\"possibly_sensitive\":").append(status.isPossiblySensitive())
+        .append(",\"current_user_retweet\":{\"id\":").append(status.getCurrentUserRetweetId()).append('}')
+        .append(",\"lang\":\"").append(status.getLang()).append('"')
+        .append(",\"withheld_in_countries\":[\"").append(String.join("\",\"", status.getWithheldInCountries())).append("\"]")
+        .append(",\"timestamp_ms\":\"").append(status.getCreatedAt().getTime()).append('"')
+        .append('}')
+        .toString();
+  }
+
+  static com.sun.management.ThreadMXBean threadMXBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(
+        bean instanceof com.sun.management.ThreadMXBean &&
+            ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported(),
+        "Thread allocation counters are not available on this JVM."
+    );
+    com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) bean;
+    result.setThreadAllocatedMemoryEnabled(true);
+    return result;
+  }
+
+  /**
+   * @return bytes allocated by the current thread per call, after warming the operation up.
+   */
+  static long allocatedPerOperation(Supplier<Object> operation) {
+    final com.sun.management.ThreadMXBean bean = threadMXBean();
+    final long threadId = Thread.currentThread().getId();
+    Object sink = null;
+    for (int i = 0; i < WARMUP; i++) {
+      sink = operation.get();
+    }
+    final long start = bean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink = operation.get();
+    }
+    final long allocated = bean.getThreadAllocatedBytes(threadId) - start;
+    assertTrue(null != sink);
+    return allocated / ITERATIONS;
+  }
+
+  static void assertWithinBudgets(String name, Map<String, Long> budgets, Map<String, Supplier<Object>> operations) {
+    List<String> failures = new ArrayList<>();
+    for (Map.Entry<String, Supplier<Object>> operation : operations.entrySet()) {
+      final long allocated = allocatedPerOperation(operation.getValue());
+      final long budget = budgets.get(operation.getKey());
+      log.info("{} fixture = {} allocated = {} bytes/op budget = {}", name, operation.getKey(), allocated, budget);
+      if (allocated > budget) {
+        failures.add(String.format("%s allocated %s bytes/op, the budget is %s.", operation.getKey(), allocated, budget));
+      }
+    }
+    assertTrue(failures.isEmpty(), name + ": " + String.join(" ", failures));
+  }
+
+  static Status status(String json) {
+    try {
+      return TwitterObjectFactory.createStatus(json);
+    } catch (TwitterException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Converting a parsed status to a struct, the STRUCT output format with twitter4j.
+   */
+  @Test
+  public void convertStatus() {
+    Map<String, Supplier<Object>> operations = new LinkedHashMap<>();
+    for (Map.Entry<String, String> fixture : fixtures.entrySet()) {
+      final Status status = status(fixture.getValue());
+      operations.put(fixture.getKey(), () -> {
+        Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+        StatusConverter.convert(status, struct);
+        return struct;
+      });
+    }
+    assertWithinBudgets("convertStatus", CONVERT_BUDGETS, operations);
+  }
+
+  /**
+   * Reading a struct from the bytes of a message, the STRUCT output format with the built-in stream client.
+   */
+  @Test
+  public void readStatus() {
+    Map<String, Supplier<Object>> operations = new LinkedHashMap<>();
+    for (Map.Entry<String, String> fixture : fixtures.entrySet()) {
+      final byte[] bytes = fixture.getValue().getBytes(StandardCharsets.UTF_8);
+      final StatusReader reader = new StatusReader();
+      operations.put(fixture.getKey(), () -> reader.read(bytes, 0, bytes.length));
+    }
+    assertWithinBudgets("readStatus", READ_BUDGETS, operations);
+  }
+
+  /**
+   * Scanning a message and building its record, the raw output formats.
+   */
+  @Test
+  public void convertRaw() {
+    Map<String, Supplier<Object>> operations = new LinkedHashMap<>();
+    for (Map.Entry<String, String> fixture : fixtures.entrySet()) {
+      final String json = fixture.getValue();
+      final RawStatusConverter converter = new RawStatusConverter(
+          TwitterSourceConnectorConfig.OutputFormat.JSON_STRING, "twitter"
+      );
+      operations.put(fixture.getKey(), () -> {
+        converter.parse(json);
+        return converter.status(json, StatusPartitions.UNMATCHED, StatusPartitions.NO_OFFSET);
+      });
+    }
+    assertWithinBudgets("convertRaw", RAW_BUDGETS, operations);
+  }
+
+  static long usedHeap(MemoryMXBean bean) throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    return bean.getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * Heap retained by a queued record, measured by holding on to a batch of records between two full collections.
+   * Every record is converted from a freshly parsed status that is then dropped, so the record keeps its own copy of
+   * the strings the same as on a live stream. The estimate the queue budgets queue.max.bytes with has to stay in the
+   * same ballpark.
+   */
+  @Test
+  public void retainedPerRecord() throws InterruptedException {
+    final MemoryMXBean bean = ManagementFactory.getMemoryMXBean();
+    for (Map.Entry<String, String> fixture : fixtures.entrySet()) {
+      final String json = fixture.getValue();
+      final SourceRecord[] records = new SourceRecord[RETAINED_RECORDS];
+      final long before = usedHeap(bean);
+      for (int i = 0; i < records.length; i++) {
+        final Status status = status(json);
+        Struct key = new Struct(StatusConverter.STATUS_SCHEMA_KEY);
+        StatusConverter.convertKey(status, key);
+        Struct value = new Struct(StatusConverter.STATUS_SCHEMA);
+        StatusConverter.convert(status, value);
+        records[i] = new SourceRecord(
+            StatusPartitions.UNMATCHED, StatusPartitions.NO_OFFSET, "twitter",
+            StatusConverter.STATUS_SCHEMA_KEY, key, StatusConverter.STATUS_SCHEMA, value
+        );
+      }
+      final long after = usedHeap(bean);
+      final long retained = (after - before) / records.length;
+      final long estimate = RecordSizes.estimate(records[0]);
+      log.info("retainedPerRecord fixture = {} retained = {} bytes/record estimate = {}", fixture.getKey(), retained, estimate);
+      assertTrue(null != records[records.length - 1]);
+      assertTrue(
+          retained > 0 && estimate >= retained / 2 && estimate <= retained * 4,
+          String.format("%s: estimate of %s bytes is too far from the %s bytes retained.", fixture.getKey(), estimate, retained)
+      );
+    }
+  }
+}
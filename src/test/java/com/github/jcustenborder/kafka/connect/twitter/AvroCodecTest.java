@@ -0,0 +1,169 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.jupiter.api.Test;
+import twitter4j.Status;
+import twitter4j.TwitterObjectFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AvroCodecTest {
+
+  static byte[] encode(AvroCodec codec, Object value) {
+    AvroCodec.Output output = new AvroCodec.Output(16);
+    codec.write(value, output);
+    return output.toByteArray();
+  }
+
+  static Object decode(AvroCodec codec, byte[] message) {
+    assertEquals(codec.fingerprint, AvroCodec.headerFingerprint(message, message.length));
+    return codec.read(new AvroCodec.Input(message, AvroCodec.HEADER_LENGTH, message.length));
+  }
+
+  /**
+   * Fingerprints from the Avro specification's test data.
+   */
+  @Test
+  public void fingerprint() {
+    assertEquals(7195948357588979594L, AvroCodec.fingerprint("\"null\"".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(8247732601305521295L, AvroCodec.fingerprint("\"int\"".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void zigZag() {
+    AvroCodec.Output output = new AvroCodec.Output(1);
+    for (long value : new long[]{0L, -1L, 1L, -64L, 64L, Long.MIN_VALUE}) {
+      output.writeLong(value);
+    }
+    byte[] expected = new byte[]{
+        0x00, 0x01, 0x02, 0x7f, (byte) 0x80, 0x01,
+        (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+        (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x01
+    };
+    assertArrayEquals(expected, output.toByteArray());
+
+    AvroCodec.Input input = new AvroCodec.Input(expected, 0, expected.length);
+    for (long value : new long[]{0L, -1L, 1L, -64L, 64L, Long.MIN_VALUE}) {
+      assertEquals(value, input.readLong());
+    }
+  }
+
+  @Test
+  public void canonicalForm() {
+    Schema entry = SchemaBuilder.struct()
+        .name("com.github.jcustenborder.kafka.connect.twitter.Entry")
+        .field("Text", Schema.OPTIONAL_STRING_SCHEMA)
+        .build();
+    Schema schema = SchemaBuilder.struct()
+        .name("com.github.jcustenborder.kafka.connect.twitter.Test")
+        .field("Id", Schema.INT64_SCHEMA)
+        .field("Sizes", SchemaBuilder.map(Schema.INT32_SCHEMA, Schema.STRING_SCHEMA).build())
+        .field("First", entry)
+        .field("Rest", SchemaBuilder.array(entry).optional().build())
+        .build();
+    assertEquals(
+        "{\"name\":\"com.github.jcustenborder.kafka.connect.twitter.Test\",\"type\":\"record\",\"fields\":[" +
+            "{\"name\":\"Id\",\"type\":\"long\"}," +
+            "{\"name\":\"Sizes\",\"type\":{\"type\":\"array\",\"items\":" +
+            "{\"name\":\"com.github.jcustenborder.kafka.connect.twitter.Test.SizesEntry\",\"type\":\"record\"," +
+            "\"fields\":[{\"name\":\"key\",\"type\":\"int\"},{\"name\":\"value\",\"type\":\"string\"}]}}}," +
+            "{\"name\":\"First\",\"type\":" +
+            "{\"name\":\"com.github.jcustenborder.kafka.connect.twitter.Entry\",\"type\":\"record\",\"fields\":[" +
+            "{\"name\":\"Text\",\"type\":[\"null\",\"string\"]}]}}," +
+            "{\"name\":\"Rest\",\"type\":[\"null\",{\"type\":\"array\"," +
+            "\"items\":\"com.github.jcustenborder.kafka.connect.twitter.Entry\"}]}]}",
+        AvroCodec.of(schema).canonicalForm
+    );
+  }
+
+  @Test
+  public void unsupported() {
+    assertThrows(DataException.class, () -> AvroCodec.of(
+        SchemaBuilder.struct().name("com.github.jcustenborder.kafka.connect.twitter.Test")
+            .field("Amount", Decimal.schema(2))
+            .build()
+    ));
+    Schema first = SchemaBuilder.struct().name("com.github.jcustenborder.kafka.connect.twitter.Entry")
+        .field("Text", Schema.STRING_SCHEMA)
+        .build();
+    Schema second = SchemaBuilder.struct().name("com.github.jcustenborder.kafka.connect.twitter.Entry")
+        .field("Id", Schema.INT64_SCHEMA)
+        .build();
+    assertThrows(DataException.class, () -> AvroCodec.of(
+        SchemaBuilder.struct().name("com.github.jcustenborder.kafka.connect.twitter.Test")
+            .field("First", first)
+            .field("Second", second)
+            .build()
+    ));
+  }
+
+  @Test
+  public void truncated() {
+    AvroCodec codec = AvroCodec.of(StatusConverter.STATUS_SCHEMA_KEY);
+    Struct key = new Struct(StatusConverter.STATUS_SCHEMA_KEY).put("Id", 1234L);
+    byte[] message = encode(codec, key);
+    assertEquals(key, decode(codec, message));
+    byte[] truncated = Arrays.copyOf(message, message.length - 1);
+    assertThrows(DataException.class, () -> decode(codec, truncated));
+    assertNull(AvroCodec.headerFingerprint(new byte[]{'{', '}'}, 2));
+  }
+
+  @Test
+  public void corpus() throws Exception {
+    AvroCodec nested = AvroCodec.of(StatusConverter.STATUS_SCHEMA);
+    AvroCodec flat = AvroCodec.of(StatusConverter.FLAT_STATUS_SCHEMA);
+    StatusProjection projection = new StatusProjection(
+        Arrays.asList("Id", "Text", "User", "HashtagEntities"), Collections.singletonList("ScreenName")
+    );
+    AvroCodec projected = AvroCodec.of(projection.statusSchema);
+    Struct mock = new Struct(StatusConverter.STATUS_SCHEMA);
+    StatusConverter.convert(StatusConverterTest.mockStatus(), mock);
+    assertEquals(mock, decode(nested, encode(nested, mock)));
+
+    List<String> corpus = StreamingStubServer.corpus(TwitterSourceTaskTest.CORPUS);
+    for (String json : corpus) {
+      if (json.startsWith("{\"delete\"")) {
+        continue;
+      }
+      Status status = TwitterObjectFactory.createStatus(json);
+      Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+      StatusConverter.convert(status, struct);
+      assertEquals(struct, decode(nested, encode(nested, struct)));
+
+      Struct flatStruct = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+      FlatStatusConverter.convert(status, flatStruct);
+      assertEquals(flatStruct, decode(flat, encode(flat, flatStruct)));
+
+      Struct projectedStruct = new Struct(projection.statusSchema);
+      projection.convert(status, projectedStruct);
+      assertEquals(projectedStruct, decode(projected, encode(projected, projectedStruct)));
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import twitter4j.Query;
+import twitter4j.QueryResult;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BackfillTest {
+
+  static long statusId(long timestamp) {
+    return (timestamp - Backfill.ID_EPOCH_MS) << 22;
+  }
+
+  @Test
+  public void timestamp() {
+    // Wed Oct 10 20:19:24 +0000 2018
+    assertEquals(1539202764211L, Backfill.timestamp(1050118621198921729L));
+  }
+
+  @Test
+  public void seam() {
+    final long seamMs = 1600000000000L;
+    Backfill backfill = new Backfill(
+        null,
+        new StatusPartitions(Collections.emptyList(), Collections.emptyList()),
+        Collections.emptyMap(),
+        (status, partition) -> { },
+        1,
+        seamMs,
+        1000L
+    );
+    final long atSeam = statusId(seamMs + 500L);
+    assertFalse(backfill.isDuplicateAtSeam(atSeam), "First delivery should be written.");
+    assertTrue(backfill.isDuplicateAtSeam(atSeam), "Second delivery near the seam should be dropped.");
+
+    final long beforeSeam = statusId(seamMs - 5000L);
+    assertFalse(backfill.isDuplicateAtSeam(beforeSeam));
+    assertFalse(backfill.isDuplicateAtSeam(beforeSeam), "Ids outside of the grace period are not tracked.");
+  }
+
+  static Backfill backfill(Twitter twitter, StatusPartitions partitions, Map<String, String> partition) {
+    Map<Map<String, String>, Long> sinceIds = partitions.restore(
+        ImmutableMap.of(partition, ImmutableMap.of("statusId", 100L))
+    );
+    Backfill backfill = new Backfill(
+        twitter, partitions, sinceIds, (status, p) -> { }, 10, System.currentTimeMillis(), 1000L
+    );
+    backfill.retryBackoffMs = 1L;
+    return backfill;
+  }
+
+  @Test
+  public void failureKeepsOffsetHeld() throws TwitterException {
+    Twitter twitter = mock(Twitter.class);
+    when(twitter.search(any(Query.class))).thenThrow(new TwitterException("Service Unavailable"));
+    StatusPartitions partitions = new StatusPartitions(Collections.singletonList("kafka"), Collections.emptyList());
+    Map<String, String> kafka = StatusPartitions.keywordPartition("kafka");
+    Backfill backfill = backfill(twitter, partitions, kafka);
+    backfill.run();
+    verify(twitter, times(Backfill.MAX_ATTEMPTS)).search(any(Query.class));
+    assertEquals(1L, backfill.failed.get());
+    assertEquals(ImmutableMap.of("statusId", 100L), partitions.offset(kafka, 150L), "Offset should still be held.");
+  }
+
+  @Test
+  public void retriedFailureCompletes() throws TwitterException {
+    Twitter twitter = mock(Twitter.class);
+    QueryResult empty = mock(QueryResult.class);
+    when(empty.getTweets()).thenReturn(Collections.emptyList());
+    when(twitter.search(any(Query.class)))
+        .thenThrow(new TwitterException("Service Unavailable"))
+        .thenReturn(empty);
+    StatusPartitions partitions = new StatusPartitions(Collections.singletonList("kafka"), Collections.emptyList());
+    Map<String, String> kafka = StatusPartitions.keywordPartition("kafka");
+    Backfill backfill = backfill(twitter, partitions, kafka);
+    backfill.run();
+    assertEquals(0L, backfill.failed.get());
+    assertEquals(ImmutableMap.of("statusId", 150L), partitions.offset(kafka, 150L));
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchSizerTest {
+
+  @Test
+  public void fixed() {
+    BatchSizer sizer = BatchSizer.fixed(100);
+    sizer.polled(100, 5000L, 0);
+    assertEquals(100, sizer.size());
+    sizer.polled(100, 0L, 100000);
+    assertEquals(100, sizer.size());
+  }
+
+  @Test
+  public void growsWhileRecordsAreLeftBehind() {
+    BatchSizer sizer = new BatchSizer(100, 1000, Long.MAX_VALUE, true);
+    sizer.polled(100, 5000L, 0);
+    assertEquals(200, sizer.size());
+    // The batch was not full, so more records would not have been returned.
+    sizer.polled(150, 5000L, 0);
+    assertEquals(200, sizer.size());
+    sizer.polled(200, 0L, 0);
+    assertEquals(200, sizer.size());
+    for (int i = 0; i < 10; i++) {
+      sizer.polled(sizer.size(), 5000L, 0);
+    }
+    assertEquals(1000, sizer.size());
+  }
+
+  @Test
+  public void shrinksWhileProducerIsBehind() {
+    BatchSizer sizer = new BatchSizer(100, 1000, Long.MAX_VALUE, true);
+    for (int i = 0; i < 4; i++) {
+      sizer.polled(sizer.size(), 5000L, 0);
+    }
+    assertEquals(1000, sizer.size());
+    sizer.polled(1000, 5000L, 2001);
+    assertEquals(500, sizer.size());
+    sizer.polled(500, 5000L, 1000);
+    assertEquals(1000, sizer.size());
+    for (int i = 0; i < 10; i++) {
+      sizer.polled(sizer.size(), 5000L, 100000);
+    }
+    assertEquals(100, sizer.size());
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+import twitter4j.Place;
+import twitter4j.Status;
+import twitter4j.User;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.when;
+
+public class ConversionCacheTest {
+
+  static Struct convert(User user) {
+    Struct struct = new Struct(StatusConverter.USER_SCHEMA);
+    StatusConverter.convert(user, struct);
+    return struct;
+  }
+
+  @Test
+  public void userHit() {
+    ConversionCache cache = new ConversionCache(10);
+    User user = StatusConverterTest.mockUser();
+    Struct first = cache.user(user, ConversionCacheTest::convert);
+    Struct second = cache.user(user, ConversionCacheTest::convert);
+    assertSame(first, second);
+    assertEquals(1L, cache.userHits.get());
+    assertEquals(1L, cache.userMisses.get());
+  }
+
+  @Test
+  public void userChanged() {
+    ConversionCache cache = new ConversionCache(10);
+    User user = StatusConverterTest.mockUser();
+    Struct first = cache.user(user, ConversionCacheTest::convert);
+    final int followersCount = user.getFollowersCount() + 1;
+    when(user.getFollowersCount()).thenReturn(followersCount);
+    Struct second = cache.user(user, ConversionCacheTest::convert);
+    assertNotSame(first, second);
+    assertEquals(user.getFollowersCount(), second.getInt32("FollowersCount"));
+    assertEquals(2L, cache.userMisses.get());
+  }
+
+  @Test
+  public void leastRecentlyUsedIsEvicted() {
+    ConversionCache cache = new ConversionCache(2);
+    User a = StatusConverterTest.mockUser();
+    User b = StatusConverterTest.mockUser();
+    when(b.getId()).thenReturn(2L);
+    User c = StatusConverterTest.mockUser();
+    when(c.getId()).thenReturn(3L);
+
+    Struct structA = cache.user(a, ConversionCacheTest::convert);
+    cache.user(b, ConversionCacheTest::convert);
+    // Touch a so b is the eldest.
+    assertSame(structA, cache.user(a, ConversionCacheTest::convert));
+    cache.user(c, ConversionCacheTest::convert);
+    assertSame(structA, cache.user(a, ConversionCacheTest::convert));
+    cache.user(b, ConversionCacheTest::convert);
+    assertEquals(4L, cache.userMisses.get());
+  }
+
+  @Test
+  public void place() {
+    ConversionCache cache = new ConversionCache(10);
+    Place place = StatusConverterTest.mockPlace();
+    Struct first = cache.place(place, GeneratedConverters::convert);
+    assertSame(first, cache.place(place, GeneratedConverters::convert));
+    when(place.getFullName()).thenReturn("Renamed place");
+    assertNotSame(first, cache.place(place, GeneratedConverters::convert));
+  }
+
+  @Test
+  public void projectionReusesStructs() {
+    StatusProjection projection = new StatusProjection(
+        Collections.emptyList(), Collections.emptyList(), new ConversionCache(10), new StringInterner(10)
+    );
+    Status first = StatusConverterTest.mockStatus();
+    Status second = StatusConverterTest.mockStatus();
+    when(first.getLang()).thenReturn(new String("en"));
+    when(second.getLang()).thenReturn(new String("en"));
+
+    Struct firstStruct = new Struct(projection.statusSchema);
+    projection.convert(first, firstStruct);
+    Struct secondStruct = new Struct(projection.statusSchema);
+    projection.convert(second, secondStruct);
+
+    firstStruct.validate();
+    assertEquals(firstStruct, secondStruct);
+    assertSame(firstStruct.get("User"), secondStruct.get("User"));
+    assertSame(firstStruct.get("Place"), secondStruct.get("Place"));
+    assertSame(firstStruct.get("Lang"), secondStruct.get("Lang"));
+  }
+
+  @Test
+  public void interner() {
+    StringInterner interner = new StringInterner(2);
+    String en = interner.intern(new String("en"));
+    assertSame(en, interner.intern(new String("en")));
+    interner.intern("fr");
+    // The table is full, so it is cleared and starts over.
+    interner.intern("de");
+    assertNotSame(en, interner.intern(new String("en")));
+  }
+}
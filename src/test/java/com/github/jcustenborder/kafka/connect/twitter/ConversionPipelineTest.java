@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConversionPipelineTest {
+
+  static void slow(Random random) {
+    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(random.nextInt(200)));
+  }
+
+  @Test
+  public void arrivalOrder() throws InterruptedException {
+    final List<Integer> published = Collections.synchronizedList(new ArrayList<>());
+    final Random random = new Random(1234);
+    try (ConversionPipeline pipeline = new ConversionPipeline(4, TwitterSourceConnectorConfig.ConversionOrdering.ARRIVAL, 16)) {
+      for (int i = 0; i < 1000; i++) {
+        final int value = i;
+        final int delay = random.nextInt(3);
+        pipeline.submit(i, () -> {
+          if (delay == 0) {
+            slow(new Random(value));
+          }
+          // Every 10th conversion fails and is skipped without holding up the rest.
+          return value % 10 == 9 ? null : () -> published.add(value);
+        });
+      }
+    }
+    assertEquals(900, published.size());
+    for (int i = 1; i < published.size(); i++) {
+      assertTrue(published.get(i - 1) < published.get(i), "Statuses should be published in arrival order.");
+    }
+  }
+
+  @Test
+  public void keyOrder() throws InterruptedException {
+    final Map<Long, List<Integer>> published = new ConcurrentHashMap<>();
+    try (ConversionPipeline pipeline = new ConversionPipeline(4, TwitterSourceConnectorConfig.ConversionOrdering.KEY, 16)) {
+      for (int i = 0; i < 1000; i++) {
+        final int value = i;
+        final long key = i % 7;
+        pipeline.submit(key, () -> {
+          slow(new Random(value));
+          return () -> published.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(value);
+        });
+      }
+    }
+    assertEquals(7, published.size());
+    published.forEach((key, values) -> {
+      for (int i = 1; i < values.size(); i++) {
+        assertTrue(values.get(i - 1) < values.get(i), "Statuses of a key should be published in order.");
+      }
+    });
+    assertEquals(1000, published.values().stream().mapToInt(List::size).sum());
+  }
+
+  @Test
+  public void boundedInFlight() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    try (ConversionPipeline pipeline = new ConversionPipeline(2, TwitterSourceConnectorConfig.ConversionOrdering.ARRIVAL, 2)) {
+      for (int i = 0; i < 2; i++) {
+        pipeline.submit(i, () -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return null;
+        });
+      }
+      Thread submitter = new Thread(() -> {
+        try {
+          pipeline.submit(2, () -> null);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      submitter.start();
+      submitter.join(200);
+      assertTrue(submitter.isAlive(), "The third submission should wait for room.");
+      release.countDown();
+      submitter.join(TimeUnit.SECONDS.toMillis(10));
+      assertEquals(1L, pipeline.blocked.sum());
+    }
+  }
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.base.Charsets;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import twitter4j.ExtendedMediaEntity;
+import twitter4j.GeoLocation;
+import twitter4j.HashtagEntity;
+import twitter4j.MediaEntity;
+import twitter4j.Place;
+import twitter4j.Status;
+import twitter4j.SymbolEntity;
+import twitter4j.URLEntity;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates {@code GeneratedConverters} from the schemas in {@link StatusConverter} and the twitter4j interfaces they
+ * describe. Each field of each schema is matched to its getter by name. The generated code writes fields with
+ * {@code Struct.put(Field, Object)} using cached {@link Field} handles, pre-sizes lists, and shares empty lists.
+ * <p>
+ * The output is checked in. {@code ConverterGeneratorTest} fails the build when it is stale, and
+ * {@code mvn -Pgenerate-converters process-test-classes} rewrites it after a schema change.
+ */
+public class ConverterGenerator {
+  static final Path OUTPUT = Paths.get(
+      "src/main/java/com/github/jcustenborder/kafka/connect/twitter/GeneratedConverters.java"
+  );
+  static final Path HEADER = Paths.get(
+      "src/main/java/com/github/jcustenborder/kafka/connect/twitter/StatusConverter.java"
+  );
+
+  static class Type {
+    final String schemaConstant;
+    final Schema schema;
+    final Class<?> cls;
+    final String typeName;
+    final String prefix;
+    final boolean accessors;
+    final boolean arrays;
+
+    /**
+     * @param accessors generate a map of field name to accessor, used by {@link StatusProjection}.
+     * @param arrays    generate a converter for arrays of this type.
+     */
+    Type(String schemaConstant, Schema schema, Class<?> cls, boolean accessors, boolean arrays) {
+      this.schemaConstant = schemaConstant;
+      this.schema = schema;
+      this.cls = cls;
+      this.typeName = null == cls.getDeclaringClass() ?
+          cls.getSimpleName() : cls.getDeclaringClass().getSimpleName() + "." + cls.getSimpleName();
+      this.prefix = constantCase(this.typeName.replace(".", ""));
+      this.accessors = accessors;
+      this.arrays = arrays;
+    }
+  }
+
+  static final List<Type> TYPES = Arrays.asList(
+      new Type("STATUS_SCHEMA", StatusConverter.STATUS_SCHEMA, Status.class, true, false),
+      new Type("USER_SCHEMA", StatusConverter.USER_SCHEMA, User.class, true, false),
+      new Type("PLACE_SCHEMA", StatusConverter.PLACE_SCHEMA, Place.class, false, false),
+      new Type("GEO_LOCATION_SCHEMA", StatusConverter.GEO_LOCATION_SCHEMA, GeoLocation.class, false, false),
+      new Type("SCHEMA_HASHTAG_ENTITY", StatusConverter.SCHEMA_HASHTAG_ENTITY, HashtagEntity.class, false, true),
+      new Type("SCHEMA_USER_MENTION_ENTITY", StatusConverter.SCHEMA_USER_MENTION_ENTITY, UserMentionEntity.class, false, true),
+      new Type("SCHEMA_MEDIA_ENTITY", StatusConverter.SCHEMA_MEDIA_ENTITY, MediaEntity.class, false, true),
+      new Type("SCHEMA_EXTENDED_MEDIA_ENTITY", StatusConverter.SCHEMA_EXTENDED_MEDIA_ENTITY, ExtendedMediaEntity.class, false, true),
+      new Type("SCHEMA_MEDIA_ENTITY_SIZE", StatusConverter.SCHEMA_MEDIA_ENTITY_SIZE, MediaEntity.Size.class, false, true),
+      new Type("SCHEMA_MEDIA_ENTITY_VARIANT", StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT, MediaEntity.Variant.class, false, true),
+      new Type("SCHEMA_MEDIA_ENTITY_VARIANT", StatusConverter.SCHEMA_MEDIA_ENTITY_VARIANT, ExtendedMediaEntity.Variant.class, false, true),
+      new Type("SCHEMA_SYMBOL_ENTITY", StatusConverter.SCHEMA_SYMBOL_ENTITY, SymbolEntity.class, false, true),
+      new Type("SCHEMA_URL_ENTITY", StatusConverter.SCHEMA_URL_ENTITY, URLEntity.class, false, true)
+  );
+
+  /**
+   * Converts an UpperCamel field name to UPPER_UNDERSCORE, keeping acronyms such as URL together.
+   */
+  static String constantCase(String name) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (i > 0 && Character.isUpperCase(c)) {
+        char previous = name.charAt(i - 1);
+        boolean nextIsLower = i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1));
+        if (Character.isLowerCase(previous) || (Character.isUpperCase(previous) && nextIsLower)) {
+          builder.append('_');
+        }
+      }
+      builder.append(Character.toUpperCase(c));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * The prefix of the field constants for a schema. Types that share a schema share the field constants.
+   */
+  static String fieldPrefix(Type type) {
+    return type(type.schema).prefix;
+  }
+
+  static Type type(Schema schema) {
+    for (Type type : TYPES) {
+      if (type.schema == schema) {
+        return type;
+      }
+    }
+    return null;
+  }
+
+  static boolean hasArrayConverter(Class<?> cls) {
+    for (Type type : TYPES) {
+      if (type.cls == cls) {
+        return type.arrays;
+      }
+    }
+    return false;
+  }
+
+  static Method getter(Class<?> cls, String fieldName) {
+    for (String prefix : Arrays.asList("get", "is")) {
+      try {
+        return cls.getMethod(prefix + fieldName);
+      } catch (NoSuchMethodException e) {
+        // Try the next prefix.
+      }
+    }
+    throw new IllegalStateException(
+        String.format("%s does not have a getter for %s.", cls.getName(), fieldName)
+    );
+  }
+
+  /**
+   * The expression that reads the value of a field from {@code source}.
+   */
+  static String expression(Type type, Field field) {
+    Method getter = getter(type.cls, field.name());
+    String call = String.format("source.%s()", getter.getName());
+    Schema schema = field.schema();
+    switch (schema.type()) {
+      case STRUCT:
+        if (null == type(schema)) {
+          throw new IllegalStateException("No type for " + schema.name());
+        }
+        return String.format("convert(%s)", call);
+      case ARRAY:
+        Class<?> componentType = getter.getReturnType().getComponentType();
+        if (null == componentType) {
+          throw new IllegalStateException(
+              String.format("%s.%s does not return an array.", type.typeName, getter.getName())
+          );
+        }
+        if (Schema.Type.STRUCT == schema.valueSchema().type() && !hasArrayConverter(componentType)) {
+          throw new IllegalStateException(
+              String.format("%s does not have an array converter.", componentType.getName())
+          );
+        }
+        return String.format("convert(%s)", call);
+      case MAP:
+        return String.format("convert(%s)", call);
+      default:
+        return call;
+    }
+  }
+
+  static String generate() throws IOException {
+    StringBuilder builder = new StringBuilder();
+    List<String> header = Files.readAllLines(HEADER, Charsets.UTF_8);
+    for (String line : header) {
+      builder.append(line).append('\n');
+      if (line.startsWith(" */")) {
+        break;
+      }
+    }
+    builder.append("package com.github.jcustenborder.kafka.connect.twitter;\n\n");
+    builder.append("import org.apache.kafka.connect.data.Field;\n");
+    builder.append("import org.apache.kafka.connect.data.Struct;\n");
+    for (String cls : Arrays.asList(
+        "ExtendedMediaEntity", "GeoLocation", "HashtagEntity", "MediaEntity", "Place", "Status", "SymbolEntity",
+        "URLEntity", "User", "UserMentionEntity")) {
+      builder.append("import twitter4j.").append(cls).append(";\n");
+    }
+    builder.append("\n");
+    builder.append("import java.util.ArrayList;\n");
+    builder.append("import java.util.Arrays;\n");
+    builder.append("import java.util.Collections;\n");
+    builder.append("import java.util.LinkedHashMap;\n");
+    builder.append("import java.util.List;\n");
+    builder.append("import java.util.Map;\n");
+    builder.append("import java.util.function.Function;\n\n");
+
+    builder.append("/**\n");
+    builder.append(" * Generated by ConverterGenerator from the schemas in {@link StatusConverter}. Do not edit.\n");
+    builder.append(" */\n");
+    builder.append("final class GeneratedConverters {\n");
+    builder.append("  private GeneratedConverters() {\n");
+    builder.append("  }\n");
+
+    for (Type type : TYPES) {
+      if (type != type(type.schema)) {
+        continue;
+      }
+      builder.append('\n');
+      for (Field field : type.schema.fields()) {
+        builder.append(String.format(
+            "  static final Field %s_%s = StatusConverter.%s.field(\"%s\");\n",
+            type.prefix, constantCase(field.name()), type.schemaConstant, field.name()
+        ));
+      }
+    }
+
+    for (Type type : TYPES) {
+      if (!type.accessors) {
+        continue;
+      }
+      builder.append('\n');
+      builder.append(String.format("  static final Map<String, Function<%s, Object>> %s_ACCESSORS;\n", type.typeName, type.prefix));
+    }
+    builder.append("\n  static {\n");
+    boolean first = true;
+    for (Type type : TYPES) {
+      if (!type.accessors) {
+        continue;
+      }
+      if (!first) {
+        builder.append('\n');
+      }
+      first = false;
+      String variable = type.prefix.toLowerCase();
+      builder.append(String.format("    Map<String, Function<%s, Object>> %s = new LinkedHashMap<>();\n", type.typeName, variable));
+      for (Field field : type.schema.fields()) {
+        builder.append(String.format(
+            "    %s.put(\"%s\", source -> %s);\n", variable, field.name(), expression(type, field)
+        ));
+      }
+      builder.append(String.format("    %s_ACCESSORS = Collections.unmodifiableMap(%s);\n", type.prefix, variable));
+    }
+    builder.append("  }\n");
+
+    for (Type type : TYPES) {
+      builder.append('\n');
+      builder.append(String.format("  static void convert(%s source, Struct struct) {\n", type.typeName));
+      for (Field field : type.schema.fields()) {
+        builder.append(String.format(
+            "    struct.put(%s_%s, %s);\n", fieldPrefix(type), constantCase(field.name()), expression(type, field)
+        ));
+      }
+      builder.append("  }\n\n");
+
+      builder.append(String.format("  static Struct convert(%s source) {\n", type.typeName));
+      builder.append("    if (null == source) {\n");
+      builder.append("      return null;\n");
+      builder.append("    }\n");
+      builder.append(String.format("    Struct struct = new Struct(StatusConverter.%s);\n", type.schemaConstant));
+      builder.append("    convert(source, struct);\n");
+      builder.append("    return struct;\n");
+      builder.append("  }\n");
+
+      if (type.arrays) {
+        builder.append('\n');
+        builder.append(String.format("  static List<Struct> convert(%s[] items) {\n", type.typeName));
+        builder.append("    if (null == items || 0 == items.length) {\n");
+        builder.append("      return Collections.emptyList();\n");
+        builder.append("    }\n");
+        builder.append("    List<Struct> result = new ArrayList<>(items.length);\n");
+        builder.append(String.format("    for (%s item : items) {\n", type.typeName));
+        builder.append("      result.add(convert(item));\n");
+        builder.append("    }\n");
+        builder.append("    return result;\n");
+        builder.append("  }\n");
+      }
+    }
+
+    builder.append('\n');
+    builder.append("  static Map<Integer, Struct> convert(Map<Integer, MediaEntity.Size> items) {\n");
+    builder.append("    if (null == items || items.isEmpty()) {\n");
+    builder.append("      return Collections.emptyMap();\n");
+    builder.append("    }\n");
+    builder.append("    Map<Integer, Struct> result = new LinkedHashMap<>(items.size() * 2);\n");
+    builder.append("    for (Map.Entry<Integer, MediaEntity.Size> kvp : items.entrySet()) {\n");
+    builder.append("      result.put(kvp.getKey(), convert(kvp.getValue()));\n");
+    builder.append("    }\n");
+    builder.append("    return result;\n");
+    builder.append("  }\n\n");
+
+    builder.append("  static List<Long> convert(long[] items) {\n");
+    builder.append("    if (null == items || 0 == items.length) {\n");
+    builder.append("      return Collections.emptyList();\n");
+    builder.append("    }\n");
+    builder.append("    List<Long> result = new ArrayList<>(items.length);\n");
+    builder.append("    for (long item : items) {\n");
+    builder.append("      result.add(item);\n");
+    builder.append("    }\n");
+    builder.append("    return result;\n");
+    builder.append("  }\n\n");
+
+    builder.append("  static List<String> convert(String[] items) {\n");
+    builder.append("    if (null == items || 0 == items.length) {\n");
+    builder.append("      return Collections.emptyList();\n");
+    builder.append("    }\n");
+    builder.append("    return Collections.unmodifiableList(Arrays.asList(items));\n");
+    builder.append("  }\n");
+    builder.append("}\n");
+    return builder.toString();
+  }
+
+  public static void main(String... args) throws IOException {
+    Path output = args.length > 0 ? Paths.get(args[0]) : OUTPUT;
+    Files.write(output, generate().getBytes(Charsets.UTF_8));
+  }
+}
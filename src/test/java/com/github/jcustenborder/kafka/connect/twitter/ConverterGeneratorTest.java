@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.base.Charsets;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ConverterGeneratorTest {
+
+  @Test
+  public void generatedConvertersAreCurrent() throws IOException {
+    String expected = ConverterGenerator.generate();
+    String actual = new String(Files.readAllBytes(ConverterGenerator.OUTPUT), Charsets.UTF_8);
+    assertEquals(
+        expected,
+        actual,
+        "GeneratedConverters.java is stale. Run mvn -Pgenerate-converters process-test-classes to regenerate it."
+    );
+  }
+
+  @Test
+  public void constantCase() {
+    assertEquals("PROFILE_IMAGE_URL_HTTPS", ConverterGenerator.constantCase("ProfileImageURLHttps"));
+    assertEquals("URL", ConverterGenerator.constantCase("URL"));
+    assertEquals("MEDIA_ENTITY_SIZE", ConverterGenerator.constantCase("MediaEntitySize"));
+    assertEquals("PROFILE_BANNER_I_PAD_URL", ConverterGenerator.constantCase("ProfileBannerIPadURL"));
+  }
+}
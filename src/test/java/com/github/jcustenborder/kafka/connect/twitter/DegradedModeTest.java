@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DegradedModeTest {
+
+  @Test
+  public void escalatesAndRecovers() {
+    AtomicLong now = new AtomicLong(0L);
+    AtomicBoolean drained = new AtomicBoolean(false);
+    DegradedMode mode = new DegradedMode(40, 70, 1000L, now::get, drained::get, StatusProjection.ALL);
+    assertEquals(DegradedMode.Level.NORMAL, mode.level);
+
+    mode.onStallWarning(20);
+    assertEquals(DegradedMode.Level.NORMAL, mode.level);
+    mode.onStallWarning(45);
+    assertEquals(DegradedMode.Level.REDUCED, mode.level);
+    mode.onStallWarning(80);
+    assertEquals(DegradedMode.Level.SHED, mode.level);
+    mode.onStallWarning(45);
+    assertEquals(DegradedMode.Level.SHED, mode.level, "A lower warning should not step back on its own.");
+
+    now.addAndGet(1000L);
+    mode.maybeRecover();
+    assertEquals(DegradedMode.Level.SHED, mode.level, "Should stay degraded until the queue drains.");
+    drained.set(true);
+    mode.maybeRecover();
+    assertEquals(DegradedMode.Level.REDUCED, mode.level);
+    mode.maybeRecover();
+    assertEquals(DegradedMode.Level.REDUCED, mode.level, "Each step back needs a full recovery period.");
+
+    now.addAndGet(500L);
+    mode.onStallWarning(10);
+    now.addAndGet(999L);
+    mode.maybeRecover();
+    assertEquals(DegradedMode.Level.REDUCED, mode.level, "A warning restarts the recovery period.");
+    now.addAndGet(1L);
+    mode.maybeRecover();
+    assertEquals(DegradedMode.Level.NORMAL, mode.level);
+  }
+
+  @Test
+  public void intersect() {
+    assertEquals(
+        Arrays.asList("Id", "Text"),
+        DegradedMode.intersect(Arrays.asList("Id", "Text"), Collections.emptyList())
+    );
+    assertEquals(
+        Collections.singletonList("Id"),
+        DegradedMode.intersect(Arrays.asList("Id", "Text"), Arrays.asList("Id", "HashtagEntities"))
+    );
+    assertEquals(
+        Collections.singletonList("HashtagEntities"),
+        DegradedMode.intersect(Arrays.asList("Id", "Text"), Collections.singletonList("HashtagEntities"))
+    );
+  }
+}
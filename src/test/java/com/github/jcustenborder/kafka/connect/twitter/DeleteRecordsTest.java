@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import static com.github.jcustenborder.kafka.connect.twitter.RawStatusConverterTest.header;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class DeleteRecordsTest {
+  static final String[] TOPICS = new String[]{"twitter", "twitter-ja"};
+
+  @Test
+  public void notice() {
+    SourceRecord[] records = new DeleteRecords("twitter", "", false, TOPICS).records(1234L, 42L, true, 1539202764650L);
+    assertEquals(1, records.length);
+    assertEquals("twitter", records[0].topic());
+    assertEquals(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY, records[0].keySchema());
+    assertEquals(1234L, ((Struct) records[0].key()).getInt64("StatusId"));
+    assertNull(records[0].valueSchema());
+    assertNull(records[0].value());
+    assertEquals(1234L, header(records[0], RawStatusConverter.HEADER_ID));
+    assertEquals(42L, header(records[0], RawStatusConverter.HEADER_USER_ID));
+    assertEquals(1539202764650L, records[0].timestamp());
+  }
+
+  @Test
+  public void deleteTopic() {
+    SourceRecord[] records = new DeleteRecords("twitter", "twitter-deletes", false, TOPICS).records(1234L, 42L, true, null);
+    assertEquals(1, records.length);
+    assertEquals("twitter-deletes", records[0].topic());
+    assertEquals(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE, records[0].valueSchema());
+    assertEquals(1234L, ((Struct) records[0].value()).getInt64("StatusId"));
+    assertEquals(42L, ((Struct) records[0].value()).getInt64("UserId"));
+    assertNull(records[0].timestamp());
+  }
+
+  @Test
+  public void tombstones() {
+    SourceRecord[] records = new DeleteRecords("twitter", "", true, TOPICS).records(1234L, 0L, false, null);
+    assertEquals(2, records.length);
+    Struct statusKey = new Struct(StatusConverter.STATUS_SCHEMA_KEY).put("Id", 1234L);
+    for (int i = 0; i < records.length; i++) {
+      assertEquals(TOPICS[i], records[i].topic());
+      assertEquals(StatusConverter.STATUS_SCHEMA_KEY, records[i].keySchema());
+      assertEquals(statusKey, records[i].key());
+      assertNull(records[i].valueSchema());
+      assertNull(records[i].value());
+      assertNull(header(records[i], RawStatusConverter.HEADER_USER_ID));
+    }
+  }
+
+  @Test
+  public void tombstonesAndDeleteTopic() {
+    SourceRecord[] records = new DeleteRecords("twitter", "twitter-deletes", true, TOPICS).records(1234L, 42L, true, null);
+    assertEquals(3, records.length);
+    assertEquals("twitter-deletes", records[0].topic());
+    assertEquals(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY, records[0].keySchema());
+    assertEquals("twitter", records[1].topic());
+    assertEquals("twitter-ja", records[2].topic());
+    assertNull(records[2].value());
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+import twitter4j.ConnectionLifeCycleListener;
+import twitter4j.HttpParameter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class DelimitedStreamClientTest {
+
+  static DelimitedStreamClient client(TwitterSourceConnectorConfig config, boolean gzip, List<String> messages, ConnectionLifeCycleListener lifeCycleListener) {
+    return new DelimitedStreamClient(
+        config.configuration(),
+        new HttpParameter[]{new HttpParameter("track", "kafka,connect")},
+        gzip,
+        (buffer, offset, length) -> {
+          synchronized (messages) {
+            messages.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+          }
+        },
+        lifeCycleListener
+    );
+  }
+
+  @Test
+  public void frames() {
+    final String stream = "\r\n15\r\n{\"a\":\"12345\"}\r\n\r\n\r\n3\r\n{}\r\n";
+    final byte[] bytes = stream.getBytes(StandardCharsets.UTF_8);
+    TwitterSourceConnectorConfig config = new TwitterSourceConnectorConfig(TwitterSourceTaskTest.settings());
+    // Split the stream at every position so messages are both passed through and stitched together.
+    for (int split = 0; split <= bytes.length; split++) {
+      List<String> messages = new ArrayList<>();
+      DelimitedStreamClient client = client(config, false, messages, mock(ConnectionLifeCycleListener.class));
+      client.frames(bytes, 0, split);
+      client.frames(bytes, split, bytes.length - split);
+      assertEquals(Arrays.asList("{\"a\":\"12345\"}", "{}"), messages, "split = " + split);
+    }
+  }
+
+  @Test
+  public void streamFromStub() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(TwitterSourceTaskTest.CORPUS);
+    for (boolean gzip : new boolean[]{true, false}) {
+      try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+        TwitterSourceConnectorConfig config = new TwitterSourceConnectorConfig(
+            server.configure(TwitterSourceTaskTest.settings())
+        );
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        ConnectionLifeCycleListener lifeCycleListener = mock(ConnectionLifeCycleListener.class);
+        DelimitedStreamClient client = client(config, gzip, messages, lifeCycleListener);
+        client.start();
+        try {
+          final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+          while (messages.size() < corpus.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+          }
+        } finally {
+          client.close();
+        }
+        assertEquals(corpus, messages, "gzip = " + gzip);
+        assertEquals(gzip, server.streamGzip);
+        assertEquals("kafka,connect", server.streamParameters.get("track"));
+        assertEquals("length", server.streamParameters.get("delimited"));
+        assertEquals("true", server.streamParameters.get("stall_warnings"));
+        assertTrue(client.bytesRead.get() > 0);
+        verify(lifeCycleListener, atLeastOnce()).onConnect();
+        verify(lifeCycleListener).onCleanUp();
+      }
+    }
+  }
+}
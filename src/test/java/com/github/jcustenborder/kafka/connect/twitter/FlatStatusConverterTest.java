@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+import twitter4j.Status;
+import twitter4j.TwitterObjectFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlatStatusConverterTest {
+
+  @Test
+  public void convert() {
+    Status status = StatusConverterTest.mockStatus();
+    Struct struct = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+    FlatStatusConverter.convert(status, struct);
+    struct.validate();
+    assertEquals(status.getId(), struct.getInt64("Id"));
+    assertEquals(status.getText(), struct.getString("Text"));
+    assertEquals(status.getCreatedAt(), struct.get("CreatedAt"));
+    assertEquals(status.getGeoLocation().getLatitude(), struct.getFloat64("Latitude"));
+    assertEquals(status.getPlace().getCountryCode(), struct.getString("PlaceCountryCode"));
+    assertEquals(status.getUser().getId(), struct.getInt64("UserId"));
+    assertEquals(status.getUser().getScreenName(), struct.getString("UserScreenName"));
+    assertEquals(status.getUser().getFollowersCount(), struct.getInt32("UserFollowersCount"));
+    assertEquals(Arrays.asList(status.getWithheldInCountries()), struct.getArray("WithheldInCountries"));
+    assertEquals(Collections.emptyList(), struct.getArray("Hashtags"));
+  }
+
+  @Test
+  public void schemaIsFlat() {
+    for (Field field : StatusConverter.FLAT_STATUS_SCHEMA.fields()) {
+      assertNotEquals(Schema.Type.STRUCT, field.schema().type(), field.name());
+      assertNotEquals(Schema.Type.MAP, field.schema().type(), field.name());
+      if (Schema.Type.ARRAY == field.schema().type()) {
+        assertTrue(field.schema().valueSchema().type().isPrimitive(), field.name());
+      }
+    }
+  }
+
+  /**
+   * A status converted from twitter4j and the same status read by {@link StatusReader} and flattened have to be the
+   * same, otherwise the value would depend on stream.client.
+   */
+  @Test
+  public void corpusMatchesStatusReader() throws Exception {
+    StatusReader reader = new StatusReader();
+    List<String> corpus = StreamingStubServer.corpus(TwitterSourceTaskTest.CORPUS);
+    int entities = 0;
+    for (String json : corpus) {
+      if (json.startsWith("{\"delete\"")) {
+        continue;
+      }
+      Struct expected = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+      FlatStatusConverter.convert(TwitterObjectFactory.createStatus(json), expected);
+      Struct actual = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+      FlatStatusConverter.convert(StatusReaderTest.read(reader, json), actual);
+      actual.validate();
+      assertEquals(expected, actual, json);
+      entities += actual.getArray("Hashtags").size() + actual.getArray("MentionIds").size() +
+          actual.getArray("URLs").size();
+    }
+    assertTrue(entities > 0, "The corpus should exercise the entity columns.");
+  }
+
+  @Test
+  public void missingUserAndPlace() {
+    Struct status = new Struct(StatusConverter.STATUS_SCHEMA)
+        .put("Id", 1234L)
+        .put("Contributors", Collections.emptyList())
+        .put("WithheldInCountries", Collections.emptyList());
+    Struct struct = new Struct(StatusConverter.FLAT_STATUS_SCHEMA);
+    FlatStatusConverter.convert(status, struct);
+    struct.validate();
+    assertEquals(1234L, struct.getInt64("Id"));
+    assertNull(struct.get("UserId"));
+    assertNull(struct.get("PlaceId"));
+    assertNull(struct.get("Latitude"));
+    assertEquals(Collections.emptyList(), struct.getArray("MediaURLs"));
+  }
+}
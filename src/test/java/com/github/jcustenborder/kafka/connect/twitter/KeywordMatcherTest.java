@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class KeywordMatcherTest {
+
+  @Test
+  public void overlappingTerms() {
+    KeywordMatcher matcher = new KeywordMatcher(new String[]{"he", "she", "his", "hers"});
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("USHERS"));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("this"));
+    assertArrayEquals(new int[]{1, 3}, matcher.match("SHE said it was hers"));
+    assertArrayEquals(new int[]{0, 2}, matcher.match("he, his."));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("nothing to see"));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match(null));
+  }
+
+  @Test
+  public void wholeWords() {
+    KeywordMatcher matcher = new KeywordMatcher(new String[]{"kafka", "#streams", "@confluent", "v2"});
+    assertArrayEquals(new int[]{0}, matcher.match("#Kafka"));
+    assertArrayEquals(new int[]{0}, matcher.match("@kafka!"));
+    assertArrayEquals(new int[]{0}, matcher.match("https://kafka.apache.org"));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("kafkaesque"));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("akafka"));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("kafka2"));
+    assertArrayEquals(new int[]{1}, matcher.match("reading #streams"));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("reading streams"));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("#streamsapi"));
+    assertArrayEquals(new int[]{2}, matcher.match("thanks @Confluent"));
+    assertArrayEquals(new int[]{3}, matcher.match("api v2."));
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("v21"));
+  }
+
+  @Test
+  public void phrases() {
+    KeywordMatcher matcher = new KeywordMatcher(new String[]{"kafka connect", "stream", "Connect"});
+    assertEquals(Arrays.asList("kafka connect", "Connect"), matcher.keywords(matcher.match("Connect to #Kafka")));
+    assertEquals(Arrays.asList("Connect"), matcher.keywords(matcher.match("connect only")));
+    // A term can not span two pieces of a status.
+    assertArrayEquals(
+        KeywordMatcher.NONE,
+        matcher.scan().feed("str").feed("eam").matches()
+    );
+    assertArrayEquals(
+        new int[]{0, 2},
+        matcher.scan().feed("kafka").feed("https://example.com/connect").matches()
+    );
+  }
+
+  @Test
+  public void noKeywords() {
+    KeywordMatcher matcher = new KeywordMatcher(new String[0]);
+    assertArrayEquals(KeywordMatcher.NONE, matcher.match("anything"));
+  }
+
+  @Test
+  public void matchesBruteForce() {
+    final Random random = new Random(1234);
+    final String alphabet = "abcd ";
+    for (int round = 0; round < 200; round++) {
+      String[] keywords = new String[1 + random.nextInt(20)];
+      for (int i = 0; i < keywords.length; i++) {
+        keywords[i] = randomString(random, "abcd", 1 + random.nextInt(4));
+        if (random.nextInt(4) == 0) {
+          keywords[i] += " " + randomString(random, "abcd", 1 + random.nextInt(3));
+        }
+      }
+      KeywordMatcher matcher = new KeywordMatcher(keywords);
+      String text = randomString(random, alphabet, random.nextInt(40));
+      List<String> words = Arrays.asList(text.split(" "));
+
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < keywords.length; i++) {
+        boolean all = true;
+        for (String term : keywords[i].toLowerCase(Locale.ROOT).split("\\s+")) {
+          all &= words.contains(term);
+        }
+        if (all) {
+          expected.add(i);
+        }
+      }
+      assertArrayEquals(
+          expected.stream().mapToInt(Integer::intValue).toArray(),
+          matcher.match(text),
+          () -> String.format("keywords = %s text = '%s'", Arrays.toString(keywords), text)
+      );
+    }
+  }
+
+  static String randomString(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class KeywordRebalancerTest {
+  static final List<String> KEYWORDS = Arrays.asList("bitcoin", "nba", "kafka", "connect");
+
+  @Test
+  public void roundRobin() {
+    assertEquals(
+        Arrays.asList(Arrays.asList("bitcoin", "kafka"), Arrays.asList("nba", "connect")),
+        KeywordRebalancer.roundRobin(KEYWORDS, 2)
+    );
+  }
+
+  @Test
+  public void pack() {
+    Map<String, Double> volumes = ImmutableMap.of("bitcoin", 100D, "nba", 80D, "kafka", 5D, "connect", 1D);
+    List<List<String>> packed = KeywordRebalancer.pack(KEYWORDS, 2, volumes);
+    assertEquals(Arrays.asList(Arrays.asList("bitcoin"), Arrays.asList("nba", "kafka", "connect")), packed);
+    assertEquals(100D, KeywordRebalancer.maxLoad(packed, volumes));
+    assertEquals(
+        105D / 93D,
+        KeywordRebalancer.imbalance(KeywordRebalancer.roundRobin(KEYWORDS, 2), volumes),
+        0.0001D
+    );
+  }
+
+  @Test
+  public void volumesOnlyObserved() {
+    Map<String, Long> counts = new HashMap<>();
+    AtomicLong now = new AtomicLong();
+    KeywordRebalancer rebalancer = new KeywordRebalancer(() -> counts, now::get, 1.5D, 0L);
+    counts.put("bitcoin", 0L);
+    counts.put("kafka", 0L);
+    rebalancer.sample();
+    counts.put("bitcoin", 3000L);
+    counts.put("kafka", 1000L);
+    now.addAndGet(1000L);
+    rebalancer.sample();
+    Map<String, Double> volumes = rebalancer.volumes(KEYWORDS);
+    assertEquals(3000D, volumes.get("bitcoin"));
+    assertEquals(1000D, volumes.get("kafka"));
+    assertFalse(volumes.containsKey("nba"), "Keywords that were not reported should not get a volume.");
+  }
+
+  @Test
+  public void unobservedKeywordsArePinned() {
+    Map<String, Long> counts = new HashMap<>();
+    AtomicLong now = new AtomicLong();
+    KeywordRebalancer rebalancer = new KeywordRebalancer(() -> counts, now::get, 1.2D, 0L);
+    // nba is on another worker and never reported. It is counted at the average of the others and stays put.
+    List<List<String>> current = Arrays.asList(Arrays.asList("bitcoin", "kafka"), Arrays.asList("nba", "connect"));
+    long[] totals = new long[3];
+    List<String> observed = Arrays.asList("bitcoin", "kafka", "connect");
+    long[] rates = {100L, 80L, 1L};
+    List<List<String>> next = null;
+    for (int i = 0; i < 4 && null == next; i++) {
+      now.addAndGet(5000L);
+      for (int k = 0; k < observed.size(); k++) {
+        totals[k] += rates[k] * 5;
+        counts.put(observed.get(k), totals[k]);
+      }
+      next = rebalancer.check(current);
+    }
+    assertNotNull(next);
+    assertEquals(Arrays.asList(Arrays.asList("bitcoin", "connect"), Arrays.asList("nba", "kafka")), next);
+  }
+
+  @Test
+  public void estimate() {
+    Map<String, Double> estimated = KeywordRebalancer.estimate(
+        KEYWORDS,
+        ImmutableMap.of("bitcoin", 100D, "kafka", 20D)
+    );
+    assertEquals(100D, estimated.get("bitcoin"));
+    assertEquals(20D, estimated.get("kafka"));
+    assertEquals(60D, estimated.get("nba"));
+    assertEquals(60D, estimated.get("connect"));
+  }
+
+  @Test
+  public void taskWithoutReportedKeywords() {
+    Map<String, Long> counts = new HashMap<>();
+    AtomicLong now = new AtomicLong();
+    KeywordRebalancer rebalancer = new KeywordRebalancer(() -> counts, now::get, 1.2D, 0L);
+    // The second task is on another worker, so none of its keywords are reported.
+    List<List<String>> current = Arrays.asList(Arrays.asList("bitcoin", "kafka"), Arrays.asList("nba", "connect"));
+    for (int i = 1; i <= 4; i++) {
+      now.addAndGet(5000L);
+      counts.put("bitcoin", 500L * i);
+      counts.put("kafka", 400L * i);
+      assertNull(rebalancer.check(current), "A task without reported keywords should block rebalancing.");
+    }
+  }
+
+  @Test
+  public void checkWithHysteresis() {
+    Map<String, Long> counts = new HashMap<>();
+    AtomicLong now = new AtomicLong();
+    KeywordRebalancer rebalancer = new KeywordRebalancer(() -> counts, now::get, 1.5D, 10000L);
+    List<List<String>> current = Arrays.asList(Arrays.asList("bitcoin", "nba"), Arrays.asList("kafka", "connect"));
+    long[] totals = new long[4];
+    long[] rates = {100L, 80L, 5L, 1L};
+    Runnable tick = () -> {
+      now.addAndGet(5000L);
+      for (int i = 0; i < KEYWORDS.size(); i++) {
+        totals[i] += rates[i] * 5;
+        counts.put(KEYWORDS.get(i), totals[i]);
+      }
+    };
+
+    tick.run();
+    assertNull(rebalancer.check(current), "The first sample has no rate.");
+    tick.run();
+    assertNull(rebalancer.check(current), "Only one check over the threshold.");
+    tick.run();
+    List<List<String>> next = rebalancer.check(current);
+    assertNotNull(next, "Two checks over the threshold after the minimum interval.");
+    assertEquals(Arrays.asList(Arrays.asList("bitcoin"), Arrays.asList("nba", "kafka", "connect")), next);
+
+    tick.run();
+    assertNull(rebalancer.check(next), "The packed assignment is balanced.");
+    tick.run();
+    tick.run();
+    assertNull(rebalancer.check(current), "The minimum interval has not passed since the last reassignment.");
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void buckets() {
+    for (long value : new long[]{0L, 1L, 15L, 16L, 17L, 1000L, 123456789L, Long.MAX_VALUE}) {
+      final int bucket = LatencyHistogram.bucket(value);
+      assertTrue(bucket < LatencyHistogram.BUCKETS, "Bucket out of range for " + value);
+      assertTrue(LatencyHistogram.upperBound(bucket) >= value, "Upper bound below value for " + value);
+      if (bucket > 0) {
+        assertTrue(LatencyHistogram.upperBound(bucket - 1) < value, "Previous bucket should hold smaller values " + value);
+      }
+      // Within 12.5% of the value.
+      assertTrue(LatencyHistogram.upperBound(bucket) - value <= value / 8, "Bucket too wide for " + value);
+    }
+  }
+
+  @Test
+  public void percentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0L, histogram.percentile(0.99));
+    for (long value = 1; value <= 1000; value++) {
+      histogram.record(value * 1000L);
+    }
+    assertEquals(1000L, histogram.count());
+    assertWithin(500000L, histogram.percentile(0.5));
+    assertWithin(990000L, histogram.percentile(0.99));
+    assertWithin(1000000L, histogram.percentile(1.0));
+  }
+
+  @Test
+  public void rotate() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(10L);
+    histogram.rotate();
+    histogram.record(10L);
+    assertEquals(2L, histogram.count(), "The previous window should still be counted.");
+    histogram.rotate();
+    assertEquals(1L, histogram.count());
+    histogram.rotate();
+    assertEquals(0L, histogram.count());
+  }
+
+  static void assertWithin(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected + expected / 8, String.format("%s is not within 12.5%% of %s", actual, expected));
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import twitter4j.HashtagEntity;
+import twitter4j.Status;
+import twitter4j.TwitterObjectFactory;
+import twitter4j.URLEntity;
+import twitter4j.UserMentionEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RawStatusConverterTest {
+
+  static Object header(SourceRecord record, String key) {
+    Header header = record.headers().lastWithName(key);
+    return null == header ? null : header.value();
+  }
+
+  @Test
+  public void statusesMatchTwitter4j() throws Exception {
+    RawStatusConverter converter = new RawStatusConverter(TwitterSourceConnectorConfig.OutputFormat.JSON_STRING, "twitter");
+    List<String> corpus = StreamingStubServer.corpus(TwitterSourceTaskTest.CORPUS);
+    int statuses = 0;
+    for (String json : corpus) {
+      if (json.startsWith("{\"delete\"")) {
+        continue;
+      }
+      statuses++;
+      Status status = TwitterObjectFactory.createStatus(json);
+      assertEquals(RawStatusParser.Type.STATUS, converter.parse(json));
+      SourceRecord record = converter.status(json, StatusPartitions.UNMATCHED, StatusPartitions.NO_OFFSET);
+
+      assertEquals("twitter", record.topic());
+      assertEquals(StatusConverter.STATUS_SCHEMA_KEY, record.keySchema());
+      assertEquals(status.getId(), ((Struct) record.key()).getInt64("Id"));
+      assertEquals(Schema.STRING_SCHEMA, record.valueSchema());
+      assertEquals(json, record.value());
+      assertEquals(status.getId(), header(record, RawStatusConverter.HEADER_ID));
+      assertEquals(status.getUser().getId(), header(record, RawStatusConverter.HEADER_USER_ID));
+      assertEquals(status.getLang(), header(record, RawStatusConverter.HEADER_LANG));
+      assertEquals(status.getUser().isVerified(), converter.parser.userVerified);
+      assertEquals(status.getUser().getFollowersCount(), converter.parser.userFollowersCount);
+      List<String> entities = new ArrayList<>();
+      Arrays.stream(status.getURLEntities()).map(URLEntity::getExpandedURL).forEach(entities::add);
+      Arrays.stream(status.getHashtagEntities()).map(HashtagEntity::getText).forEach(entities::add);
+      Arrays.stream(status.getUserMentionEntities()).map(UserMentionEntity::getScreenName).forEach(entities::add);
+      List<String> parsed = new ArrayList<>(converter.parser.entities);
+      Collections.sort(entities);
+      Collections.sort(parsed);
+      assertEquals(entities, parsed);
+      // timestamp_ms is used when it is present. created_at only has second precision.
+      assertTrue(Math.abs(status.getCreatedAt().getTime() - record.timestamp()) < 5000L);
+      assertEquals(new Date(record.timestamp()), header(record, RawStatusConverter.HEADER_CREATED_AT));
+    }
+    assertTrue(statuses > 0);
+  }
+
+  @Test
+  public void createdAtWithoutTimestampMs() {
+    RawStatusConverter converter = new RawStatusConverter(TwitterSourceConnectorConfig.OutputFormat.JSON_BYTES, "twitter");
+    final String json = "{\"created_at\":\"Wed Oct 10 20:19:24 +0000 2018\",\"id\":1050118621198921729," +
+        "\"text\":\"escaped \\\"quote\\\" {not an object}\",\"entities\":{\"hashtags\":[{\"text\":\"id\",\"indices\":[0,3]}]}," +
+        "\"retweeted_status\":{\"id\":1,\"user\":{\"id\":2}},\"user\":{\"id\":12345,\"verified\":true}," +
+        "\"lang\":\"en\"}";
+    assertEquals(RawStatusParser.Type.STATUS, converter.parse(json));
+    SourceRecord record = converter.status(json, StatusPartitions.UNMATCHED, StatusPartitions.NO_OFFSET);
+    assertEquals(1539202764000L, record.timestamp());
+    assertEquals(1050118621198921729L, header(record, RawStatusConverter.HEADER_ID));
+    assertEquals(12345L, header(record, RawStatusConverter.HEADER_USER_ID));
+    assertEquals("en", header(record, RawStatusConverter.HEADER_LANG));
+    assertTrue(converter.parser.userVerified);
+    assertEquals(Schema.BYTES_SCHEMA, record.valueSchema());
+    assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), (byte[]) record.value());
+  }
+
+  @Test
+  public void delete() {
+    RawStatusConverter converter = new RawStatusConverter(TwitterSourceConnectorConfig.OutputFormat.JSON_STRING, "twitter");
+    final String json = "{\"delete\":{\"status\":{\"id\":1050118621198921735,\"id_str\":\"1050118621198921735\"," +
+        "\"user_id\":2244994945,\"user_id_str\":\"2244994945\"},\"timestamp_ms\":\"1539202764650\"}}";
+    assertEquals(RawStatusParser.Type.DELETE, converter.parse(json));
+    SourceRecord[] records = new DeleteRecords("twitter", "", false, new String[]{"twitter"}).records(
+        converter.parser.id, converter.parser.userId, converter.parser.hasUserId, converter.parser.createdAt
+    );
+    assertEquals(1, records.length);
+    SourceRecord record = records[0];
+    assertEquals("twitter", record.topic());
+    assertEquals(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE_KEY, record.keySchema());
+    assertEquals(1050118621198921735L, ((Struct) record.key()).getInt64("StatusId"));
+    assertNull(record.valueSchema());
+    assertNull(record.value());
+    assertEquals(2244994945L, header(record, RawStatusConverter.HEADER_USER_ID));
+    assertEquals(1539202764650L, record.timestamp());
+  }
+
+  @Test
+  public void otherMessages() {
+    RawStatusConverter converter = new RawStatusConverter(TwitterSourceConnectorConfig.OutputFormat.JSON_STRING, "twitter");
+    assertEquals(
+        RawStatusParser.Type.WARNING,
+        converter.parse("{\"warning\":{\"code\":\"FALLING_BEHIND\",\"message\":\"Your connection is falling behind\",\"percent_full\":60}}")
+    );
+    assertEquals(60, converter.parser.percentFull);
+    assertEquals(RawStatusParser.Type.LIMIT, converter.parse("{\"limit\":{\"track\":1234,\"timestamp_ms\":\"1539202764650\"}}"));
+    assertEquals(1234, converter.parser.limitTrack);
+    assertEquals(RawStatusParser.Type.OTHER, converter.parse(""));
+    assertFalse(converter.parser.hasId);
+  }
+
+  @Test
+  public void structIsNotARawFormat() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new RawStatusConverter(TwitterSourceConnectorConfig.OutputFormat.STRUCT, "twitter")
+    );
+  }
+}
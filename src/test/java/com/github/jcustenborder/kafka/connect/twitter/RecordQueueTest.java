@@ -0,0 +1,229 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecordQueueTest {
+  @TempDir
+  File tempDir;
+
+  static SourceRecord record(String value) {
+    return new SourceRecord(ImmutableMap.of(), ImmutableMap.of(), "twitter", null, Schema.STRING_SCHEMA, value);
+  }
+
+  static RecordQueue queue(TwitterSourceConnectorConfig.OverflowPolicy policy, int capacity) {
+    final long recordSize = RecordSizes.estimate(record("0"));
+    return new RecordQueue(recordSize * capacity, policy, 10, null, BatchSizer.fixed(100));
+  }
+
+  static List<Object> values(List<SourceRecord> records) {
+    return records.stream().map(SourceRecord::value).collect(Collectors.toList());
+  }
+
+  @Test
+  public void batchOrder() throws InterruptedException {
+    RecordQueue queue = new RecordQueue(
+        Long.MAX_VALUE, TwitterSourceConnectorConfig.OverflowPolicy.PRIORITY, 10, null, BatchSizer.fixed(3)
+    );
+    queue.offer(record("0"), false);
+    queue.offer(record("1"), true);
+    queue.offer(record("2"), false);
+    queue.offer(record("3"), true);
+    assertEquals(4, queue.size());
+    assertEquals(Arrays.asList("0", "1", "2"), values(queue.getBatch()));
+    assertEquals(Arrays.asList("3"), values(queue.getBatch()));
+    assertEquals(0L, queue.retainedBytes());
+    assertTrue(queue.getBatch().isEmpty());
+  }
+
+  @Test
+  public void adaptiveBatch() throws InterruptedException {
+    RecordQueue queue = new RecordQueue(
+        Long.MAX_VALUE, TwitterSourceConnectorConfig.OverflowPolicy.BLOCK, 10, null, new BatchSizer(2, 8, Long.MAX_VALUE, true)
+    );
+    for (int i = 0; i < 20; i++) {
+      queue.offer(record(Integer.toString(i)), false);
+    }
+    assertEquals(2, queue.getBatch().size());
+    assertEquals(4, queue.getBatch().size());
+    assertEquals(8, queue.getBatch().size());
+    assertEquals(Arrays.asList("14", "15", "16", "17", "18", "19"), values(queue.getBatch()));
+    assertEquals(8, queue.batchTarget());
+  }
+
+  @Test
+  public void adaptiveBatchBytes() throws InterruptedException {
+    final long recordSize = RecordSizes.estimate(record("0"));
+    RecordQueue queue = new RecordQueue(
+        Long.MAX_VALUE, TwitterSourceConnectorConfig.OverflowPolicy.BLOCK, 10, null, new BatchSizer(100, 100, recordSize * 3, true)
+    );
+    for (int i = 0; i < 5; i++) {
+      queue.offer(record(Integer.toString(i)), false);
+    }
+    assertEquals(Arrays.asList("0", "1", "2"), values(queue.getBatch()));
+    assertEquals(Arrays.asList("3", "4"), values(queue.getBatch()));
+  }
+
+  @Test
+  public void dropNewest() throws InterruptedException {
+    RecordQueue queue = queue(TwitterSourceConnectorConfig.OverflowPolicy.DROP_NEWEST, 2);
+    assertTrue(queue.offer(record("0"), false));
+    assertTrue(queue.offer(record("1"), false));
+    assertFalse(queue.offer(record("2"), false));
+    assertEquals(1L, queue.droppedNewest.get());
+    assertEquals(Arrays.asList("0", "1"), values(queue.getBatch()));
+  }
+
+  @Test
+  public void dropOldest() throws InterruptedException {
+    RecordQueue queue = queue(TwitterSourceConnectorConfig.OverflowPolicy.DROP_OLDEST, 2);
+    assertTrue(queue.offer(record("0"), false));
+    assertTrue(queue.offer(record("1"), false));
+    assertTrue(queue.offer(record("2"), false));
+    assertEquals(1L, queue.droppedOldest.get());
+    assertEquals(Arrays.asList("1", "2"), values(queue.getBatch()));
+  }
+
+  @Test
+  public void priority() throws InterruptedException {
+    RecordQueue queue = queue(TwitterSourceConnectorConfig.OverflowPolicy.PRIORITY, 2);
+    assertTrue(queue.offer(record("0"), false));
+    assertTrue(queue.offer(record("1"), true));
+    assertFalse(queue.offer(record("2"), false), "low priority record should be shed.");
+    assertTrue(queue.offer(record("3"), true), "low priority record should be evicted.");
+    assertTrue(queue.offer(record("4"), true), "oldest priority record should be evicted.");
+    assertEquals(2L, queue.droppedLowPriority.get());
+    assertEquals(1L, queue.droppedOldest.get());
+    assertEquals(Arrays.asList("3", "4"), values(queue.getBatch()));
+  }
+
+  @Test
+  public void oversizedRecordIsAcceptedWhenEmpty() throws InterruptedException {
+    RecordQueue queue = queue(TwitterSourceConnectorConfig.OverflowPolicy.DROP_NEWEST, 1);
+    assertTrue(queue.offer(record("this record is larger than the budget"), false));
+    assertEquals(1, queue.getBatch().size());
+  }
+
+  @Test
+  public void block() throws InterruptedException {
+    RecordQueue queue = queue(TwitterSourceConnectorConfig.OverflowPolicy.BLOCK, 1);
+    assertTrue(queue.offer(record("0"), false));
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    AtomicBoolean result = new AtomicBoolean();
+    Thread thread = new Thread(() -> {
+      started.countDown();
+      result.set(queue.offer(record("1"), false));
+      finished.countDown();
+    });
+    thread.start();
+    started.await();
+    assertFalse(finished.await(100, TimeUnit.MILLISECONDS), "offer should block while the queue is full.");
+    assertEquals(Arrays.asList("0"), values(queue.getBatch()));
+    assertTrue(finished.await(5, TimeUnit.SECONDS), "offer should be released by getBatch.");
+    assertTrue(result.get());
+    assertEquals(Arrays.asList("1"), values(queue.getBatch()));
+  }
+
+  @Test
+  public void closeReleasesBlockedOffer() throws InterruptedException {
+    RecordQueue queue = queue(TwitterSourceConnectorConfig.OverflowPolicy.BLOCK, 1);
+    assertTrue(queue.offer(record("0"), false));
+    AtomicBoolean result = new AtomicBoolean(true);
+    Thread thread = new Thread(() -> result.set(queue.offer(record("1"), false)));
+    thread.start();
+    thread.join(100);
+    queue.close();
+    thread.join(5000);
+    assertFalse(thread.isAlive());
+    assertFalse(result.get());
+  }
+
+  @Test
+  public void spill() throws InterruptedException, IOException {
+    final long recordSize = RecordSizes.estimate(record("0"));
+    SpillLog spillLog = new SpillLog(this.tempDir, 64 * 1024, 1024 * 1024);
+    RecordQueue queue = new RecordQueue(
+        recordSize * 2, TwitterSourceConnectorConfig.OverflowPolicy.SPILL, 10, spillLog, BatchSizer.fixed(3)
+    );
+    StageLatencies latencies = new StageLatencies();
+    queue.latencies = latencies;
+    final long createdAtMs = System.currentTimeMillis();
+    for (int i = 0; i < 5; i++) {
+      assertTrue(queue.offer(record(Integer.toString(i)), false, createdAtMs));
+    }
+    assertEquals(3L, queue.spilled.get());
+    List<SourceRecord> batch = queue.getBatch();
+    assertEquals(Arrays.asList("0", "1", "2"), values(batch));
+    assertTrue(queue.offer(record("5"), false));
+    assertEquals(4L, queue.spilled.get(), "records must be spilled while the spill log has unread records.");
+    List<SourceRecord> next = queue.getBatch();
+    assertEquals(Arrays.asList("3", "4", "5"), values(next));
+    batch.addAll(next);
+    batch.forEach(queue::acknowledge);
+    batch.forEach(latencies::acknowledged);
+    assertEquals(0, spillLog.segments());
+    assertEquals(6L, StageLatenciesTest.count(latencies, StageLatencies.Stage.QUEUE), "spilled records should be timed.");
+    assertEquals(5L, StageLatenciesTest.count(latencies, StageLatencies.Stage.END_TO_END));
+    queue.close();
+  }
+
+  @Test
+  public void spillWithoutSpillLog() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new RecordQueue(1024, TwitterSourceConnectorConfig.OverflowPolicy.SPILL, 10, null, BatchSizer.fixed(3))
+    );
+  }
+
+  @Test
+  public void spillDirDefaultsToTmpdir() {
+    Map<String, String> settings = TwitterSourceTaskTest.settings();
+    settings.put(TwitterSourceConnectorConfig.QUEUE_OVERFLOW_POLICY_CONF, "SPILL");
+    RecordQueue queue = RecordQueue.of(new TwitterSourceConnectorConfig(settings));
+    try {
+      assertNotNull(queue.spillLog);
+      assertEquals(
+          new File(System.getProperty("java.io.tmpdir")).getAbsoluteFile(),
+          queue.spillLog.directory.getAbsoluteFile().getParentFile()
+      );
+    } finally {
+      queue.close();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import twitter4j.Status;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpillLogTest {
+  @TempDir
+  File tempDir;
+
+  static SourceRecord record(String value) {
+    return new SourceRecord(
+        ImmutableMap.of("keyword", "kafka"),
+        ImmutableMap.of("statusId", 1234L),
+        "twitter",
+        null,
+        Schema.STRING_SCHEMA,
+        value
+    );
+  }
+
+  @Test
+  public void roundTripStatus() throws IOException {
+    Status status = StatusConverterTest.mockStatus();
+    Struct key = new Struct(StatusConverter.STATUS_SCHEMA_KEY);
+    StatusConverter.convertKey(status, key);
+    Struct value = new Struct(StatusConverter.STATUS_SCHEMA);
+    StatusConverter.convert(status, value);
+    SourceRecord expected = new SourceRecord(
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        "twitter",
+        null,
+        StatusConverter.STATUS_SCHEMA_KEY,
+        key,
+        StatusConverter.STATUS_SCHEMA,
+        value,
+        1471667709998L
+    );
+    expected.headers().addString("Lang", "en");
+
+    try (SpillLog spillLog = new SpillLog(this.tempDir, 64 * 1024, 1024 * 1024)) {
+      assertTrue(spillLog.append(expected, 1234L, 1471667709000L));
+      RecordQueue.Entry actual = spillLog.read();
+      assertNotNull(actual);
+      assertEquals(expected, actual.record);
+      assertEquals(1234L, actual.queuedNanos);
+      assertEquals(1471667709000L, actual.createdAtMs);
+      assertNull(spillLog.read());
+    }
+  }
+
+  @Test
+  public void segmentsAreReclaimedOnceAcknowledged() throws IOException {
+    final int segmentBytes = 64 * 1024;
+    final String payload = new String(new char[4000]).replace('\0', 'x');
+    try (SpillLog spillLog = new SpillLog(this.tempDir, segmentBytes, 4 * segmentBytes)) {
+      int appended = 0;
+      while (spillLog.append(record(payload + appended), 0L, 0L)) {
+        appended++;
+      }
+      assertEquals(4, spillLog.segments());
+      assertFalse(spillLog.append(record(payload), 0L, 0L), "log should be full.");
+
+      List<SourceRecord> read = new ArrayList<>();
+      RecordQueue.Entry entry;
+      while (null != (entry = spillLog.read())) {
+        assertEquals(payload + read.size(), entry.record.value(), "records should be read in order.");
+        read.add(entry.record);
+      }
+      assertEquals(appended, read.size());
+      assertEquals(4, spillLog.segments(), "segments should not be reclaimed until acknowledged.");
+
+      for (SourceRecord r : read) {
+        spillLog.acknowledge(r);
+      }
+      assertEquals(0, spillLog.segments());
+      assertEquals(0L, spillLog.sizeInBytes());
+      assertTrue(spillLog.append(record(payload), 0L, 0L), "space should be available once reclaimed.");
+    }
+  }
+
+  @Test
+  public void staleDirectoriesAreRemoved() throws IOException {
+    File stale = new File(this.tempDir, "spill1234");
+    assertTrue(stale.mkdirs());
+    Files.write(new File(stale, "00000000000000000000.segment").toPath(), new byte[1024]);
+
+    try (SpillLog first = new SpillLog(this.tempDir, 64 * 1024, 1024 * 1024)) {
+      assertFalse(stale.exists(), "a directory nobody holds the lock of should be removed.");
+      assertTrue(first.append(record("first"), 0L, 0L));
+      try (SpillLog second = new SpillLog(this.tempDir, 64 * 1024, 1024 * 1024)) {
+        assertTrue(first.directory.exists(), "the directory of an open log should be kept.");
+        assertTrue(second.directory.exists());
+        assertEquals("first", first.read().record.value());
+      }
+    }
+    File[] remaining = this.tempDir.listFiles(File::isDirectory);
+    assertNotNull(remaining);
+    assertEquals(0, remaining.length, "close should remove the directory.");
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StageLatenciesTest {
+
+  static SourceRecord record(String value) {
+    return new SourceRecord(
+        Collections.emptyMap(), Collections.emptyMap(), "twitter", null, null, null, Schema.STRING_SCHEMA, value
+    );
+  }
+
+  static long count(StageLatencies latencies, StageLatencies.Stage stage) {
+    return latencies.histogram(stage).count();
+  }
+
+  @Test
+  public void converted() {
+    StageLatencies latencies = new StageLatencies();
+    final long createdAtMs = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(2);
+    latencies.converted(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5), createdAtMs);
+    assertEquals(1L, count(latencies, StageLatencies.Stage.CONVERSION));
+    assertEquals(1L, count(latencies, StageLatencies.Stage.TWITTER));
+    assertTrue(latencies.histogram(StageLatencies.Stage.CONVERSION).percentile(1.0) >= TimeUnit.MILLISECONDS.toNanos(4));
+    assertTrue(latencies.histogram(StageLatencies.Stage.TWITTER).percentile(1.0) >= TimeUnit.SECONDS.toNanos(1));
+    assertEquals(StageLatencies.Stage.TWITTER, latencies.slowest());
+
+    latencies.converted(System.nanoTime(), 0L);
+    assertEquals(2L, count(latencies, StageLatencies.Stage.CONVERSION));
+    assertEquals(1L, count(latencies, StageLatencies.Stage.TWITTER));
+  }
+
+  @Test
+  public void untimed() {
+    StageLatencies latencies = new StageLatencies();
+    latencies.converted(StageLatencies.UNTIMED, System.currentTimeMillis());
+    for (StageLatencies.Stage stage : StageLatencies.Stage.values()) {
+      assertEquals(0L, count(latencies, stage), stage.name());
+    }
+    assertNull(latencies.slowest());
+    latencies.acknowledged(record("unknown"));
+    assertEquals(0L, count(latencies, StageLatencies.Stage.SEND));
+  }
+
+  @Test
+  public void queueToAcknowledgement() throws InterruptedException {
+    StageLatencies latencies = new StageLatencies();
+    RecordQueue queue = new RecordQueue(
+        1024 * 1024, TwitterSourceConnectorConfig.OverflowPolicy.BLOCK, 10, null, BatchSizer.fixed(10)
+    );
+    queue.latencies = latencies;
+    queue.offer(record("first"), false, System.currentTimeMillis() - 1000L);
+    queue.offer(record("second"), false);
+
+    List<SourceRecord> batch = queue.getBatch();
+    assertEquals(2, batch.size());
+    assertEquals(2L, count(latencies, StageLatencies.Stage.QUEUE));
+    assertEquals(2, latencies.inFlight());
+
+    for (SourceRecord record : batch) {
+      latencies.acknowledged(record);
+    }
+    assertEquals(0, latencies.inFlight());
+    assertEquals(2L, count(latencies, StageLatencies.Stage.SEND));
+    // Only the first record has a CreatedAt.
+    assertEquals(1L, count(latencies, StageLatencies.Stage.END_TO_END));
+    assertTrue(latencies.histogram(StageLatencies.Stage.END_TO_END).percentile(1.0) >= TimeUnit.MILLISECONDS.toNanos(900));
+
+    latencies.rotate();
+    latencies.rotate();
+    assertEquals(0L, count(latencies, StageLatencies.Stage.SEND));
+  }
+}
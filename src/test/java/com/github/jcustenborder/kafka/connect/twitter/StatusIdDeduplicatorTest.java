@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatusIdDeduplicatorTest {
+
+  @Test
+  public void duplicates() {
+    StatusIdDeduplicator deduplicator = new StatusIdDeduplicator(100, 0, () -> 0L);
+    assertTrue(deduplicator.add(1L));
+    assertTrue(deduplicator.add(2L));
+    assertFalse(deduplicator.add(1L));
+    assertTrue(deduplicator.add(0L));
+    assertFalse(deduplicator.add(0L));
+    assertEquals(2L, deduplicator.hits.get());
+    assertEquals(3L, deduplicator.misses.get());
+  }
+
+  @Test
+  public void rotatesOnSize() {
+    StatusIdDeduplicator deduplicator = new StatusIdDeduplicator(16, 0, () -> 0L);
+    for (long id = 1; id <= 16; id++) {
+      assertTrue(deduplicator.add(id));
+    }
+    // The first 16 ids are now the previous generation and are still remembered.
+    assertFalse(deduplicator.add(1L));
+    for (long id = 17; id <= 32; id++) {
+      assertTrue(deduplicator.add(id));
+    }
+    // The second rotation clears the first generation.
+    assertTrue(deduplicator.add(1L));
+    assertFalse(deduplicator.add(32L));
+  }
+
+  @Test
+  public void rotatesOnTime() {
+    AtomicLong now = new AtomicLong(1000L);
+    StatusIdDeduplicator deduplicator = new StatusIdDeduplicator(1000, 60000L, now::get);
+    assertTrue(deduplicator.add(1L));
+    now.addAndGet(60000L);
+    assertTrue(deduplicator.add(2L));
+    assertFalse(deduplicator.add(1L));
+    now.addAndGet(60000L);
+    assertTrue(deduplicator.add(3L));
+    assertTrue(deduplicator.add(1L));
+  }
+
+  @Test
+  public void longSetMatchesHashSet() {
+    Random random = new Random(1234L);
+    StatusIdDeduplicator.LongSet set = new StatusIdDeduplicator.LongSet(10000);
+    Set<Long> expected = new HashSet<>();
+    for (int i = 0; i < 10000; i++) {
+      long value = random.nextInt(20000) - 10000L;
+      assertEquals(expected.add(value), set.add(value));
+    }
+    assertEquals(expected.size(), set.size());
+    for (long value = -10000L; value < 10000L; value++) {
+      assertEquals(expected.contains(value), set.contains(value));
+    }
+  }
+
+  @Test
+  public void saveAndLoad(@TempDir File tempDir) throws IOException {
+    File file = new File(tempDir, "dedup.state");
+    StatusIdDeduplicator deduplicator = new StatusIdDeduplicator(16, 0, () -> 0L);
+    for (long id = 1; id <= 20; id++) {
+      deduplicator.add(id);
+    }
+    deduplicator.save(file);
+
+    StatusIdDeduplicator loaded = new StatusIdDeduplicator(16, 0, () -> 0L);
+    loaded.load(file);
+    assertEquals(deduplicator.size(), loaded.size());
+    for (long id = 1; id <= 20; id++) {
+      assertFalse(loaded.add(id), "id " + id + " should have been loaded.");
+    }
+    assertTrue(loaded.add(21L));
+  }
+}
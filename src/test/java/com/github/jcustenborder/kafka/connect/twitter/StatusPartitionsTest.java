@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class StatusPartitionsTest {
+
+  @Test
+  public void partition() {
+    StatusPartitions partitions = new StatusPartitions(Arrays.asList("kafka", "stream processing"), Collections.singletonList(1234L));
+    assertEquals(ImmutableMap.of("keyword", "kafka"), partitions.partition("Reading about #Kafka today", 1L));
+    assertEquals(ImmutableMap.of("keyword", "stream processing"), partitions.partition("Processing the stream", 1L));
+    assertEquals(ImmutableMap.of("userId", "1234"), partitions.partition("stream only", 1234L));
+    assertSame(StatusPartitions.UNMATCHED, partitions.partition("stream only", 1L));
+    assertSame(StatusPartitions.UNMATCHED, partitions.partition((String) null, 1L));
+    assertEquals(3, partitions.partitions().size());
+  }
+
+  @Test
+  public void offsetNeverRegresses() {
+    StatusPartitions partitions = new StatusPartitions(Collections.singletonList("kafka"), Collections.emptyList());
+    Map<String, String> partition = StatusPartitions.keywordPartition("kafka");
+    assertEquals(ImmutableMap.of("statusId", 10L), partitions.offset(partition, 10L));
+    assertEquals(ImmutableMap.of("statusId", 10L), partitions.offset(partition, 5L));
+    assertEquals(ImmutableMap.of("statusId", 12L), partitions.offset(partition, 12L));
+    assertSame(StatusPartitions.NO_OFFSET, partitions.offset(StatusPartitions.UNMATCHED, 12L));
+  }
+
+  @Test
+  public void offsetHeldWhileBackfilling() {
+    StatusPartitions partitions = new StatusPartitions(Arrays.asList("kafka", "connect"), Collections.emptyList());
+    Map<String, String> kafka = StatusPartitions.keywordPartition("kafka");
+    Map<String, String> connect = StatusPartitions.keywordPartition("connect");
+    Map<Map<String, String>, Long> sinceIds = partitions.restore(
+        ImmutableMap.of(kafka, ImmutableMap.of("statusId", 100))
+    );
+    assertEquals(ImmutableMap.of(kafka, 100L), sinceIds);
+    assertEquals(ImmutableMap.of("statusId", 100L), partitions.offset(kafka, 150L));
+    assertEquals(ImmutableMap.of("statusId", 50L), partitions.offset(connect, 50L));
+    partitions.complete(kafka);
+    assertEquals(ImmutableMap.of("statusId", 150L), partitions.offset(kafka, 120L));
+  }
+
+  @Test
+  public void offsetHeldUntilReleased() {
+    StatusPartitions partitions = new StatusPartitions(Collections.singletonList("kafka"), Collections.emptyList());
+    Map<String, String> partition = StatusPartitions.keywordPartition("kafka");
+    partitions.hold(partition, 10L);
+    partitions.hold(partition, 11L);
+    // 11 is queued first. It must not commit past 10, which is still being converted.
+    assertEquals(ImmutableMap.of("statusId", 9L), partitions.heldOffset(partition, 11L));
+    partitions.release(partition, 11L);
+    assertEquals(ImmutableMap.of("statusId", 11L), partitions.heldOffset(partition, 10L));
+    partitions.release(partition, 10L);
+    partitions.hold(partition, 12L);
+    assertEquals(ImmutableMap.of("statusId", 12L), partitions.heldOffset(partition, 12L));
+    partitions.release(partition, 12L);
+    assertEquals(ImmutableMap.of("statusId", 12L), partitions.offset(partition, 5L));
+    assertSame(StatusPartitions.NO_OFFSET, partitions.heldOffset(StatusPartitions.UNMATCHED, 12L));
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+import twitter4j.Status;
+import twitter4j.User;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class StatusProjectionTest {
+
+  static List<String> names(List<Field> fields) {
+    return fields.stream().map(Field::name).collect(Collectors.toList());
+  }
+
+  @Test
+  public void accessorsCoverSchemas() {
+    assertEquals(names(StatusConverter.STATUS_SCHEMA.fields()), ImmutableList.copyOf(GeneratedConverters.STATUS_ACCESSORS.keySet()));
+    assertEquals(names(StatusConverter.USER_SCHEMA.fields()), ImmutableList.copyOf(GeneratedConverters.USER_ACCESSORS.keySet()));
+  }
+
+  @Test
+  public void allUsesFullSchemas() {
+    assertSame(StatusConverter.STATUS_SCHEMA, StatusProjection.ALL.statusSchema);
+    assertSame(StatusConverter.USER_SCHEMA, StatusProjection.ALL.userSchema);
+  }
+
+  @Test
+  public void pruned() {
+    StatusProjection projection = new StatusProjection(
+        ImmutableList.of("Lang", "Id", "Text", "User"),
+        ImmutableList.of("ScreenName", "Id")
+    );
+    // Order follows the original schema, not the configuration.
+    assertEquals(ImmutableList.of("Id", "Text", "User", "Lang"), names(projection.statusSchema.fields()));
+    assertEquals(ImmutableList.of("Id", "ScreenName"), names(projection.userSchema.fields()));
+    assertEquals(StatusConverter.STATUS_SCHEMA.name(), projection.statusSchema.name());
+    assertSame(projection.userSchema, projection.statusSchema.field("User").schema());
+
+    Status status = StatusConverterTest.mockStatus();
+    User user = status.getUser();
+    Struct struct = new Struct(projection.statusSchema);
+    projection.convert(status, struct);
+    struct.validate();
+
+    assertEquals(status.getId(), struct.getInt64("Id"));
+    assertEquals(status.getText(), struct.getString("Text"));
+    assertEquals(status.getLang(), struct.getString("Lang"));
+    Struct userStruct = struct.getStruct("User");
+    assertEquals(user.getId(), userStruct.getInt64("Id"));
+    assertEquals(user.getScreenName(), userStruct.getString("ScreenName"));
+
+    verify(status, never()).getPlace();
+    verify(status, never()).getGeoLocation();
+    verify(status, never()).getMediaEntities();
+    verify(status, never()).getContributors();
+    verify(user, never()).getProfileBannerURL();
+    verify(user, never()).getBiggerProfileImageURL();
+    verify(user, never()).getWithheldInCountries();
+  }
+
+  @Test
+  public void userFieldsOnly() {
+    StatusProjection projection = new StatusProjection(Collections.emptyList(), ImmutableList.of("Id"));
+    assertEquals(names(StatusConverter.STATUS_SCHEMA.fields()), names(projection.statusSchema.fields()));
+    assertEquals(ImmutableList.of("Id"), names(projection.statusSchema.field("User").schema().fields()));
+  }
+
+  @Test
+  public void withoutUser() {
+    StatusProjection projection = new StatusProjection(ImmutableList.of("Id"), Collections.emptyList());
+    Status status = StatusConverterTest.mockStatus();
+    Struct struct = new Struct(projection.statusSchema);
+    projection.convert(status, struct);
+    assertNull(projection.statusSchema.field("User"));
+    verify(status, never()).getUser();
+  }
+
+  @Test
+  public void unknownField() {
+    Map<String, String> settings = TwitterSourceTaskTest.settings();
+    settings.put(TwitterSourceConnectorConfig.USER_FIELDS_CONF, "Id,NotAField");
+    assertThrows(ConfigException.class, () -> new TwitterSourceConnectorConfig(settings));
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+import twitter4j.TwitterObjectFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatusReaderTest {
+
+  static Struct read(StatusReader reader, String json) {
+    // Pad the buffer so the offset and length are exercised.
+    byte[] bytes = ("  " + json + "\r\n").getBytes(StandardCharsets.UTF_8);
+    return reader.read(bytes, 2, bytes.length - 4);
+  }
+
+  static void assertMatchesTwitter4j(StatusReader reader, String json) throws Exception {
+    Struct expected = GeneratedConverters.convert(TwitterObjectFactory.createStatus(json));
+    Struct actual = read(reader, json);
+    assertEquals(expected, actual, json);
+  }
+
+  @Test
+  public void corpusMatchesTwitter4j() throws Exception {
+    StatusReader reader = new StatusReader();
+    List<String> corpus = StreamingStubServer.corpus(TwitterSourceTaskTest.CORPUS);
+    int statuses = 0;
+    for (String json : corpus) {
+      if (json.startsWith("{\"delete\"")) {
+        assertNull(read(reader, json));
+        continue;
+      }
+      statuses++;
+      assertMatchesTwitter4j(reader, json);
+    }
+    assertTrue(statuses > 0);
+  }
+
+  @Test
+  public void escapesSlideEntities() throws Exception {
+    final String json = "{\"created_at\":\"Wed Oct 10 20:19:24 +0000 2018\",\"id\":1050118621198921729," +
+        "\"text\":\"a &amp; b &lt;3 #kafka @connect \\u00e9\\ud83d\\ude00 \\\"q\\\" https:\\/\\/t.co\\/x &gt;\"," +
+        "\"source\":\"\\u003ca href=\\\"http:\\/\\/twitter.com\\\"\\u003eWeb\\u003c\\/a\\u003e\"," +
+        "\"entities\":{\"hashtags\":[{\"text\":\"kafka\",\"indices\":[16,22]}]," +
+        "\"user_mentions\":[{\"screen_name\":\"connect\",\"name\":\"Connect &amp; Co\",\"id\":12,\"indices\":[23,31]}]," +
+        "\"urls\":[{\"url\":\"https:\\/\\/t.co\\/x\",\"expanded_url\":null,\"indices\":[40,54]}]," +
+        "\"symbols\":[{\"text\":\"AB\",\"indices\":[1,3]}]}," +
+        "\"user\":{\"id\":2,\"name\":\"Ren\\u00e9e\",\"description\":\"x &amp; y\",\"followers_count\":\"17\"," +
+        "\"profile_image_url\":\"http:\\/\\/pbs.twimg.com\\/profile_images\\/1\\/abc_normal.png\"," +
+        "\"profile_image_url_https\":\"https:\\/\\/pbs.twimg.com\\/profile_images\\/1\\/abc_normal\"," +
+        "\"profile_banner_url\":\"https:\\/\\/pbs.twimg.com\\/profile_banners\\/1\\/2\"," +
+        "\"created_at\":\"Sun Mar 01 10:00:00 +0000 2009\",\"withheld_in_countries\":[\"DE\"],\"verified\":true}," +
+        "\"contributors\":[3,4],\"current_user_retweet\":{\"id\":99},\"withheld_in_countries\":[\"FR\",\"DE\"]," +
+        "\"coordinates\":{\"type\":\"Point\",\"coordinates\":[-122.4,37.7]},\"geo\":{\"coordinates\":[0,0]}," +
+        "\"place\":{\"id\":\"p\",\"name\":\"A &amp; B\",\"type\":\"city\",\"full_name\":\"A, B\"}," +
+        "\"retweet_count\":\"100+\",\"favorite_count\":12,\"lang\":\"en\",\"unknown\":[{\"a\":[1,{\"b\":\"]}\"}]}]}";
+    assertMatchesTwitter4j(new StatusReader(), json);
+  }
+
+  @Test
+  public void extendedTweet() throws Exception {
+    final String json = "{\"created_at\":\"Wed Oct 10 20:19:24 +0000 2018\",\"id\":1,\"truncated\":true," +
+        "\"text\":\"short &amp; cut https:\\/\\/t.co\\/more\"," +
+        "\"entities\":{\"hashtags\":[],\"urls\":[{\"url\":\"https:\\/\\/t.co\\/more\",\"indices\":[16,36]}]," +
+        "\"user_mentions\":[]}," +
+        "\"extended_tweet\":{\"full_text\":\"the &lt;whole&gt; text #tag\",\"display_text_range\":[0,27]," +
+        "\"entities\":{\"hashtags\":[{\"text\":\"tag\",\"indices\":[23,27]}]," +
+        "\"media\":[{\"id\":5,\"url\":\"https:\\/\\/t.co\\/m\",\"expanded_url\":\"https:\\/\\/x.com\\/m\"," +
+        "\"display_url\":\"x.com\\/m\",\"media_url\":\"http:\\/\\/pbs.twimg.com\\/m.jpg\"," +
+        "\"media_url_https\":\"https:\\/\\/pbs.twimg.com\\/m.jpg\",\"type\":\"video\",\"indices\":[27,27]," +
+        "\"sizes\":{\"thumb\":{\"w\":150,\"h\":150,\"resize\":\"crop\"},\"large\":{\"w\":1024,\"h\":576,\"resize\":\"fit\"}}," +
+        "\"video_info\":{\"aspect_ratio\":[16,9],\"duration_millis\":30000,\"variants\":[{\"bitrate\":832000," +
+        "\"content_type\":\"video\\/mp4\",\"url\":\"https:\\/\\/video.twimg.com\\/1.mp4\"}," +
+        "{\"content_type\":\"application\\/x-mpegURL\",\"url\":\"https:\\/\\/video.twimg.com\\/1.m3u8\"}]}," +
+        "\"ext_alt_text\":\"alt\"}]}}," +
+        "\"extended_entities\":{\"media\":[{\"id\":6,\"url\":\"https:\\/\\/t.co\\/n\",\"expanded_url\":\"https:\\/\\/x.com\\/n\"," +
+        "\"display_url\":\"x.com\\/n\",\"media_url\":\"http:\\/\\/pbs.twimg.com\\/n.jpg\"," +
+        "\"media_url_https\":\"https:\\/\\/pbs.twimg.com\\/n.jpg\",\"indices\":[0,1],\"sizes\":{}}]}," +
+        "\"user\":{\"id\":2,\"screen_name\":\"s\"},\"retweeted_status\":null,\"lang\":\"en\"}";
+    assertMatchesTwitter4j(new StatusReader(), json);
+  }
+
+  @Test
+  public void otherMessages() {
+    StatusReader reader = new StatusReader();
+    assertNull(read(reader, "{\"delete\":{\"status\":{\"id\":1,\"user_id\":2},\"timestamp_ms\":\"1539202764650\"}}"));
+    assertNull(read(reader, "{\"limit\":{\"track\":1234,\"timestamp_ms\":\"1539202764650\"}}"));
+    assertNull(read(reader, "{\"warning\":{\"code\":\"FALLING_BEHIND\",\"percent_full\":60}}"));
+    assertNull(read(reader, ""));
+  }
+
+  @Test
+  public void resized() {
+    assertEquals("http://a/b/abc_bigger.png", StatusReader.resized("http://a/b/abc_normal.png", "_bigger"));
+    assertEquals("http://a/b/abc", StatusReader.resized("http://a/b/abc_normal", ""));
+    assertEquals("http://a/b/abc_mini", StatusReader.resized("http://a/b/abc", "_mini"));
+  }
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand in for the streaming filter endpoint. Each connection is answered with a chunked response that replays
+ * a recorded corpus of newline delimited messages. Point twitter4j at it with
+ * {@code twitter.streamBaseURL=}{@link #streamBaseURL()}.
+ *
+ * The replay rate is relative to the recorded timestamp_ms of each message. A rate of 1 replays at the recorded
+ * speed, 10 replays ten times faster and 0 writes as fast as the client will read.
+ *
+ * Messages are prefixed with their length when the request asks for {@code delimited=length}, and the response is
+ * gzip encoded when the request accepts it.
+ *
+ * The search endpoint is served as well, from the statuses passed to {@link #search(List, int)}. The q parameter is
+ * ignored. since_id and max_id are honored and results are returned newest first, so a client can page through them
+ * the same way it would against the REST api. {@link #rateLimit(int)} answers a request with a 429 after the given
+ * number of requests, with a window that resets one second later.
+ */
+class StreamingStubServer implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(StreamingStubServer.class);
+  static final String BASE_PATH = "/1.1/";
+  static final byte[] DELIMITER = "\r\n".getBytes(Charsets.UTF_8);
+  static final Pattern TIMESTAMP_PATTERN = Pattern.compile("\"timestamp_ms\":\"(\\d+)\"");
+  static final Pattern ID_PATTERN = Pattern.compile("\"id\":(\\d+)");
+  static final String SEARCH_PATH = BASE_PATH + "search/tweets.json";
+  static final long KEEP_ALIVE_MS = 1000L;
+
+  final List<byte[]> messages;
+  final long[] delaysMs;
+  final double rate;
+  final long loops;
+  final HttpServer server;
+  final ExecutorService executorService;
+  final AtomicLong sent = new AtomicLong();
+  final AtomicLong connections = new AtomicLong();
+  final AtomicLong searches = new AtomicLong();
+  final AtomicLong rateLimited = new AtomicLong();
+  final AtomicInteger rateLimitRemaining = new AtomicInteger(Integer.MAX_VALUE);
+  volatile Map<String, String> streamParameters;
+  volatile boolean streamGzip;
+  private volatile TreeMap<Long, String> searchStatuses = new TreeMap<>();
+  private volatile int searchPageSize = 100;
+  private volatile boolean running = true;
+
+  /**
+   * @param corpus messages to replay, one JSON document per entry.
+   * @param rate   replay speed relative to the recorded timestamps. 0 is as fast as possible.
+   * @param loops  number of times to replay the corpus on each connection.
+   * @throws IOException thrown if the server could not bind.
+   */
+  StreamingStubServer(List<String> corpus, double rate, long loops) throws IOException {
+    this.rate = rate;
+    this.loops = loops;
+    this.messages = new ArrayList<>(corpus.size());
+    this.delaysMs = new long[corpus.size()];
+
+    long previous = -1L;
+    for (int i = 0; i < corpus.size(); i++) {
+      String message = corpus.get(i);
+      this.messages.add(message.getBytes(Charsets.UTF_8));
+      Matcher matcher = TIMESTAMP_PATTERN.matcher(message);
+      long timestamp = matcher.find() ? Long.parseLong(matcher.group(1)) : previous;
+      this.delaysMs[i] = previous < 0 || timestamp < previous ? 0L : timestamp - previous;
+      previous = timestamp;
+    }
+
+    this.executorService = Executors.newCachedThreadPool();
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.createContext(BASE_PATH, this::handle);
+    this.server.createContext(SEARCH_PATH, this::handleSearch);
+    this.server.setExecutor(this.executorService);
+    this.server.start();
+    log.info("Started streaming stub on {} rate = {} loops = {}", streamBaseURL(), rate, loops);
+  }
+
+  static List<String> corpus(String resource) throws IOException {
+    List<String> result = new ArrayList<>();
+    for (String line : Resources.readLines(Resources.getResource(resource), Charsets.UTF_8)) {
+      if (!line.trim().isEmpty()) {
+        result.add(line);
+      }
+    }
+    return result;
+  }
+
+  String streamBaseURL() {
+    InetSocketAddress address = this.server.getAddress();
+    return String.format("http://%s:%s%s", address.getHostString(), address.getPort(), BASE_PATH);
+  }
+
+  /**
+   * Settings that point twitter4j at this server.
+   *
+   * @param settings settings to add to.
+   * @return settings.
+   */
+  Map<String, String> configure(Map<String, String> settings) {
+    settings.put("twitter.streamBaseURL", streamBaseURL());
+    settings.put("twitter.restBaseURL", restBaseURL());
+    return settings;
+  }
+
+  String restBaseURL() {
+    return streamBaseURL();
+  }
+
+  /**
+   * Sets the statuses returned by the search endpoint.
+   *
+   * @param statuses statuses to search, one JSON document per entry.
+   * @param pageSize maximum number of statuses to return per request, regardless of the count requested.
+   */
+  void search(List<String> statuses, int pageSize) {
+    TreeMap<Long, String> result = new TreeMap<>();
+    for (String status : statuses) {
+      Matcher matcher = ID_PATTERN.matcher(status);
+      if (matcher.find()) {
+        result.put(Long.parseLong(matcher.group(1)), status);
+      }
+    }
+    this.searchStatuses = result;
+    this.searchPageSize = pageSize;
+  }
+
+  /**
+   * @param requests number of requests to answer before returning a 429.
+   */
+  void rateLimit(int requests) {
+    this.rateLimitRemaining.set(requests);
+  }
+
+  void handleSearch(HttpExchange exchange) throws IOException {
+    this.searches.incrementAndGet();
+    try {
+      ByteStreams.exhaust(exchange.getRequestBody());
+      Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+      final long resetSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 1;
+      final int remaining = this.rateLimitRemaining.getAndDecrement();
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.getResponseHeaders().add("X-Rate-Limit-Limit", "180");
+      exchange.getResponseHeaders().add("X-Rate-Limit-Remaining", remaining <= 0 ? "0" : "179");
+      exchange.getResponseHeaders().add("X-Rate-Limit-Reset", Long.toString(resetSeconds));
+      if (remaining <= 0) {
+        this.rateLimited.incrementAndGet();
+        this.rateLimitRemaining.set(Integer.MAX_VALUE);
+        write(exchange, 429, "{\"errors\":[{\"code\":88,\"message\":\"Rate limit exceeded\"}]}");
+        return;
+      }
+
+      final long sinceId = Long.parseLong(parameters.getOrDefault("since_id", "0"));
+      final long maxId = Long.parseLong(parameters.getOrDefault("max_id", Long.toString(Long.MAX_VALUE)));
+      final int count = Math.min(this.searchPageSize, Integer.parseInt(parameters.getOrDefault("count", "15")));
+      StringBuilder builder = new StringBuilder("{\"statuses\":[");
+      int written = 0;
+      for (String status : this.searchStatuses.subMap(sinceId, false, maxId, true).descendingMap().values()) {
+        if (written == count) {
+          break;
+        }
+        if (written > 0) {
+          builder.append(',');
+        }
+        builder.append(status);
+        written++;
+      }
+      builder.append("],\"search_metadata\":{")
+          .append("\"completed_in\":0.01,")
+          .append("\"max_id\":").append(maxId).append(',')
+          .append("\"since_id\":").append(sinceId).append(',')
+          .append("\"query\":\"").append(parameters.getOrDefault("q", "")).append("\",")
+          .append("\"refresh_url\":\"\",")
+          .append("\"count\":").append(count)
+          .append("}}");
+      write(exchange, 200, builder.toString());
+    } finally {
+      exchange.close();
+    }
+  }
+
+  static Map<String, String> parameters(String query) throws UnsupportedEncodingException {
+    Map<String, String> result = new LinkedHashMap<>();
+    if (null == query) {
+      return result;
+    }
+    for (String parameter : query.split("&")) {
+      int index = parameter.indexOf('=');
+      if (index > 0) {
+        result.put(parameter.substring(0, index), URLDecoder.decode(parameter.substring(index + 1), "UTF-8"));
+      }
+    }
+    return result;
+  }
+
+  static void write(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] buffer = body.getBytes(Charsets.UTF_8);
+    exchange.sendResponseHeaders(status, buffer.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(buffer);
+    }
+  }
+
+  void handle(HttpExchange exchange) throws IOException {
+    this.connections.incrementAndGet();
+    try {
+      final Map<String, String> parameters = parameters(
+          new String(ByteStreams.toByteArray(exchange.getRequestBody()), Charsets.UTF_8)
+      );
+      final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      final boolean gzip = null != acceptEncoding && acceptEncoding.contains("gzip");
+      this.streamParameters = parameters;
+      this.streamGzip = gzip;
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      if (gzip) {
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      }
+      // A response length of 0 sends the body with chunked transfer encoding.
+      exchange.sendResponseHeaders(200, 0);
+      OutputStream responseBody = exchange.getResponseBody();
+      if (gzip) {
+        responseBody = new GZIPOutputStream(responseBody, 64 * 1024, true);
+      }
+      try (OutputStream outputStream = new BufferedOutputStream(responseBody, 64 * 1024)) {
+        replay(outputStream, "length".equals(parameters.get("delimited")));
+        while (this.running) {
+          outputStream.write(DELIMITER);
+          outputStream.flush();
+          Thread.sleep(KEEP_ALIVE_MS);
+        }
+      }
+    } catch (IOException e) {
+      if (this.running) {
+        log.debug("Client disconnected", e);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  void replay(OutputStream outputStream, boolean delimited) throws IOException, InterruptedException {
+    final boolean paced = this.rate > 0;
+    final long started = System.nanoTime();
+    long dueNanos = 0L;
+    for (long loop = 0; loop < this.loops && this.running; loop++) {
+      for (int i = 0; i < this.messages.size() && this.running; i++) {
+        if (paced) {
+          dueNanos += (long) (TimeUnit.MILLISECONDS.toNanos(this.delaysMs[i]) / this.rate);
+          long waitNanos = started + dueNanos - System.nanoTime();
+          if (waitNanos > 0) {
+            outputStream.flush();
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+          }
+        }
+        final byte[] message = this.messages.get(i);
+        if (delimited) {
+          // The length includes the line break after the message.
+          outputStream.write(Integer.toString(message.length + DELIMITER.length).getBytes(Charsets.UTF_8));
+          outputStream.write(DELIMITER);
+        }
+        outputStream.write(message);
+        outputStream.write(DELIMITER);
+        this.sent.incrementAndGet();
+      }
+    }
+    outputStream.flush();
+  }
+
+  @Override
+  public void close() {
+    this.running = false;
+    this.server.stop(0);
+    this.executorService.shutdownNow();
+  }
+}
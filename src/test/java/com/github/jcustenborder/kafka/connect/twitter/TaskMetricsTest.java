@@ -0,0 +1,155 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import twitter4j.User;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskMetricsTest {
+  static final Map<String, String> TAGS = ImmutableMap.of("connector", "test", "task", "0");
+  RecordQueue queue;
+  TaskMetrics metrics;
+
+  @BeforeEach
+  public void before() {
+    this.queue = mock(RecordQueue.class);
+    this.metrics = new TaskMetrics(new Metrics(), TAGS, this.queue);
+  }
+
+  @AfterEach
+  public void after() {
+    this.metrics.close();
+  }
+
+  Object value(String name) {
+    MetricName metricName = this.metrics.metrics.metricName(name, TaskMetrics.GROUP, TAGS);
+    return this.metrics.metrics.metric(metricName).metricValue();
+  }
+
+  @Test
+  public void tags() {
+    assertEquals(
+        ImmutableMap.of("connector", "my-twitter", "task", "3"),
+        TaskMetrics.tags("ignored", "task-thread-my-twitter-3")
+    );
+    Map<String, String> tags = TaskMetrics.tags("my-twitter", "main");
+    assertEquals("my-twitter", tags.get("connector"));
+    assertTrue(tags.containsKey("task"));
+  }
+
+  @Test
+  public void countersRecordedOnPoll() {
+    for (int i = 0; i < 5; i++) {
+      this.metrics.status();
+    }
+    this.metrics.delete();
+    this.metrics.conversionError();
+    assertEquals(0D, value("statuses-total"), "Counters are moved into the sensors by the poll thread.");
+    this.metrics.polled(6, 2000000L);
+    assertEquals(5D, value("statuses-total"));
+    assertEquals(1D, value("deletes-total"));
+    assertEquals(1D, value("conversion-errors-total"));
+    assertEquals(6D, value("poll-batch-size-max"));
+    assertEquals(2D, value("poll-wait-time-max-ms"));
+
+    this.metrics.status();
+    this.metrics.polled(1, 0L);
+    assertEquals(6D, value("statuses-total"), "Only the change since the last poll should be recorded.");
+  }
+
+  @Test
+  public void gauges() {
+    when(this.queue.size()).thenReturn(12);
+    when(this.queue.retainedBytes()).thenReturn(4096L);
+    this.metrics.stallWarning(60);
+    this.metrics.trackLimitation(1234);
+    this.metrics.onConnect();
+    this.metrics.onDisconnect();
+    this.metrics.onConnect();
+    this.metrics.converted(System.nanoTime());
+
+    assertEquals(12, value("queue-size"));
+    assertEquals(4096L, value("queue-bytes"));
+    assertEquals(60, value("stall-percent-full"));
+    assertEquals(1L, value("stall-warnings-total"));
+    assertEquals(1234, value("track-limitation-undelivered"));
+    assertEquals(1L, value("reconnects-total"));
+    assertTrue((Double) value("conversion-time-p99-ms") > 0D);
+  }
+
+  @Test
+  public void stageGauges() {
+    assertEquals(0D, value("end-to-end-latency-p99-ms"));
+    this.metrics.stages.converted(System.nanoTime(), System.currentTimeMillis() - 1000L);
+    assertTrue((Double) value("conversion-latency-p99-ms") > 0D);
+    assertTrue((Double) value("twitter-latency-max-ms") > 500D);
+    assertEquals(0, value("in-flight"));
+    this.metrics.logStages();
+  }
+
+  @Test
+  public void dedupGauges() {
+    StatusIdDeduplicator deduplicator = new StatusIdDeduplicator(16, 0L, System::currentTimeMillis);
+    this.metrics.deduplicator(deduplicator);
+    deduplicator.add(1L);
+    deduplicator.add(1L);
+    deduplicator.add(2L);
+    assertEquals(1L, value("dedup-hits-total"));
+    assertEquals(2L, value("dedup-misses-total"));
+  }
+
+  @Test
+  public void cacheGauges() {
+    ConversionCache cache = new ConversionCache(10);
+    this.metrics.cache(cache);
+    User user = StatusConverterTest.mockUser();
+    cache.user(user, ConversionCacheTest::convert);
+    cache.user(user, ConversionCacheTest::convert);
+    assertEquals(1L, value("cache-user-hits-total"));
+    assertEquals(1L, value("cache-user-misses-total"));
+    assertEquals(0L, value("cache-place-misses-total"));
+  }
+
+  @Test
+  public void registeredWithJmx() throws Exception {
+    Map<String, String> settings = TwitterSourceTaskTest.settings();
+    settings.put("name", "jmx-test");
+    try (TaskMetrics metrics = TaskMetrics.of(new TwitterSourceConnectorConfig(settings), this.queue)) {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(String.format(
+          "%s:type=%s,connector=%s,task=%s",
+          TaskMetrics.JMX_PREFIX, TaskMetrics.GROUP, metrics.tags.get("connector"), metrics.tags.get("task")
+      ));
+      assertTrue(server.isRegistered(name), name + " should be registered.");
+      assertEquals(0D, server.getAttribute(name, "statuses-total"));
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TopicRouterTest {
+  static final String[] KEYWORDS = new String[]{"kafka", "nba"};
+
+  static TopicRouter router(boolean fanout, String... routes) {
+    return new TopicRouter(KEYWORDS, TopicRouter.parse(Arrays.asList(routes)), "twitter", fanout);
+  }
+
+  @Test
+  public void firstRouteWins() {
+    TopicRouter router = router(false, "lang:ja=twitter-ja", "keyword:kafka=twitter-kafka", "userId:42=twitter-42");
+    assertArrayEquals(new String[]{"twitter-kafka"}, router.topics(new int[]{0}, "en", 42L));
+    assertArrayEquals(new String[]{"twitter-ja"}, router.topics(new int[]{0, 1}, "ja", 42L));
+    assertArrayEquals(new String[]{"twitter-42"}, router.topics(new int[]{1}, null, 42L));
+    assertArrayEquals(new String[]{"twitter"}, router.topics(new int[]{1}, "en", 1L));
+  }
+
+  @Test
+  public void fanout() {
+    TopicRouter router = router(
+        true,
+        "keyword:nba=twitter-sports",
+        "keyword:kafka=twitter-kafka",
+        "lang:en=twitter-en",
+        "userId:42=twitter-kafka"
+    );
+    assertArrayEquals(
+        new String[]{"twitter-sports", "twitter-kafka", "twitter-en"},
+        router.topics(new int[]{0, 1}, "en", 42L)
+    );
+    assertArrayEquals(new String[]{"twitter"}, router.topics(KeywordMatcher.NONE, "ja", 1L));
+  }
+
+  @Test
+  public void allTopics() {
+    TopicRouter router = router(false, "lang:ja=twitter-ja", "keyword:kafka=twitter", "userId:42=twitter-ja");
+    assertArrayEquals(new String[]{"twitter", "twitter-ja"}, router.allTopics());
+  }
+
+  @Test
+  public void noRoutes() {
+    TopicRouter router = new TopicRouter(KEYWORDS, Collections.emptyList(), "twitter", true);
+    assertArrayEquals(new String[]{"twitter"}, router.topics(new int[]{0}, "en", 42L));
+  }
+
+  @Test
+  public void invalidRoutes() {
+    for (String route : Arrays.asList("kafka=twitter", "keyword:kafka", "keyword:=twitter", "place:us=twitter", "userId:x=twitter")) {
+      assertThrows(IllegalArgumentException.class, () -> TopicRouter.parse(Collections.singletonList(route)), route);
+    }
+  }
+}
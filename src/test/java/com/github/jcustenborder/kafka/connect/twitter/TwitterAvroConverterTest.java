@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2016 Jeremy Custenborder (jcustenborder@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.jcustenborder.kafka.connect.twitter;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.storage.StringConverter;
+import org.junit.jupiter.api.Test;
+import twitter4j.Status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TwitterAvroConverterTest {
+  static final String TOPIC = "twitter";
+
+  static TwitterAvroConverter converter(String fallback) {
+    TwitterAvroConverter converter = new TwitterAvroConverter();
+    converter.configure(
+        ImmutableMap.of(TwitterAvroConverterConfig.FALLBACK_CONVERTER_CONF, fallback),
+        false
+    );
+    return converter;
+  }
+
+  @Test
+  public void roundTrip() {
+    TwitterAvroConverter converter = converter("");
+    Status status = StatusConverterTest.mockStatus();
+    Struct struct = new Struct(StatusConverter.STATUS_SCHEMA);
+    StatusConverter.convert(status, struct);
+
+    byte[] first = converter.fromConnectData(TOPIC, StatusConverter.STATUS_SCHEMA, struct);
+    byte[] second = converter.fromConnectData(TOPIC, StatusConverter.STATUS_SCHEMA, struct);
+    assertNotSame(first, second);
+    assertArrayEquals(first, second);
+
+    SchemaAndValue actual = converter.toConnectData(TOPIC, first);
+    assertSame(StatusConverter.STATUS_SCHEMA, actual.schema());
+    assertEquals(struct, actual.value());
+
+    Struct key = new Struct(StatusConverter.STATUS_SCHEMA_KEY);
+    StatusConverter.convertKey(status, key);
+    actual = converter.toConnectData(TOPIC, converter.fromConnectData(TOPIC, key.schema(), key));
+    assertEquals(key, actual.value());
+  }
+
+  /**
+   * A projected schema has the name of the full one, the fingerprint tells them apart.
+   */
+  @Test
+  public void projected() {
+    TwitterAvroConverter converter = converter("");
+    StatusProjection projection = new StatusProjection(Arrays.asList("Id", "Text"), Collections.emptyList());
+    Struct struct = new Struct(projection.statusSchema);
+    projection.convert(StatusConverterTest.mockStatus(), struct);
+    SchemaAndValue actual = converter.toConnectData(
+        TOPIC, converter.fromConnectData(TOPIC, projection.statusSchema, struct)
+    );
+    assertSame(projection.statusSchema, actual.schema());
+    assertEquals(struct, actual.value());
+  }
+
+  @Test
+  public void projectedFromSettings() {
+    TwitterAvroConverter writer = converter("");
+    StatusProjection projection = new StatusProjection(Arrays.asList("Id", "Text", "User"), Arrays.asList("Id"));
+    Struct struct = new Struct(projection.statusSchema);
+    projection.convert(StatusConverterTest.mockStatus(), struct);
+    byte[] bytes = writer.fromConnectData(TOPIC, projection.statusSchema, struct);
+
+    DataException exception = assertThrows(DataException.class, () -> converter("").toConnectData(TOPIC, bytes));
+    assertTrue(exception.getMessage().contains(TwitterSourceConnectorConfig.STATUS_FIELDS_CONF));
+
+    TwitterAvroConverter reader = new TwitterAvroConverter();
+    reader.configure(
+        ImmutableMap.of(
+            TwitterAvroConverterConfig.FALLBACK_CONVERTER_CONF, StringConverter.class.getName(),
+            TwitterSourceConnectorConfig.STATUS_FIELDS_CONF, "Id,Text,User",
+            TwitterSourceConnectorConfig.USER_FIELDS_CONF, "Id"
+        ),
+        false
+    );
+    assertEquals(struct, reader.toConnectData(TOPIC, bytes).value());
+  }
+
+  @Test
+  public void reducedByDefault() {
+    StatusProjection reduced = new StatusProjection(
+        TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_DEFAULT,
+        TwitterSourceConnectorConfig.DEGRADED_USER_FIELDS_DEFAULT
+    );
+    Struct struct = new Struct(reduced.statusSchema);
+    reduced.convert(StatusConverterTest.mockStatus(), struct);
+    TwitterAvroConverter converter = converter("");
+    byte[] bytes = converter("").fromConnectData(TOPIC, reduced.statusSchema, struct);
+    assertEquals(struct, converter.toConnectData(TOPIC, bytes).value());
+  }
+
+  @Test
+  public void tombstone() {
+    TwitterAvroConverter converter = converter("");
+    assertNull(converter.fromConnectData(TOPIC, StatusConverter.STATUS_SCHEMA, null));
+    assertEquals(SchemaAndValue.NULL, converter.toConnectData(TOPIC, null));
+  }
+
+  @Test
+  public void fallback() {
+    TwitterAvroConverter converter = converter(StringConverter.class.getName());
+    byte[] bytes = converter.fromConnectData(TOPIC, Schema.STRING_SCHEMA, "foo");
+    assertArrayEquals("foo".getBytes(StandardCharsets.UTF_8), bytes);
+    assertEquals(new SchemaAndValue(Schema.OPTIONAL_STRING_SCHEMA, "foo"), converter.toConnectData(TOPIC, bytes));
+  }
+
+  @Test
+  public void noFallback() {
+    TwitterAvroConverter converter = converter("");
+    assertThrows(DataException.class, () -> converter.fromConnectData(TOPIC, Schema.STRING_SCHEMA, "foo"));
+    assertThrows(DataException.class, () -> converter.toConnectData(TOPIC, "foo".getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -16,21 +16,38 @@
 package com.github.jcustenborder.kafka.connect.twitter;
 
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectorContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class TwitterSourceConnectorTest {
 
@@ -83,4 +100,204 @@ public class TwitterSourceConnectorTest {
 
   }
 
+  @Test
+  public void credentialsPool() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one,two,three,four,five");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.CREDENTIALS_POOL_CONF, "ck1:cs1:at1:ats1;ck2:cs2:at2:ats2");
+    this.connector.start(this.defaultSettings);
+    List<Map<String, String>> taskConfigs = this.connector.taskConfigs(4);
+    assertEquals(2, taskConfigs.size(), "There should be one task per set of credentials.");
+    for (int i = 0; i < taskConfigs.size(); i++) {
+      Map<String, String> taskConfig = taskConfigs.get(i);
+      final int set = i + 1;
+      assertEquals("ck" + set, taskConfig.get(TwitterSourceConnectorConfig.TWITTER_OAUTH_CONSUMER_KEY_CONF));
+      assertEquals("cs" + set, taskConfig.get(TwitterSourceConnectorConfig.TWITTER_OAUTH_SECRET_KEY_CONF));
+      assertEquals("at" + set, taskConfig.get(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_CONF));
+      assertEquals("ats" + set, taskConfig.get(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_SECRET_CONF));
+      assertFalse(taskConfig.containsKey(TwitterSourceConnectorConfig.CREDENTIALS_POOL_CONF));
+    }
+    assertEquals("one,three,five", taskConfigs.get(0).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+    assertEquals("two,four", taskConfigs.get(1).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+  }
+
+  @Test
+  public void credentialsFile(@TempDir File tempDir) throws IOException {
+    File file = new File(tempDir, "credentials");
+    Files.asCharSink(file, Charsets.UTF_8).write("# pool\nck1:cs1:at1:ats1\n\nck2:cs2:at2:ats2\n");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one,two,three");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.CREDENTIALS_FILE_CONF, file.getAbsolutePath());
+    this.connector.start(this.defaultSettings);
+    List<Map<String, String>> taskConfigs = this.connector.taskConfigs(3);
+    assertEquals(2, taskConfigs.size());
+    assertEquals("ck2", taskConfigs.get(1).get(TwitterSourceConnectorConfig.TWITTER_OAUTH_CONSUMER_KEY_CONF));
+    assertFalse(taskConfigs.get(1).containsKey(TwitterSourceConnectorConfig.CREDENTIALS_FILE_CONF));
+  }
+
+  @Test
+  public void invalidCredentialsPool() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.CREDENTIALS_POOL_CONF, "ck1:cs1:at1");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+  }
+
+  @Test
+  public void userIdsOnly() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_USER_IDS_CONF, "5,4,3,2,1");
+    this.connector.start(this.defaultSettings);
+    List<Map<String, String>> taskConfigs = this.connector.taskConfigs(2);
+    assertEquals(2, taskConfigs.size());
+    assertEquals("1,3,5", taskConfigs.get(0).get(TwitterSourceConnectorConfig.FILTER_USER_IDS_CONF));
+    assertEquals("2,4", taskConfigs.get(1).get(TwitterSourceConnectorConfig.FILTER_USER_IDS_CONF));
+    assertEquals("", taskConfigs.get(0).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+  }
+
+  @Test
+  public void distributeFilters() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one,two,three");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_USER_IDS_CONF, "1,2,3,4,5,6,7,8,9,10");
+    this.defaultSettings.put(
+        TwitterSourceConnectorConfig.FILTER_LOCATIONS_CONF,
+        "-122.75,36.8,-121.75,37.8,-74.0,40.0,-73.0,41.0"
+    );
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_MAX_USER_IDS_CONF, "4");
+    this.connector.start(this.defaultSettings);
+    List<Map<String, String>> taskConfigs = this.connector.taskConfigs(3);
+    assertEquals(3, taskConfigs.size());
+
+    Set<String> userIds = new HashSet<>();
+    int locations = 0;
+    for (Map<String, String> taskConfig : taskConfigs) {
+      TwitterSourceConnectorConfig config = new TwitterSourceConnectorConfig(taskConfig);
+      assertTrue(config.filterUserIds.size() <= 4, "Each task should stay under the user id limit.");
+      for (Long userId : config.filterUserIds) {
+        assertTrue(userIds.add(userId.toString()), "Each user id should be owned by one task.");
+      }
+      locations += config.filterLocations.size();
+    }
+    assertEquals(10, userIds.size());
+    assertEquals(2, locations);
+    assertTrue(
+        taskConfigs.stream()
+            .map(c -> c.get(TwitterSourceConnectorConfig.FILTER_LOCATIONS_CONF))
+            .anyMatch("-122.75,36.8,-121.75,37.8"::equals),
+        "Locations should go to the tasks with the fewest user ids."
+    );
+  }
+
+  @Test
+  public void keywordsOverConnectionLimit() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one,two,three,four,five");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_MAX_KEYWORDS_CONF, "2");
+    this.connector.start(this.defaultSettings);
+    assertThrows(ConfigException.class, () -> this.connector.taskConfigs(2));
+    List<Map<String, String>> taskConfigs = this.connector.taskConfigs(3);
+    assertEquals(3, taskConfigs.size());
+    for (Map<String, String> taskConfig : taskConfigs) {
+      TwitterSourceConnectorConfig config = new TwitterSourceConnectorConfig(taskConfig);
+      assertTrue(config.filterKeywords.size() <= 2, "Each task should stay under the keyword limit.");
+    }
+
+    // A rebalanced assignment over the limit moves the extra keywords to a task with room.
+    this.connector.assignment = Arrays.asList(
+        Arrays.asList("one", "two", "three"), Arrays.asList("four"), Arrays.asList("five")
+    );
+    taskConfigs = this.connector.taskConfigs(3);
+    assertEquals("one,two", taskConfigs.get(0).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+    assertEquals("four,three", taskConfigs.get(1).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+    assertEquals("five", taskConfigs.get(2).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+  }
+
+  @Test
+  public void credentialsPoolTooSmallForKeywords() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one,two,three");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_MAX_KEYWORDS_CONF, "1");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.CREDENTIALS_POOL_CONF, "ck1:cs1:at1:ats1;ck2:cs2:at2:ats2");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+  }
+
+  @Test
+  public void noFilters() {
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+  }
+
+  @Test
+  public void compactionWithoutDeletes() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.COMPACTION_ENABLED_CONF, "true");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+  }
+
+  @Test
+  public void dedupStateFilePerTask() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one,two");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.DEDUP_STATE_FILE_CONF, "/var/lib/twitter/dedup");
+    this.connector.start(this.defaultSettings);
+    List<Map<String, String>> taskConfigs = this.connector.taskConfigs(2);
+    assertEquals("/var/lib/twitter/dedup.0", taskConfigs.get(0).get(TwitterSourceConnectorConfig.DEDUP_STATE_FILE_CONF));
+    assertEquals("/var/lib/twitter/dedup.1", taskConfigs.get(1).get(TwitterSourceConnectorConfig.DEDUP_STATE_FILE_CONF));
+  }
+
+  @Test
+  public void reducedFieldsWithFlat() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.OUTPUT_FORMAT_CONF, "FLAT");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.DEGRADED_ENABLED_CONF, "true");
+    this.connector.start(this.defaultSettings);
+    this.defaultSettings.put(TwitterSourceConnectorConfig.DEGRADED_STATUS_FIELDS_CONF, "Id,Text");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+  }
+
+  @Test
+  public void builtinClientWithProxy() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "one");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.STREAM_CLIENT_CONF, "BUILTIN");
+    this.defaultSettings.put("twitter.http.proxyHost", "proxy.example.com");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+  }
+
+  @Test
+  public void invalidLocations() {
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_LOCATIONS_CONF, "-122.75,36.8,-121.75");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_LOCATIONS_CONF, "-122.75,96.8,-121.75,37.8");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_LOCATIONS_CONF, "-121.75,37.8,-122.75,36.8");
+    assertThrows(ConfigException.class, () -> this.connector.start(this.defaultSettings));
+  }
+
+  @Test
+  public void rebalanceByVolume() {
+    this.defaultSettings.put("name", "rebalanceByVolume");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "bitcoin,kafka,nba,connect");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.REBALANCE_ENABLED_CONF, "true");
+    this.defaultSettings.put(TwitterSourceConnectorConfig.REBALANCE_MIN_INTERVAL_MS_CONF, "0");
+    ConnectorContext context = mock(ConnectorContext.class);
+    this.connector.initialize(context);
+    this.connector.start(this.defaultSettings);
+    try {
+      List<Map<String, String>> taskConfigs = this.connector.taskConfigs(2);
+      assertEquals("bitcoin,nba", taskConfigs.get(0).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+
+      Map<String, LongAdder> counters = new LinkedHashMap<>();
+      for (String keyword : Arrays.asList("bitcoin", "kafka", "nba", "connect")) {
+        counters.put(keyword, new LongAdder());
+        KeywordVolumes.register("rebalanceByVolume", keyword, counters.get(keyword));
+      }
+      for (int check = 0; check < 3; check++) {
+        counters.get("bitcoin").add(1000);
+        counters.get("nba").add(800);
+        counters.get("kafka").add(10);
+        counters.get("connect").add(1);
+        this.connector.rebalance();
+      }
+      verify(context, times(1)).requestTaskReconfiguration();
+
+      taskConfigs = this.connector.taskConfigs(2);
+      assertEquals("bitcoin", taskConfigs.get(0).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+      assertEquals("nba,kafka,connect", taskConfigs.get(1).get(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF));
+      counters.forEach((keyword, counter) -> KeywordVolumes.unregister("rebalanceByVolume", keyword, counter));
+    } finally {
+      this.connector.stop();
+    }
+  }
 }
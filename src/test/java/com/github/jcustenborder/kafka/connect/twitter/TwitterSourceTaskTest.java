@@ -16,11 +16,522 @@
 package com.github.jcustenborder.kafka.connect.twitter;
 
 
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTaskContext;
+import org.apache.kafka.connect.storage.OffsetStorageReader;
 import org.junit.jupiter.api.Test;
+import twitter4j.HashtagEntity;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+import twitter4j.URLEntity;
+import twitter4j.UserMentionEntity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class TwitterSourceTaskTest {
+  static final String CORPUS = "corpus/statuses.ndjson";
+
+  static Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<>();
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_SECRET_KEY_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_CONSUMER_KEY_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.TWITTER_OAUTH_ACCESS_TOKEN_SECRET_CONF, "xxxxxx");
+    settings.put(TwitterSourceConnectorConfig.KAFKA_STATUS_TOPIC_CONF, "twitter");
+    settings.put(TwitterSourceConnectorConfig.PROCESS_DELETES_CONF, "true");
+    settings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, "kafka");
+    return settings;
+  }
+
+  static List<SourceRecord> poll(TwitterSourceTask task, int expected, long timeoutMs) throws InterruptedException {
+    List<SourceRecord> records = new ArrayList<>(expected);
+    final long deadline = System.currentTimeMillis() + timeoutMs;
+    while (records.size() < expected && System.currentTimeMillis() < deadline) {
+      records.addAll(task.poll());
+    }
+    return records;
+  }
+
   @Test
   public void test() {
     // Congrats on a passing test!
   }
-}
\ No newline at end of file
+
+  @Test
+  public void streamFromStub() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(server.configure(settings()));
+      try {
+        List<SourceRecord> records = poll(task, corpus.size(), TimeUnit.SECONDS.toMillis(30));
+        assertEquals(corpus.size(), records.size(), "Every status and delete in the corpus should be returned.");
+        assertTrue(records.stream().allMatch(r -> "twitter".equals(r.topic())));
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  @Test
+  public void adaptiveBatches() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    Map<String, String> settings = settings();
+    settings.put(TwitterSourceConnectorConfig.QUEUE_BATCH_MODE_CONF, TwitterSourceConnectorConfig.BatchMode.ADAPTIVE.name());
+    settings.put(TwitterSourceConnectorConfig.QUEUE_BATCH_SIZE_CONF, "1");
+    List<SourceRecord> records = streamFromStub(settings, corpus.size());
+    assertEquals(corpus.size(), records.size(), "Every status and delete in the corpus should be returned.");
+  }
+
+  @Test
+  public void stageLatencies() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(server.configure(settings()));
+      try {
+        List<SourceRecord> records = poll(task, corpus.size(), TimeUnit.SECONDS.toMillis(30));
+        assertEquals(corpus.size(), records.size());
+        for (SourceRecord record : records) {
+          task.commitRecord(record, null);
+        }
+        StageLatencies stages = task.metrics.stages;
+        // Deletes are queued, sent and acknowledged but are not converted and have no CreatedAt.
+        final long statuses = corpus.stream().filter(json -> !json.startsWith("{\"delete\"")).count();
+        assertEquals(statuses, stages.histogram(StageLatencies.Stage.CONVERSION).count());
+        assertEquals(records.size(), stages.histogram(StageLatencies.Stage.QUEUE).count());
+        assertEquals(records.size(), stages.histogram(StageLatencies.Stage.SEND).count());
+        assertEquals(statuses, stages.histogram(StageLatencies.Stage.END_TO_END).count());
+        assertEquals(0, stages.inFlight());
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  static List<SourceRecord> streamFromStub(Map<String, String> settings, int expected) throws IOException, InterruptedException {
+    try (StreamingStubServer server = new StreamingStubServer(StreamingStubServer.corpus(CORPUS), 0, 1)) {
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(server.configure(settings));
+      try {
+        return poll(task, expected, TimeUnit.SECONDS.toMillis(30));
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  @Test
+  public void builtinStreamClientMatchesTwitter4j() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    List<SourceRecord> expected = streamFromStub(settings(), corpus.size());
+    assertEquals(corpus.size(), expected.size());
+    for (String gzip : Arrays.asList("true", "false")) {
+      Map<String, String> settings = settings();
+      settings.put(TwitterSourceConnectorConfig.STREAM_CLIENT_CONF, TwitterSourceConnectorConfig.StreamClient.BUILTIN.name());
+      settings.put(TwitterSourceConnectorConfig.STREAM_GZIP_ENABLED_CONF, gzip);
+      List<SourceRecord> actual = streamFromStub(settings, corpus.size());
+      assertEquals(corpus.size(), actual.size(), gzip);
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).key(), actual.get(i).key(), gzip);
+        assertEquals(expected.get(i).valueSchema(), actual.get(i).valueSchema(), gzip);
+        assertEquals(expected.get(i).value(), actual.get(i).value(), gzip);
+        assertEquals(expected.get(i).topic(), actual.get(i).topic(), gzip);
+      }
+    }
+  }
+
+  @Test
+  public void flatOutputFormat() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    Map<String, String> settings = settings();
+    settings.put(TwitterSourceConnectorConfig.OUTPUT_FORMAT_CONF, TwitterSourceConnectorConfig.OutputFormat.FLAT.name());
+    List<SourceRecord> expected = streamFromStub(settings, corpus.size());
+    assertEquals(corpus.size(), expected.size());
+    assertTrue(
+        expected.stream().anyMatch(r -> StatusConverter.FLAT_STATUS_SCHEMA.equals(r.valueSchema())),
+        "Statuses should be written with the FlatStatus schema."
+    );
+    settings.put(TwitterSourceConnectorConfig.STREAM_CLIENT_CONF, TwitterSourceConnectorConfig.StreamClient.BUILTIN.name());
+    List<SourceRecord> actual = streamFromStub(settings, corpus.size());
+    assertEquals(corpus.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).key(), actual.get(i).key());
+      assertEquals(expected.get(i).valueSchema(), actual.get(i).valueSchema());
+      assertEquals(expected.get(i).value(), actual.get(i).value());
+    }
+  }
+
+  @Test
+  public void builtinStreamClientRaw() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    Map<String, String> settings = settings();
+    settings.put(TwitterSourceConnectorConfig.STREAM_CLIENT_CONF, TwitterSourceConnectorConfig.StreamClient.BUILTIN.name());
+    settings.put(TwitterSourceConnectorConfig.OUTPUT_FORMAT_CONF, TwitterSourceConnectorConfig.OutputFormat.JSON_STRING.name());
+    List<SourceRecord> records = streamFromStub(settings, corpus.size());
+    assertEquals(corpus.size(), records.size());
+    List<String> statuses = corpus.stream().filter(json -> !json.startsWith("{\"delete\"")).collect(Collectors.toList());
+    List<Object> values = records.stream().map(SourceRecord::value).filter(v -> null != v).collect(Collectors.toList());
+    assertEquals(statuses, values);
+  }
+
+  @Test
+  public void compactionTombstones() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    final long deletes = corpus.stream().filter(json -> json.startsWith("{\"delete\"")).count();
+    for (String client : Arrays.asList("TWITTER4J", "BUILTIN")) {
+      for (String format : Arrays.asList("STRUCT", "JSON_STRING")) {
+        final String message = client + " " + format;
+        Map<String, String> settings = settings();
+        settings.put(TwitterSourceConnectorConfig.STREAM_CLIENT_CONF, client);
+        settings.put(TwitterSourceConnectorConfig.OUTPUT_FORMAT_CONF, format);
+        settings.put(TwitterSourceConnectorConfig.COMPACTION_ENABLED_CONF, "true");
+        settings.put(TwitterSourceConnectorConfig.KAFKA_DELETE_TOPIC_CONF, "twitter-deletes");
+        settings.put(TwitterSourceConnectorConfig.TOPIC_ROUTES_CONF, "lang:ja=twitter-ja");
+        final int expected = (int) (corpus.size() + 2 * deletes);
+        List<SourceRecord> records = streamFromStub(settings, expected);
+        assertEquals(expected, records.size(), message);
+
+        List<SourceRecord> notices = records.stream()
+            .filter(r -> "twitter-deletes".equals(r.topic()))
+            .collect(Collectors.toList());
+        assertEquals(deletes, notices.size(), message);
+        for (SourceRecord notice : notices) {
+          assertEquals(StatusConverter.SCHEMA_STATUS_DELETION_NOTICE, notice.valueSchema(), message);
+          assertEquals(
+              ((Struct) notice.key()).getInt64("StatusId"),
+              ((Struct) notice.value()).getInt64("StatusId"),
+              message
+          );
+        }
+        List<SourceRecord> tombstones = records.stream()
+            .filter(r -> null == r.value())
+            .collect(Collectors.toList());
+        assertEquals(2 * deletes, tombstones.size(), message);
+        for (SourceRecord tombstone : tombstones) {
+          assertEquals(StatusConverter.STATUS_SCHEMA_KEY, tombstone.keySchema(), message);
+          assertTrue(Arrays.asList("twitter", "twitter-ja").contains(tombstone.topic()), message);
+        }
+        assertTrue(
+            records.stream().allMatch(r -> StatusConverter.STATUS_SCHEMA_KEY.equals(r.keySchema()) || "twitter-deletes".equals(r.topic())),
+            message + ": statuses and tombstones should share the StatusKey key."
+        );
+      }
+    }
+  }
+
+  @Test
+  public void convertOnWorkerThreads() throws IOException, InterruptedException, TwitterException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    for (TwitterSourceConnectorConfig.ConversionOrdering ordering : TwitterSourceConnectorConfig.ConversionOrdering.values()) {
+      try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+        Map<String, String> settings = server.configure(settings());
+        settings.put(TwitterSourceConnectorConfig.CONVERSION_THREADS_CONF, "4");
+        settings.put(TwitterSourceConnectorConfig.CONVERSION_ORDERING_CONF, ordering.name());
+        TwitterSourceTask task = new TwitterSourceTask();
+        task.start(settings);
+        try {
+          List<SourceRecord> records = poll(task, corpus.size(), TimeUnit.SECONDS.toMillis(30));
+          assertEquals(corpus.size(), records.size(), ordering.name());
+          List<Long> expected = new ArrayList<>();
+          for (String json : corpus) {
+            if (!json.startsWith("{\"delete\"")) {
+              expected.add(TwitterObjectFactory.createStatus(json).getId());
+            }
+          }
+          // Every status in the corpus is by the same user, so both orderings keep the arrival order.
+          List<Long> actual = records.stream()
+              .filter(r -> null != r.value())
+              .map(r -> ((Struct) r.value()).getInt64("Id"))
+              .collect(Collectors.toList());
+          assertEquals(expected, actual, ordering.name());
+        } finally {
+          task.stop();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void streamRawFromStub() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+      Map<String, String> settings = server.configure(settings());
+      settings.put(TwitterSourceConnectorConfig.OUTPUT_FORMAT_CONF, TwitterSourceConnectorConfig.OutputFormat.JSON_STRING.name());
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(settings);
+      try {
+        List<SourceRecord> records = poll(task, corpus.size(), TimeUnit.SECONDS.toMillis(30));
+        assertEquals(corpus.size(), records.size(), "Every status and delete in the corpus should be returned.");
+        for (int i = 0; i < corpus.size(); i++) {
+          SourceRecord record = records.get(i);
+          if (null != record.value()) {
+            assertEquals(corpus.get(i), record.value(), "Raw value should match the payload that was sent.");
+          }
+        }
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  @Test
+  public void matchedKeywordsFromStub() throws IOException, InterruptedException, TwitterException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    final List<String> keywords = Arrays.asList("kafka", "ConfluentInc", "example.com/articles", "stream consumer");
+    for (TwitterSourceConnectorConfig.OutputFormat outputFormat : TwitterSourceConnectorConfig.OutputFormat.values()) {
+      try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+        Map<String, String> settings = server.configure(settings());
+        settings.put(TwitterSourceConnectorConfig.FILTER_KEYWORDS_CONF, String.join(",", keywords));
+        settings.put(TwitterSourceConnectorConfig.MATCHED_KEYWORDS_ENABLED_CONF, "true");
+        settings.put(TwitterSourceConnectorConfig.OUTPUT_FORMAT_CONF, outputFormat.name());
+        TwitterSourceTask task = new TwitterSourceTask();
+        task.start(settings);
+        try {
+          List<SourceRecord> records = poll(task, corpus.size(), TimeUnit.SECONDS.toMillis(30));
+          assertEquals(corpus.size(), records.size());
+          int matched = 0;
+          for (int i = 0; i < corpus.size(); i++) {
+            if (corpus.get(i).startsWith("{\"delete\"")) {
+              continue;
+            }
+            Status status = TwitterObjectFactory.createStatus(corpus.get(i));
+            List<String> expected = expectedKeywords(status, keywords);
+            Header header = records.get(i).headers().lastWithName(KeywordMatcher.HEADER);
+            assertEquals(expected, null == header ? Collections.emptyList() : header.value(), outputFormat.name());
+            if (!expected.isEmpty()) {
+              matched++;
+              assertEquals(StatusPartitions.keywordPartition(expected.get(0)), records.get(i).sourcePartition());
+            }
+          }
+          assertTrue(matched > 0);
+        } finally {
+          task.stop();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void routeFromStub() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+      Map<String, String> settings = server.configure(settings());
+      settings.put(TwitterSourceConnectorConfig.TOPIC_ROUTES_CONF, "keyword:kafka=twitter-kafka,lang:und=twitter-und");
+      settings.put(TwitterSourceConnectorConfig.TOPIC_ROUTES_FANOUT_CONF, "true");
+      settings.put(TwitterSourceConnectorConfig.OUTPUT_FORMAT_CONF, TwitterSourceConnectorConfig.OutputFormat.JSON_STRING.name());
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(settings);
+      try {
+        List<SourceRecord> records = poll(task, corpus.size(), TimeUnit.SECONDS.toMillis(30));
+        // Give copies for the fan out a chance to arrive.
+        records.addAll(poll(task, corpus.size(), 1000));
+        Map<String, Long> topics = records.stream()
+            .collect(Collectors.groupingBy(SourceRecord::topic, Collectors.counting()));
+        assertEquals(10L, topics.get("twitter-kafka"), topics.toString());
+        assertEquals(10L, topics.get("twitter-und"), topics.toString());
+        assertTrue(topics.get("twitter") > 0, topics.toString());
+        assertEquals(corpus.size() + 10L, records.size(), "Statuses matching both routes are written twice.");
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  /**
+   * The slow way of finding the keywords a status matches.
+   */
+  static List<String> expectedKeywords(Status status, List<String> keywords) {
+    List<String> pieces = new ArrayList<>();
+    pieces.add(status.getText());
+    Arrays.stream(status.getURLEntities()).map(URLEntity::getExpandedURL).forEach(pieces::add);
+    Arrays.stream(status.getHashtagEntities()).map(HashtagEntity::getText).forEach(pieces::add);
+    Arrays.stream(status.getUserMentionEntities()).map(UserMentionEntity::getScreenName).forEach(pieces::add);
+    List<String> result = new ArrayList<>();
+    for (String keyword : keywords) {
+      boolean all = true;
+      for (String term : keyword.toLowerCase(Locale.ROOT).split(" ")) {
+        all &= pieces.stream().anyMatch(p -> p.toLowerCase(Locale.ROOT).contains(term));
+      }
+      if (all) {
+        result.add(keyword);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void dedupAcrossReconnects() throws IOException, InterruptedException {
+    List<String> corpus = StreamingStubServer.corpus(CORPUS);
+    final long deletes = corpus.stream().filter(json -> json.startsWith("{\"delete\"")).count();
+    // The stub replays the corpus twice, the same as a reconnect that resends recent statuses.
+    try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 2)) {
+      Map<String, String> settings = server.configure(settings());
+      settings.put(TwitterSourceConnectorConfig.DEDUP_ENABLED_CONF, "true");
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(settings);
+      try {
+        final int expected = (int) (corpus.size() + deletes);
+        List<SourceRecord> records = poll(task, expected, TimeUnit.SECONDS.toMillis(30));
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (task.deduplicator.hits.get() < corpus.size() - deletes && System.currentTimeMillis() < deadline) {
+          records.addAll(task.poll());
+        }
+        records.addAll(task.poll());
+        assertEquals(corpus.size() - deletes, task.deduplicator.hits.get());
+        assertEquals(expected, records.size(), "Statuses should only be written once. Deletes are not deduplicated.");
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  @Test
+  public void backfillFromStub() throws IOException, InterruptedException {
+    List<String> statuses = StreamingStubServer.corpus(CORPUS).stream()
+        .filter(json -> !json.startsWith("{\"delete\""))
+        .collect(Collectors.toList());
+    List<Long> ids = statuses.stream()
+        .map(StreamingStubServer.ID_PATTERN::matcher)
+        .filter(Matcher::find)
+        .map(matcher -> Long.parseLong(matcher.group(1)))
+        .distinct()
+        .sorted()
+        .collect(Collectors.toList());
+    final long sinceId = ids.get(2);
+    final int expected = ids.size() - 3;
+    final Map<String, String> partition = StatusPartitions.keywordPartition("kafka");
+
+    // Nothing arrives on the stream, so every record comes from the backfill.
+    try (StreamingStubServer server = new StreamingStubServer(Collections.emptyList(), 0, 1)) {
+      server.search(statuses, 5);
+      server.rateLimit(2);
+      Map<String, String> settings = server.configure(settings());
+      settings.put(TwitterSourceConnectorConfig.BACKFILL_ENABLED_CONF, "true");
+
+      OffsetStorageReader offsetStorageReader = mock(OffsetStorageReader.class);
+      doReturn(ImmutableMap.of(partition, ImmutableMap.of(StatusPartitions.STATUS_ID_OFFSET, sinceId)))
+          .when(offsetStorageReader).offsets(anyCollection());
+      SourceTaskContext context = mock(SourceTaskContext.class);
+      when(context.offsetStorageReader()).thenReturn(offsetStorageReader);
+
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.initialize(context);
+      task.start(settings);
+      try {
+        List<SourceRecord> records = poll(task, expected, TimeUnit.SECONDS.toMillis(30));
+        task.backfillThread.join(TimeUnit.SECONDS.toMillis(30));
+        records.addAll(task.poll());
+        assertEquals(expected, records.size(), "Every status after the committed offset should be backfilled.");
+        assertEquals(1L, task.backfill.rateLimited.get(), "The backfill should wait out the rate limit and retry.");
+        for (SourceRecord record : records) {
+          assertEquals(partition, record.sourcePartition());
+          assertEquals(
+              ImmutableMap.of(StatusPartitions.STATUS_ID_OFFSET, sinceId),
+              record.sourceOffset(),
+              "The offset should be held at the committed status id until the gap is filled."
+          );
+        }
+        assertEquals(
+            ImmutableMap.of(StatusPartitions.STATUS_ID_OFFSET, ids.get(ids.size() - 1)),
+            task.partitions.offset(partition, sinceId)
+        );
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  @Test
+  public void shedUnderStallWarning() throws IOException, InterruptedException {
+    List<String> corpus = new ArrayList<>();
+    corpus.add("{\"warning\":{\"code\":\"FALLING_BEHIND\",\"message\":\"Your connection is falling behind\",\"percent_full\":80}}");
+    corpus.addAll(StreamingStubServer.corpus(CORPUS));
+    int expected = 0;
+    int shed = 0;
+    RawStatusParser parser = new RawStatusParser();
+    for (String json : corpus) {
+      RawStatusParser.Type type = parser.parse(json);
+      if (RawStatusParser.Type.DELETE == type) {
+        expected++;
+      } else if (RawStatusParser.Type.STATUS == type) {
+        if (parser.userFollowersCount >= 1000000) {
+          expected++;
+        } else {
+          shed++;
+        }
+      }
+    }
+    // Every author in the corpus is below the threshold, so only the deletes are written.
+    assertTrue(shed > 0, "The corpus should have statuses that are not priority.");
+
+    try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+      Map<String, String> settings = server.configure(settings());
+      settings.put(TwitterSourceConnectorConfig.DEGRADED_ENABLED_CONF, "true");
+      settings.put(TwitterSourceConnectorConfig.QUEUE_PRIORITY_VERIFIED_CONF, "false");
+      settings.put(TwitterSourceConnectorConfig.QUEUE_PRIORITY_MIN_FOLLOWERS_CONF, "1000000");
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(settings);
+      try {
+        List<SourceRecord> records = poll(task, expected, TimeUnit.SECONDS.toMillis(30));
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (task.metrics.shed.sum() < shed && System.currentTimeMillis() < deadline) {
+          records.addAll(task.poll());
+        }
+        assertEquals(DegradedMode.Level.SHED, task.degradedMode.level);
+        assertEquals(shed, task.metrics.shed.sum());
+        assertEquals(expected, records.size(), "Only priority statuses and deletes should be written.");
+      } finally {
+        task.stop();
+      }
+    }
+  }
+
+  @Test
+  public void reduceUnderStallWarning() throws IOException, InterruptedException {
+    List<String> corpus = new ArrayList<>();
+    corpus.add("{\"warning\":{\"code\":\"FALLING_BEHIND\",\"message\":\"Your connection is falling behind\",\"percent_full\":50}}");
+    corpus.addAll(StreamingStubServer.corpus(CORPUS));
+    try (StreamingStubServer server = new StreamingStubServer(corpus, 0, 1)) {
+      Map<String, String> settings = server.configure(settings());
+      settings.put(TwitterSourceConnectorConfig.DEGRADED_ENABLED_CONF, "true");
+      TwitterSourceTask task = new TwitterSourceTask();
+      task.start(settings);
+      try {
+        List<SourceRecord> records = poll(task, corpus.size() - 1, TimeUnit.SECONDS.toMillis(30));
+        assertEquals(DegradedMode.Level.REDUCED, task.degradedMode.level);
+        assertEquals(corpus.size() - 1, records.size(), "Nothing should be dropped while reduced.");
+        for (SourceRecord record : records) {
+          if (null != record.value()) {
+            assertEquals(task.degradedMode.projection.statusSchema, record.valueSchema());
+            assertNull(record.valueSchema().field("MediaEntities"));
+          }
+        }
+      } finally {
+        task.stop();
+      }
+    }
+  }
+}